@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+
+/**
+ * This benchmark measures {@link CurrentUserService#getCurrentUser()} for a user
+ * logged in with OAuth, which runs on every authenticated request.
+ */
+public class CurrentUserServiceBenchmark extends SpringBenchmark {
+
+  private CurrentUserService currentUserService;
+
+  @Override
+  protected void prepare() {
+    currentUserService = context.getBean(CurrentUserService.class);
+
+    var authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+    var oAuthUser = new DefaultOAuth2User(authorities, Map.of(
+        "sub", "115856948234298493496",
+        "email", "admingaucho@ucsb.edu",
+        "email_verified", true,
+        "name", "Chris Gaucho",
+        "given_name", "Chris",
+        "family_name", "Gaucho",
+        "picture", "https://lh3.googleusercontent.com/a/default-user",
+        "locale", "en",
+        "hd", "ucsb.edu"), "sub");
+
+    // the benchmark threads are not the thread running this method
+    SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+    SecurityContextHolder.getContext().setAuthentication(
+        new OAuth2AuthenticationToken(oAuthUser, authorities, "google"));
+  }
+
+  @Benchmark
+  public CurrentUser getCurrentUser() {
+    return currentUserService.getCurrentUser();
+  }
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * This benchmark measures {@code GET /api/<entity>/all}, i.e. loading a whole table
+ * and serializing it to JSON, for each entity and for a small and a large table.
+ */
+public class FindAllBenchmark extends SpringBenchmark {
+
+  @Param({ "helprequest", "menuitemreview", "recommendationrequests", "restaurants", "ucsbarticles",
+      "ucsbdates", "ucsbdiningcommons", "ucsbdiningcommonsmenuitem", "ucsborganizations" })
+  public String entity;
+
+  @Param({ "100", "1000" })
+  public int rows;
+
+  @Override
+  protected void prepare() throws Exception {
+    seed(entity, rows);
+  }
+
+  @Benchmark
+  public byte[] findAll() throws Exception {
+    return perform(get("/api/%s/all".formatted(entity))).getContentAsByteArray();
+  }
+}
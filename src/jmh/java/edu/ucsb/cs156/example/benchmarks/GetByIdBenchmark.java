@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * This benchmark measures {@code GET /api/<entity>?id=}, i.e. a primary key lookup
+ * and serializing one row, against a table of 1000 rows.
+ */
+public class GetByIdBenchmark extends SpringBenchmark {
+
+  static final int ROWS = 1000;
+
+  @Param({ "helprequest", "menuitemreview", "recommendationrequests", "restaurants", "ucsbarticles",
+      "ucsbdates", "ucsbdiningcommons", "ucsbdiningcommonsmenuitem", "ucsborganizations" })
+  public String entity;
+
+  private int next;
+
+  @Override
+  protected void prepare() throws Exception {
+    seed(entity, ROWS);
+  }
+
+  @Benchmark
+  public byte[] getById() throws Exception {
+    next = next % ROWS + 1;
+    return perform(getByIdRequest(entity, next)).getContentAsByteArray();
+  }
+}
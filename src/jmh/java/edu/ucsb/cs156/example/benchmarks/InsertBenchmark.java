@@ -0,0 +1,63 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+
+/**
+ * This benchmark measures inserting rows through {@code RestaurantRepository.saveAll},
+ * 1000 rows per transaction, with JDBC batching off ({@code batchSize=1}) and on.
+ * Because ids come from a pooled sequence, Hibernate can batch the inserts; with
+ * identity columns it would have to send them one at a time whatever the batch size.
+ *
+ * By default it runs against the in-memory H2 database.  To run it against Postgres,
+ * pass the JDBC url as a parameter and the credentials in the environment, e.g.
+ * <pre>
+ * SPRING_DATASOURCE_USERNAME=postgres SPRING_DATASOURCE_PASSWORD=postgres BENCHMARK=true mvn verify \
+ *   -Djmh.args="-p jdbcUrl=jdbc:postgresql://localhost:5432/bench InsertBenchmark"
+ * </pre>
+ * Rows are never deleted, so use a scratch database.
+ */
+public class InsertBenchmark extends SpringBenchmark {
+
+  private static final int ROWS = 1000;
+
+  @Param({ "1", "50" })
+  public int batchSize;
+
+  @Param({ "" })
+  public String jdbcUrl;
+
+  private RestaurantRepository restaurantRepository;
+
+  @Override
+  protected List<String> arguments() {
+    List<String> args = new ArrayList<>();
+    args.add("--spring.jpa.properties.hibernate.jdbc.batch_size=" + batchSize);
+    if (!jdbcUrl.isEmpty()) {
+      args.add("--spring.datasource.url=" + jdbcUrl);
+    }
+    return args;
+  }
+
+  @Override
+  protected void prepare() {
+    restaurantRepository = context.getBean(RestaurantRepository.class);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public Iterable<Restaurant> saveAll() {
+    List<Restaurant> restaurants = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+      restaurants.add(Restaurant.builder().name("Restaurant " + i).description("Description " + i).build());
+    }
+    return restaurantRepository.saveAll(restaurants);
+  }
+}
@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import edu.ucsb.cs156.example.aop.LoggingAspect;
+
+/**
+ * This benchmark measures the overhead that {@link LoggingAspect#logControllers} adds
+ * to every controller call, by comparing a call to a controller method through an
+ * AspectJ proxy with a direct call to the same method.
+ *
+ * It runs with the aspect's logger at INFO (the message is formatted and encoded,
+ * then written to a stream that discards it) and at WARN (the message is dropped).
+ * No Spring context is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingAspectBenchmark {
+
+  /**
+   * A stand in for a controller; only the mapping annotation matters to the aspect.
+   */
+  public static class BenchmarkController {
+    @GetMapping("/all")
+    public int all() {
+      return 42;
+    }
+  }
+
+  @Param({ "INFO", "WARN" })
+  public String level;
+
+  private BenchmarkController controller;
+  private BenchmarkController advisedController;
+  private OutputStreamAppender<ILoggingEvent> appender;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    controller = new BenchmarkController();
+
+    AspectJProxyFactory factory = new AspectJProxyFactory(controller);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new LoggingAspect());
+    advisedController = factory.getProxy();
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/ucsbarticles/all");
+    RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+    LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+    PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+    encoder.setContext(loggerContext);
+    encoder.setPattern("%d %-5level [%thread] %logger{36} : %msg%n");
+    encoder.start();
+    appender = new OutputStreamAppender<>();
+    appender.setContext(loggerContext);
+    appender.setEncoder(encoder);
+    appender.setOutputStream(OutputStream.nullOutputStream());
+    appender.start();
+
+    Logger logger = loggerContext.getLogger(LoggingAspect.class);
+    logger.setLevel(ch.qos.logback.classic.Level.toLevel(level));
+    logger.setAdditive(false);
+    logger.addAppender(appender);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    appender.stop();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Benchmark
+  public int direct() {
+    return controller.all();
+  }
+
+  @Benchmark
+  public int advised() {
+    return advisedController.all();
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * This benchmark measures {@code POST /api/<entity>/post}, i.e. inserting one row
+ * and serializing it back.  Every invocation inserts a row with a new key, so the
+ * table grows for the length of the trial.
+ */
+public class PostBenchmark extends SpringBenchmark {
+
+  @Param({ "helprequest", "menuitemreview", "recommendationrequests", "restaurants", "ucsbarticles",
+      "ucsbdates", "ucsbdiningcommons", "ucsbdiningcommonsmenuitem", "ucsborganizations" })
+  public String entity;
+
+  private final AtomicInteger next = new AtomicInteger();
+
+  @Benchmark
+  public byte[] post() throws Exception {
+    return perform(postRequest(entity, next.incrementAndGet())).getContentAsByteArray();
+  }
+}
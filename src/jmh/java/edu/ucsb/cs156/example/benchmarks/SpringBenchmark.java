@@ -0,0 +1,204 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+
+/**
+ * This is the base class for benchmarks that need the whole application.
+ *
+ * It boots the Spring context once per trial with the {@code benchmark} profile
+ * (an in-memory H2 database, see application-benchmark.properties) and drives the
+ * controllers through MockMvc, so each measurement includes security, the aspects,
+ * the controller, the repository and JSON serialization, but not the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class SpringBenchmark {
+
+  protected ConfigurableApplicationContext context;
+  protected MockMvc mockMvc;
+
+  @Setup(Level.Trial)
+  public void startApplication() throws Exception {
+    List<String> args = new ArrayList<>(arguments());
+    args.add("--spring.profiles.active=benchmark");
+    context = SpringApplication.run(ExampleApplication.class, args.toArray(String[]::new));
+    mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+        .apply(springSecurity())
+        .build();
+    prepare();
+  }
+
+  /**
+   * This method returns extra command line arguments for the application, e.g.
+   * {@code --spring.datasource.url=...}.  Subclasses override it to change settings per trial.
+   *
+   * @return the arguments
+   */
+  protected List<String> arguments() {
+    return List.of();
+  }
+
+  /**
+   * This method is called once the application has started, before any measurement.
+   * Subclasses override it to insert the rows they need.  (JMH does not promise to run
+   * a superclass's {@code @Setup} methods first, so subclasses should not declare their own.)
+   *
+   * @throws Exception if preparing fails
+   */
+  protected void prepare() throws Exception {
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    context.close();
+  }
+
+  /**
+   * This method performs a request as a logged in admin and returns the response.
+   * A response with an error status fails the benchmark rather than timing the error path.
+   *
+   * @param request the request to perform
+   * @return the response
+   * @throws Exception if the request fails
+   */
+  protected MockHttpServletResponse perform(MockHttpServletRequestBuilder request) throws Exception {
+    MvcResult result = mockMvc
+        .perform(request.with(user("admingaucho@ucsb.edu").roles("ADMIN", "USER")).with(csrf()))
+        .andReturn();
+    MockHttpServletResponse response = result.getResponse();
+    if (response.getStatus() >= 400) {
+      throw new IllegalStateException("%s returned %d: %s".formatted(
+          result.getRequest().getRequestURI(), response.getStatus(), response.getContentAsString()));
+    }
+    return response;
+  }
+
+  /**
+   * This method inserts rows into a table through its {@code /post} endpoint.
+   *
+   * @param entity the last part of the controller's path, e.g. "ucsbarticles"
+   * @param rows the number of rows to insert
+   * @throws Exception if a request fails
+   */
+  protected void seed(String entity, int rows) throws Exception {
+    for (int i = 1; i <= rows; i++) {
+      perform(postRequest(entity, i));
+    }
+  }
+
+  /**
+   * This method builds the {@code /post} request that creates the i-th row of a table.
+   * Rows with different values of i have different keys.
+   *
+   * @param entity the last part of the controller's path, e.g. "ucsbarticles"
+   * @param i the row number
+   * @return the request
+   */
+  protected static MockHttpServletRequestBuilder postRequest(String entity, int i) {
+    MockHttpServletRequestBuilder request = post("/api/%s/post".formatted(entity));
+    return switch (entity) {
+      case "helprequest" -> request
+          .param("requesterEmail", "student%d@ucsb.edu".formatted(i))
+          .param("teamId", "f24-" + (i % 20))
+          .param("tableOrBreakoutRoom", Integer.toString(i % 12))
+          .param("requestTime", "2024-10-01T12:00:00")
+          .param("explanation", "Need help with the benchmark harness")
+          .param("solved", "false");
+      case "menuitemreview" -> request
+          .param("itemId", Integer.toString(i % 50))
+          .param("reviewerEmail", "reviewer%d@ucsb.edu".formatted(i))
+          .param("stars", Integer.toString(i % 5 + 1))
+          .param("dateReviewed", "2024-10-01T12:00:00")
+          .param("comments", "Tasty, would eat again");
+      case "recommendationrequests" -> request
+          .param("requesterEmail", "student%d@ucsb.edu".formatted(i))
+          .param("professorEmail", "professor%d@ucsb.edu".formatted(i % 10))
+          .param("explanation", "Graduate school application")
+          .param("dateRequested", "2024-10-01T12:00:00")
+          .param("dateNeeded", "2024-12-01T12:00:00")
+          .param("done", "false");
+      case "restaurants" -> request
+          .param("name", "Restaurant " + i)
+          .param("description", "A place to eat");
+      case "ucsbarticles" -> request
+          .param("title", "Article " + i)
+          .param("url", "https://dailynexus.com/" + i)
+          .param("explanation", "An article about campus")
+          .param("email", "cgaucho@ucsb.edu")
+          .param("dateAdded", "2024-10-01T12:00:00");
+      case "ucsbdates" -> request
+          .param("quarterYYYYQ", "2024" + (i % 4 + 1))
+          .param("name", "Date " + i)
+          .param("localDateTime", "2024-10-01T12:00:00");
+      case "ucsbdiningcommons" -> request
+          .param("code", "commons" + i)
+          .param("name", "Dining Commons " + i)
+          .param("hasSackMeal", "true")
+          .param("hasTakeOutMeal", "true")
+          .param("hasDiningCam", "false")
+          .param("latitude", "34.41")
+          .param("longitude", "-119.85");
+      case "ucsbdiningcommonsmenuitem" -> request
+          .param("diningCommonsCode", "ortega")
+          .param("name", "Menu Item " + i)
+          .param("station", "Entrees");
+      case "ucsborganizations" -> request
+          .param("orgField", "ORG" + i)
+          .param("orgTranslationShort", "Org " + i)
+          .param("orgTranslation", "Organization " + i)
+          .param("inactive", "false");
+      default -> throw new IllegalArgumentException("No benchmark data for " + entity);
+    };
+  }
+
+  /**
+   * This method builds the request that gets the i-th row of a table by its key.
+   *
+   * @param entity the last part of the controller's path, e.g. "ucsbarticles"
+   * @param i the row number, as passed to {@link #postRequest(String, int)}
+   * @return the request
+   */
+  protected static MockHttpServletRequestBuilder getByIdRequest(String entity, int i) {
+    MockHttpServletRequestBuilder request = get("/api/%s".formatted(entity));
+    return switch (entity) {
+      case "helprequest" -> request.param("id", "student%d@ucsb.edu".formatted(i));
+      case "ucsbdiningcommons" -> request.param("code", "commons" + i);
+      case "ucsborganizations" -> request.param("orgField", "ORG" + i);
+      default -> request.param("id", Integer.toString(i));
+    };
+  }
+}
@@ -0,0 +1,174 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+/**
+ * This benchmark measures {@code GET /api/admin/users} over real HTTP with a large users
+ * table, and the peak heap used while answering it.
+ *
+ * {@code streamed} calls the endpoint, which writes the users to the response a batch at a
+ * time.  {@code buffered} calls an endpoint that is only added here and does what
+ * {@code GET /api/admin/users} used to do: load every user with {@code findAll()},
+ * serialize them to one String and return it.  Both go through Tomcat, so that the response
+ * is not collected in memory by MockMvc.
+ *
+ * Before each request the heap is collected and the peak usage of the heap memory pools
+ * is reset; after it, the peak above what was in use before is recorded.  The young
+ * generation is fixed at 16 MB, so that the peak is what the request keeps alive rather
+ * than how much garbage fits in the young generation.  The client reads and discards the
+ * response as it arrives, so it adds nothing to the peak.  The largest peak of each
+ * iteration is printed with the iteration's result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx2g", "-Xmn16m" })
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class UsersListBenchmark {
+
+  private static final int BATCH = 1000;
+
+  /**
+   * The users list as it was before it was streamed, added only for this benchmark.
+   */
+  static class BufferedUsers {
+    @Bean
+    RouterFunction<ServerResponse> bufferedUsers(UserRepository userRepository, ObjectMapper mapper) {
+      return RouterFunctions.route()
+          .GET("/benchmark/users/buffered", request -> ServerResponse.ok()
+              .contentType(MediaType.APPLICATION_JSON)
+              .body(mapper.writeValueAsString(userRepository.findAll())))
+          .build();
+    }
+  }
+
+  @Param({ "100000" })
+  public int users;
+
+  private ServletWebServerApplicationContext context;
+  private HttpClient client;
+  private HttpRequest streamed;
+  private HttpRequest buffered;
+
+  private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+      .filter(pool -> pool.getType() == MemoryType.HEAP)
+      .toList();
+  private long heapBefore;
+  private long peakHeap;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = (ServletWebServerApplicationContext) SpringApplication.run(
+        new Class<?>[] { ExampleApplication.class, VirtualThreadsBenchmark.BenchmarkAuthentication.class,
+            BufferedUsers.class },
+        new String[] { "--spring.profiles.active=benchmark", "--spring.jpa.properties.hibernate.jdbc.batch_size=50" });
+
+    UserRepository repository = context.getBean(UserRepository.class);
+    for (int start = 0; start < users; start += BATCH) {
+      List<User> batch = new ArrayList<>(BATCH);
+      for (int i = start; i < Math.min(start + BATCH, users); i++) {
+        batch.add(User.builder()
+            .email("user%d@ucsb.edu".formatted(i))
+            .googleSub("1157%016d".formatted(i))
+            .pictureUrl("https://lh3.googleusercontent.com/a/user%d=s96-c".formatted(i))
+            .fullName("User %d Gaucho".formatted(i))
+            .givenName("User %d".formatted(i))
+            .familyName("Gaucho")
+            .emailVerified(true)
+            .locale("en")
+            .hostedDomain("ucsb.edu")
+            .build());
+      }
+      repository.saveAll(batch);
+    }
+
+    int port = context.getWebServer().getPort();
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    streamed = HttpRequest.newBuilder(URI.create("http://localhost:%d/api/admin/users".formatted(port))).build();
+    buffered = HttpRequest.newBuilder(URI.create("http://localhost:%d/benchmark/users/buffered".formatted(port))).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    client.close();
+    context.close();
+  }
+
+  @Setup(Level.Invocation)
+  public void resetPeakHeap() {
+    System.gc();
+    heapBefore = heapPools.stream().mapToLong(pool -> pool.getUsage().getUsed()).sum();
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+  }
+
+  @TearDown(Level.Invocation)
+  public void recordPeakHeap() {
+    long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+    peakHeap = Math.max(peakHeap, peak - heapBefore);
+  }
+
+  @TearDown(Level.Iteration)
+  public void printPeakHeap() {
+    System.out.printf("peak heap used by one request: %d MB%n", peakHeap / (1024 * 1024));
+    peakHeap = 0;
+  }
+
+  @Benchmark
+  public long streamed() throws Exception {
+    return get(streamed);
+  }
+
+  @Benchmark
+  public long buffered() throws Exception {
+    return get(buffered);
+  }
+
+  private long get(HttpRequest request) throws Exception {
+    HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    try (InputStream body = response.body()) {
+      if (response.statusCode() != 200) {
+        throw new IllegalStateException("%s returned %d".formatted(response.uri(), response.statusCode()));
+      }
+      return body.transferTo(OutputStream.nullOutputStream());
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package edu.ucsb.cs156.example.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import edu.ucsb.cs156.example.ExampleApplication;
+import edu.ucsb.cs156.example.entities.UCSBArticles;
+import edu.ucsb.cs156.example.repositories.UCSBArticlesRepository;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * This benchmark measures the throughput, in requests per second, of
+ * {@code GET /api/ucsbarticles/all} over real HTTP while {@link #CONCURRENCY} requests are
+ * in flight at once, with Tomcat on its default platform thread pool and with the
+ * {@code virtualthreads} profile.
+ *
+ * Unlike the other benchmarks this one goes through Tomcat, so that the thread model is
+ * what is being measured.  Requests are authenticated by a filter that is only added here.
+ * With the {@code virtualthreads} profile, pinned virtual threads are logged as warnings
+ * in the benchmark output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class VirtualThreadsBenchmark {
+
+  static final int CONCURRENCY = 400;
+  static final int ROWS = 100;
+
+  /**
+   * Logs every request in as an admin, in place of OAuth.  It runs inside the Spring
+   * Security filter chain's scope, so method security sees the authentication.
+   */
+  static class BenchmarkAuthentication {
+    @Bean
+    FilterRegistrationBean<OncePerRequestFilter> benchmarkAuthenticationFilter() {
+      FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(
+          new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                FilterChain filterChain) throws ServletException, IOException {
+              SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                  "admingaucho@ucsb.edu", null, AuthorityUtils.createAuthorityList("ROLE_ADMIN", "ROLE_USER")));
+              filterChain.doFilter(request, response);
+            }
+          });
+      registration.setOrder(0);
+      return registration;
+    }
+  }
+
+  @Param({ "false", "true" })
+  public boolean virtualThreads;
+
+  private ServletWebServerApplicationContext context;
+  private ExecutorService clientThreads;
+  private HttpClient client;
+  private HttpRequest request;
+
+  @Setup(Level.Trial)
+  public void startApplication() {
+    context = (ServletWebServerApplicationContext) SpringApplication.run(
+        new Class<?>[] { ExampleApplication.class, BenchmarkAuthentication.class },
+        new String[] { "--spring.profiles.active=benchmark" + (virtualThreads ? ",virtualthreads" : "") });
+
+    UCSBArticlesRepository repository = context.getBean(UCSBArticlesRepository.class);
+    for (int i = 1; i <= ROWS; i++) {
+      repository.save(UCSBArticles.builder()
+          .title("Article " + i)
+          .url("https://dailynexus.com/" + i)
+          .explanation("An article about campus")
+          .email("cgaucho@ucsb.edu")
+          .dateAdded(LocalDateTime.parse("2024-10-01T12:00:00"))
+          .build());
+    }
+
+    clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+    client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .executor(clientThreads)
+        .build();
+    request = HttpRequest.newBuilder(URI.create(
+        "http://localhost:%d/api/ucsbarticles/all".formatted(context.getWebServer().getPort()))).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void stopApplication() {
+    client.close();
+    clientThreads.close();
+    context.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CONCURRENCY)
+  public int concurrentRequests() {
+    List<CompletableFuture<HttpResponse<byte[]>>> responses = IntStream.range(0, CONCURRENCY)
+        .mapToObj(i -> client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()))
+        .toList();
+    int bytes = 0;
+    for (CompletableFuture<HttpResponse<byte[]>> response : responses) {
+      HttpResponse<byte[]> r = response.join();
+      if (r.statusCode() != 200) {
+        throw new IllegalStateException("%s returned %d".formatted(r.uri(), r.statusCode()));
+      }
+      bytes += r.body().length;
+    }
+    return bytes;
+  }
+}
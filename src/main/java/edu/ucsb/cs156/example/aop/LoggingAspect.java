@@ -3,21 +3,30 @@ package edu.ucsb.cs156.example.aop;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Optional;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * This class is an Aspect that logs all invocations of controller methods that are annotated
  * with {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping},
  * or {@code @PatchMapping}.
  * 
+ * This runs on every request, so it does no work at all unless INFO is enabled for this
+ * class, and the "handled by" part of the message is built only once per controller method.
+ * The log output itself is written by an asynchronous appender (see logback-spring.xml),
+ * so request threads do not wait on the console.
+ * 
  * For more information on Aspect Oriented Programming (AOP)
  * and AspectJ, including what a {@code JoinPoint} is, 
  * refer to <a href="https://www.baeldung.com/aspectj">https://www.baeldung.com/aspectj</a> 
@@ -29,7 +38,7 @@ import java.util.Optional;
 @Component
 public class LoggingAspect {
   // language=PointcutExpression
-  private static final String pointcut = """
+  static final String pointcut = """
       @annotation(org.springframework.web.bind.annotation.RequestMapping) ||
       @annotation(org.springframework.web.bind.annotation.GetMapping) ||
       @annotation(org.springframework.web.bind.annotation.PostMapping) ||
@@ -38,8 +47,22 @@ public class LoggingAspect {
       @annotation(org.springframework.web.bind.annotation.PatchMapping)
       """;
 
-  private ArrayList<String> stoplist = new ArrayList<String>(Arrays.asList(
-      "edu.ucsb.cs156.example.controllers.FrontendProxyController"));
+  /**
+   * Names of controller classes whose calls are not logged.
+   */
+  private static final Set<String> STOPLIST = Set.of(
+      "edu.ucsb.cs156.example.controllers.FrontendProxyController");
+
+  /**
+   * Marks a controller method in {@link #handlers} whose class is on the stoplist.
+   */
+  private static final String NOT_LOGGED = "";
+
+  /**
+   * For each controller method, the "{method} in {class}" part of the log message,
+   * or {@link #NOT_LOGGED}.
+   */
+  private final ConcurrentMap<Method, String> handlers = new ConcurrentHashMap<>();
 
   /**
    * This method is called before any controller method that is annotated with
@@ -49,26 +72,40 @@ public class LoggingAspect {
    */
   @Before(pointcut)
   public void logControllers(JoinPoint joinPoint) {
-    getCurrentHttpRequest().ifPresent(
-        request -> {
-          String declaringTypeName = joinPoint.getSignature().getDeclaringTypeName();
-          if (!stoplist.contains(declaringTypeName)) {
-            log.info("===== %s %s handled by %s in %s".formatted(request.getMethod(), request.getRequestURI(),
-                joinPoint.getSignature().getName(), declaringTypeName));
-          }
-        });
+    if (!log.isInfoEnabled()) {
+      return;
+    }
+    HttpServletRequest request = getCurrentHttpRequest();
+    if (request == null) {
+      return;
+    }
+    Signature signature = joinPoint.getSignature();
+    String handler = handlers.computeIfAbsent(((MethodSignature) signature).getMethod(),
+        method -> describeHandler(signature));
+    if (handler != NOT_LOGGED) {
+      log.info("===== {} {} handled by {}", request.getMethod(), request.getRequestURI(), handler);
+    }
+  }
+
+  private static String describeHandler(Signature signature) {
+    String declaringTypeName = signature.getDeclaringTypeName();
+    if (STOPLIST.contains(declaringTypeName)) {
+      return NOT_LOGGED;
+    }
+    return signature.getName() + " in " + declaringTypeName;
   }
 
   /**
-   * The function `getCurrentHttpRequest` returns an `Optional` containing the current
+   * The function `getCurrentHttpRequest` returns the current
    * `HttpServletRequest` if available.
    * 
-   * @return An Optional object containing the current HttpServletRequest, if available.
+   * @return the current HttpServletRequest, or null if there is none.
    */
-  private static Optional<HttpServletRequest> getCurrentHttpRequest() {
-    return Optional.ofNullable(RequestContextHolder.getRequestAttributes())
-        .filter(ServletRequestAttributes.class::isInstance)
-        .map(ServletRequestAttributes.class::cast)
-        .map(ServletRequestAttributes::getRequest);
+  private static HttpServletRequest getCurrentHttpRequest() {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes instanceof ServletRequestAttributes servletRequestAttributes) {
+      return servletRequestAttributes.getRequest();
+    }
+    return null;
   }
 }
@@ -0,0 +1,88 @@
+package edu.ucsb.cs156.example.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is an Aspect that times every call to a controller method matched by the
+ * same pointcut as {@link LoggingAspect}, and records it in the Micrometer timer
+ * {@code controller.invocations}, tagged with the controller {@code class}, the
+ * {@code method}, and the simple name of the {@code exception} it threw ("none" if it
+ * returned normally), so the count of a tag set with an exception is an error count.
+ * 
+ * Each timer publishes its p50, p99 and p999 latencies as the gauge
+ * {@code controller.invocations.percentile} (tag {@code phi}), e.g.
+ * {@code /actuator/metrics/controller.invocations.percentile?tag=method:allUCSBArticles&tag=phi:0.99}
+ */
+
+@Aspect
+@Component
+public class TimingAspect {
+
+  /**
+   * The name of the timer that this aspect records.
+   */
+  public static final String METRIC_NAME = "controller.invocations";
+
+  private final MeterRegistry registry;
+
+  /**
+   * For each controller method, its timer for calls that return normally.
+   */
+  private final ConcurrentMap<Method, Timer> successTimers = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor for the aspect
+   * 
+   * @param registry the registry that the timers are added to
+   */
+  public TimingAspect(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * This method is called around any controller method that is annotated with
+   * {@code @RequestMapping}, {@code @GetMapping}, {@code @PostMapping}, {@code @PutMapping}, {@code @DeleteMapping},
+   * or {@code @PatchMapping}.
+   * @param joinPoint the join point (injected by Spring framework)
+   * @return the value returned by the controller method
+   * @throws Throwable whatever the controller method throws
+   */
+  @Around(LoggingAspect.pointcut)
+  public Object timeControllers(ProceedingJoinPoint joinPoint) throws Throwable {
+    long start = registry.config().clock().monotonicTime();
+    try {
+      Object result = joinPoint.proceed();
+      Signature signature = joinPoint.getSignature();
+      successTimers
+          .computeIfAbsent(((MethodSignature) signature).getMethod(), method -> timer(signature, "none"))
+          .record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+      return result;
+    } catch (Throwable e) {
+      timer(joinPoint.getSignature(), e.getClass().getSimpleName())
+          .record(registry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+      throw e;
+    }
+  }
+
+  private Timer timer(Signature signature, String exception) {
+    return Timer.builder(METRIC_NAME)
+        .description("Time taken by controller methods")
+        .tag("class", signature.getDeclaringType().getSimpleName())
+        .tag("method", signature.getName())
+        .tag("exception", exception)
+        .publishPercentiles(0.5, 0.99, 0.999)
+        .register(registry);
+  }
+}
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * The `ReferenceDataCacheConfig` class configures the read-through caches of the small
+ * reference tables (dining commons and organizations), which are read far more often
+ * than they are written.
+ */
+@Configuration
+public class ReferenceDataCacheConfig {
+
+  @Value("${app.reference-cache.maximum-size:10000}")
+  private long maximumSize;
+
+  @Value("${app.reference-cache.time-to-live:PT10M}")
+  private Duration timeToLive;
+
+  /**
+   * The `diningCommonsCache` bean caches the ucsbdiningcommons table, keyed by code.
+   * 
+   * @param repository the repository of dining commons
+   * @return the cache
+   */
+  @Bean
+  public ReferenceDataCache<UCSBDiningCommons, String> diningCommonsCache(UCSBDiningCommonsRepository repository) {
+    return new ReferenceDataCache<>("ucsbDiningCommons", repository, maximumSize, timeToLive);
+  }
+
+  /**
+   * The `organizationCache` bean caches the ucsborganizations table, keyed by org field.
+   * 
+   * @param repository the repository of organizations
+   * @return the cache
+   */
+  @Bean
+  public ReferenceDataCache<UCSBOrganization, String> organizationCache(UCSBOrganizationRepository repository) {
+    return new ReferenceDataCache<>("ucsbOrganizations", repository, maximumSize, timeToLive);
+  }
+}
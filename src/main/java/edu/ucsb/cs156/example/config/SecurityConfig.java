@@ -1,7 +1,8 @@
 package edu.ucsb.cs156.example.config;
 
-import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminStatusCache;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -40,11 +41,9 @@ import static org.springframework.security.web.util.matcher.AntPathRequestMatche
 
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -60,16 +59,51 @@ import java.util.function.Supplier;
 public class SecurityConfig {
 
   @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<>();
+  private final Set<String> adminEmails = new HashSet<>();
+
+  @Value("${app.admin.cache.maximum-size:10000}")
+  private long adminCacheMaximumSize;
+
+  @Value("${app.admin.cache.time-to-live:PT5M}")
+  private Duration adminCacheTimeToLive;
+
+  @Value("${app.users.cache.maximum-size:10000}")
+  private long userCacheMaximumSize;
+
+  @Value("${app.users.cache.time-to-live:PT1M}")
+  private Duration userCacheTimeToLive;
 
   @Autowired
   UserRepository userRepository;
 
+  /**
+   * The `adminStatusCache` bean caches the admin flag from the users table, so that
+   * mapping the authorities of a login does not query the database every time.
+   * 
+   * @return the cache
+   */
+  @Bean
+  public AdminStatusCache adminStatusCache() {
+    return new AdminStatusCache(userRepository, adminCacheMaximumSize, adminCacheTimeToLive);
+  }
+
+  /**
+   * The `currentUserCache` bean caches the User row of each logged in user, so that
+   * authenticated requests do not query the database every time.
+   * 
+   * @return the cache
+   */
+  @Bean
+  public CurrentUserCache currentUserCache() {
+    return new CurrentUserCache(userCacheMaximumSize, userCacheTimeToLive);
+  }
+
   /**
    * The `filterChain` method in this Java code configures various security
    * settings for an HTTP request,
    * including authorization, exception handling, OAuth2 login, CSRF protection,
-   * and logout behavior.
+   * and logout behavior.  The actuator endpoints (e.g. /actuator/metrics) are only
+   * available to admins.
    * 
    * @param http injected HttpSecurity object (injected by Spring framework)
    *             //
@@ -85,7 +119,9 @@ public class SecurityConfig {
             .csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
             .csrfTokenRequestHandler(new SpaCsrfTokenRequestHandler()))
         .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
-        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+        .authorizeHttpRequests(auth -> auth
+            .requestMatchers(antMatcher("/actuator/**")).hasRole("ADMIN")
+            .anyRequest().permitAll())
         .logout(logout -> logout.logoutRequestMatcher(new AntPathRequestMatcher("/logout")).logoutSuccessUrl("/"));
     return http.build();
   }
@@ -133,7 +169,7 @@ public class SecurityConfig {
   /**
    * This method checks if the given email belongs to an admin user either from a
    * predefined
-   * list or by querying the user repository.
+   * set or by looking up the (cached) admin flag in the user repository.
    * 
    * @param email email address of the user
    * @return whether the user with the given email is an admin
@@ -142,8 +178,7 @@ public class SecurityConfig {
     if (adminEmails.contains(email)) {
       return true;
     }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return adminStatusCache().isAdmin(email);
   }
 }
 
@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.repositories.TableVersionTracker;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The `TableVersionConfig` class installs the {@link TableVersionTracker}, which counts the
+ * writes to each table so that listings of whole tables can be given ETags.
+ */
+@Configuration
+public class TableVersionConfig {
+
+  /**
+   * The `tableVersionTracker` bean keeps the counters in the table_versions table.
+   *
+   * @param jdbcTemplate used to update the counters
+   * @return the tracker
+   */
+  @Bean
+  public TableVersionTracker tableVersionTracker(JdbcTemplate jdbcTemplate) {
+    return new TableVersionTracker(jdbcTemplate);
+  }
+
+  /**
+   * The `tableVersionInspector` bean makes the tracker Hibernate's StatementInspector, so
+   * that it sees every statement Hibernate sends.
+   *
+   * @param tracker the tracker
+   * @return the customizer of the Hibernate properties
+   */
+  @Bean
+  public HibernatePropertiesCustomizer tableVersionInspector(TableVersionTracker tracker) {
+    return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, tracker);
+  }
+}
@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.config;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the {@code virtualthreads} profile.
+ * 
+ * The profile itself (application-virtualthreads.properties) turns on
+ * {@code spring.threads.virtual.enabled}, so that Tomcat handles each request, and Spring
+ * runs async and scheduled work, on a virtual thread.  A virtual thread that blocks inside a
+ * {@code synchronized} block or a native call stays pinned to its carrier thread, which
+ * undoes the benefit, so this class watches for the JFR {@code jdk.VirtualThreadPinned} event
+ * and logs each one that lasts longer than {@code app.virtual-threads.pinned-threshold},
+ * with the stack trace of the code that pinned the thread.
+ */
+@Slf4j
+@Configuration
+@Profile("virtualthreads")
+public class VirtualThreadsConfig {
+
+  @Value("${app.virtual-threads.pinned-threshold:20ms}")
+  private Duration pinnedThreshold;
+
+  /**
+   * A JFR recording stream of pinned virtual thread events, logged as warnings.
+   * It is closed when the application shuts down.
+   * 
+   * @return the recording stream
+   */
+  @Bean(destroyMethod = "close")
+  public RecordingStream pinnedVirtualThreadRecording() {
+    RecordingStream recording = new RecordingStream();
+    recording.enable("jdk.VirtualThreadPinned").withThreshold(pinnedThreshold).withStackTrace();
+    recording.onEvent("jdk.VirtualThreadPinned", VirtualThreadsConfig::logPinnedThread);
+    recording.startAsync();
+    log.info("Logging virtual threads pinned for longer than {}", pinnedThreshold);
+    return recording;
+  }
+
+  private static void logPinnedThread(RecordedEvent event) {
+    StringBuilder stackTrace = new StringBuilder();
+    if (event.getStackTrace() != null) {
+      for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+        stackTrace.append("\n\tat ")
+            .append(frame.getMethod().getType().getName())
+            .append('.')
+            .append(frame.getMethod().getName())
+            .append(":")
+            .append(frame.getLineNumber());
+      }
+    }
+    log.warn("Virtual thread {} was pinned to its carrier thread for {} ms{}",
+        event.getThread() == null ? "?" : event.getThread().getJavaThreadId(),
+        event.getDuration().toMillis(), stackTrace);
+  }
+}
@@ -1,16 +1,62 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BatchTooLargeException;
+import edu.ucsb.cs156.example.errors.BulkInsertException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidCursorException;
+import edu.ucsb.cs156.example.errors.InvalidFieldsException;
+import edu.ucsb.cs156.example.errors.RowChangedException;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import edu.ucsb.cs156.example.entities.Versioned;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertError;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.KeysetRepository;
+import edu.ucsb.cs156.example.repositories.ProjectionRepository;
+import edu.ucsb.cs156.example.repositories.VersionedRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.support.WindowIterator;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
 
 /**
  * This is an abstract class that provides common functionality for all API controllers.
@@ -18,9 +64,37 @@ import java.util.Map;
 
 @Slf4j
 public abstract class ApiController {
+  /**
+   * The largest page size that the paged listing endpoints will return.
+   */
+  public static final int MAX_PAGE_SIZE = 1000;
+
+  /**
+   * The number of rows fetched per query by the NDJSON export endpoints.
+   */
+  public static final int EXPORT_BATCH_SIZE = 500;
+
+  /**
+   * The largest number of rows that the bulk insert endpoints will accept in one request.
+   */
+  public static final int MAX_BULK_ROWS = 10000;
+
+  /**
+   * The largest number of primary keys that the batch get endpoints will accept in one request.
+   */
+  public static final int MAX_BATCH_IDS = 10000;
+
+  /**
+   * The number of primary keys looked up per {@code WHERE id IN (...)} query by the batch get endpoints.
+   */
+  public static final int BATCH_QUERY_SIZE = 500;
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
   /**
    * This method returns the current user.
    * @return the current user
@@ -38,6 +112,421 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method returns one page of a keyset (cursor) paginated listing.
+   *
+   * Rows are returned in primary key order, starting just after the row identified by
+   * the cursor, so each page is a single index range scan no matter how deep the client
+   * has paged.
+   *
+   * @param <T> the entity type
+   * @param repository the repository to read from
+   * @param idProperty the name of the primary key property of the entity, e.g. "id"
+   * @param parseId converts the string form of a primary key back into its type, e.g. Long::valueOf
+   * @param after the cursor returned as {@code next} by the previous page, or null for the first page
+   * @param limit the maximum number of rows to return; clamped to between 1 and {@link #MAX_PAGE_SIZE}
+   * @return the page, with a cursor for the next page if there is one
+   */
+  protected <T> KeysetPage<T> keysetPage(KeysetRepository<T, ?> repository, String idProperty,
+      Function<String, ?> parseId, String after, int limit) {
+    ScrollPosition position = ScrollPosition.keyset();
+    if (after != null) {
+      position = ScrollPosition.forward(Map.of(idProperty, parseCursor(after, parseId)));
+    }
+
+    Window<T> window = repository.findBy(position, Sort.by(idProperty),
+        Limit.of(Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+
+    String next = null;
+    if (window.hasNext()) {
+      KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+      next = KeysetPage.encodeCursor(last.getKeys().get(idProperty));
+    }
+
+    return KeysetPage.<T>builder()
+        .content(window.getContent())
+        .next(next)
+        .build();
+  }
+
+  /**
+   * This method returns one page of a keyset (cursor) paginated listing of some of the fields
+   * of an entity, as {@link #keysetPage(KeysetRepository, String, Function, String, int)} does
+   * for whole entities.  Only the primary key and the requested fields are read from the database.
+   *
+   * @param repository the repository to read from
+   * @param type the entity class
+   * @param fields the names of the fields to return
+   * @param parseId converts the string form of a primary key back into its type, e.g. Long::valueOf
+   * @param after the cursor returned as {@code next} by the previous page, or null for the first page
+   * @param limit the maximum number of rows to return; clamped to between 1 and {@link #MAX_PAGE_SIZE}
+   * @return the page, a map from field name to value for each row, with a cursor for the next page if there is one
+   */
+  protected KeysetPage<Map<String, Object>> keysetPage(ProjectionRepository repository, Class<?> type,
+      List<String> fields, Function<String, ?> parseId, String after, int limit) {
+    Object afterId = after == null ? null : parseCursor(after, parseId);
+    int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+    List<Map<String, Object>> rows = repository.findAfter(type, fields, afterId, size + 1);
+
+    String next = null;
+    if (rows.size() > size) {
+      rows = rows.subList(0, size);
+      next = KeysetPage.encodeCursor(rows.get(size - 1).get(repository.idProperty(type)));
+    }
+
+    return KeysetPage.<Map<String, Object>>builder()
+        .content(rows)
+        .next(next)
+        .build();
+  }
+
+  private static Object parseCursor(String after, Function<String, ?> parseId) {
+    try {
+      return parseId.apply(KeysetPage.decodeCursor(after));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidCursorException(after);
+    }
+  }
+
+  /**
+   * This method writes every row of a table to the response as newline delimited JSON
+   * (one object per line, content type {@code application/x-ndjson}).
+   *
+   * Rows are read {@link #EXPORT_BATCH_SIZE} at a time with the same keyset query used by
+   * {@link #keysetPage}, and each row is serialized straight to the servlet output stream,
+   * so memory use stays constant no matter how large the table is.  Each batch is its own
+   * short query, so no database connection is held open for the length of the download.
+   *
+   * @param <T> the entity type
+   * @param repository the repository to read from
+   * @param idProperty the name of the primary key property of the entity, e.g. "id"
+   * @param response the response to write to (injected by Spring framework)
+   * @throws IOException if there is an error writing to the response
+   */
+  protected <T> void writeNdjson(KeysetRepository<T, ?> repository, String idProperty,
+      HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+    response.setCharacterEncoding("UTF-8");
+
+    WindowIterator<T> rows = exportRows(repository, idProperty);
+    ObjectWriter writer = exportWriter();
+
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      generator.setRootValueSeparator(null);
+      while (rows.hasNext()) {
+        writer.writeValue(generator, rows.next());
+        generator.writeRaw('\n');
+      }
+    }
+  }
+
+  /**
+   * This method writes every row of a table to the response as one JSON array, read and
+   * written a batch at a time as {@link #writeNdjson} does, so that the table is never
+   * held in memory, whether as entities or as a serialized string.
+   *
+   * @param <T> the entity type
+   * @param repository the repository to read from
+   * @param idProperty the name of the primary key property of the entity, e.g. "id"
+   * @param response the response to write to (injected by Spring framework)
+   * @throws IOException if there is an error writing to the response
+   */
+  protected <T> void writeJsonArray(KeysetRepository<T, ?> repository, String idProperty,
+      HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setCharacterEncoding("UTF-8");
+
+    WindowIterator<T> rows = exportRows(repository, idProperty);
+    ObjectWriter writer = exportWriter();
+
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+      generator.writeStartArray();
+      while (rows.hasNext()) {
+        writer.writeValue(generator, rows.next());
+      }
+      generator.writeEndArray();
+    }
+  }
+
+  /**
+   * The writer for the rows of an export.  It does not flush after each row, as
+   * {@code generator.writeObject} would, since each flush of the servlet output stream is a
+   * write to the socket; the generator's buffer is flushed when it fills and when it is closed.
+   */
+  private ObjectWriter exportWriter() {
+    return objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+  }
+
+  private static <T> WindowIterator<T> exportRows(KeysetRepository<T, ?> repository, String idProperty) {
+    return WindowIterator
+        .of(position -> repository.findBy(position, Sort.by(idProperty), Limit.of(EXPORT_BATCH_SIZE)))
+        .startingAt(ScrollPosition.keyset());
+  }
+
+  /**
+   * This method reads the rows of a bulk insert request and saves them all in one transaction.
+   *
+   * The rows are read with {@link #readBulkRows(Class, String, HttpServletRequest)}.
+   * Hibernate sends the inserts in JDBC batches of {@code hibernate.jdbc.batch_size}
+   * (see application.properties).
+   *
+   * @param <T> the entity type
+   * @param repository the repository to save to
+   * @param type the entity class
+   * @param generatedIdProperty the name of the primary key property if the database generates it
+   *   (it is ignored in the input), or null if the key is supplied by the client
+   * @param request the request (injected by Spring framework)
+   * @return the number of rows inserted
+   * @throws IOException if there is an error reading the request
+   */
+  protected <T> BulkInsertResult bulkInsert(KeysetRepository<T, ?> repository, Class<T> type,
+      String generatedIdProperty, HttpServletRequest request) throws IOException {
+    List<T> rows = readBulkRows(type, generatedIdProperty, request);
+    repository.saveAll(rows);
+    return new BulkInsertResult(rows.size());
+  }
+
+  /**
+   * This method reads the rows of a bulk insert request.
+   *
+   * The body is either a JSON array of objects, or (with content type
+   * {@code application/x-ndjson}) one object per line.  Every row is read before anything
+   * is returned; if any row cannot be read, a {@link BulkInsertException} listing every
+   * bad row is thrown, so that nothing is saved.
+   *
+   * @param <T> the entity type
+   * @param type the entity class
+   * @param generatedIdProperty the name of the primary key property if the database generates it
+   *   (it is ignored in the input), or null if the key is supplied by the client
+   * @param request the request (injected by Spring framework)
+   * @return the rows, in the order they appear in the request
+   * @throws IOException if there is an error reading the request
+   */
+  protected <T> List<T> readBulkRows(Class<T> type, String generatedIdProperty,
+      HttpServletRequest request) throws IOException {
+    List<T> rows = new ArrayList<>();
+    List<BulkInsertError> errors = new ArrayList<>();
+
+    if (MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))) {
+      BufferedReader reader = request.getReader();
+      int index = 0;
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (!line.isBlank()) {
+          try {
+            readRow(objectMapper.readTree(line), index, type, generatedIdProperty, rows, errors);
+          } catch (JsonProcessingException e) {
+            errors.add(new BulkInsertError(index, e.getOriginalMessage()));
+          }
+          index++;
+          checkBulkSize(index);
+        }
+      }
+    } else {
+      JsonNode array;
+      try {
+        array = objectMapper.readTree(request.getInputStream());
+      } catch (JsonProcessingException e) {
+        throw new BulkInsertException("Request body is not valid JSON: " + e.getOriginalMessage(), List.of());
+      }
+      if (!array.isArray()) {
+        throw new BulkInsertException("Request body must be a JSON array", List.of());
+      }
+      checkBulkSize(array.size());
+      for (int index = 0; index < array.size(); index++) {
+        readRow(array.get(index), index, type, generatedIdProperty, rows, errors);
+      }
+    }
+
+    if (!errors.isEmpty()) {
+      throw new BulkInsertException(errors);
+    }
+    return rows;
+  }
+
+  private <T> void readRow(JsonNode node, int index, Class<T> type, String generatedIdProperty,
+      List<T> rows, List<BulkInsertError> errors) {
+    if (!(node instanceof ObjectNode row)) {
+      errors.add(new BulkInsertError(index, "Row is not a JSON object"));
+      return;
+    }
+    if (generatedIdProperty != null) {
+      row.remove(generatedIdProperty);
+    }
+    try {
+      rows.add(objectMapper.treeToValue(row, type));
+    } catch (JsonProcessingException e) {
+      errors.add(new BulkInsertError(index, e.getOriginalMessage()));
+    }
+  }
+
+  private static void checkBulkSize(int rows) {
+    if (rows > MAX_BULK_ROWS) {
+      throw new BulkInsertException("At most %d rows can be inserted in one request".formatted(MAX_BULK_ROWS), List.of());
+    }
+  }
+
+  /**
+   * This method returns the entities with the given primary keys, so that a client can
+   * fetch many rows in one request instead of one request per row.
+   *
+   * The keys are looked up with {@code findAllById}, which is a single
+   * {@code WHERE id IN (...)} query for each {@link #BATCH_QUERY_SIZE} keys, so that no
+   * query has more parameters than the database allows.
+   *
+   * @param <T> the entity type
+   * @param <ID> the type of the primary key of the entity
+   * @param repository the repository to read from
+   * @param idOf returns the primary key of an entity
+   * @param ids the primary keys requested; at most {@link #MAX_BATCH_IDS} distinct keys
+   * @return the entities found, in the order of their keys in {@code ids}, and the keys not found
+   */
+  protected <T, ID> BatchResult<T, ID> findBatch(CrudRepository<T, ID> repository, Function<T, ID> idOf,
+      List<ID> ids) {
+    List<ID> keys = new ArrayList<>(new LinkedHashSet<>(ids));
+    if (keys.size() > MAX_BATCH_IDS) {
+      throw new BatchTooLargeException(MAX_BATCH_IDS);
+    }
+
+    Map<ID, T> byId = new HashMap<>();
+    for (int from = 0; from < keys.size(); from += BATCH_QUERY_SIZE) {
+      List<ID> chunk = keys.subList(from, Math.min(from + BATCH_QUERY_SIZE, keys.size()));
+      repository.findAllById(chunk).forEach(row -> byId.put(idOf.apply(row), row));
+    }
+
+    List<T> found = new ArrayList<>();
+    List<ID> missing = new ArrayList<>();
+    for (ID key : keys) {
+      T row = byId.get(key);
+      if (row != null) {
+        found.add(row);
+      } else {
+        missing.add(key);
+      }
+    }
+    return new BatchResult<>(found, missing);
+  }
+
+  /**
+   * This method updates a row with a single {@code UPDATE} statement (the {@code updateRowById}
+   * method of its repository), and reads it again, so that the row that is returned, cached
+   * and given an ETag has the version the database gave it.  The response gets the new ETag.
+   *
+   * If the request has an {@code If-Match} header, the row is read first, and is only updated
+   * if the header has its ETag, i.e. the client has seen its latest version; the update is
+   * then made on that version only, so that a concurrent update in between is not overwritten.
+   * Otherwise a RowChangedException is thrown (a 412).  Without the header, the update is
+   * made whatever the version of the row.  If the row does not exist, an
+   * EntityNotFoundException is thrown (a 404).
+   *
+   * @param <T> the entity type
+   * @param <ID> the type of the primary key of the entity
+   * @param repository the repository of the row
+   * @param type the entity class
+   * @param id the primary key of the row
+   * @param incoming the new values of the row; its version is set to the one the client has seen, if any
+   * @param updateRowById the repository's {@code updateRowById}
+   * @param webRequest the request and response (injected by Spring framework)
+   * @return the row as it is now
+   */
+  protected <T extends Versioned, ID> T updateRow(CrudRepository<T, ID> repository, Class<T> type, ID id,
+      T incoming, ToIntBiFunction<ID, T> updateRowById, ServletWebRequest webRequest) {
+    String ifMatch = webRequest.getHeader(HttpHeaders.IF_MATCH);
+    if (ifMatch != null) {
+      T current = repository.findById(id).orElseThrow(() -> new EntityNotFoundException(type, id));
+      if (!etagMatches(ifMatch, rowEtag(id, current.getVersion()))) {
+        throw new RowChangedException(type, id);
+      }
+      incoming.setVersion(current.getVersion());
+    }
+
+    int updated = updateRowById.applyAsInt(id, incoming);
+    T row = repository.findById(id).orElseThrow(() -> new EntityNotFoundException(type, id));
+    if (updated == 0) {
+      throw new RowChangedException(type, id);
+    }
+    webRequest.getResponse().setHeader(HttpHeaders.ETAG, "\"" + rowEtag(id, row.getVersion()) + "\"");
+    return row;
+  }
+
+  private static boolean etagMatches(String ifMatch, String etag) {
+    for (String tag : ifMatch.split(",")) {
+      String candidate = tag.trim();
+      if (candidate.equals("*") || candidate.equals("\"" + etag + "\"")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * This method sets the ETag of a listing of a whole table and checks it against the
+   * request's {@code If-None-Match} header.
+   *
+   * The ETag is computed from {@link VersionedRepository#findTableVersion()}, a counter that
+   * changes with every write to the table, without loading any rows, so call this before
+   * reading the rows.  If it returns true, the response status has been set to 304 Not
+   * Modified and the controller should return null, so that nothing is read or serialized.
+   * If the table has no counter, no ETag is set and this returns false.
+   *
+   * @param repository the repository of the table being listed
+   * @param webRequest the request and response (injected by Spring framework)
+   * @return whether the client's copy of the listing is up to date
+   */
+  protected boolean checkNotModified(VersionedRepository<?, ?> repository, ServletWebRequest webRequest) {
+    return checkTableNotModified(repository.findTableVersion(), webRequest);
+  }
+
+  /**
+   * This method sets the ETag of a listing of a whole table from a cached snapshot of the
+   * table, and checks it against the request's {@code If-None-Match} header.  The ETag is
+   * the same as {@link #checkNotModified(VersionedRepository, ServletWebRequest)} gives for
+   * the same version of the table.
+   *
+   * @param snapshot the snapshot of the table being listed
+   * @param webRequest the request and response (injected by Spring framework)
+   * @return whether the client's copy of the listing is up to date
+   */
+  protected boolean checkNotModified(ReferenceDataCache.Snapshot<?> snapshot, ServletWebRequest webRequest) {
+    return checkTableNotModified(snapshot.version(), webRequest);
+  }
+
+  private static boolean checkTableNotModified(Long version, ServletWebRequest webRequest) {
+    if (version == null) {
+      return false;
+    }
+    return checkNotModified(DigestUtils.md5DigestAsHex(("table:" + version).getBytes(StandardCharsets.UTF_8)), webRequest);
+  }
+
+  /**
+   * This method sets the ETag of a single row, which is computed from its primary key and
+   * its version, and checks it against the request's {@code If-None-Match} header.  If it
+   * returns true, the response status has been set to 304 Not Modified and the controller
+   * should return null.
+   *
+   * The key is part of the ETag so that rows with the same version do not share one; new
+   * rows start at a random version (see {@link edu.ucsb.cs156.example.entities.RandomInitialVersion}), so that a row
+   * created again with the key of a deleted row does not repeat its versions either.
+   *
+   * @param id the primary key of the row
+   * @param version the version of the row
+   * @param webRequest the request and response (injected by Spring framework)
+   * @return whether the client's copy of the row is up to date
+   */
+  protected boolean checkNotModified(Object id, Long version, ServletWebRequest webRequest) {
+    return checkNotModified(rowEtag(id, version), webRequest);
+  }
+
+  private static String rowEtag(Object id, Long version) {
+    return DigestUtils.md5DigestAsHex(("row:" + id + ":" + version).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static boolean checkNotModified(String etag, ServletWebRequest webRequest) {
+    // let the browser keep a copy as long as it revalidates it; Spring Security would otherwise send no-store
+    webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+    return webRequest.checkNotModified(etag);
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    * @param e the exception
@@ -51,4 +540,48 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * This method handles the RowChangedException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ RowChangedException.class })
+  @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+  public Object handlePreconditionFailedException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles exceptions caused by bad input from the client, such as the InvalidCursorException,
+   * the BatchTooLargeException and the InvalidFieldsException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ InvalidCursorException.class, BatchTooLargeException.class, InvalidFieldsException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequestException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * This method handles the BulkInsertException.
+   * @param e the exception
+   * @return a map with the type and message of the exception, and the rows that could not be read
+   */
+  @ExceptionHandler({ BulkInsertException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBulkInsertException(BulkInsertException e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage(),
+      "errors", e.getErrors()
+    );
+  }
 }
@@ -3,8 +3,12 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.HelpRequestEvents;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,6 +19,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -24,10 +29,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "HelpRequest") // Does this have to be plural?
 @RequestMapping("/api/helprequest")
@@ -38,24 +49,92 @@ public class HelpRequestController extends ApiController{
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    HelpRequestEvents helpRequestEvents;
+
     @Operation(summary= "List all help requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
+    public Iterable<HelpRequest> allHelpRequests(ServletWebRequest webRequest) {
+        if (checkNotModified(helpRequestRepository, webRequest)) {
+            return null;
+        }
         Iterable<HelpRequest> requests = helpRequestRepository.findAll();
         return requests;
     }
 
+    /**
+     * Stream changes to help requests as Server-Sent Events, instead of polling /all.
+     * 
+     * The events are named created, updated, solved and deleted; a resync event means
+     * that some events were dropped, and the client should read /all again.
+     * 
+     * @return the event stream
+     */
+    @Operation(summary= "Stream changes to help requests as Server-Sent Events")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamHelpRequests() {
+        return helpRequestEvents.subscribe();
+    }
+
+    @Operation(summary= "Export all help requests as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allHelpRequestsAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(helpRequestRepository, "requesterEmail", response);
+    }
+
+    @Operation(summary= "List help requests one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<HelpRequest> pageHelpRequests(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit) {
+        return keysetPage(helpRequestRepository, "requesterEmail", id -> id, after, limit);
+    }
+
     @Operation(summary= "GET (show) a single record in the table")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public HelpRequest getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id", description="requester email") @RequestParam String id,
+            ServletWebRequest webRequest) {
         HelpRequest helpRequest = helpRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        if (checkNotModified(helpRequest.getRequesterEmail(), helpRequest.getVersion(), webRequest)) {
+            return null;
+        }
+
         return helpRequest;
     }
 
+    /**
+     * This method returns the help requests with the given requester emails.
+     * @param ids the requester emails of the help requests, separated by commas
+     * @return the help requests found, in the order requested, and the emails that were not found
+     */
+    @Operation(summary= "Get many help requests by requester email")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<HelpRequest, String> batchHelpRequests(
+            @Parameter(name="ids", description="requester emails separated by commas") @RequestParam List<String> ids) {
+        return findBatch(helpRequestRepository, HelpRequest::getRequesterEmail, ids);
+    }
+
+    /**
+     * This method returns the help requests with the given requester emails, for lists too long for a URL.
+     * @param ids the requester emails of the help requests, as a JSON array
+     * @return the help requests found, in the order requested, and the emails that were not found
+     */
+    @Operation(summary= "Get many help requests by requester email, with the emails in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<HelpRequest, String> batchHelpRequestsPost(@RequestBody List<String> ids) {
+        return findBatch(helpRequestRepository, HelpRequest::getRequesterEmail, ids);
+    }
+
+    // POST request to add a new help request, or replace the one from the same requester
     @Operation(summary= "Create a new request")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -91,20 +170,40 @@ public class HelpRequestController extends ApiController{
             .solved(solved)
             .build();
                 
-        HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        HelpRequest savedHelpRequest = helpRequestRepository.upsert(helpRequest);
+        helpRequestEvents.created(savedHelpRequest);
 
         return savedHelpRequest;
     }
 
+    /**
+     * Create many help requests in one request, in one transaction.
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * Rows whose key already exists replace the existing row, as with /post.
+     * 
+     * @param request the request, whose body is a JSON array of requests or NDJSON (one per line)
+     * @return the number of requests created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many help requests from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkHelpRequests(HttpServletRequest request) throws IOException {
+        List<HelpRequest> helpRequests = readBulkRows(HelpRequest.class, null, request);
+        helpRequests = helpRequestRepository.upsertAll(helpRequests);
+        helpRequests.forEach(helpRequestEvents::created);
+        return new BulkInsertResult(helpRequests.size());
+    }
+
     @Operation(summary= "Delete a single record from the table")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteHelpRequest(
-            @Parameter(name="id") @RequestParam Long id) {
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
-
-        helpRequestRepository.delete(helpRequest);
+            @Parameter(name="id", description="requester email") @RequestParam String id) {
+        if (helpRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(HelpRequest.class, id);
+        }
+        helpRequestEvents.deleted(id);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
     
@@ -112,22 +211,15 @@ public class HelpRequestController extends ApiController{
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
     public HelpRequest updateHelpRequest(
-            @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid HelpRequest incoming) {
+            @Parameter(name="id", description="requester email") @RequestParam String id,
+            @RequestBody @Valid HelpRequest incoming,
+            ServletWebRequest webRequest) {
 
-        HelpRequest helpRequest = helpRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+        HelpRequest updated = updateRow(helpRequestRepository, HelpRequest.class, id, incoming,
+                helpRequestRepository::updateRowById, webRequest);
+        helpRequestEvents.updated(updated);
 
-        helpRequest.setRequesterEmail(incoming.getRequesterEmail());
-        helpRequest.setTeamId(incoming.getTeamId());
-        helpRequest.setTableOrBreakoutRoom(incoming.getTableOrBreakoutRoom());
-        helpRequest.setRequestTime(incoming.getRequestTime());
-        helpRequest.setExplanation(incoming.getExplanation());
-        helpRequest.setSolved(incoming.getSolved());
-
-        helpRequestRepository.save(helpRequest);
-
-        return helpRequest;
+        return updated;
     }
 
 
@@ -1,8 +1,14 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewStatsRepository;
+import edu.ucsb.cs156.example.repositories.ProjectionRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,8 +18,11 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,13 +31,24 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This is a REST controller for MenuItemReview
+ *
+ * Every endpoint that creates, updates or deletes reviews also updates the
+ * MenuItemReviewStats of the affected items in the same transaction, so that
+ * the stats endpoints read one row per item rather than all of its reviews.
  */
 
 @Tag(name = "MenuItemReview")
@@ -40,28 +60,112 @@ public class MenuItemReviewController extends ApiController {
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    ProjectionRepository projectionRepository;
+
+    @Autowired
+    MenuItemReviewStatsRepository menuItemReviewStatsRepository;
+
     @Operation(summary= "List all menu item reviews")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allMenuItemReviews() {
+    public Iterable<?> allMenuItemReviews(
+            @Parameter(name="fields", description="the fields to return, separated by commas, e.g. id,title; omit for all fields") @RequestParam(required = false) List<String> fields,
+            ServletWebRequest webRequest) {
+        if (checkNotModified(menuItemReviewRepository, webRequest)) {
+            return null;
+        }
+        if (fields != null) {
+            return projectionRepository.findAll(MenuItemReview.class, fields);
+        }
         Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
         return reviews;
     }
 
+    @Operation(summary= "Export all menu item reviews as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allMenuItemReviewsAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(menuItemReviewRepository, "id", response);
+    }
+
+    @Operation(summary= "List menu item reviews one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<?> pageMenuItemReviews(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="fields", description="the fields to return, separated by commas, e.g. id,title; omit for all fields") @RequestParam(required = false) List<String> fields) {
+        if (fields != null) {
+            return keysetPage(projectionRepository, MenuItemReview.class, fields, Long::valueOf, after, limit);
+        }
+        return keysetPage(menuItemReviewRepository, "id", Long::valueOf, after, limit);
+    }
+
     @Operation(summary= "Get a single review")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public MenuItemReview getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
+        if (checkNotModified(menuItemReview.getId(), menuItemReview.getVersion(), webRequest)) {
+            return null;
+        }
+
         return menuItemReview;
     }
 
+    /**
+     * This method returns the menu item reviews with the given ids, looked up together.
+     * @param ids the ids of the menu item reviews, separated by commas
+     * @return the menu item reviews found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many menu item reviews by id in one request")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<MenuItemReview, Long> batchMenuItemReviews(
+            @Parameter(name="ids", description="ids separated by commas") @RequestParam List<Long> ids) {
+        return findBatch(menuItemReviewRepository, MenuItemReview::getId, ids);
+    }
+
+    /**
+     * This method returns the menu item reviews with the given ids, for lists too long for a URL.
+     * @param ids the ids of the menu item reviews, as a JSON array
+     * @return the menu item reviews found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many menu item reviews by id, with the ids in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<MenuItemReview, Long> batchMenuItemReviewsPost(@RequestBody List<Long> ids) {
+        return findBatch(menuItemReviewRepository, MenuItemReview::getId, ids);
+    }
+
+    @Operation(summary= "Get the review stats of a menu item")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/stats")
+    public MenuItemReviewStats getStats(
+            @Parameter(name="itemId") @RequestParam long itemId) {
+        return menuItemReviewStatsRepository.findById(itemId)
+                .orElse(MenuItemReviewStats.builder().itemId(itemId).build());
+    }
+
+    @Operation(summary= "List the review stats of the menu items with the highest average stars")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/top")
+    public List<MenuItemReviewStats> topRated(
+            @Parameter(name="limit") @RequestParam(defaultValue = "10") int limit,
+            @Parameter(name="minReviews", description="only items with at least this many reviews are listed") @RequestParam(defaultValue = "1") long minReviews) {
+        return menuItemReviewStatsRepository.findTopRated(Math.max(1, minReviews),
+                Limit.of(Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+    }
+
     @Operation(summary= "Create a menu item review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
+    @Transactional
     public MenuItemReview postMenuItemReview(
             @Parameter(name="itemId") @RequestParam long itemId,
             @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
@@ -80,41 +184,84 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setComments(comments);
 
         MenuItemReview savedReview = menuItemReviewRepository.save(menuItemReview);
+        addToStats(List.of(savedReview));
 
         return savedReview;
     }
 
+    /**
+     * Create many menu item reviews in one request, in one transaction (any id in the input is ignored).
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * 
+     * @param request the request, whose body is a JSON array of menu item reviews or NDJSON (one per line)
+     * @return the number of menu item reviews created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many menu item reviews from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    @Transactional
+    public BulkInsertResult bulkMenuItemReviews(HttpServletRequest request) throws IOException {
+        List<MenuItemReview> reviews = readBulkRows(MenuItemReview.class, "id", request);
+        menuItemReviewRepository.saveAll(reviews);
+        addToStats(reviews);
+        return new BulkInsertResult(reviews.size());
+    }
+
     @Operation(summary= "Delete a MenuItemReview")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
+    @Transactional
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+        MenuItemReview menuItemReview = menuItemReviewRepository.findWithLockById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
-        menuItemReviewRepository.delete(menuItemReview);
+        menuItemReviewRepository.deleteRowById(id);
+        subtractFromStats(menuItemReview);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single review")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
+    @Transactional
     public MenuItemReview updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid MenuItemReview incoming) {
-
-        MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
+            @RequestBody @Valid MenuItemReview incoming,
+            ServletWebRequest webRequest) {
+        MenuItemReview menuItemReview = menuItemReviewRepository.findWithLockById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
-        menuItemReview.setItemId(incoming.getItemId());
-        menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
-        menuItemReview.setStars(incoming.getStars());
-        menuItemReview.setDateReviewed(incoming.getDateReviewed());
-        menuItemReview.setComments(incoming.getComments());
+        MenuItemReview updated = updateRow(menuItemReviewRepository, MenuItemReview.class, id, incoming,
+                menuItemReviewRepository::updateRowById, webRequest);
+        subtractFromStats(menuItemReview);
+        addToStats(List.of(updated));
 
-        menuItemReviewRepository.save(menuItemReview);
+        return updated;
+    }
 
-        return menuItemReview;
+    /**
+     * This method adds new reviews to the stats of their items, with one update per item.
+     * @param reviews the reviews, which have already been saved
+     */
+    private void addToStats(List<MenuItemReview> reviews) {
+        Map<Long, MenuItemReviewStats> deltas = new LinkedHashMap<>();
+        for (MenuItemReview review : reviews) {
+            deltas.computeIfAbsent(review.getItemId(), itemId -> MenuItemReviewStats.builder().itemId(itemId).build())
+                    .add(review);
+        }
+        deltas.values().forEach(menuItemReviewStatsRepository::upsertStats);
+    }
+
+    /**
+     * This method removes a review from the stats of its item.
+     * @param review the old values of the review, which has already been deleted or updated
+     */
+    private void subtractFromStats(MenuItemReview review) {
+        MenuItemReviewStats delta = MenuItemReviewStats.builder().itemId(review.getItemId()).build();
+        delta.add(review);
+        menuItemReviewStatsRepository.subtractStats(delta);
     }
 
 }
\ No newline at end of file
@@ -3,6 +3,10 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.ProjectionRepository;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -13,7 +17,9 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -23,10 +29,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Tag(name = "RecommendationRequest")
 @RequestMapping("/api/recommendationrequests")
@@ -36,35 +47,115 @@ public class RecommendationRequestController extends ApiController {
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    ProjectionRepository projectionRepository;
+
  
     @Operation(summary= "List all recommendation requests")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<RecommendationRequest> allRecommendationRequests() {
+    public Iterable<?> allRecommendationRequests(
+            @Parameter(name="fields", description="the fields to return, separated by commas, e.g. id,title; omit for all fields") @RequestParam(required = false) List<String> fields,
+            ServletWebRequest webRequest) {
+        if (checkNotModified(recommendationRequestRepository, webRequest)) {
+            return null;
+        }
+        if (fields != null) {
+            return projectionRepository.findAll(RecommendationRequest.class, fields);
+        }
         Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
         return requests;
     }
 
+    @Operation(summary= "Export all recommendation requests as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allRecommendationRequestsAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(recommendationRequestRepository, "id", response);
+    }
+
+    @Operation(summary= "List recommendation requests one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<?> pageRecommendationRequests(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="fields", description="the fields to return, separated by commas, e.g. id,title; omit for all fields") @RequestParam(required = false) List<String> fields) {
+        if (fields != null) {
+            return keysetPage(projectionRepository, RecommendationRequest.class, fields, Long::valueOf, after, limit);
+        }
+        return keysetPage(recommendationRequestRepository, "id", Long::valueOf, after, limit);
+    }
+
+    /**
+     * List the recommendation requests for a professor that are not done, due soonest first.
+     * 
+     * This reads only the first rows of an index on (professorEmail, dateNeeded) that
+     * covers just the requests that are not done, so it does not sort or scan the rest.
+     * 
+     * @param professorEmail the email of the professor
+     * @param limit the maximum number of requests to return
+     * @return a list of RecommendationRequest
+     */
+    @Operation(summary= "List the recommendation requests for a professor that are not done, due soonest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/due")
+    public List<RecommendationRequest> dueRecommendationRequests(
+            @Parameter(name="professorEmail") @RequestParam String professorEmail,
+            @Parameter(name="limit") @RequestParam(defaultValue = "10") int limit) {
+        return recommendationRequestRepository.findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc(
+                professorEmail, Limit.of(Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+    }
+
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public RecommendationRequest getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
         RecommendationRequest request = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
+        if (checkNotModified(request.getId(), request.getVersion(), webRequest)) {
+            return null;
+        }
+
         return request;
     }
 
+    /**
+     * This method returns the recommendation requests with the given ids, looked up together.
+     * @param ids the ids of the recommendation requests, separated by commas
+     * @return the recommendation requests found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many recommendation requests by id in one request")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<RecommendationRequest, Long> batchRecommendationRequests(
+            @Parameter(name="ids", description="ids separated by commas") @RequestParam List<Long> ids) {
+        return findBatch(recommendationRequestRepository, RecommendationRequest::getId, ids);
+    }
+
+    /**
+     * This method returns the recommendation requests with the given ids, for lists too long for a URL.
+     * @param ids the ids of the recommendation requests, as a JSON array
+     * @return the recommendation requests found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many recommendation requests by id, with the ids in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<RecommendationRequest, Long> batchRecommendationRequestsPost(@RequestBody List<Long> ids) {
+        return findBatch(recommendationRequestRepository, RecommendationRequest::getId, ids);
+    }
+
     @Operation(summary= "Delete a RecommendationRequest")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id) {
-        RecommendationRequest request = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-        recommendationRequestRepository.delete(request);
+        if (recommendationRequestRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(RecommendationRequest.class, id);
+        }
         return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
     }
 
@@ -94,25 +185,30 @@ public class RecommendationRequestController extends ApiController {
         return savedRecommendationRequest;
     }
 
+    /**
+     * Create many recommendation requests in one request, in one transaction (any id in the input is ignored).
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * 
+     * @param request the request, whose body is a JSON array of requests or NDJSON (one per line)
+     * @return the number of requests created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many recommendation requests from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkRecommendationRequests(HttpServletRequest request) throws IOException {
+        return bulkInsert(recommendationRequestRepository, RecommendationRequest.class, "id", request);
+    }
+
     @Operation(summary= "Update a single date")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
     public RecommendationRequest updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid RecommendationRequest incoming) {
-
-        RecommendationRequest request = recommendationRequestRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
-
-        request.setRequesterEmail(incoming.getRequesterEmail());
-        request.setProfessorEmail(incoming.getProfessorEmail());
-        request.setExplanation(incoming.getExplanation());
-        request.setDateRequested(incoming.getDateRequested());
-        request.setDateNeeded(incoming.getDateNeeded());
-        request.setDone(incoming.getDone());
+            @RequestBody @Valid RecommendationRequest incoming,
+            ServletWebRequest webRequest) {
 
-        recommendationRequestRepository.save(request);
-
-        return request;
+        return updateRow(recommendationRequestRepository, RecommendationRequest.class, id, incoming,
+                recommendationRequestRepository::updateRowById, webRequest);
     }
 }
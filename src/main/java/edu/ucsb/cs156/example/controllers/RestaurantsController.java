@@ -2,6 +2,9 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,6 +12,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,9 +22,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
 /**
  * This is a REST controller for Restaurants
  */
@@ -35,32 +44,94 @@ public class RestaurantsController extends ApiController {
 
     /**
      * This method returns a list of all restaurants.
+     * @param webRequest the request, whose If-None-Match header is checked (injected by Spring framework)
      * @return a list of all restaurants
      */
     @Operation(summary = "List all restaurants")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<Restaurant> allRestaurants() {
+    public Iterable<Restaurant> allRestaurants(ServletWebRequest webRequest) {
+        if (checkNotModified(restaurantRepository, webRequest)) {
+            return null;
+        }
         Iterable<Restaurant> restaurants = restaurantRepository.findAll();
         return restaurants;
     }
 
+    /**
+     * This method exports all restaurants as newline delimited JSON, streamed in batches.
+     * @param response the response to write to
+     * @throws IOException if there is an error writing to the response
+     */
+    @Operation(summary= "Export all restaurants as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allRestaurantsAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(restaurantRepository, "id", response);
+    }
+
+    /**
+     * This method returns one page of restaurants, in id order.
+     * @param after the cursor returned as next by the previous page (omit for the first page)
+     * @param limit the maximum number of restaurants to return
+     * @return a page of restaurants
+     */
+    @Operation(summary= "List restaurants one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<Restaurant> pageRestaurants(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit) {
+        return keysetPage(restaurantRepository, "id", Long::valueOf, after, limit);
+    }
+
     /**
      * This method returns a single restaurant.
      * @param id id of the restaurant to get
+     * @param webRequest the request, whose If-None-Match header is checked (injected by Spring framework)
      * @return a single restaurant
      */
     @Operation(summary = "Get a single restaurant")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public Restaurant getById(
-            @Parameter(name = "id") @RequestParam Long id) {
+            @Parameter(name = "id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
         Restaurant restaurant = restaurantRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
+        if (checkNotModified(restaurant.getId(), restaurant.getVersion(), webRequest)) {
+            return null;
+        }
+
         return restaurant;
     }
 
+    /**
+     * This method returns the restaurants with the given ids, looked up together.
+     * @param ids the ids of the restaurants, separated by commas
+     * @return the restaurants found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many restaurants by id in one request")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<Restaurant, Long> batchRestaurants(
+            @Parameter(name="ids", description="ids separated by commas") @RequestParam List<Long> ids) {
+        return findBatch(restaurantRepository, Restaurant::getId, ids);
+    }
+
+    /**
+     * This method returns the restaurants with the given ids, for lists too long for a URL.
+     * @param ids the ids of the restaurants, as a JSON array
+     * @return the restaurants found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many restaurants by id, with the ids in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<Restaurant, Long> batchRestaurantsPost(@RequestBody List<Long> ids) {
+        return findBatch(restaurantRepository, Restaurant::getId, ids);
+    }
+
     /**
      * This method creates a new restaurant. Accessible only to users with the role "ROLE_ADMIN".
      * @param name name of the restaurant
@@ -82,6 +153,21 @@ public class RestaurantsController extends ApiController {
         return savedrestaurant;
     }
 
+    /**
+     * Create many restaurants in one request, in one transaction (any id in the input is ignored).
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * 
+     * @param request the request, whose body is a JSON array of restaurants or NDJSON (one per line)
+     * @return the number of restaurants created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many restaurants from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkRestaurants(HttpServletRequest request) throws IOException {
+        return bulkInsert(restaurantRepository, Restaurant.class, "id", request);
+    }
+
     /**
      * Deletes a restaurant. Accessible only to users with the role "ROLE_ADMIN".
      * @param id id of the restaurant to delete
@@ -92,10 +178,9 @@ public class RestaurantsController extends ApiController {
     @DeleteMapping("")
     public Object deleteRestaurant(
             @Parameter(name = "id") @RequestParam Long id) {
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-        restaurantRepository.delete(restaurant);
+        if (restaurantRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(Restaurant.class, id);
+        }
         return genericMessage("Restaurant with id %s deleted".formatted(id));
     }
 
@@ -103,6 +188,7 @@ public class RestaurantsController extends ApiController {
      * Update a single restaurant. Accessible only to users with the role "ROLE_ADMIN".
      * @param id id of the restaurant to update
      * @param incoming the new restaurant contents
+     * @param webRequest the request, whose If-Match header is checked (injected by Spring framework)
      * @return the updated restaurant object
      */
     @Operation(summary = "Update a single restaurant")
@@ -110,16 +196,10 @@ public class RestaurantsController extends ApiController {
     @PutMapping("")
     public Restaurant updateRestaurant(
             @Parameter(name = "id") @RequestParam Long id,
-            @RequestBody @Valid Restaurant incoming) {
+            @RequestBody @Valid Restaurant incoming,
+            ServletWebRequest webRequest) {
 
-        Restaurant restaurant = restaurantRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
-
-        restaurant.setName(incoming.getName());
-        restaurant.setDescription(incoming.getDescription());
-
-        restaurantRepository.save(restaurant);
-
-        return restaurant;
+        return updateRow(restaurantRepository, Restaurant.class, id, incoming,
+                restaurantRepository::updateRowById, webRequest);
     }
 }
\ No newline at end of file
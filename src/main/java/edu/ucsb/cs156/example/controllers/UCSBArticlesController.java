@@ -3,8 +3,15 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBArticles;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidCursorException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.repositories.ProjectionRepository;
 import edu.ucsb.cs156.example.repositories.UCSBArticlesRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.ArticleSearch;
+import edu.ucsb.cs156.example.services.InvertedIndex;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -15,6 +22,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -24,10 +32,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * This is a REST controller for UCSBArticles
@@ -42,19 +58,116 @@ public class UCSBArticlesController extends ApiController {
     @Autowired
     UCSBArticlesRepository ucsbArticlesRepository;
 
+    @Autowired
+    ProjectionRepository projectionRepository;
+
+    @Autowired
+    ArticleSearch articleSearch;
+
     /**
      * List all UCSB articles
      * 
-     * @return an iterable of UCSBArticles
+     * @param fields the fields to return; if given, only they (and the id) are read from the database
+     * @param webRequest the request, whose If-None-Match header is checked (injected by Spring framework)
+     * @return an iterable of UCSBArticles, or of maps from field name to value if fields is given
      */
     @Operation(summary= "List all ucsb articles")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBArticles> allUCSBArticles() {
+    public Iterable<?> allUCSBArticles(
+            @Parameter(name="fields", description="the fields to return, separated by commas, e.g. id,title; omit for all fields") @RequestParam(required = false) List<String> fields,
+            ServletWebRequest webRequest) {
+        if (checkNotModified(ucsbArticlesRepository, webRequest)) {
+            return null;
+        }
+        if (fields != null) {
+            return projectionRepository.findAll(UCSBArticles.class, fields);
+        }
         Iterable<UCSBArticles> articles = ucsbArticlesRepository.findAll();
         return articles;
     }
 
+    /**
+     * Export all UCSB articles as newline delimited JSON, streamed in batches
+     * 
+     * @param response the response to write to
+     * @throws IOException if there is an error writing to the response
+     */
+    @Operation(summary= "Export all ucsb articles as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allUCSBArticlesAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(ucsbArticlesRepository, "id", response);
+    }
+
+    /**
+     * List UCSB articles one page at a time, in id order
+     * 
+     * @param after the cursor returned as next by the previous page (omit for the first page)
+     * @param limit the maximum number of articles to return
+     * @param fields the fields to return; if given, only they (and the id) are read from the database
+     * @return a page of UCSBArticles, or of maps from field name to value if fields is given
+     */
+    @Operation(summary= "List ucsb articles one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<?> pageUCSBArticles(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit,
+            @Parameter(name="fields", description="the fields to return, separated by commas, e.g. id,title; omit for all fields") @RequestParam(required = false) List<String> fields) {
+        if (fields != null) {
+            return keysetPage(projectionRepository, UCSBArticles.class, fields, Long::valueOf, after, limit);
+        }
+        return keysetPage(ucsbArticlesRepository, "id", Long::valueOf, after, limit);
+    }
+
+
+    /**
+     * Search the title and explanation of the UCSB articles, best match first.
+     * The search is answered from an index in memory; only the articles on the
+     * page are read from the database.
+     * 
+     * @param q the words to search for; articles with any of them match
+     * @param after the cursor returned as next by the previous page (omit for the first page)
+     * @param limit the maximum number of articles to return
+     * @return a page of matching articles
+     */
+    @Operation(summary= "Search ucsb articles by words in their title and explanation")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/search")
+    public KeysetPage<UCSBArticles> searchUCSBArticles(
+            @Parameter(name="q") @RequestParam String q,
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "20") int limit) {
+        InvertedIndex.Match last = after == null ? null : decodeSearchCursor(after);
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<InvertedIndex.Match> matches = articleSearch.search(q, last, size + 1);
+        List<InvertedIndex.Match> page = matches.subList(0, Math.min(size, matches.size()));
+        Map<Long, UCSBArticles> articles = new HashMap<>();
+        ucsbArticlesRepository.findAllById(page.stream().map(InvertedIndex.Match::id).toList())
+                .forEach(article -> articles.put(article.getId(), article));
+
+        return KeysetPage.<UCSBArticles>builder()
+                .content(page.stream().map(match -> articles.get(match.id())).filter(Objects::nonNull).toList())
+                .next(matches.size() > size ? encodeSearchCursor(page.get(size - 1)) : null)
+                .build();
+    }
+
+    // a search cursor is the score and id of the last match of the page, so that the next
+    // page starts after it even if articles were added or removed in between
+    private static String encodeSearchCursor(InvertedIndex.Match match) {
+        return KeysetPage.encodeCursor(match.score() + "," + match.id());
+    }
+
+    private static InvertedIndex.Match decodeSearchCursor(String cursor) {
+        try {
+            String[] parts = KeysetPage.decodeCursor(cursor).split(",", 2);
+            return new InvertedIndex.Match(Long.parseLong(parts[1]), Double.parseDouble(parts[0]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
 
     /**
      * Create a new article
@@ -90,27 +203,77 @@ public class UCSBArticlesController extends ApiController {
         ucsbArticles.setDateAdded(dateAdded);
 
         UCSBArticles savedUcsbArticles = ucsbArticlesRepository.save(ucsbArticles);
+        articleSearch.put(savedUcsbArticles);
 
         return savedUcsbArticles;
     }
 
+    /**
+     * Create many UCSB articles in one request, in one transaction (any id in the input is ignored).
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * 
+     * @param request the request, whose body is a JSON array of articles or NDJSON (one per line)
+     * @return the number of articles created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many UCSB articles from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkUCSBArticles(HttpServletRequest request) throws IOException {
+        List<UCSBArticles> articles = readBulkRows(UCSBArticles.class, "id", request);
+        ucsbArticlesRepository.saveAll(articles);
+        articles.forEach(articleSearch::put);
+        return new BulkInsertResult(articles.size());
+    }
+
     /**
      * Get a single article by id
      * 
      * @param id the id of the article
+     * @param webRequest the request, whose If-None-Match header is checked (injected by Spring framework)
      * @return a UCSBArticles
      */
     @Operation(summary= "Get a single article")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBArticles getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
         UCSBArticles ucsbArticles = ucsbArticlesRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBArticles.class, id));
 
+        if (checkNotModified(ucsbArticles.getId(), ucsbArticles.getVersion(), webRequest)) {
+            return null;
+        }
+
         return ucsbArticles;
     }
 
+    /**
+     * This method returns the articles with the given ids, looked up together.
+     * @param ids the ids of the articles, separated by commas
+     * @return the articles found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many articles by id in one request")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBArticles, Long> batchUCSBArticles(
+            @Parameter(name="ids", description="ids separated by commas") @RequestParam List<Long> ids) {
+        return findBatch(ucsbArticlesRepository, UCSBArticles::getId, ids);
+    }
+
+    /**
+     * This method returns the articles with the given ids, for lists too long for a URL.
+     * @param ids the ids of the articles, as a JSON array
+     * @return the articles found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many articles by id, with the ids in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<UCSBArticles, Long> batchUCSBArticlesPost(@RequestBody List<Long> ids) {
+        return findBatch(ucsbArticlesRepository, UCSBArticles::getId, ids);
+    }
+
         /**
      * Delete a UCSBArticles
      * 
@@ -122,10 +285,10 @@ public class UCSBArticlesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBArticles(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBArticles ucsbArticles = ucsbArticlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBArticles.class, id));
-
-        ucsbArticlesRepository.delete(ucsbArticles);
+        if (ucsbArticlesRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBArticles.class, id);
+        }
+        articleSearch.remove(id);
         return genericMessage("UCSBArticle with id %s deleted".formatted(id));
     }
 
@@ -134,6 +297,7 @@ public class UCSBArticlesController extends ApiController {
      * 
      * @param id       id of the article to update
      * @param incoming the new article
+     * @param webRequest the request, whose If-Match header is checked (injected by Spring framework)
      * @return the updated article object
      */
     @Operation(summary= "Update a single article")
@@ -141,20 +305,14 @@ public class UCSBArticlesController extends ApiController {
     @PutMapping("")
     public UCSBArticles updateUCSBArticles(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid UCSBArticles incoming) {
-
-        UCSBArticles ucsbArticles = ucsbArticlesRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBArticles.class, id));
-
-        ucsbArticles.setTitle(incoming.getTitle());
-        ucsbArticles.setUrl(incoming.getUrl());
-        ucsbArticles.setExplanation(incoming.getExplanation());
-        ucsbArticles.setEmail(incoming.getEmail());
-        ucsbArticles.setDateAdded(incoming.getDateAdded());
+            @RequestBody @Valid UCSBArticles incoming,
+            ServletWebRequest webRequest) {
 
-        ucsbArticlesRepository.save(ucsbArticles);
+        UCSBArticles updated = updateRow(ucsbArticlesRepository, UCSBArticles.class, id, incoming,
+                ucsbArticlesRepository::updateRowById, webRequest);
+        articleSearch.put(updated);
 
-        return ucsbArticles;
+        return updated;
     }
 
 
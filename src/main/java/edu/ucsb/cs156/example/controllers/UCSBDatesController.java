@@ -2,7 +2,12 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidCursorException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.UpcomingDates;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,7 +17,13 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,10 +33,17 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This is a REST controller for UCSBDates
@@ -37,39 +55,189 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    /**
+     * The order of the dates returned by the range and quarter queries: by date, and then by id.
+     */
+    private static final Sort BY_DATE = Sort.by("localDateTime", "id");
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    UpcomingDates upcomingDates;
+
     /**
      * List all UCSB dates
      * 
+     * @param webRequest the request, whose If-None-Match header is checked (injected by Spring framework)
      * @return an iterable of UCSBDate
      */
     @Operation(summary= "List all ucsb dates")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDate> allUCSBDates() {
+    public Iterable<UCSBDate> allUCSBDates(ServletWebRequest webRequest) {
+        if (checkNotModified(ucsbDateRepository, webRequest)) {
+            return null;
+        }
         Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
         return dates;
     }
 
+    /**
+     * Export all UCSB dates as newline delimited JSON, streamed in batches
+     * 
+     * @param response the response to write to
+     * @throws IOException if there is an error writing to the response
+     */
+    @Operation(summary= "Export all ucsb dates as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allUCSBDatesAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(ucsbDateRepository, "id", response);
+    }
+
+    /**
+     * List UCSB dates one page at a time, in id order
+     * 
+     * @param after the cursor returned as next by the previous page (omit for the first page)
+     * @param limit the maximum number of dates to return
+     * @return a page of UCSBDate
+     */
+    @Operation(summary= "List ucsb dates one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDate> pageUCSBDates(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit) {
+        return keysetPage(ucsbDateRepository, "id", Long::valueOf, after, limit);
+    }
+
+    /**
+     * List the UCSB dates in a range of times, earliest first, one page at a time
+     * 
+     * Each page is a single range scan of the index on localDateTime, so a calendar
+     * view reads only the dates it shows.
+     * 
+     * @param from  the start of the range (inclusive)
+     * @param to    the end of the range (exclusive)
+     * @param after the cursor returned as next by the previous page (omit for the first page)
+     * @param limit the maximum number of dates to return
+     * @return a page of UCSBDate
+     */
+    @Operation(summary= "List ucsb dates in a range of times, earliest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/range")
+    public KeysetPage<UCSBDate> rangeUCSBDates(
+            @Parameter(name="from", description="start of the range, inclusive (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(name="to", description="end of the range, exclusive (in iso format, e.g. YYYY-mm-ddTHH:MM:SS)") @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit) {
+        ScrollPosition position = ScrollPosition.keyset();
+        if (after != null) {
+            try {
+                String cursor = KeysetPage.decodeCursor(after);
+                int comma = cursor.lastIndexOf(',');
+                position = ScrollPosition.forward(Map.of(
+                        "localDateTime", LocalDateTime.parse(cursor.substring(0, comma)),
+                        "id", Long.valueOf(cursor.substring(comma + 1))));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new InvalidCursorException(after);
+            }
+        }
+
+        Window<UCSBDate> window = ucsbDateRepository.findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+                from, to, position, BY_DATE, Limit.of(Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+
+        String next = null;
+        if (window.hasNext()) {
+            Map<String, Object> last = ((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys();
+            next = KeysetPage.encodeCursor(last.get("localDateTime") + "," + last.get("id"));
+        }
+
+        return KeysetPage.<UCSBDate>builder()
+                .content(window.getContent())
+                .next(next)
+                .build();
+    }
+
+    /**
+     * List the UCSB dates of one quarter, earliest first
+     * 
+     * @param yyyyq the quarter in the format YYYYQ (e.g. 20241 for Winter 2024)
+     * @return an iterable of UCSBDate
+     */
+    @Operation(summary= "List the ucsb dates of one quarter, earliest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/quarter")
+    public Iterable<UCSBDate> quarterUCSBDates(
+            @Parameter(name="yyyyq", description="quarter in the format YYYYQ, e.g. 20241 for Winter 2024") @RequestParam String yyyyq) {
+        return ucsbDateRepository.findAllByQuarterYYYYQ(yyyyq, BY_DATE);
+    }
+
+    /**
+     * List the next UCSB dates from now, earliest first
+     * 
+     * This is answered from an index in memory, without a database query.
+     * 
+     * @param limit the maximum number of dates to return
+     * @return a list of UCSBDate
+     */
+    @Operation(summary= "List the next ucsb dates from now, earliest first")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/upcoming")
+    public List<UCSBDate> upcomingUCSBDates(
+            @Parameter(name="limit") @RequestParam(defaultValue = "10") int limit) {
+        return upcomingDates.upcoming(LocalDateTime.now(), Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
     /**
      * Get a single date by id
      * 
      * @param id the id of the date
+     * @param webRequest the request, whose If-None-Match header is checked (injected by Spring framework)
      * @return a UCSBDate
      */
     @Operation(summary= "Get a single date")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDate getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
         UCSBDate ucsbDate = ucsbDateRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
+        if (checkNotModified(ucsbDate.getId(), ucsbDate.getVersion(), webRequest)) {
+            return null;
+        }
+
         return ucsbDate;
     }
 
+    /**
+     * This method returns the UCSB dates with the given ids, looked up together.
+     * @param ids the ids of the UCSB dates, separated by commas
+     * @return the UCSB dates found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many UCSB dates by id in one request")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBDate, Long> batchUCSBDates(
+            @Parameter(name="ids", description="ids separated by commas") @RequestParam List<Long> ids) {
+        return findBatch(ucsbDateRepository, UCSBDate::getId, ids);
+    }
+
+    /**
+     * This method returns the UCSB dates with the given ids, for lists too long for a URL.
+     * @param ids the ids of the UCSB dates, as a JSON array
+     * @return the UCSB dates found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many UCSB dates by id, with the ids in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<UCSBDate, Long> batchUCSBDatesPost(@RequestBody List<Long> ids) {
+        return findBatch(ucsbDateRepository, UCSBDate::getId, ids);
+    }
+
     /**
      * Create a new date
      * 
@@ -98,10 +266,29 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        upcomingDates.put(savedUcsbDate);
 
         return savedUcsbDate;
     }
 
+    /**
+     * Create many UCSB dates in one request, in one transaction (any id in the input is ignored).
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * 
+     * @param request the request, whose body is a JSON array of dates or NDJSON (one per line)
+     * @return the number of dates created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many UCSB dates from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkUCSBDates(HttpServletRequest request) throws IOException {
+        List<UCSBDate> dates = readBulkRows(UCSBDate.class, "id", request);
+        ucsbDateRepository.saveAll(dates);
+        upcomingDates.putAll(dates);
+        return new BulkInsertResult(dates.size());
+    }
+
     /**
      * Delete a UCSBDate
      * 
@@ -113,10 +300,10 @@ public class UCSBDatesController extends ApiController {
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
-
-        ucsbDateRepository.delete(ucsbDate);
+        if (ucsbDateRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDate.class, id);
+        }
+        upcomingDates.remove(id);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
@@ -125,6 +312,7 @@ public class UCSBDatesController extends ApiController {
      * 
      * @param id       id of the date to update
      * @param incoming the new date
+     * @param webRequest the request, whose If-Match header is checked (injected by Spring framework)
      * @return the updated date object
      */
     @Operation(summary= "Update a single date")
@@ -132,17 +320,13 @@ public class UCSBDatesController extends ApiController {
     @PutMapping("")
     public UCSBDate updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid UCSBDate incoming) {
-
-        UCSBDate ucsbDate = ucsbDateRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
+            @RequestBody @Valid UCSBDate incoming,
+            ServletWebRequest webRequest) {
 
-        ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-        ucsbDate.setName(incoming.getName());
-        ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+        UCSBDate updated = updateRow(ucsbDateRepository, UCSBDate.class, id, incoming,
+                ucsbDateRepository::updateRowById, webRequest);
+        upcomingDates.put(updated);
 
-        ucsbDateRepository.save(ucsbDate);
-
-        return ucsbDate;
+        return updated;
     }
 }
@@ -2,7 +2,12 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocations;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,6 +15,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -19,9 +25,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * This is a REST controller for UCSBDiningCommons
  */
@@ -35,36 +47,142 @@ public class UCSBDiningCommonsController extends ApiController {
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    DiningCommonsLocations diningCommonsLocations;
+
+    @Autowired
+    ReferenceDataCache<UCSBDiningCommons, String> diningCommonsCache;
+
     /**
      * THis method returns a list of all ucsbdiningcommons.
+     * It is answered from a cached snapshot of the table, which is read again after each change.
+     * @param webRequest the request, whose If-None-Match header is checked (injected by Spring framework)
      * @return a list of all ucsbdiningcommons
      */
     @Operation(summary= "List all ucsb dining commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommons> allCommonss() {
-        Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-        return commons;
+    public Iterable<UCSBDiningCommons> allCommonss(ServletWebRequest webRequest) {
+        ReferenceDataCache.Snapshot<UCSBDiningCommons> commons = diningCommonsCache.findAll();
+        if (checkNotModified(commons, webRequest)) {
+            return null;
+        }
+        return commons.rows();
+    }
+
+    /**
+     * This method exports all ucsbdiningcommons as newline delimited JSON, streamed in batches.
+     * @param response the response to write to
+     * @throws IOException if there is an error writing to the response
+     */
+    @Operation(summary= "Export all ucsb dining commons as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allCommonsAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(ucsbDiningCommonsRepository, "code", response);
+    }
+
+    /**
+     * This method returns one page of ucsbdiningcommons, in code order.
+     * @param after the cursor returned as next by the previous page (omit for the first page)
+     * @param limit the maximum number of commons to return
+     * @return a page of ucsbdiningcommons
+     */
+    @Operation(summary= "List ucsb dining commons one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommons> pageCommons(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit) {
+        return keysetPage(ucsbDiningCommonsRepository, "code", code -> code, after, limit);
     }
 
     /**
-     * This method returns a single diningcommons.
+     * This method returns a single diningcommons, from the cache if it is there.
      * @param code code of the diningcommons
+     * @param webRequest the request, whose If-None-Match header is checked (injected by Spring framework)
      * @return a single diningcommons
      */
     @Operation(summary= "Get a single commons")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommons getById(
-            @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+            @Parameter(name="code") @RequestParam String code,
+            ServletWebRequest webRequest) {
+        UCSBDiningCommons commons = diningCommonsCache.findById(code)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
+        if (checkNotModified(commons.getCode(), commons.getVersion(), webRequest)) {
+            return null;
+        }
+
         return commons;
     }
 
     /**
-     * This method creates a new diningcommons. Accessible only to users with the role "ROLE_ADMIN".
+     * This method returns the dining commons with the given codes, looked up together.
+     * @param ids the codes of the dining commons, separated by commas
+     * @return the dining commons found, in the order requested, and the codes that were not found
+     */
+    @Operation(summary= "Get many dining commons by code in one request")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBDiningCommons, String> batchCommons(
+            @Parameter(name="ids", description="codes separated by commas") @RequestParam List<String> ids) {
+        return findBatch(ucsbDiningCommonsRepository, UCSBDiningCommons::getCode, ids);
+    }
+
+    /**
+     * This method returns the dining commons with the given codes, for lists too long for a URL.
+     * @param ids the codes of the dining commons, as a JSON array
+     * @return the dining commons found, in the order requested, and the codes that were not found
+     */
+    @Operation(summary= "Get many dining commons by code, with the codes in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<UCSBDiningCommons, String> batchCommonsPost(@RequestBody List<String> ids) {
+        return findBatch(ucsbDiningCommonsRepository, UCSBDiningCommons::getCode, ids);
+    }
+
+    /**
+     * This method returns the diningcommons nearest to a point, nearest first.
+     * It is answered from an index in memory, without querying the database.
+     * @param lat latitude of the point, in degrees
+     * @param lon longitude of the point, in degrees
+     * @param k the number of commons to return
+     * @return the k nearest diningcommons that have a location
+     */
+    @Operation(summary= "List the commons nearest to a point")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/nearest")
+    public List<UCSBDiningCommons> nearestCommons(
+            @Parameter(name="lat") @RequestParam double lat,
+            @Parameter(name="lon") @RequestParam double lon,
+            @Parameter(name="k") @RequestParam(defaultValue = "1") int k) {
+        return diningCommonsLocations.nearest(lat, lon, Math.min(k, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * This method returns the diningcommons within a distance of a point, nearest first.
+     * It is answered from an index in memory, without querying the database.
+     * @param lat latitude of the point, in degrees
+     * @param lon longitude of the point, in degrees
+     * @param radiusKm the distance, in kilometers
+     * @return the diningcommons within the distance
+     */
+    @Operation(summary= "List the commons within a distance of a point")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/within")
+    public List<UCSBDiningCommons> commonsWithin(
+            @Parameter(name="lat") @RequestParam double lat,
+            @Parameter(name="lon") @RequestParam double lon,
+            @Parameter(name="radiusKm") @RequestParam double radiusKm) {
+        return diningCommonsLocations.within(lat, lon, radiusKm);
+    }
+
+    /**
+     * This method creates a new diningcommons, or replaces the one with the same code.
+     * Accessible only to users with the role "ROLE_ADMIN".
      * @param code code of the diningcommons
      * @param name name of the diningcommons
      * @param hasSackMeal whether or not the commons has sack meals
@@ -97,11 +215,33 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLatitude(latitude);
         commons.setLongitude(longitude);
 
-        UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.upsert(commons);
+        diningCommonsLocations.put(savedCommons);
+        diningCommonsCache.invalidate(code);
 
         return savedCommons;
     }
 
+    /**
+     * Create many dining commons in one request, in one transaction.
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * Rows whose key already exists replace the existing row, as with /post.
+     * 
+     * @param request the request, whose body is a JSON array of commons or NDJSON (one per line)
+     * @return the number of commons created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many dining commons from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkCommons(HttpServletRequest request) throws IOException {
+        List<UCSBDiningCommons> commons = readBulkRows(UCSBDiningCommons.class, null, request);
+        commons = ucsbDiningCommonsRepository.upsertAll(commons);
+        diningCommonsLocations.putAll(commons);
+        commons.forEach(c -> diningCommonsCache.invalidate(c.getCode()));
+        return new BulkInsertResult(commons.size());
+    }
+
     /**
      * Delete a diningcommons. Accessible only to users with the role "ROLE_ADMIN".
      * @param code code of the commons
@@ -112,10 +252,11 @@ public class UCSBDiningCommonsController extends ApiController {
     @DeleteMapping("")
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
-
-        ucsbDiningCommonsRepository.delete(commons);
+        if (ucsbDiningCommonsRepository.deleteRowById(code) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommons.class, code);
+        }
+        diningCommonsLocations.remove(code);
+        diningCommonsCache.invalidate(code);
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
@@ -123,6 +264,7 @@ public class UCSBDiningCommonsController extends ApiController {
      * Update a single diningcommons. Accessible only to users with the role "ROLE_ADMIN".
      * @param code code of the diningcommons
      * @param incoming the new commons contents
+     * @param webRequest the request, whose If-Match header is checked (injected by Spring framework)
      * @return the updated commons object
      */
     @Operation(summary= "Update a single commons")
@@ -130,21 +272,14 @@ public class UCSBDiningCommonsController extends ApiController {
     @PutMapping("")
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
-            @RequestBody @Valid UCSBDiningCommons incoming) {
-
-        UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+            @RequestBody @Valid UCSBDiningCommons incoming,
+            ServletWebRequest webRequest) {
 
+        UCSBDiningCommons updated = updateRow(ucsbDiningCommonsRepository, UCSBDiningCommons.class, code, incoming,
+                ucsbDiningCommonsRepository::updateRowById, webRequest);
+        diningCommonsLocations.put(updated);
+        diningCommonsCache.invalidate(code);
 
-        commons.setName(incoming.getName());  
-        commons.setHasSackMeal(incoming.getHasSackMeal());
-        commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-        commons.setHasDiningCam(incoming.getHasDiningCam());
-        commons.setLatitude(incoming.getLatitude());
-        commons.setLongitude(incoming.getLongitude());
-
-        ucsbDiningCommonsRepository.save(commons);
-
-        return commons;
+        return updated;
     }
 }
@@ -2,17 +2,23 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +28,10 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.util.List;
 
 
 @Tag(name = "UCSBDiningCommonsMenuItem")
@@ -38,11 +48,32 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
     @Operation(summary= "List all ucsb menu items")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBDiningCommonsMenuItem> allUCSBMenuItems() {
+    public Iterable<UCSBDiningCommonsMenuItem> allUCSBMenuItems(ServletWebRequest webRequest) {
+        if (checkNotModified(ucsbDiningCommonsMenuItemRepository, webRequest)) {
+            return null;
+        }
         Iterable<UCSBDiningCommonsMenuItem> menuItems = ucsbDiningCommonsMenuItemRepository.findAll();
         return menuItems;
     }
 
+    //GET ALL (NDJSON)
+    @Operation(summary= "Export all ucsb menu items as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allUCSBMenuItemsAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(ucsbDiningCommonsMenuItemRepository, "id", response);
+    }
+
+    //GET PAGE
+    @Operation(summary= "List ucsb menu items one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBDiningCommonsMenuItem> pageUCSBMenuItems(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit) {
+        return keysetPage(ucsbDiningCommonsMenuItemRepository, "id", Long::valueOf, after, limit);
+    }
+
     //POST
     @Operation(summary= "Create a new menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
@@ -64,16 +95,30 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
         return savedUcsbDiningCommonsMenuItem;
     }
 
+    /**
+     * Create many menu items in one request, in one transaction (any id in the input is ignored).
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * 
+     * @param request the request, whose body is a JSON array of menu items or NDJSON (one per line)
+     * @return the number of menu items created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many menu items from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkUCSBMenuItems(HttpServletRequest request) throws IOException {
+        return bulkInsert(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, "id", request);
+    }
+
     //DELETE
     @Operation(summary= "Delete a menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id) {
-        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
-
-        ucsbDiningCommonsMenuItemRepository.delete(ucsbDiningCommonsMenuItem);
+        if (ucsbDiningCommonsMenuItemRepository.deleteRowById(id) == 0) {
+            throw new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id);
+        }
         return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
     }
 
@@ -82,31 +127,54 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBDiningCommonsMenuItem getById(
-            @Parameter(name="id") @RequestParam Long id) {
+            @Parameter(name="id") @RequestParam Long id,
+            ServletWebRequest webRequest) {
         UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
 
+        if (checkNotModified(ucsbDiningCommonsMenuItem.getId(), ucsbDiningCommonsMenuItem.getVersion(), webRequest)) {
+            return null;
+        }
+
         return ucsbDiningCommonsMenuItem;
     }
 
+    /**
+     * This method returns the menu items with the given ids, looked up together.
+     * @param ids the ids of the menu items, separated by commas
+     * @return the menu items found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many menu items by id in one request")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBDiningCommonsMenuItem, Long> batchUCSBMenuItems(
+            @Parameter(name="ids", description="ids separated by commas") @RequestParam List<Long> ids) {
+        return findBatch(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem::getId, ids);
+    }
+
+    /**
+     * This method returns the menu items with the given ids, for lists too long for a URL.
+     * @param ids the ids of the menu items, as a JSON array
+     * @return the menu items found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many menu items by id, with the ids in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<UCSBDiningCommonsMenuItem, Long> batchUCSBMenuItemsPost(@RequestBody List<Long> ids) {
+        return findBatch(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem::getId, ids);
+    }
+
     //PUT
     @Operation(summary= "Update a single menu item")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PutMapping("")
     public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
             @Parameter(name="id") @RequestParam Long id,
-            @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
-
-        UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem = ucsbDiningCommonsMenuItemRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
+            @RequestBody @Valid UCSBDiningCommonsMenuItem incoming,
+            ServletWebRequest webRequest) {
 
-        ucsbDiningCommonsMenuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
-        ucsbDiningCommonsMenuItem.setName(incoming.getName());
-        ucsbDiningCommonsMenuItem.setStation(incoming.getStation());
-
-        ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
-
-        return ucsbDiningCommonsMenuItem;
+        return updateRow(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, id, incoming,
+                ucsbDiningCommonsMenuItemRepository::updateRowById, webRequest);
     }
     
 }
@@ -3,16 +3,23 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.BulkInsertResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.OrganizationSuggestions;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Collections;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,9 +29,13 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
+import java.io.IOException;
 @Tag(name = "UCSBOrganizations")
 @RequestMapping("/api/ucsborganizations")
 @RestController
@@ -34,28 +45,95 @@ public class UCSBOrganizationController extends ApiController {
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
-    // GET request for all organizations in the database
+    @Autowired
+    OrganizationSuggestions organizationSuggestions;
+
+    @Autowired
+    ReferenceDataCache<UCSBOrganization, String> organizationCache;
+
+    // GET request for all organizations in the database, answered from a cached snapshot of the table
     @Operation(summary= "List all ucsb organizations")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("/all")
-    public Iterable<UCSBOrganization> allOrganizations() {
-        Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
-        return organizations;
+    public Iterable<UCSBOrganization> allOrganizations(ServletWebRequest webRequest) {
+        ReferenceDataCache.Snapshot<UCSBOrganization> organizations = organizationCache.findAll();
+        if (checkNotModified(organizations, webRequest)) {
+            return null;
+        }
+        return organizations.rows();
+    }
+
+    // GET request for all organizations as newline delimited JSON, streamed in batches
+    @Operation(summary= "Export all ucsb organizations as newline delimited JSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void allOrganizationsAsNdjson(HttpServletResponse response) throws IOException {
+        writeNdjson(ucsbOrganizationRepository, "orgField", response);
+    }
+
+    // GET request for one page of organizations, in org field order
+    @Operation(summary= "List ucsb organizations one page at a time")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public KeysetPage<UCSBOrganization> pageOrganizations(
+            @Parameter(name="after", description="cursor returned as next by the previous page; omit for the first page") @RequestParam(required = false) String after,
+            @Parameter(name="limit") @RequestParam(defaultValue = "100") int limit) {
+        return keysetPage(ucsbOrganizationRepository, "orgField", orgField -> orgField, after, limit);
     }
 
-    // GET request for specific organization by org field (id)
+    // GET request for specific organization by org field (id), from the cache if it is there
     @Operation(summary= "Get a single organization")
     @PreAuthorize("hasRole('ROLE_USER')")
     @GetMapping("")
     public UCSBOrganization getById(
-            @Parameter(name="orgField") @RequestParam String orgField) {
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgField)
+            @Parameter(name="orgField") @RequestParam String orgField,
+            ServletWebRequest webRequest) {
+        UCSBOrganization organization = organizationCache.findById(orgField)
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgField));
 
+        if (checkNotModified(organization.getOrgField(), organization.getVersion(), webRequest)) {
+            return null;
+        }
+
         return organization;
     }
 
-    // POST request to add a new organization to the database
+    /**
+     * This method returns the organizations with the given org fields, looked up together.
+     * @param ids the org fields of the organizations, separated by commas
+     * @return the organizations found, in the order requested, and the org fields that were not found
+     */
+    @Operation(summary= "Get many organizations by org field in one request")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/batch")
+    public BatchResult<UCSBOrganization, String> batchOrganizations(
+            @Parameter(name="ids", description="org fields separated by commas") @RequestParam List<String> ids) {
+        return findBatch(ucsbOrganizationRepository, UCSBOrganization::getOrgField, ids);
+    }
+
+    /**
+     * This method returns the organizations with the given org fields, for lists too long for a URL.
+     * @param ids the org fields of the organizations, as a JSON array
+     * @return the organizations found, in the order requested, and the org fields that were not found
+     */
+    @Operation(summary= "Get many organizations by org field, with the org fields in the request body")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @PostMapping("/batch")
+    public BatchResult<UCSBOrganization, String> batchOrganizationsPost(@RequestBody List<String> ids) {
+        return findBatch(ucsbOrganizationRepository, UCSBOrganization::getOrgField, ids);
+    }
+
+    // GET request for type-ahead: active organizations whose fields start with the prefix, answered from memory
+    @Operation(summary= "Suggest active organizations whose org field or translations start with a prefix")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/suggest")
+    public List<UCSBOrganization> suggestOrganizations(
+            @Parameter(name="prefix") @RequestParam String prefix,
+            @Parameter(name="limit") @RequestParam(defaultValue = "10") int limit) {
+        return organizationSuggestions.suggest(prefix, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // POST request to add a new organization to the database, or replace the one with the same orgField
     @Operation(summary="Create a new organization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/post")
@@ -73,21 +151,44 @@ public class UCSBOrganizationController extends ApiController {
         organization.setOrgTranslation(orgTranslation);
         organization.setInactive(inactive);
 
-        UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organization);
+        UCSBOrganization savedOrganization = ucsbOrganizationRepository.upsert(organization);
+        organizationSuggestions.put(savedOrganization);
+        organizationCache.invalidate(orgField);
 
         return savedOrganization;
     }
 
+    /**
+     * Create many organizations in one request, in one transaction.
+     * If any row cannot be read, none are created and the bad rows are listed in the response.
+     * Rows whose key already exists replace the existing row, as with /post.
+     * 
+     * @param request the request, whose body is a JSON array of organizations or NDJSON (one per line)
+     * @return the number of organizations created
+     * @throws IOException if the request body cannot be read
+     */
+    @Operation(summary= "Create many organizations from a JSON array or NDJSON")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public BulkInsertResult bulkOrganizations(HttpServletRequest request) throws IOException {
+        List<UCSBOrganization> organizations = readBulkRows(UCSBOrganization.class, null, request);
+        organizations = ucsbOrganizationRepository.upsertAll(organizations);
+        organizationSuggestions.putAll(organizations);
+        organizations.forEach(o -> organizationCache.invalidate(o.getOrgField()));
+        return new BulkInsertResult(organizations.size());
+    }
+
     // DELETE request to delete a single record by id
     @Operation(summary= "Delete a UCSBOrganization")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @DeleteMapping("")
     public Object deleteOrganization(
             @Parameter(name="orgField") @RequestParam String orgField) {
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgField)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgField));
-
-        ucsbOrganizationRepository.delete(organization);
+        if (ucsbOrganizationRepository.deleteRowById(orgField) == 0) {
+            throw new EntityNotFoundException(UCSBOrganization.class, orgField);
+        }
+        organizationSuggestions.remove(orgField);
+        organizationCache.invalidate(orgField);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgField));
     }
 
@@ -97,18 +198,15 @@ public class UCSBOrganizationController extends ApiController {
     @PutMapping("")
     public UCSBOrganization updateCommons(
             @Parameter(name="orgField") @RequestParam String orgField,
-            @RequestBody @Valid UCSBOrganization incoming) {
+            @RequestBody @Valid UCSBOrganization incoming,
+            ServletWebRequest webRequest) {
 
-        UCSBOrganization organization = ucsbOrganizationRepository.findById(orgField)
-                .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgField));
+        incoming.setOrgField(orgField);
+        UCSBOrganization updated = updateRow(ucsbOrganizationRepository, UCSBOrganization.class, orgField, incoming,
+                ucsbOrganizationRepository::updateRowById, webRequest);
+        organizationSuggestions.put(updated);
+        organizationCache.invalidate(orgField);
 
-        organization.setOrgField(incoming.getOrgField());
-        organization.setOrgTranslationShort(incoming.getOrgTranslationShort());
-        organization.setOrgTranslation(incoming.getOrgTranslation());
-        organization.setInactive(incoming.getInactive());
-
-        ucsbOrganizationRepository.save(organization);
-
-        return organization;
+        return updated;
     }
 }
@@ -1,19 +1,24 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.BatchResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
 
 /**
  * This is a REST controller for getting information about the users.
@@ -28,21 +33,42 @@ public class UsersController extends ApiController {
     @Autowired
     UserRepository userRepository;
 
-    @Autowired
-    ObjectMapper mapper;
-
     /**
      * This method returns a list of all users.  Accessible only to users with the role "ROLE_ADMIN".
-     * @return a list of all users
-     * @throws JsonProcessingException if there is an error processing the JSON
+     * The users are read a batch at a time, in id order, and each is written straight to the
+     * response, so the whole table is never held in memory.
+     * @param response the response to write the list to (injected by Spring framework)
+     * @throws IOException if there is an error writing to the response
      */
     @Operation(summary= "Get a list of all users")
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     @GetMapping("")
-    public ResponseEntity<String> users()
-            throws JsonProcessingException {
-        Iterable<User> users = userRepository.findAll();
-        String body = mapper.writeValueAsString(users);
-        return ResponseEntity.ok().body(body);
+    public void users(HttpServletResponse response) throws IOException {
+        writeJsonArray(userRepository, "id", response);
+    }
+
+    /**
+     * This method returns the users with the given ids, looked up together.  Accessible only to users with the role "ROLE_ADMIN".
+     * @param ids the ids of the users, separated by commas
+     * @return the users found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many users by id in one request")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/batch")
+    public BatchResult<User, Long> batchUsers(
+            @Parameter(name="ids", description="ids separated by commas") @RequestParam List<Long> ids) {
+        return findBatch(userRepository, User::getId, ids);
+    }
+
+    /**
+     * This method returns the users with the given ids, for lists too long for a URL.  Accessible only to users with the role "ROLE_ADMIN".
+     * @param ids the ids of the users, as a JSON array
+     * @return the users found, in the order requested, and the ids that were not found
+     */
+    @Operation(summary= "Get many users by id, with the ids in the request body")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping("/batch")
+    public BatchResult<User, Long> batchUsersPost(@RequestBody List<Long> ids) {
+        return findBatch(userRepository, User::getId, ids);
     }
 }
\ No newline at end of file
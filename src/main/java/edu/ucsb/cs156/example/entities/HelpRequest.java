@@ -1,9 +1,16 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,7 +23,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity(name = "helprequest")
-public class HelpRequest {
+@EntityListeners(RandomInitialVersion.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "helprequest")
+public class HelpRequest implements Versioned {
     @Id
     String requesterEmail;
     String teamId;
@@ -24,4 +34,8 @@ public class HelpRequest {
     LocalDateTime requestTime;
     String explanation;
     boolean solved;
-}
\ No newline at end of file
+
+    @Version
+    @JsonIgnore
+    Long version;
+}
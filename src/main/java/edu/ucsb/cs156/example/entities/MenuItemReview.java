@@ -1,9 +1,17 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,13 +24,21 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity(name = "menuitemreview")
-public class MenuItemReview {
+@EntityListeners(RandomInitialVersion.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "menuitemreview")
+public class MenuItemReview implements Versioned {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menuitemreview_seq")
+    @SequenceGenerator(name = "menuitemreview_seq", allocationSize = 50)
     private long id;
     private long itemId;
     private String reviewerEmail;
     private int stars;
     private LocalDateTime dateReviewed;
     private String comments;
-}
\ No newline at end of file
+
+    @Version
+    @JsonIgnore
+    private Long version;
+}
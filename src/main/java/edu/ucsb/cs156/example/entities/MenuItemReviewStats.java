@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * This is a JPA entity that represents the MenuItemReviewStats of one menu item
+ *
+ * It holds the number of reviews of the item, the sum of their stars, how many
+ * reviews gave each number of stars from one to five, and the latest date reviewed.
+ * The row is maintained by MenuItemReviewController as reviews are created, updated
+ * and deleted, so that the stats of an item can be read without reading its reviews.
+ * Reviews with a number of stars outside one to five are counted in {@code reviews}
+ * and {@code starsSum} but not in any of the per-star counts.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "menuitemreviewstats")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "menuitemreviewstats")
+public class MenuItemReviewStats {
+    @Id
+    private long itemId;
+    private long reviews;
+    private long starsSum;
+    private long oneStar;
+    private long twoStars;
+    private long threeStars;
+    private long fourStars;
+    private long fiveStars;
+    private LocalDateTime lastReviewed;
+
+    /**
+     * This method returns the average number of stars of the reviews of the item.
+     * @return the average, or null if the item has no reviews
+     */
+    public Double getAverageStars() {
+        return reviews == 0 ? null : (double) starsSum / reviews;
+    }
+
+    /**
+     * This method adds one review to these stats.
+     * @param review the review; its itemId should be this item's
+     */
+    public void add(MenuItemReview review) {
+        reviews++;
+        starsSum += review.getStars();
+        switch (review.getStars()) {
+            case 1 -> oneStar++;
+            case 2 -> twoStars++;
+            case 3 -> threeStars++;
+            case 4 -> fourStars++;
+            case 5 -> fiveStars++;
+            default -> { }
+        }
+        if (review.getDateReviewed() != null && (lastReviewed == null || review.getDateReviewed().isAfter(lastReviewed))) {
+            lastReviewed = review.getDateReviewed();
+        }
+    }
+}
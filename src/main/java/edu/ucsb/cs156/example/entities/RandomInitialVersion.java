@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.entities;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import jakarta.persistence.PrePersist;
+
+/**
+ * This entity listener starts the version of each new row at a random number rather than
+ * at 0.
+ *
+ * The version of a row is its ETag, together with its primary key, so it must not repeat:
+ * a row that is deleted and then created again with the same key, or a row created after the
+ * database has been recreated, would otherwise have the same versions as the row before it,
+ * and a client holding a copy of the old row would be told that it is up to date.  Versions
+ * start below 2^62, so they cannot overflow however often a row is updated.
+ */
+public class RandomInitialVersion {
+  @PrePersist
+  void seed(Object entity) {
+    ((Versioned) entity).setVersion(ThreadLocalRandom.current().nextLong(1L << 62));
+  }
+}
@@ -1,9 +1,17 @@
 package edu.ucsb.cs156.example.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Version;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,9 +29,13 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity(name = "ucsbarticles")
-public class UCSBArticles {
+@EntityListeners(RandomInitialVersion.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "ucsbarticles")
+public class UCSBArticles implements Versioned {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ucsbarticles_seq")
+  @SequenceGenerator(name = "ucsbarticles_seq", allocationSize = 50)
   private long id;
 
   private String title;
@@ -31,4 +43,8 @@ public class UCSBArticles {
   private String explanation;
   private String email;
   private LocalDateTime dateAdded;
-}
\ No newline at end of file
+
+  @Version
+  @JsonIgnore
+  private Long version;
+}
@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.entities;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import edu.ucsb.cs156.example.services.AdminStatusCache;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * This entity listener drops the cached copies of a user's row, in the
+ * {@link CurrentUserCache} and the {@link AdminStatusCache}, whenever the row is inserted,
+ * updated or deleted, so that the change is seen on that user's next request.
+ *
+ * Spring Boot creates entity listeners as Spring beans, so the caches are injected; they
+ * are looked up when a row changes, since the caches are created after the repositories,
+ * and are absent in contexts without them (e.g. repository tests).  Bulk JPQL or native
+ * statements on the users table do not call entity listeners.
+ */
+public class UserChangeListener {
+
+  @Autowired
+  ObjectProvider<CurrentUserCache> currentUserCache;
+
+  @Autowired
+  ObjectProvider<AdminStatusCache> adminStatusCache;
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  void evict(User user) {
+    currentUserCache.ifAvailable(cache -> cache.invalidate(user.getEmail()));
+    adminStatusCache.ifAvailable(cache -> cache.invalidate(user.getEmail()));
+  }
+}
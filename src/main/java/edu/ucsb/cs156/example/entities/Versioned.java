@@ -0,0 +1,11 @@
+package edu.ucsb.cs156.example.entities;
+
+/**
+ * This interface is implemented by the entities that have a {@code @Version} property,
+ * so that {@link RandomInitialVersion} can set the version of a new row.
+ */
+public interface Versioned {
+  Long getVersion();
+
+  void setVersion(Long version);
+}
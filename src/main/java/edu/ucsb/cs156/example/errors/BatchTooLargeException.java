@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a request asked for more entities by primary key than are allowed in one request.
+ */
+public class BatchTooLargeException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   * 
+   * @param max the largest number of keys allowed in one request
+   */
+  public BatchTooLargeException(int max) {
+    super("At most %d ids can be requested at once".formatted(max));
+  }
+}
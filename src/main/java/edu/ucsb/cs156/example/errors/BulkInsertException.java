@@ -0,0 +1,41 @@
+package edu.ucsb.cs156.example.errors;
+
+import edu.ucsb.cs156.example.models.BulkInsertError;
+
+import java.util.List;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that the body of a bulk insert request was rejected, and so no rows were inserted.
+ */
+public class BulkInsertException extends RuntimeException {
+  private final List<BulkInsertError> errors;
+
+  /**
+   * Constructor for the exception
+   * 
+   * @param message why the request was rejected
+   * @param errors the rows that could not be read, if any
+   */
+  public BulkInsertException(String message, List<BulkInsertError> errors) {
+    super(message);
+    this.errors = errors;
+  }
+
+  /**
+   * Constructor for the exception when some rows could not be read
+   * 
+   * @param errors the rows that could not be read
+   */
+  public BulkInsertException(List<BulkInsertError> errors) {
+    this("%d rows could not be read; nothing was inserted".formatted(errors.size()), errors);
+  }
+
+  /**
+   * This method returns the rows that could not be read.
+   * @return the rows that could not be read
+   */
+  public List<BulkInsertError> getErrors() {
+    return errors;
+  }
+}
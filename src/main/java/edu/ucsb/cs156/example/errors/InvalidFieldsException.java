@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.errors;
+
+import java.util.Collection;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that a client asked for a field that the entity does not have, or that cannot be selected.
+ */
+public class InvalidFieldsException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   * 
+   * @param field the field that was asked for
+   * @param allowed the fields that can be asked for
+   */
+  public InvalidFieldsException(String field, Collection<String> allowed) {
+    super("Unknown field: %s; the fields are %s".formatted(field, String.join(", ", allowed)));
+  }
+}
@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate
+ * that an update was made conditional on the version of a row that the client had read
+ * (with an {@code If-Match} header), and the row has been changed since.
+ */
+public class RowChangedException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   * 
+   * @param entityType The class of the entity that was being updated, e.g. UCSBDate.class
+   * @param id the id of the entity
+   */
+  public RowChangedException(Class<?> entityType, Object id) {
+    super("%s with id %s has changed since it was read"
+      .formatted(entityType.getSimpleName(), id.toString()));
+  }
+}
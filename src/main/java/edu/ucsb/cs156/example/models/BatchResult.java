@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.util.List;
+
+/**
+ * This is a model class that represents the result of fetching many entities by primary key.
+ *
+ * The {@code found} entities are in the order in which their keys were requested, and
+ * {@code missing} lists the requested keys that have no entity.  A key that was requested
+ * more than once appears only once.
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the primary key of the entity
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BatchResult<T, ID> {
+  private List<T> found;
+  private List<ID> missing;
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+/**
+ * This is a model class that represents one row of a bulk insert that could not be read.
+ *
+ * The {@code index} is the position of the row in the request, counting from 0: the
+ * array index for a JSON array, or the number of the (non-blank) line for NDJSON.
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkInsertError {
+  private int index;
+  private String message;
+}
@@ -0,0 +1,50 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.Builder;
+import lombok.AccessLevel;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * This is a model class that represents one page of a keyset (cursor) paginated listing.
+ *
+ * The {@code next} field is an opaque continuation token; pass it back as the
+ * {@code after} parameter to get the following page.  It is null on the last page.
+ *
+ * @param <T> the type of the entities on the page
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class KeysetPage<T> {
+  private List<T> content;
+  private String next;
+
+  /**
+   * This method turns the primary key of the last row on a page into an opaque cursor.
+   * @param id the primary key of the last row on the page
+   * @return the cursor
+   */
+  public static String encodeCursor(Object id) {
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * This method turns a cursor produced by {@link #encodeCursor(Object)} back into the
+   * string form of the primary key.
+   * @param cursor the cursor
+   * @return the string form of the primary key
+   * @throws IllegalArgumentException if the cursor is not valid base64
+   */
+  public static String decodeCursor(String cursor) {
+    return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+  }
+}
@@ -1,11 +1,36 @@
 package edu.ucsb.cs156.example.repositories;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
-
-}
\ No newline at end of file
+public interface HelpRequestRepository extends VersionedRepository<HelpRequest, String>,
+        UpsertRepository<HelpRequest> {
+    /**
+     * This method overwrites the help request from the given requester with the fields of {@code incoming}
+     * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+     * If {@code incoming} has a version, the row is only updated if it is still at that version,
+     * so that a client cannot overwrite a change it has not seen.
+     * The requester email is the primary key, so it is not changed.
+     * @param requesterEmail the requester email of the help request to update
+     * @param incoming the new values
+     * @return the number of rows updated, i.e. 0 if there was no such help request
+     *   or it was not at the version of {@code incoming}, and 1 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update helprequest h set "
+        + "h.teamId = :#{#incoming.teamId}, "
+        + "h.tableOrBreakoutRoom = :#{#incoming.tableOrBreakoutRoom}, "
+        + "h.requestTime = :#{#incoming.requestTime}, "
+        + "h.explanation = :#{#incoming.explanation}, "
+        + "h.solved = :#{#incoming.solved}, "
+        + "h.version = h.version + 1 "
+        + "where h.requesterEmail = :requesterEmail and h.version = coalesce(:#{#incoming.version}, h.version)")
+    int updateRowById(@Param("requesterEmail") String requesterEmail, @Param("incoming") HelpRequest incoming);
+}
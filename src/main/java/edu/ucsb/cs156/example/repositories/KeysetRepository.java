@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The KeysetRepository is a base interface shared by all of our repositories.
+ *
+ * In addition to the usual CrudRepository methods, it adds a keyset (cursor) scrolling
+ * query, so that large tables can be listed one page at a time using the primary key
+ * index, i.e. {@code WHERE id > ? ORDER BY id LIMIT ?}, instead of materializing the
+ * whole table with {@code findAll()}.  It also adds a delete that is a single
+ * {@code DELETE ... WHERE id = ?} statement, rather than the find-then-delete of
+ * {@code CrudRepository.deleteById}.
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the primary key of the entity
+ */
+@NoRepositoryBean
+public interface KeysetRepository<T, ID> extends CrudRepository<T, ID> {
+  /**
+   * This method returns one window of entities, starting just after the given position.
+   * @param position where to start; {@code ScrollPosition.keyset()} for the first window
+   * @param sort the sort order; the primary key is always used as the keyset
+   * @param limit the maximum number of entities to return
+   * @return a window of entities, with {@code hasNext()} telling whether there are more
+   */
+  Window<T> findBy(ScrollPosition position, Sort sort, Limit limit);
+
+  /**
+   * This method deletes the entity with the given primary key in one statement.
+   * @param id the primary key of the entity to delete
+   * @return the number of rows deleted, i.e. 0 if there was no such entity and 1 otherwise
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from #{#entityName} e where id(e) = :id")
+  int deleteRowById(@Param("id") ID id);
+}
@@ -1,11 +1,63 @@
 package edu.ucsb.cs156.example.repositories;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.Optional;
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
+public interface MenuItemReviewRepository extends VersionedRepository<MenuItemReview, Long> {
+    /**
+     * This method returns the reviews of one menu item.  Its result is kept in the query
+     * cache until a menu item review is next created, updated or deleted.
+     * @param id the id of the menu item
+     * @return the reviews of the item
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Iterable<MenuItemReview> findAllByItemId(Long id);
-}
\ No newline at end of file
+
+    /**
+     * This method reads the menu item review with the given id and locks its row until the end
+     * of the transaction, so that its old values can be subtracted from the item's stats before
+     * it is updated or deleted.
+     * @param id the id of the menu item review
+     * @return Optional of MenuItemReview (empty if not found)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<MenuItemReview> findWithLockById(long id);
+
+    /**
+     * This method overwrites the menu item review with the given id with the fields of {@code incoming}
+     * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+     * If {@code incoming} has a version, the row is only updated if it is still at that version,
+     * so that a client cannot overwrite a change it has not seen.  The persistence context is
+     * cleared afterwards, so that reading the review again in the same transaction (e.g. after
+     * {@link #findWithLockById(long)}) gives its new values.
+     * @param id the id of the menu item review to update
+     * @param incoming the new values
+     * @return the number of rows updated, i.e. 0 if there was no such menu item review
+     *   or it was not at the version of {@code incoming}, and 1 otherwise
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update menuitemreview m set "
+        + "m.itemId = :#{#incoming.itemId}, "
+        + "m.reviewerEmail = :#{#incoming.reviewerEmail}, "
+        + "m.stars = :#{#incoming.stars}, "
+        + "m.dateReviewed = :#{#incoming.dateReviewed}, "
+        + "m.comments = :#{#incoming.comments}, "
+        + "m.version = m.version + 1 "
+        + "where m.id = :id and m.version = coalesce(:#{#incoming.version}, m.version)")
+    int updateRowById(@Param("id") long id, @Param("incoming") MenuItemReview incoming);
+}
@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
+
+import java.util.List;
+
+/**
+ * The MenuItemReviewStatsRepository is a repository for MenuItemReviewStats entities.
+ *
+ * The stats are changed by adding or subtracting the stats of the reviews that were
+ * created or removed, in a single statement on the item's row, so that concurrent
+ * changes to the reviews of one item are not lost.  The row of an item is created by the
+ * first {@link #upsertStats(MenuItemReviewStats)} of the item, and is never deleted.
+ */
+@Repository
+public interface MenuItemReviewStatsRepository
+    extends KeysetRepository<MenuItemReviewStats, Long>, MenuItemReviewStatsUpsertRepository {
+    /**
+     * This method subtracts the stats of some removed reviews of an item from the item's stats.
+     * It must be called after the reviews are deleted or changed, since if the latest review
+     * was removed, the new latest date reviewed is found from the reviews that remain.
+     * @param delta the stats of the removed reviews, all of item {@code delta.itemId}
+     * @return the number of rows updated
+     */
+    @Transactional
+    @Modifying
+    @Query("update menuitemreviewstats s set "
+        + "s.reviews = s.reviews - :#{#delta.reviews}, "
+        + "s.starsSum = s.starsSum - :#{#delta.starsSum}, "
+        + "s.oneStar = s.oneStar - :#{#delta.oneStar}, "
+        + "s.twoStars = s.twoStars - :#{#delta.twoStars}, "
+        + "s.threeStars = s.threeStars - :#{#delta.threeStars}, "
+        + "s.fourStars = s.fourStars - :#{#delta.fourStars}, "
+        + "s.fiveStars = s.fiveStars - :#{#delta.fiveStars}, "
+        + "s.lastReviewed = case when s.lastReviewed = :#{#delta.lastReviewed} "
+        + "then (select max(r.dateReviewed) from menuitemreview r where r.itemId = s.itemId) "
+        + "else s.lastReviewed end "
+        + "where s.itemId = :#{#delta.itemId}")
+    int subtractStats(@Param("delta") MenuItemReviewStats delta);
+
+    /**
+     * This method returns the stats of the items with the highest average stars,
+     * breaking ties by the number of reviews.
+     * @param minReviews only items with at least this many reviews are returned; must be at least 1
+     * @param limit the maximum number of items to return
+     * @return the stats of the top rated items, best first
+     */
+    @Query("select s from menuitemreviewstats s where s.reviews >= :minReviews "
+        + "order by s.starsSum * 1.0 / s.reviews desc, s.reviews desc, s.itemId")
+    List<MenuItemReviewStats> findTopRated(@Param("minReviews") long minReviews, Limit limit);
+}
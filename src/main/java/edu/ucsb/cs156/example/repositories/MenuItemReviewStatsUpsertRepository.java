@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
+
+/**
+ * The MenuItemReviewStatsUpsertRepository is a repository fragment that adds the stats of new
+ * reviews to an item's stats, creating the item's row if it has none yet.
+ *
+ * It is one native statement, in the caller's transaction, so that the stats of concurrent
+ * first reviews of an item are all counted without reading the row first or inserting it
+ * in a transaction of its own.  The statement depends on the database, so it is chosen from
+ * Hibernate's dialect.
+ */
+public interface MenuItemReviewStatsUpsertRepository {
+  /**
+   * This method adds the stats of some new reviews of an item to the item's stats, creating
+   * the item's row if it has none.
+   * @param delta the stats of the new reviews, all of item {@code delta.itemId}
+   */
+  void upsertStats(MenuItemReviewStats delta);
+}
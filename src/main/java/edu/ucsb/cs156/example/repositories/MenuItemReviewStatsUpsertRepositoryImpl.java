@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * The implementation of {@link MenuItemReviewStatsUpsertRepository}.
+ *
+ * On Postgres the row is inserted with {@code INSERT ... ON CONFLICT (item_id) DO UPDATE},
+ * which adds to the existing row instead if another transaction has inserted it, even one
+ * that has not committed yet.  Elsewhere (i.e. on H2, in development and in the tests) it is
+ * a {@code MERGE INTO}, which H2 does not make atomic: if another transaction inserts the
+ * row first, H2 waits for it to commit and then fails the insert, so the statement is run
+ * again, and then adds to that row.
+ *
+ * The statement is run with a JdbcTemplate, on the connection of the current transaction,
+ * since a failed statement run by Hibernate would mark the whole transaction for rollback.
+ * Hibernate does not see it, so the item's stats are evicted from the second-level cache.
+ */
+public class MenuItemReviewStatsUpsertRepositoryImpl implements MenuItemReviewStatsUpsertRepository {
+
+  static final String ON_CONFLICT = "insert into menuitemreviewstats (item_id, reviews, stars_sum, "
+      + "one_star, two_stars, three_stars, four_stars, five_stars, last_reviewed) "
+      + "values (?, ?, ?, ?, ?, ?, ?, ?, ?) "
+      + "on conflict (item_id) do update set "
+      + "reviews = menuitemreviewstats.reviews + excluded.reviews, "
+      + "stars_sum = menuitemreviewstats.stars_sum + excluded.stars_sum, "
+      + "one_star = menuitemreviewstats.one_star + excluded.one_star, "
+      + "two_stars = menuitemreviewstats.two_stars + excluded.two_stars, "
+      + "three_stars = menuitemreviewstats.three_stars + excluded.three_stars, "
+      + "four_stars = menuitemreviewstats.four_stars + excluded.four_stars, "
+      + "five_stars = menuitemreviewstats.five_stars + excluded.five_stars, "
+      + "last_reviewed = case when menuitemreviewstats.last_reviewed is null "
+      + "or menuitemreviewstats.last_reviewed < excluded.last_reviewed "
+      + "then excluded.last_reviewed else menuitemreviewstats.last_reviewed end";
+
+  static final String MERGE = "merge into menuitemreviewstats s using (values (cast(? as bigint), "
+      + "cast(? as bigint), cast(? as bigint), cast(? as bigint), cast(? as bigint), "
+      + "cast(? as bigint), cast(? as bigint), cast(? as bigint), "
+      + "cast(? as timestamp))) "
+      + "d (item_id, reviews, stars_sum, one_star, two_stars, three_stars, four_stars, five_stars, last_reviewed) "
+      + "on s.item_id = d.item_id "
+      + "when matched then update set "
+      + "reviews = s.reviews + d.reviews, "
+      + "stars_sum = s.stars_sum + d.stars_sum, "
+      + "one_star = s.one_star + d.one_star, "
+      + "two_stars = s.two_stars + d.two_stars, "
+      + "three_stars = s.three_stars + d.three_stars, "
+      + "four_stars = s.four_stars + d.four_stars, "
+      + "five_stars = s.five_stars + d.five_stars, "
+      + "last_reviewed = case when s.last_reviewed is null or s.last_reviewed < d.last_reviewed "
+      + "then d.last_reviewed else s.last_reviewed end "
+      + "when not matched then insert (item_id, reviews, stars_sum, one_star, two_stars, three_stars, "
+      + "four_stars, five_stars, last_reviewed) values (d.item_id, d.reviews, d.stars_sum, d.one_star, "
+      + "d.two_stars, d.three_stars, d.four_stars, d.five_stars, d.last_reviewed)";
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  /**
+   * This method returns the upsert statement for a database.
+   * @param dialect Hibernate's dialect for the database
+   * @return the statement
+   */
+  static String upsertSql(Dialect dialect) {
+    return dialect instanceof PostgreSQLDialect ? ON_CONFLICT : MERGE;
+  }
+
+  @Override
+  @Transactional
+  public void upsertStats(MenuItemReviewStats delta) {
+    Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+        .getJdbcServices().getDialect();
+    String sql = upsertSql(dialect);
+    Object[] values = { delta.getItemId(), delta.getReviews(), delta.getStarsSum(), delta.getOneStar(),
+        delta.getTwoStars(), delta.getThreeStars(), delta.getFourStars(), delta.getFiveStars(), delta.getLastReviewed() };
+    try {
+      jdbcTemplate.update(sql, values);
+    } catch (DuplicateKeyException e) {
+      // another transaction inserted the row first, and has committed it
+      jdbcTemplate.update(sql, values);
+    }
+    entityManager.getEntityManagerFactory().getCache().evict(MenuItemReviewStats.class, delta.getItemId());
+  }
+}
@@ -0,0 +1,117 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.springframework.stereotype.Repository;
+
+import edu.ucsb.cs156.example.errors.InvalidFieldsException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The ProjectionRepository reads some of the columns of the rows of any entity, rather than
+ * whole entities, so that a client that asks for a few fields of a table with long text
+ * columns is not sent, and the database does not read, the columns it did not ask for.
+ *
+ * The fields are chosen by the client, so they cannot be declared as an interface
+ * projection; instead each query selects a tuple of the chosen columns, and each row is
+ * returned as a map from field name to value.  The primary key is always selected, first,
+ * so that rows can be told apart and paged through.  Any basic field of the entity may be
+ * asked for, except its {@code version}.
+ */
+@Repository
+public class ProjectionRepository {
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  /**
+   * This method returns the name of the primary key property of an entity.
+   * @param type the entity class
+   * @return the name of the primary key property, e.g. "id"
+   */
+  public String idProperty(Class<?> type) {
+    EntityType<?> entity = entityManager.getMetamodel().entity(type);
+    return entity.getId(entity.getIdType().getJavaType()).getName();
+  }
+
+  /**
+   * This method returns some of the fields of every row, in primary key order.
+   * @param type the entity class
+   * @param fields the names of the fields to return
+   * @return a map from field name to value for each row, with the primary key first
+   * @throws InvalidFieldsException if a field is not a basic field of the entity
+   */
+  public List<Map<String, Object>> findAll(Class<?> type, List<String> fields) {
+    return findAfter(type, fields, null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * This method returns some of the fields of the rows after a primary key, in primary key order.
+   * @param type the entity class
+   * @param fields the names of the fields to return
+   * @param after the primary key of the row to start after, or null to start at the first row
+   * @param limit the maximum number of rows to return
+   * @return a map from field name to value for each row, with the primary key first
+   * @throws InvalidFieldsException if a field is not a basic field of the entity
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public List<Map<String, Object>> findAfter(Class<?> type, List<String> fields, Object after, int limit) {
+    String id = idProperty(type);
+    Set<String> columns = columns(type, id, fields);
+
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = builder.createTupleQuery();
+    Root<?> root = query.from(type);
+    query.multiselect(columns.stream().<Selection<?>>map(c -> root.get(c).alias(c)).toList());
+    Path<Comparable> key = root.get(id);
+    if (after != null) {
+      query.where(builder.greaterThan(key, (Comparable) after));
+    }
+    query.orderBy(builder.asc(key));
+
+    TypedQuery<Tuple> typedQuery = entityManager.createQuery(query).setMaxResults(limit);
+    return typedQuery.getResultList().stream().map(tuple -> toMap(tuple, columns)).toList();
+  }
+
+  private Set<String> columns(Class<?> type, String id, List<String> fields) {
+    Set<String> allowed = new TreeSet<>();
+    for (SingularAttribute<?, ?> attribute : entityManager.getMetamodel().entity(type).getSingularAttributes()) {
+      if (!attribute.isVersion()) {
+        allowed.add(attribute.getName());
+      }
+    }
+    Set<String> columns = new LinkedHashSet<>();
+    columns.add(id);
+    for (String field : fields) {
+      String name = field.strip();
+      if (!allowed.contains(name)) {
+        throw new InvalidFieldsException(field, allowed);
+      }
+      columns.add(name);
+    }
+    return columns;
+  }
+
+  private static Map<String, Object> toMap(Tuple tuple, Set<String> columns) {
+    Map<String, Object> row = new LinkedHashMap<>();
+    for (String column : columns) {
+      row.put(column, tuple.get(column));
+    }
+    return row;
+  }
+}
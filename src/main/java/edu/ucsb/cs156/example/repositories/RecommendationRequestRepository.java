@@ -2,12 +2,50 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 
-import org.springframework.data.repository.CrudRepository;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
-public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
+public interface RecommendationRequestRepository extends VersionedRepository<RecommendationRequest, Long> {
+  /**
+   * This method returns the recommendation requests for a professor that are not done,
+   * due soonest first.  Requests without a dateNeeded are not returned.
+   * @param professorEmail the email of the professor
+   * @param limit the maximum number of requests to return
+   * @return the requests, ordered by dateNeeded and then id
+   */
+  List<RecommendationRequest> findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc(
+      String professorEmail, Limit limit);
+
+  /**
+   * This method overwrites the recommendation request with the given id with the fields of {@code incoming}
+   * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+   * If {@code incoming} has a version, the row is only updated if it is still at that version,
+   * so that a client cannot overwrite a change it has not seen.
+   * @param id the id of the recommendation request to update
+   * @param incoming the new values
+   * @return the number of rows updated, i.e. 0 if there was no such recommendation request
+   *   or it was not at the version of {@code incoming}, and 1 otherwise
+   */
+  @Transactional
+  @Modifying
+  @Query("update recommendationrequests r set "
+      + "r.requesterEmail = :#{#incoming.requesterEmail}, "
+      + "r.professorEmail = :#{#incoming.professorEmail}, "
+      + "r.explanation = :#{#incoming.explanation}, "
+      + "r.dateRequested = :#{#incoming.dateRequested}, "
+      + "r.dateNeeded = :#{#incoming.dateNeeded}, "
+      + "r.done = :#{#incoming.done}, "
+      + "r.version = r.version + 1 "
+      + "where r.id = :id and r.version = coalesce(:#{#incoming.version}, r.version)")
+  int updateRowById(@Param("id") long id, @Param("incoming") RecommendationRequest incoming);
 }
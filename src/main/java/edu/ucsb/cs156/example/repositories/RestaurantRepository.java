@@ -2,12 +2,33 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Restaurant;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The RestaurantRepository is a repository for Restaurant entities
  */
 @Repository
-public interface RestaurantRepository extends CrudRepository<Restaurant, Long> {
+public interface RestaurantRepository extends VersionedRepository<Restaurant, Long> {
+  /**
+   * This method overwrites the restaurant with the given id with the fields of {@code incoming}
+   * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+   * If {@code incoming} has a version, the row is only updated if it is still at that version,
+   * so that a client cannot overwrite a change it has not seen.
+   * @param id the id of the restaurant to update
+   * @param incoming the new values
+   * @return the number of rows updated, i.e. 0 if there was no such restaurant
+   *   or it was not at the version of {@code incoming}, and 1 otherwise
+   */
+  @Transactional
+  @Modifying
+  @Query("update restaurants r set "
+      + "r.name = :#{#incoming.name}, "
+      + "r.description = :#{#incoming.description}, "
+      + "r.version = r.version + 1 "
+      + "where r.id = :id and r.version = coalesce(:#{#incoming.version}, r.version)")
+  int updateRowById(@Param("id") long id, @Param("incoming") Restaurant incoming);
 }
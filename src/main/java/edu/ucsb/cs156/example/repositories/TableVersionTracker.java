@@ -0,0 +1,160 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.sql.PreparedStatement;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The TableVersionTracker keeps a counter for each table of a versioned entity in the
+ * {@code table_versions} table, and increments it after every transaction that writes to
+ * the table commits, so that a listing of a whole table can be given an ETag that changes
+ * whenever any row is inserted, updated or deleted (see {@link VersionedRepository#findTableVersion()}).
+ *
+ * It is Hibernate's StatementInspector, so it sees every statement that Hibernate sends:
+ * the inserts, updates and deletes of entities, and bulk JPQL and native statements too.
+ * The tables written to are collected for each transaction, and their counters are
+ * incremented once it has committed, in a short transaction of their own on the same
+ * connection.  Incrementing them before the commit, inside the writing transaction, would
+ * hold the lock on the table's counter row until the commit, so that all the writers of a
+ * table would wait for each other.  The price is that for a moment after a commit a listing
+ * can have the new rows but the old ETag, and if the app stops in that moment the table's
+ * ETag does not change until its next write.  Statements sent other than through Hibernate,
+ * e.g. with a JdbcTemplate or from psql, are not counted.
+ *
+ * The counter of a table starts at a random number when the app first finds it missing, so
+ * that the ETags of a database that has been recreated do not repeat those of the old one.
+ */
+@Slf4j
+public class TableVersionTracker implements StatementInspector {
+
+  private static final Pattern WRITE = Pattern.compile(
+      "^\\s*(?:insert\\s+into|update|delete\\s+from|merge\\s+into)\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+
+  private static final String INCREMENT = "update table_versions set version = version + 1 where table_name = ?";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Constructor for the tracker
+   *
+   * @param jdbcTemplate used to add and increment the counters
+   */
+  public TableVersionTracker(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public String inspect(String sql) {
+    Matcher write = WRITE.matcher(sql);
+    if (write.find() && TransactionSynchronizationManager.isSynchronizationActive()) {
+      writes().tables.add(write.group(1).toLowerCase(Locale.ROOT));
+    }
+    return sql;
+  }
+
+  /**
+   * This method increments the counters of some tables, on the connection of the transaction
+   * that wrote to them, which has committed, and commits the increments.  A failure is logged
+   * rather than thrown, since the writes themselves have been committed.
+   *
+   * @param tables the names of the tables
+   */
+  void incrementCounters(Set<String> tables) {
+    try {
+      jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+        try (PreparedStatement increment = connection.prepareStatement(INCREMENT)) {
+          for (String table : tables) {
+            increment.setString(1, table);
+            increment.executeUpdate();
+          }
+        }
+        if (!connection.getAutoCommit()) {
+          connection.commit();
+        }
+        return null;
+      });
+    } catch (DataAccessException e) {
+      log.warn("could not increment the versions of tables {}", tables, e);
+    }
+  }
+
+  private Writes writes() {
+    Writes writes = currentWrites();
+    if (writes == null) {
+      writes = new Writes();
+      TransactionSynchronizationManager.registerSynchronization(writes);
+    }
+    return writes;
+  }
+
+  // the writes are kept with the transaction's synchronizations, which Spring sets aside
+  // while an inner transaction runs (e.g. REQUIRES_NEW), so each transaction has its own
+  private Writes currentWrites() {
+    for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+      if (synchronization instanceof Writes writes && writes.tracker() == this) {
+        return writes;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * This method adds a counter, starting at a random number, for each table of a versioned
+   * entity that does not have one yet.  It is called when the application context has been
+   * started; if several instances start at once, the first to add a counter wins.
+   *
+   * @param event the event, whose application context has the entity manager factory
+   */
+  @EventListener(ContextRefreshedEvent.class)
+  public void addMissingCounters(ContextRefreshedEvent event) {
+    SessionFactoryImplementor sessionFactory = event.getApplicationContext().getBean(EntityManagerFactory.class)
+        .unwrap(SessionFactoryImplementor.class);
+    sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> {
+      if (persister.isVersioned()) {
+        String table = persister.getIdentifierTableDetails().getTableName().toLowerCase(Locale.ROOT);
+        try {
+          jdbcTemplate.update("insert into table_versions (table_name, version) select ?, ? "
+              + "where not exists (select 1 from table_versions where table_name = ?)",
+              table, ThreadLocalRandom.current().nextLong(1L << 62), table);
+        } catch (DuplicateKeyException e) {
+          // another instance added it first
+        }
+      }
+    });
+  }
+
+  /**
+   * The tables written to in one transaction.  It is registered as a synchronization so that
+   * it lives and dies with the transaction, and increments their counters once it commits.
+   */
+  private class Writes implements TransactionSynchronization {
+    private final Set<String> tables = new TreeSet<>();
+
+    TableVersionTracker tracker() {
+      return TableVersionTracker.this;
+    }
+
+    @Override
+    public void afterCommit() {
+      incrementCounters(tables);
+    }
+  }
+}
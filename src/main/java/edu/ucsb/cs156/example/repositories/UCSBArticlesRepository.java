@@ -2,14 +2,37 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBArticles;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDateRepository is a repository for UCSBArticles entities.
  */
 
 @Repository
-public interface UCSBArticlesRepository extends CrudRepository<UCSBArticles, Long> {
-
-}
\ No newline at end of file
+public interface UCSBArticlesRepository extends VersionedRepository<UCSBArticles, Long> {
+  /**
+   * This method overwrites the article with the given id with the fields of {@code incoming}
+   * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+   * If {@code incoming} has a version, the row is only updated if it is still at that version,
+   * so that a client cannot overwrite a change it has not seen.
+   * @param id the id of the article to update
+   * @param incoming the new values
+   * @return the number of rows updated, i.e. 0 if there was no such article
+   *   or it was not at the version of {@code incoming}, and 1 otherwise
+   */
+  @Transactional
+  @Modifying
+  @Query("update ucsbarticles a set "
+      + "a.title = :#{#incoming.title}, "
+      + "a.url = :#{#incoming.url}, "
+      + "a.explanation = :#{#incoming.explanation}, "
+      + "a.email = :#{#incoming.email}, "
+      + "a.dateAdded = :#{#incoming.dateAdded}, "
+      + "a.version = a.version + 1 "
+      + "where a.id = :id and a.version = coalesce(:#{#incoming.version}, a.version)")
+  int updateRowById(@Param("id") long id, @Param("incoming") UCSBArticles incoming);
+}
@@ -2,19 +2,62 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDateRepository is a repository for UCSBDate entities.
  */
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends VersionedRepository<UCSBDate, Long> {
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    * @param quarterYYYYQ quarter in the format YYYYQ (e.g. 20241 for Winter 2024, 20242 for Spring 2024, 20243 for Summer 2024, 20244 for Fall 2024)
+   * @param sort the order in which to return them
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
-  Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
-}
\ No newline at end of file
+  Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ, Sort sort);
+
+  /**
+   * This method returns one window of the UCSBDate entities whose localDateTime is at or
+   * after {@code from} and before {@code to}, starting just after the given position.
+   * @param from the start of the range (inclusive)
+   * @param to the end of the range (exclusive)
+   * @param position where to start; {@code ScrollPosition.keyset()} for the first window
+   * @param sort the sort order, whose properties are used as the keyset
+   * @param limit the maximum number of entities to return
+   * @return a window of entities, with {@code hasNext()} telling whether there are more
+   */
+  Window<UCSBDate> findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(LocalDateTime from, LocalDateTime to,
+      ScrollPosition position, Sort sort, Limit limit);
+
+  /**
+   * This method overwrites the date with the given id with the fields of {@code incoming}
+   * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+   * If {@code incoming} has a version, the row is only updated if it is still at that version,
+   * so that a client cannot overwrite a change it has not seen.
+   * @param id the id of the date to update
+   * @param incoming the new values
+   * @return the number of rows updated, i.e. 0 if there was no such date
+   *   or it was not at the version of {@code incoming}, and 1 otherwise
+   */
+  @Transactional
+  @Modifying
+  @Query("update ucsbdates d set "
+      + "d.quarterYYYYQ = :#{#incoming.quarterYYYYQ}, "
+      + "d.name = :#{#incoming.name}, "
+      + "d.localDateTime = :#{#incoming.localDateTime}, "
+      + "d.version = d.version + 1 "
+      + "where d.id = :id and d.version = coalesce(:#{#incoming.version}, d.version)")
+  int updateRowById(@Param("id") long id, @Param("incoming") UCSBDate incoming);
+}
@@ -2,12 +2,33 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 
 @Repository
-public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
-    
+public interface UCSBDiningCommonsMenuItemRepository extends VersionedRepository<UCSBDiningCommonsMenuItem, Long> {
+    /**
+     * This method overwrites the menu item with the given id with the fields of {@code incoming}
+     * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+     * If {@code incoming} has a version, the row is only updated if it is still at that version,
+     * so that a client cannot overwrite a change it has not seen.
+     * @param id the id of the menu item to update
+     * @param incoming the new values
+     * @return the number of rows updated, i.e. 0 if there was no such menu item
+     *   or it was not at the version of {@code incoming}, and 1 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update ucsbdiningcommonsmenuitem i set "
+        + "i.diningCommonsCode = :#{#incoming.diningCommonsCode}, "
+        + "i.name = :#{#incoming.name}, "
+        + "i.station = :#{#incoming.station}, "
+        + "i.version = i.version + 1 "
+        + "where i.id = :id and i.version = coalesce(:#{#incoming.version}, i.version)")
+    int updateRowById(@Param("id") long id, @Param("incoming") UCSBDiningCommonsMenuItem incoming);
 }
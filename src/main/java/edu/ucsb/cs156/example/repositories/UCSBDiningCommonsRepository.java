@@ -3,13 +3,38 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities
  */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
-}
\ No newline at end of file
+public interface UCSBDiningCommonsRepository extends VersionedRepository<UCSBDiningCommons, String>,
+        UpsertRepository<UCSBDiningCommons> {
+    /**
+     * This method overwrites the dining commons with the given code with the fields of {@code incoming}
+     * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+     * If {@code incoming} has a version, the row is only updated if it is still at that version,
+     * so that a client cannot overwrite a change it has not seen.
+     * @param code the code of the dining commons to update
+     * @param incoming the new values
+     * @return the number of rows updated, i.e. 0 if there was no such dining commons
+     *   or it was not at the version of {@code incoming}, and 1 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update ucsbdiningcommons c set "
+        + "c.name = :#{#incoming.name}, "
+        + "c.hasSackMeal = :#{#incoming.hasSackMeal}, "
+        + "c.hasTakeOutMeal = :#{#incoming.hasTakeOutMeal}, "
+        + "c.hasDiningCam = :#{#incoming.hasDiningCam}, "
+        + "c.latitude = :#{#incoming.latitude}, "
+        + "c.longitude = :#{#incoming.longitude}, "
+        + "c.version = c.version + 1 "
+        + "where c.code = :code and c.version = coalesce(:#{#incoming.version}, c.version)")
+    int updateRowById(@Param("code") String code, @Param("incoming") UCSBDiningCommons incoming);
+}
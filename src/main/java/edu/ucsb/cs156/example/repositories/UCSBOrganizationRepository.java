@@ -1,11 +1,34 @@
 package edu.ucsb.cs156.example.repositories;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
-
-}
\ No newline at end of file
+public interface UCSBOrganizationRepository extends VersionedRepository<UCSBOrganization, String>,
+        UpsertRepository<UCSBOrganization> {
+    /**
+     * This method overwrites the organization with the given orgField with the fields of {@code incoming}
+     * in a single {@code UPDATE} statement, without reading it first, and increments its version.
+     * If {@code incoming} has a version, the row is only updated if it is still at that version,
+     * so that a client cannot overwrite a change it has not seen.
+     * @param orgField the orgField of the organization to update
+     * @param incoming the new values
+     * @return the number of rows updated, i.e. 0 if there was no such organization
+     *   or it was not at the version of {@code incoming}, and 1 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("update ucsborganizations o set "
+        + "o.orgField = :#{#incoming.orgField}, "
+        + "o.orgTranslationShort = :#{#incoming.orgTranslationShort}, "
+        + "o.orgTranslation = :#{#incoming.orgTranslation}, "
+        + "o.inactive = :#{#incoming.inactive}, "
+        + "o.version = o.version + 1 "
+        + "where o.orgField = :orgField and o.version = coalesce(:#{#incoming.version}, o.version)")
+    int updateRowById(@Param("orgField") String orgField, @Param("incoming") UCSBOrganization incoming);
+}
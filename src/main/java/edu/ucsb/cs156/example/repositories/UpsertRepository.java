@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.List;
+
+/**
+ * The UpsertRepository is a repository fragment for entities whose primary key is chosen by
+ * the client, such as a dining commons code, rather than generated by the database.
+ *
+ * Saving such an entity with {@code CrudRepository.save} persists it when its {@code version}
+ * is null, so a row whose key already exists fails with a duplicate key instead of replacing
+ * the existing row.  {@link #upsertAll(List)} looks up the existing rows first, and replaces
+ * those, keeping their version, so that the update increments it.
+ *
+ * @param <T> the entity type
+ */
+public interface UpsertRepository<T> {
+  /**
+   * This method inserts each row whose key does not exist yet, and replaces each row whose
+   * key does, in one transaction.  The existing rows are read with one query per batch of keys.
+   * If the same key appears more than once, the last row with that key is the one kept.
+   * @param <S> the entity type
+   * @param rows the rows to save
+   * @return the saved rows, in the same order
+   */
+  <S extends T> List<S> upsertAll(List<S> rows);
+
+  /**
+   * This method inserts the row if its key does not exist yet, and replaces it otherwise.
+   * @param <S> the entity type
+   * @param row the row to save
+   * @return the saved row
+   */
+  default <S extends T> S upsert(S row) {
+    return upsertAll(List.of(row)).get(0);
+  }
+}
@@ -0,0 +1,65 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * The implementation of {@link UpsertRepository}, shared by the repositories that extend it.
+ *
+ * An existing row is replaced by copying every field of the incoming row onto the managed
+ * entity except its version, so Hibernate updates it with the usual optimistic check and
+ * version increment; new rows are persisted, and are inserted in JDBC batches.
+ *
+ * @param <T> the entity type
+ */
+public class UpsertRepositoryImpl<T> implements UpsertRepository<T> {
+
+  @PersistenceContext
+  EntityManager entityManager;
+
+  @Override
+  @Transactional
+  @SuppressWarnings("unchecked")
+  public <S extends T> List<S> upsertAll(List<S> rows) {
+    if (rows.isEmpty()) {
+      return rows;
+    }
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    Class<?> type = rows.get(0).getClass();
+    EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(type);
+
+    List<Object> ids = new ArrayList<>(rows.size());
+    for (S row : rows) {
+      ids.add(persister.getIdentifier(row, session));
+    }
+    List<?> existing = ((Session) session).byMultipleIds(type).multiLoad(ids);
+
+    Map<Object, Object> managed = new HashMap<>();
+    List<S> saved = new ArrayList<>(rows.size());
+    for (int i = 0; i < rows.size(); i++) {
+      S row = rows.get(i);
+      Object current = managed.containsKey(ids.get(i)) ? managed.get(ids.get(i)) : existing.get(i);
+      if (current == null) {
+        entityManager.persist(row);
+        managed.put(ids.get(i), row);
+        saved.add(row);
+      } else {
+        Object[] values = persister.getValues(row);
+        values[persister.getVersionProperty()] = persister.getVersion(current);
+        persister.setValues(current, values);
+        saved.add((S) current);
+      }
+    }
+    return saved;
+  }
+}
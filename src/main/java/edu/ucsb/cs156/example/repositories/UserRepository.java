@@ -1,7 +1,9 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
-import org.springframework.data.repository.CrudRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -10,11 +12,13 @@ import java.util.Optional;
  * The UserRepository is a repository for User entities.
  */
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends KeysetRepository<User, Long> {
   /**
    * This method returns a User entity with a given email.
+   * It is run on every request by a logged in user, so its result is kept in the query cache.
    * @param email email address of the user
    * @return Optional of User (empty if not found)
    */
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
   Optional<User> findByEmail(String email);
 }
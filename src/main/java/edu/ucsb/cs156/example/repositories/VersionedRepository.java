@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * The VersionedRepository is a base interface for repositories of entities with a
+ * {@code version} column, i.e. a {@code @Version} property that is incremented on every update.
+ *
+ * It adds a query for the version of the whole table, a counter that the
+ * {@link TableVersionTracker} increments after every transaction that writes to the table
+ * has committed, so that a listing can be given an ETag (and a conditional GET answered with 304 Not Modified)
+ * without loading any of the rows.
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the primary key of the entity
+ */
+@NoRepositoryBean
+public interface VersionedRepository<T, ID> extends KeysetRepository<T, ID> {
+  /**
+   * This method returns the version of the table, which changes whenever a row is inserted,
+   * updated or deleted.  The counter is looked up by entity name, which is also the name of
+   * the table in this app.
+   * @return the version of the table, or null if it has no counter
+   */
+  @Query(value = "select version from table_versions where table_name = '#{#entityName}'", nativeQuery = true)
+  Long findTableVersion();
+}
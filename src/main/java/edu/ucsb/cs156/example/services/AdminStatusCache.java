@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+
+/**
+ * This is a cache of the admin flag stored in the users table, keyed by email.
+ *
+ * It is consulted on every OAuth login, so it is bounded in size and entries expire
+ * after a fixed time; call {@link #invalidate(String)} whenever a user's admin flag
+ * is changed so that the change is seen on their next login.  Cache statistics are
+ * published as the {@code cache.*} metrics with tag {@code cache=adminStatus}.
+ */
+public class AdminStatusCache implements MeterBinder {
+
+  private final UserRepository userRepository;
+  private final Cache<String, Boolean> adminFlags;
+
+  /**
+   * Constructor for the cache
+   *
+   * @param userRepository the repository used to look up users on a cache miss
+   * @param maximumSize the maximum number of emails to keep
+   * @param timeToLive how long an entry is kept after it is loaded
+   */
+  public AdminStatusCache(UserRepository userRepository, long maximumSize, Duration timeToLive) {
+    this.userRepository = userRepository;
+    this.adminFlags = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * This method returns whether the user with the given email has the admin flag set
+   * in the database.  Users that are not in the database are not admins.
+   *
+   * @param email email address of the user
+   * @return whether the user is an admin
+   */
+  public boolean isAdmin(String email) {
+    return adminFlags.get(email,
+        e -> userRepository.findByEmail(e).map(User::getAdmin).orElse(false));
+  }
+
+  /**
+   * This method drops the cached admin flag for the given email.
+   *
+   * @param email email address of the user
+   */
+  public void invalidate(String email) {
+    adminFlags.invalidate(email);
+  }
+
+  /**
+   * This method registers the cache statistics with Micrometer.
+   * It is called by Spring Boot when a MeterRegistry is available.
+   *
+   * @param registry the meter registry
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, adminFlags, "adminStatus");
+  }
+}
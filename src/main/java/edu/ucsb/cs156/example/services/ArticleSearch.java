@@ -0,0 +1,129 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBArticles;
+import edu.ucsb.cs156.example.repositories.UCSBArticlesRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.WindowIterator;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that searches the title and explanation of the UCSB articles.
+ *
+ * The {@link InvertedIndex} is built from the database in the background when the app
+ * starts, and then kept up to date by UCSBArticlesController, which calls
+ * {@link #put(UCSBArticles)} and {@link #remove(long)} after each change it makes.
+ * Changes made while the index is being built are recorded and applied to the new
+ * index before it replaces the old one, so none are lost.  Until the first build
+ * finishes, searches find nothing.
+ */
+
+@Slf4j
+@Service
+public class ArticleSearch {
+
+  /**
+   * The number of articles read from the database per query while building the index.
+   */
+  public static final int BUILD_BATCH_SIZE = 500;
+
+  @Autowired
+  UCSBArticlesRepository ucsbArticlesRepository;
+
+  @Autowired
+  @Qualifier("applicationTaskExecutor")
+  TaskExecutor taskExecutor;
+
+  private volatile InvertedIndex index = new InvertedIndex();
+
+  private List<Consumer<InvertedIndex>> changesDuringRebuild;
+
+  /**
+   * This method starts building the index in the background.
+   * It is called by Spring Boot once the app has started.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuildInBackground() {
+    taskExecutor.execute(this::rebuild);
+  }
+
+  /**
+   * This method builds a new index from the articles in the database, and then replaces
+   * the current index with it.
+   */
+  public void rebuild() {
+    synchronized (this) {
+      changesDuringRebuild = new ArrayList<>();
+    }
+    InvertedIndex rebuilt = new InvertedIndex();
+    try {
+      WindowIterator<UCSBArticles> articles = WindowIterator
+          .of(position -> ucsbArticlesRepository.findBy(position, Sort.by("id"), Limit.of(BUILD_BATCH_SIZE)))
+          .startingAt(ScrollPosition.keyset());
+      articles.forEachRemaining(article -> index(rebuilt, article));
+    } catch (RuntimeException e) {
+      log.error("Could not build the article search index", e);
+      synchronized (this) {
+        changesDuringRebuild = null;
+      }
+      return;
+    }
+    synchronized (this) {
+      changesDuringRebuild.forEach(change -> change.accept(rebuilt));
+      changesDuringRebuild = null;
+      index = rebuilt;
+    }
+    log.info("Built the article search index of {} articles", rebuilt.size());
+  }
+
+  /**
+   * This method returns the articles that match a query, best match first.
+   * @param query the words to search for
+   * @param after the last match of the previous page, or null for the first page
+   * @param limit the maximum number of matches to return
+   * @return the ids and scores of the matching articles
+   */
+  public List<InvertedIndex.Match> search(String query, InvertedIndex.Match after, int limit) {
+    return index.search(query, after, limit);
+  }
+
+  /**
+   * This method adds an article to the index, or replaces it if its id is already there.
+   * Call it after the article has been saved.
+   * @param article the article
+   */
+  public void put(UCSBArticles article) {
+    change(i -> index(i, article));
+  }
+
+  /**
+   * This method removes an article from the index.  Call it after the article has been deleted.
+   * @param id the id of the article
+   */
+  public void remove(long id) {
+    change(i -> i.remove(id));
+  }
+
+  private synchronized void change(Consumer<InvertedIndex> change) {
+    change.accept(index);
+    if (changesDuringRebuild != null) {
+      changesDuringRebuild.add(change);
+    }
+  }
+
+  private static void index(InvertedIndex index, UCSBArticles article) {
+    index.put(article.getId(), article.getTitle(), article.getExplanation());
+  }
+}
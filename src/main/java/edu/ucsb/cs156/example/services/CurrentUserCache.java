@@ -0,0 +1,113 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import edu.ucsb.cs156.example.entities.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.event.InteractiveAuthenticationSuccessEvent;
+import org.springframework.security.authentication.event.LogoutSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+
+/**
+ * This is a cache of the User row of each logged in user, keyed by email, so that
+ * authenticated requests do not query the users table.
+ *
+ * It is bounded in size and entries expire a short time after they are loaded.  An entry
+ * is dropped when that user logs in or out, so each login reads the database once, and
+ * whenever their row is inserted, updated or deleted (see
+ * {@link edu.ucsb.cs156.example.entities.UserChangeListener}).  Cache statistics are
+ * published as the {@code cache.*} metrics with tag {@code cache=currentUser}.
+ */
+public class CurrentUserCache implements MeterBinder {
+
+  private final Cache<String, User> usersByEmail;
+
+  /**
+   * Constructor for the cache
+   *
+   * @param maximumSize the maximum number of users to keep
+   * @param timeToLive how long an entry is kept after it is loaded
+   */
+  public CurrentUserCache(long maximumSize, Duration timeToLive) {
+    this.usersByEmail = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * This method returns the cached User for the given email, if any.
+   *
+   * @param email email address of the user
+   * @return the cached User, or null if it is not cached
+   */
+  public User getIfPresent(String email) {
+    return usersByEmail.getIfPresent(email);
+  }
+
+  /**
+   * This method caches a User that has just been loaded or saved.
+   *
+   * @param user the user
+   */
+  public void put(User user) {
+    usersByEmail.put(user.getEmail(), user);
+  }
+
+  /**
+   * This method drops the cached User for the given email, so that the next request
+   * from that user reloads it from the database.
+   *
+   * @param email email address of the user
+   */
+  public void invalidate(String email) {
+    usersByEmail.invalidate(email);
+  }
+
+  /**
+   * This method drops the cached User when a user logs in, so that each login
+   * reads the user's row from the database once.
+   *
+   * @param event the login event (published by Spring Security)
+   */
+  @EventListener
+  public void onLogin(InteractiveAuthenticationSuccessEvent event) {
+    invalidate(event.getAuthentication());
+  }
+
+  /**
+   * This method drops the cached User when a user logs out.
+   *
+   * @param event the logout event (published by Spring Security)
+   */
+  @EventListener
+  public void onLogout(LogoutSuccessEvent event) {
+    invalidate(event.getAuthentication());
+  }
+
+  private void invalidate(Authentication authentication) {
+    if (authentication instanceof OAuth2AuthenticationToken token) {
+      invalidate(token.getPrincipal().<String>getAttribute("email"));
+    }
+  }
+
+  /**
+   * This method registers the cache statistics with Micrometer.
+   * It is called by Spring Boot when a MeterRegistry is available.
+   *
+   * @param registry the meter registry
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, usersByEmail, "currentUser");
+  }
+}
@@ -5,10 +5,10 @@ import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,6 +25,9 @@ import org.springframework.stereotype.Service;
  * This is a service that provides information about the current user.
  * 
  * This is the version of the service used in production.
+ * 
+ * The User row for each logged in email is kept in the {@link CurrentUserCache} after it
+ * is first loaded (or created), so that authenticated requests do not query the users table.
  */
 
 @Slf4j
@@ -37,8 +40,11 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
+  @Autowired
+  CurrentUserCache currentUserCache;
+
   @Value("${app.admin.emails}")
-  final private List<String> adminEmails = new ArrayList<String>();
+  final private Set<String> adminEmails = new HashSet<String>();
 
   /**
    * This method returns the current user as a User object.
@@ -76,6 +82,11 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String locale = oAuthUser.getAttribute("locale");
     String hostedDomain = oAuthUser.getAttribute("hd");
 
+    User cached = currentUserCache.getIfPresent(email);
+    if (cached != null) {
+      return cached;
+    }
+
     java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
     log.info("attrs={}",attrs);
 
@@ -84,8 +95,9 @@ public class CurrentUserServiceImpl extends CurrentUserService {
       User u = ou.get();
       if (adminEmails.contains(email) && !u.getAdmin()) {
         u.setAdmin(true);
-        userRepository.save(u);
+        u = userRepository.save(u);
       }
+      currentUserCache.put(u);
       return u;
     }
 
@@ -101,7 +113,8 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .hostedDomain(hostedDomain)
         .admin(adminEmails.contains(email))
         .build();
-    userRepository.save(u);
+    u = userRepository.save(u);
+    currentUserCache.put(u);
     return u;
   }
 
@@ -0,0 +1,147 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that answers location queries about the dining commons from memory.
+ *
+ * The commons are read from the database on the first query, and then kept up to date by
+ * UCSBDiningCommonsController, which calls {@link #put(UCSBDiningCommons)} and
+ * {@link #remove(String)} after each change it makes.  Each change replaces the
+ * {@link GeoIndex} with a new one, so queries never wait for a lock.  Commons without a
+ * latitude and longitude are not indexed.  Changes made directly in the database, or by
+ * another instance of the app, are not seen until {@link #reload()} is called.
+ *
+ * The changes and the first read are made holding a {@link ReentrantLock} rather than in
+ * synchronized methods, since a virtual thread that waits for the database inside a
+ * synchronized method stays pinned to its carrier thread.
+ */
+
+@Service
+public class DiningCommonsLocations {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  private final Map<String, UCSBDiningCommons> commons = new LinkedHashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile GeoIndex<UCSBDiningCommons> index;
+
+  /**
+   * This method returns the k commons nearest to a point, nearest first.
+   * @param latitude latitude of the point, in degrees
+   * @param longitude longitude of the point, in degrees
+   * @param k the number of commons to return
+   * @return the nearest commons
+   */
+  public List<UCSBDiningCommons> nearest(double latitude, double longitude, int k) {
+    return index().nearest(latitude, longitude, k);
+  }
+
+  /**
+   * This method returns the commons within a distance of a point, nearest first.
+   * @param latitude latitude of the point, in degrees
+   * @param longitude longitude of the point, in degrees
+   * @param radiusKm the distance, in kilometers
+   * @return the commons within the distance
+   */
+  public List<UCSBDiningCommons> within(double latitude, double longitude, double radiusKm) {
+    return index().within(latitude, longitude, radiusKm);
+  }
+
+  /**
+   * This method adds a commons to the index, or replaces it if its code is already there.
+   * Call it after the commons has been saved.
+   * @param diningCommons the commons
+   */
+  public void put(UCSBDiningCommons diningCommons) {
+    putAll(List.of(diningCommons));
+  }
+
+  /**
+   * This method adds several commons to the index, rebuilding it once.
+   * Call it after the commons have been saved.
+   * @param diningCommons the commons
+   */
+  public void putAll(List<UCSBDiningCommons> diningCommons) {
+    lock.lock();
+    try {
+      if (index == null) {
+        return;
+      }
+      diningCommons.forEach(this::add);
+      rebuild();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * This method removes a commons from the index.  Call it after the commons has been deleted.
+   * @param code the code of the commons
+   */
+  public void remove(String code) {
+    lock.lock();
+    try {
+      if (index != null && commons.remove(code) != null) {
+        rebuild();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * This method discards the index, so that the commons are read from the database
+   * again on the next query.
+   */
+  public void reload() {
+    lock.lock();
+    try {
+      index = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private GeoIndex<UCSBDiningCommons> index() {
+    GeoIndex<UCSBDiningCommons> current = index;
+    return current != null ? current : load();
+  }
+
+  private GeoIndex<UCSBDiningCommons> load() {
+    lock.lock();
+    try {
+      if (index == null) {
+        commons.clear();
+        ucsbDiningCommonsRepository.findAll().forEach(this::add);
+        rebuild();
+      }
+      return index;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void add(UCSBDiningCommons diningCommons) {
+    commons.remove(diningCommons.getCode());
+    if (diningCommons.getLatitude() != null && diningCommons.getLongitude() != null) {
+      commons.put(diningCommons.getCode(), diningCommons);
+    }
+  }
+
+  private void rebuild() {
+    index = GeoIndex.of(commons.values(), UCSBDiningCommons::getLatitude, UCSBDiningCommons::getLongitude);
+  }
+}
@@ -0,0 +1,213 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+/**
+ * This is an immutable spatial index of items at points on the earth, for nearest
+ * neighbor and radius queries.
+ *
+ * Each point is stored as a unit vector (x, y, z) in one primitive array, arranged as an
+ * implicit balanced k-d tree: the median of each range, split on x, y and z in turn, is
+ * stored in the middle of the range.  The straight line (chord) distance between unit
+ * vectors increases with the great circle distance, so a plain Euclidean k-d tree search
+ * gives exact great circle answers, with no special cases at the poles or the date line.
+ *
+ * @param <T> the type of the items
+ */
+public final class GeoIndex<T> {
+
+  /**
+   * The mean radius of the earth, in kilometers.
+   */
+  public static final double EARTH_RADIUS_KM = 6371.0088;
+
+  private final double[] points;
+  private final List<T> items;
+
+  private GeoIndex(double[] points, List<T> items) {
+    this.points = points;
+    this.items = items;
+  }
+
+  /**
+   * This method builds an index of the given items.
+   *
+   * @param <T> the type of the items
+   * @param items the items to index
+   * @param latitude returns the latitude of an item, in degrees
+   * @param longitude returns the longitude of an item, in degrees
+   * @return the index
+   */
+  public static <T> GeoIndex<T> of(Collection<T> items, ToDoubleFunction<T> latitude,
+      ToDoubleFunction<T> longitude) {
+    List<T> input = new ArrayList<>(items);
+    double[] vectors = new double[3 * input.size()];
+    for (int i = 0; i < input.size(); i++) {
+      toVector(latitude.applyAsDouble(input.get(i)), longitude.applyAsDouble(input.get(i)), vectors, 3 * i);
+    }
+
+    Integer[] order = IntStream.range(0, input.size()).boxed().toArray(Integer[]::new);
+    arrange(order, vectors, 0, order.length, 0);
+
+    double[] points = new double[vectors.length];
+    List<T> arranged = new ArrayList<>(input.size());
+    for (int i = 0; i < order.length; i++) {
+      System.arraycopy(vectors, 3 * order[i], points, 3 * i, 3);
+      arranged.add(input.get(order[i]));
+    }
+    return new GeoIndex<>(points, List.copyOf(arranged));
+  }
+
+  private static void arrange(Integer[] order, double[] vectors, int from, int to, int axis) {
+    if (to - from < 2) {
+      return;
+    }
+    Arrays.sort(order, from, to, Comparator.comparingDouble(i -> vectors[3 * i + axis]));
+    int mid = (from + to) >>> 1;
+    arrange(order, vectors, from, mid, (axis + 1) % 3);
+    arrange(order, vectors, mid + 1, to, (axis + 1) % 3);
+  }
+
+  private static void toVector(double latitude, double longitude, double[] into, int offset) {
+    double lat = Math.toRadians(latitude);
+    double lon = Math.toRadians(longitude);
+    into[offset] = Math.cos(lat) * Math.cos(lon);
+    into[offset + 1] = Math.cos(lat) * Math.sin(lon);
+    into[offset + 2] = Math.sin(lat);
+  }
+
+  /**
+   * This method returns the number of items in the index.
+   * @return the number of items
+   */
+  public int size() {
+    return items.size();
+  }
+
+  /**
+   * This method returns the k items nearest to a point, nearest first.
+   *
+   * @param latitude latitude of the point, in degrees
+   * @param longitude longitude of the point, in degrees
+   * @param k the number of items to return
+   * @return the nearest items (fewer than k if the index has fewer than k items)
+   */
+  public List<T> nearest(double latitude, double longitude, int k) {
+    Search search = new Search(latitude, longitude, Math.max(0, Math.min(k, items.size())));
+    if (search.capacity > 0) {
+      search.nearest(0, items.size(), 0);
+    }
+    return search.results();
+  }
+
+  /**
+   * This method returns the items within a distance of a point, nearest first.
+   *
+   * @param latitude latitude of the point, in degrees
+   * @param longitude longitude of the point, in degrees
+   * @param radiusKm the distance, in kilometers
+   * @return the items within the distance
+   */
+  public List<T> within(double latitude, double longitude, double radiusKm) {
+    Search search = new Search(latitude, longitude, items.size());
+    double angle = Math.min(radiusKm / EARTH_RADIUS_KM, Math.PI);
+    double chord = 2 * Math.sin(angle / 2);
+    search.within(0, items.size(), 0, radiusKm < 0 ? -1 : chord * chord);
+    return search.results();
+  }
+
+  /**
+   * The state of one query: the query point, and the best items found so far,
+   * kept sorted by their squared chord distance from the query point.
+   */
+  private class Search {
+    private final double[] query = new double[3];
+    private final int capacity;
+    private final double[] distances;
+    private final int[] found;
+    private int count;
+
+    Search(double latitude, double longitude, int capacity) {
+      toVector(latitude, longitude, query, 0);
+      this.capacity = capacity;
+      this.distances = new double[capacity];
+      this.found = new int[capacity];
+    }
+
+    private double distanceSquared(int node) {
+      double dx = points[3 * node] - query[0];
+      double dy = points[3 * node + 1] - query[1];
+      double dz = points[3 * node + 2] - query[2];
+      return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void offer(int node, double distance) {
+      int i = count < capacity ? count++ : capacity - 1;
+      while (i > 0 && distances[i - 1] > distance) {
+        distances[i] = distances[i - 1];
+        found[i] = found[i - 1];
+        i--;
+      }
+      distances[i] = distance;
+      found[i] = node;
+    }
+
+    void nearest(int from, int to, int axis) {
+      if (from >= to) {
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      double distance = distanceSquared(mid);
+      if (count < capacity || distance < distances[capacity - 1]) {
+        offer(mid, distance);
+      }
+      double split = query[axis] - points[3 * mid + axis];
+      int next = (axis + 1) % 3;
+      if (split < 0) {
+        nearest(from, mid, next);
+      } else {
+        nearest(mid + 1, to, next);
+      }
+      if (count < capacity || split * split < distances[capacity - 1]) {
+        if (split < 0) {
+          nearest(mid + 1, to, next);
+        } else {
+          nearest(from, mid, next);
+        }
+      }
+    }
+
+    void within(int from, int to, int axis, double limit) {
+      if (from >= to) {
+        return;
+      }
+      int mid = (from + to) >>> 1;
+      double distance = distanceSquared(mid);
+      if (distance <= limit) {
+        offer(mid, distance);
+      }
+      double split = query[axis] - points[3 * mid + axis];
+      int next = (axis + 1) % 3;
+      if (split < 0 || split * split <= limit) {
+        within(from, mid, next, limit);
+      }
+      if (split >= 0 || split * split <= limit) {
+        within(mid + 1, to, next, limit);
+      }
+    }
+
+    List<T> results() {
+      List<T> results = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        results.add(items.get(found[i]));
+      }
+      return results;
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * This is a service that streams changes to help requests to subscribed clients as
+ * Server-Sent Events, so that they do not have to poll.
+ *
+ * HelpRequestController publishes an event after each change it makes.  Publishing never
+ * waits for a client: each subscriber has its own buffer of at most
+ * {@link #SUBSCRIBER_BUFFER_SIZE} events, which is sent to the client on a thread of the
+ * task executor.  If a client falls so far behind that its buffer is full, the buffered
+ * events are dropped and replaced by one {@link #RESYNC} event, which tells the client to
+ * read the whole list again.  A client whose connection fails is unsubscribed.
+ */
+
+@Service
+public class HelpRequestEvents {
+
+  /**
+   * The maximum number of events waiting to be sent to one subscriber.
+   */
+  public static final int SUBSCRIBER_BUFFER_SIZE = 100;
+
+  /**
+   * How long a stream stays open; browsers reconnect automatically when it closes.
+   */
+  public static final Duration STREAM_TIMEOUT = Duration.ofMinutes(30);
+
+  /** The name of the event sent when a help request is created; its data is the request. */
+  public static final String CREATED = "created";
+  /** The name of the event sent when a help request is updated; its data is the request. */
+  public static final String UPDATED = "updated";
+  /** The name of the event sent when a help request is updated to solved; its data is the request. */
+  public static final String SOLVED = "solved";
+  /** The name of the event sent when a help request is deleted; its data is its id. */
+  public static final String DELETED = "deleted";
+  /** The name of the event sent in place of events that were dropped; it has no data. */
+  public static final String RESYNC = "resync";
+
+  @Autowired
+  @Qualifier("applicationTaskExecutor")
+  TaskExecutor taskExecutor;
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  private record Event(String name, Object data) {
+  }
+
+  /**
+   * This method subscribes a new client.
+   * @return the emitter to return from the controller
+   */
+  public SseEmitter subscribe() {
+    return subscribe(new SseEmitter(STREAM_TIMEOUT.toMillis()));
+  }
+
+  SseEmitter subscribe(SseEmitter emitter) {
+    Subscriber subscriber = new Subscriber(emitter);
+    subscribers.add(subscriber);
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    return emitter;
+  }
+
+  /**
+   * This method returns the number of subscribed clients.
+   * @return the number of subscribers
+   */
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  /**
+   * This method publishes a {@link #CREATED} event.  Call it after the request has been saved.
+   * @param helpRequest the new help request
+   */
+  public void created(HelpRequest helpRequest) {
+    publish(CREATED, helpRequest);
+  }
+
+  /**
+   * This method publishes a {@link #SOLVED} event if the request is solved, and an
+   * {@link #UPDATED} event otherwise.  Call it after the request has been updated.
+   * @param helpRequest the updated help request
+   */
+  public void updated(HelpRequest helpRequest) {
+    publish(helpRequest.getSolved() ? SOLVED : UPDATED, helpRequest);
+  }
+
+  /**
+   * This method publishes a {@link #DELETED} event.  Call it after the request has been deleted.
+   * @param id the id (requester email) of the deleted help request
+   */
+  public void deleted(String id) {
+    publish(DELETED, Map.of("id", id));
+  }
+
+  private void publish(String name, Object data) {
+    Event event = new Event(name, data);
+    subscribers.forEach(subscriber -> subscriber.offer(event));
+  }
+
+  /**
+   * One client, with the events waiting to be sent to it.  At most one thread at a time
+   * sends its events, and it does not hold the lock while it writes to the connection.
+   */
+  private class Subscriber {
+    private final SseEmitter emitter;
+    private final Deque<Event> buffer = new ArrayDeque<>();
+    private boolean sending;
+
+    Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    void offer(Event event) {
+      synchronized (this) {
+        if (buffer.size() == SUBSCRIBER_BUFFER_SIZE) {
+          buffer.clear();
+          buffer.add(new Event(RESYNC, Map.of()));
+        }
+        buffer.add(event);
+        if (sending) {
+          return;
+        }
+        sending = true;
+      }
+      taskExecutor.execute(this::send);
+    }
+
+    private void send() {
+      while (true) {
+        Event event;
+        synchronized (this) {
+          event = buffer.poll();
+          if (event == null) {
+            sending = false;
+            return;
+          }
+        }
+        try {
+          emitter.send(SseEmitter.event().name(event.name()).data(event.data()));
+        } catch (IOException | IllegalStateException e) {
+          subscribers.remove(this);
+          emitter.completeWithError(e);
+          return;
+        }
+      }
+    }
+  }
+}
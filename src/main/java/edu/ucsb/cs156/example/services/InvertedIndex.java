@@ -0,0 +1,213 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This is an in-memory full text index of documents identified by a long id, with
+ * results ranked by BM25.
+ *
+ * Text is split into words of letters and digits and lower cased.  For each word, the
+ * ids of the documents that contain it and the number of times it occurs in each are
+ * kept in primitive arrays sorted by id, so documents can be added, replaced and removed
+ * one at a time.  Any number of searches can run at once; changes wait for them.
+ */
+public class InvertedIndex {
+
+  private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Postings> postings = new HashMap<>();
+  private final Map<Long, Document> documents = new HashMap<>();
+  private long totalLength;
+
+  /**
+   * A document that matches a query, and its score.  Matches are ordered best first: by
+   * score, highest first, and then by id, largest (newest) first.
+   *
+   * @param id the id of the document
+   * @param score the BM25 score of the document for the query
+   */
+  public record Match(long id, double score) {
+    static final Comparator<Match> BEST_FIRST = Comparator.comparingDouble(Match::score).reversed()
+        .thenComparing(Comparator.comparingLong(Match::id).reversed());
+  }
+
+  /**
+   * The words of one document, needed to find its postings when it is removed.
+   */
+  private record Document(String[] words, int length) {
+  }
+
+  /**
+   * The documents that contain one word, sorted by id, with the number of times the
+   * word occurs in each.
+   */
+  private static final class Postings {
+    private long[] ids = new long[4];
+    private int[] counts = new int[4];
+    private int size;
+
+    void add(long id, int count) {
+      int i = -Arrays.binarySearch(ids, 0, size, id) - 1;
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, 2 * size);
+        counts = Arrays.copyOf(counts, 2 * size);
+      }
+      System.arraycopy(ids, i, ids, i + 1, size - i);
+      System.arraycopy(counts, i, counts, i + 1, size - i);
+      ids[i] = id;
+      counts[i] = count;
+      size++;
+    }
+
+    void remove(long id) {
+      int i = Arrays.binarySearch(ids, 0, size, id);
+      System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+      System.arraycopy(counts, i + 1, counts, i, size - i - 1);
+      size--;
+    }
+  }
+
+  /**
+   * This method splits text into lower case words.
+   * @param text the text, which may be null
+   * @return the words, in order
+   */
+  public static List<String> words(String text) {
+    List<String> words = new ArrayList<>();
+    if (text != null) {
+      Matcher matcher = WORD.matcher(text);
+      while (matcher.find()) {
+        words.add(matcher.group().toLowerCase(Locale.ROOT));
+      }
+    }
+    return words;
+  }
+
+  /**
+   * This method adds a document to the index, replacing any document with the same id.
+   * @param id the id of the document
+   * @param fields the text of the document; null fields are skipped
+   */
+  public void put(long id, String... fields) {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    int length = 0;
+    for (String field : fields) {
+      for (String word : words(field)) {
+        counts.merge(word, 1, Integer::sum);
+        length++;
+      }
+    }
+
+    lock.writeLock().lock();
+    try {
+      removeDocument(id);
+      counts.forEach((word, count) -> postings.computeIfAbsent(word, w -> new Postings()).add(id, count));
+      documents.put(id, new Document(counts.keySet().toArray(String[]::new), length));
+      totalLength += length;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * This method removes a document from the index, if it is there.
+   * @param id the id of the document
+   */
+  public void remove(long id) {
+    lock.writeLock().lock();
+    try {
+      removeDocument(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void removeDocument(long id) {
+    Document document = documents.remove(id);
+    if (document == null) {
+      return;
+    }
+    for (String word : document.words()) {
+      Postings p = postings.get(word);
+      p.remove(id);
+      if (p.size == 0) {
+        postings.remove(word);
+      }
+    }
+    totalLength -= document.length();
+  }
+
+  /**
+   * This method returns the number of documents in the index.
+   * @return the number of documents
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documents.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * This method returns the documents that contain any of the words of a query, best match
+   * first, as ordered by {@link Match}.
+   *
+   * Pages are read by passing the last match of the previous page as {@code after}, so that
+   * documents added or removed meanwhile do not shift the following pages.  Since scores
+   * change as documents are added and removed, that match is placed by its current score if
+   * it is still in the index, so that it and the matches before it are not returned again.
+   * @param query the query
+   * @param after only matches that come after this one are returned; null for the first page
+   * @param limit the maximum number of matches to return
+   * @return the matches
+   */
+  public List<Match> search(String query, Match after, int limit) {
+    List<String> words = words(query).stream().distinct().toList();
+    Map<Long, Double> scores = new HashMap<>();
+
+    lock.readLock().lock();
+    try {
+      int n = documents.size();
+      double averageLength = n == 0 ? 0 : (double) totalLength / n;
+      for (String word : words) {
+        Postings p = postings.get(word);
+        if (p == null) {
+          continue;
+        }
+        double idf = Math.log(1 + (n - p.size + 0.5) / (p.size + 0.5));
+        for (int i = 0; i < p.size; i++) {
+          double tf = p.counts[i];
+          double norm = K1 * (1 - B + B * documents.get(p.ids[i]).length() / averageLength);
+          scores.merge(p.ids[i], idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    Match from = after == null ? null : new Match(after.id(), scores.getOrDefault(after.id(), after.score()));
+    return scores.entrySet().stream()
+        .map(score -> new Match(score.getKey(), score.getValue()))
+        .filter(match -> from == null || Match.BEST_FIRST.compare(match, from) > 0)
+        .sorted(Match.BEST_FIRST)
+        .limit(Math.max(0, limit))
+        .toList();
+  }
+}
@@ -0,0 +1,177 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that suggests active UCSB organizations whose org field, short
+ * translation or translation starts with what the user has typed so far.
+ *
+ * Organizations that match at the start of one of those fields are suggested first,
+ * then those that match at the start of a later word (e.g. "phi" suggests
+ * "ZETA PHI RHO").  The organizations are read from the database on the first query,
+ * and then kept up to date by UCSBOrganizationController, which calls
+ * {@link #put(UCSBOrganization)} and {@link #remove(String)} after each change it makes.
+ * Each change replaces the {@link PrefixIndex}es with new ones, so queries never wait
+ * for a lock, except for the first, which reads the organizations holding a
+ * {@link ReentrantLock}: a virtual thread would stay pinned to its carrier thread while it
+ * waited for the database in a synchronized method.
+ */
+
+@Service
+public class OrganizationSuggestions {
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  private final Map<String, UCSBOrganization> organizations = new LinkedHashMap<>();
+
+  private record Indexes(PrefixIndex<UCSBOrganization> fields, PrefixIndex<UCSBOrganization> words) {
+  }
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile Indexes indexes;
+
+  /**
+   * This method returns the active organizations that match a prefix, best match first.
+   * @param prefix what the user has typed so far
+   * @param limit the maximum number of organizations to return
+   * @return the matching organizations (none if the prefix is blank)
+   */
+  public List<UCSBOrganization> suggest(String prefix, int limit) {
+    if (PrefixIndex.normalize(prefix).isEmpty()) {
+      return List.of();
+    }
+    Indexes current = indexes();
+    Set<UCSBOrganization> suggestions = new LinkedHashSet<>(current.fields().find(prefix, limit));
+    for (UCSBOrganization organization : current.words().find(prefix, limit)) {
+      if (suggestions.size() == limit) {
+        break;
+      }
+      suggestions.add(organization);
+    }
+    return new ArrayList<>(suggestions);
+  }
+
+  /**
+   * This method adds an organization to the index, or replaces it if its org field is
+   * already there.  Inactive organizations are removed instead.
+   * Call it after the organization has been saved.
+   * @param organization the organization
+   */
+  public void put(UCSBOrganization organization) {
+    putAll(List.of(organization));
+  }
+
+  /**
+   * This method adds several organizations to the index, rebuilding it once.
+   * Call it after the organizations have been saved.
+   * @param organizations the organizations
+   */
+  public void putAll(List<UCSBOrganization> organizations) {
+    lock.lock();
+    try {
+      if (indexes == null) {
+        return;
+      }
+      organizations.forEach(this::add);
+      rebuild();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * This method removes an organization from the index.
+   * Call it after the organization has been deleted.
+   * @param orgField the org field of the organization
+   */
+  public void remove(String orgField) {
+    lock.lock();
+    try {
+      if (indexes != null && organizations.remove(orgField) != null) {
+        rebuild();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * This method discards the index, so that the organizations are read from the
+   * database again on the next query.
+   */
+  public void reload() {
+    lock.lock();
+    try {
+      indexes = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Indexes indexes() {
+    Indexes current = indexes;
+    return current != null ? current : load();
+  }
+
+  private Indexes load() {
+    lock.lock();
+    try {
+      if (indexes == null) {
+        organizations.clear();
+        ucsbOrganizationRepository.findAll().forEach(this::add);
+        rebuild();
+      }
+      return indexes;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void add(UCSBOrganization organization) {
+    organizations.remove(organization.getOrgField());
+    if (!organization.getInactive()) {
+      organizations.put(organization.getOrgField(), organization);
+    }
+  }
+
+  private void rebuild() {
+    indexes = new Indexes(
+        PrefixIndex.of(organizations.values(), OrganizationSuggestions::fields),
+        PrefixIndex.of(organizations.values(), o -> fields(o).stream().flatMap(OrganizationSuggestions::laterWords).toList()));
+  }
+
+  private static List<String> fields(UCSBOrganization organization) {
+    return Stream.of(organization.getOrgField(), organization.getOrgTranslationShort(), organization.getOrgTranslation())
+        .map(PrefixIndex::normalize)
+        .toList();
+  }
+
+  /**
+   * This method returns the suffixes of a normalized field that start at each word
+   * after the first, e.g. "phi rho" and "rho" for "zeta phi rho".
+   */
+  private static Stream<String> laterWords(String field) {
+    List<String> suffixes = new ArrayList<>();
+    for (int i = 1; i < field.length(); i++) {
+      if (Character.isLetterOrDigit(field.charAt(i)) && !Character.isLetterOrDigit(field.charAt(i - 1))) {
+        suffixes.add(field.substring(i));
+      }
+    }
+    return suffixes.stream();
+  }
+}
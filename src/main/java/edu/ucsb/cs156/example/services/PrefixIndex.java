@@ -0,0 +1,116 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * This is an immutable index of items by the prefixes of one or more keys, for type-ahead.
+ *
+ * The keys are normalized with {@link #normalize(String)} and kept in one sorted array,
+ * with a parallel array of the item each key belongs to, so the keys that start with a
+ * prefix are a contiguous range found by binary search.
+ *
+ * @param <T> the type of the items
+ */
+public final class PrefixIndex<T> {
+
+  private final String[] keys;
+  private final int[] owners;
+  private final List<T> items;
+
+  private PrefixIndex(String[] keys, int[] owners, List<T> items) {
+    this.keys = keys;
+    this.owners = owners;
+    this.items = items;
+  }
+
+  /**
+   * This method lower cases a string and replaces each run of white space with one space,
+   * so that keys and prefixes can be compared.
+   * @param s the string, which may be null
+   * @return the normalized string (empty if s is null)
+   */
+  public static String normalize(String s) {
+    return s == null ? "" : s.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * This method builds an index of the given items.
+   *
+   * @param <T> the type of the items
+   * @param items the items to index
+   * @param keys returns the keys of an item; null and blank keys are skipped
+   * @return the index
+   */
+  public static <T> PrefixIndex<T> of(Collection<T> items, Function<T, Collection<String>> keys) {
+    List<T> indexed = List.copyOf(items);
+    List<String> entryKeys = new ArrayList<>();
+    List<Integer> entryOwners = new ArrayList<>();
+    for (int i = 0; i < indexed.size(); i++) {
+      for (String key : keys.apply(indexed.get(i))) {
+        String normalized = normalize(key);
+        if (!normalized.isEmpty()) {
+          entryKeys.add(normalized);
+          entryOwners.add(i);
+        }
+      }
+    }
+
+    Integer[] order = new Integer[entryKeys.size()];
+    Arrays.setAll(order, i -> i);
+    Arrays.sort(order, Comparator.comparing(entryKeys::get));
+    String[] sortedKeys = new String[order.length];
+    int[] sortedOwners = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedKeys[i] = entryKeys.get(order[i]);
+      sortedOwners[i] = entryOwners.get(order[i]);
+    }
+    return new PrefixIndex<>(sortedKeys, sortedOwners, indexed);
+  }
+
+  /**
+   * This method returns the items that have a key starting with a prefix, in the order
+   * of their first such key.
+   * @param prefix the prefix, which is normalized first
+   * @param limit the maximum number of items to return
+   * @return the items
+   */
+  public List<T> find(String prefix, int limit) {
+    String p = normalize(prefix);
+    int i = firstAtLeast(p);
+    List<T> found = new ArrayList<>();
+    BitSet seen = new BitSet();
+    for (; i < keys.length && found.size() < limit && keys[i].startsWith(p); i++) {
+      if (!seen.get(owners[i])) {
+        seen.set(owners[i]);
+        found.add(items.get(owners[i]));
+      }
+    }
+    return found;
+  }
+
+  /**
+   * This method returns the index of the first key that is not less than a string.
+   * Unlike {@link Arrays#binarySearch(Object[], Object)}, it finds the first of several
+   * equal keys.
+   */
+  private int firstAtLeast(String s) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (keys[mid].compareTo(s) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import edu.ucsb.cs156.example.repositories.VersionedRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This is a read-through cache of a small, rarely written table, keyed by primary key,
+ * together with a snapshot of the whole table.
+ *
+ * Rows are read from the repository on a miss; rows that are not found are not cached.
+ * The snapshot is read with one {@code findAll()} and comes with the version of the table,
+ * read just before it, so that a listing can be given an ETag without a query.  Both
+ * are bounded in time, so changes made by another instance of the app are seen after at
+ * most the time to live; call {@link #invalidate(Object)} after each change to a row so
+ * that this instance sees it at once.  Cache statistics are published as the
+ * {@code cache.*} metrics, with tag {@code cache} set to the name of the cache for the
+ * rows and to the name followed by {@code All} for the snapshot.
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the primary key of the entity
+ */
+public class ReferenceDataCache<T, ID> implements MeterBinder {
+
+  /**
+   * A snapshot of the whole table.
+   * @param <T> the entity type
+   * @param rows the rows of the table
+   * @param version the version of the table, from {@link VersionedRepository#findTableVersion()},
+   *   or null if it has none
+   */
+  public record Snapshot<T>(List<T> rows, Long version) {
+  }
+
+  private static final String ALL = "all";
+
+  private final String name;
+  private final VersionedRepository<T, ID> repository;
+  private final Cache<ID, T> rows;
+  private final Cache<String, Snapshot<T>> snapshot;
+
+  /**
+   * Constructor for the cache
+   *
+   * @param name the name of the cache, used to tag its metrics
+   * @param repository the repository used to read rows on a miss
+   * @param maximumSize the maximum number of rows to keep
+   * @param timeToLive how long a row or the snapshot is kept after it is read
+   */
+  public ReferenceDataCache(String name, VersionedRepository<T, ID> repository,
+      long maximumSize, Duration timeToLive) {
+    this.name = name;
+    this.repository = repository;
+    this.rows = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive)
+        .recordStats()
+        .build();
+    this.snapshot = Caffeine.newBuilder()
+        .expireAfterWrite(timeToLive)
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * This method returns the row with a primary key, reading it from the repository on a miss.
+   * @param key the primary key
+   * @return the row, or empty if there is no such row
+   */
+  public Optional<T> findById(ID key) {
+    return Optional.ofNullable(rows.get(key, k -> repository.findById(k).orElse(null)));
+  }
+
+  /**
+   * This method returns a snapshot of the whole table, reading it from the repository on a miss.
+   * @return the snapshot
+   */
+  public Snapshot<T> findAll() {
+    return snapshot.get(ALL, k -> load());
+  }
+
+  private Snapshot<T> load() {
+    // read the version first: if a write commits in between, the rows are newer than the
+    // version, which costs a client one extra download, rather than older, which would
+    // let a client keep the old rows under the new version
+    Long version = repository.findTableVersion();
+    List<T> all = new ArrayList<>();
+    repository.findAll().forEach(all::add);
+    return new Snapshot<>(List.copyOf(all), version);
+  }
+
+  /**
+   * This method drops a row, and the snapshot, from the cache.
+   * Call it after the row has been created, updated or deleted.
+   * @param key the primary key of the row
+   */
+  public void invalidate(ID key) {
+    rows.invalidate(key);
+    snapshot.invalidateAll();
+  }
+
+  /**
+   * This method registers the cache statistics with Micrometer.
+   * It is called by Spring Boot when a MeterRegistry is available.
+   *
+   * @param registry the meter registry
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    CaffeineCacheMetrics.monitor(registry, rows, name);
+    CaffeineCacheMetrics.monitor(registry, snapshot, name + "All");
+  }
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that answers "what is coming up next" queries about the UCSB dates
+ * from memory.
+ *
+ * The dates are kept in a {@link ConcurrentSkipListMap} sorted by localDateTime (and
+ * then id), so the dates after a given time are a tail of the map, found without
+ * scanning the dates before it, and queries never wait for a lock.  The dates are read
+ * from the database on the first query, and then kept up to date by UCSBDatesController,
+ * which calls {@link #put(UCSBDate)} and {@link #remove(long)} after each change it makes.
+ * Dates without a localDateTime are not indexed.  Changes made directly in the database,
+ * or by another instance of the app, are not seen until {@link #reload()} is called.
+ *
+ * Changes to the index, and the first read of the dates, hold a {@link ReentrantLock}
+ * rather than the object's monitor, so that a virtual thread is not pinned while it waits.
+ */
+
+@Service
+public class UpcomingDates {
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  /**
+   * The position of a date in the index.
+   */
+  private record Key(LocalDateTime localDateTime, long id) {
+  }
+
+  private static final Comparator<Key> ORDER = Comparator.comparing(Key::localDateTime).thenComparingLong(Key::id);
+
+  private final Map<Long, Key> keys = new HashMap<>();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile NavigableMap<Key, UCSBDate> dates;
+
+  /**
+   * This method returns the dates at or after a time, earliest first.
+   * @param from the time
+   * @param limit the maximum number of dates to return
+   * @return the dates
+   */
+  public List<UCSBDate> upcoming(LocalDateTime from, int limit) {
+    return dates().tailMap(new Key(from, Long.MIN_VALUE), true).values().stream()
+        .limit(Math.max(0, limit))
+        .toList();
+  }
+
+  /**
+   * This method adds a date to the index, or replaces it if its id is already there.
+   * Call it after the date has been saved.
+   * @param date the date
+   */
+  public void put(UCSBDate date) {
+    putAll(List.of(date));
+  }
+
+  /**
+   * This method adds several dates to the index.  Call it after the dates have been saved.
+   * @param dates the dates
+   */
+  public void putAll(List<UCSBDate> dates) {
+    lock.lock();
+    try {
+      if (this.dates == null) {
+        return;
+      }
+      dates.forEach(date -> add(this.dates, date));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * This method removes a date from the index.  Call it after the date has been deleted.
+   * @param id the id of the date
+   */
+  public void remove(long id) {
+    lock.lock();
+    try {
+      if (dates != null) {
+        Key key = keys.remove(id);
+        if (key != null) {
+          dates.remove(key);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * This method discards the index, so that the dates are read from the database
+   * again on the next query.
+   */
+  public void reload() {
+    lock.lock();
+    try {
+      dates = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private NavigableMap<Key, UCSBDate> dates() {
+    NavigableMap<Key, UCSBDate> current = dates;
+    return current != null ? current : load();
+  }
+
+  private NavigableMap<Key, UCSBDate> load() {
+    lock.lock();
+    try {
+      if (dates == null) {
+        keys.clear();
+        NavigableMap<Key, UCSBDate> loaded = new ConcurrentSkipListMap<>(ORDER);
+        ucsbDateRepository.findAll().forEach(date -> add(loaded, date));
+        dates = loaded;
+      }
+      return dates;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void add(NavigableMap<Key, UCSBDate> into, UCSBDate date) {
+    Key old = keys.remove(date.getId());
+    if (old != null) {
+      into.remove(old);
+    }
+    if (date.getLocalDateTime() != null) {
+      Key key = new Key(date.getLocalDateTime(), date.getId());
+      keys.put(date.getId(), key);
+      into.put(key, date);
+    }
+  }
+}
@@ -14,8 +14,10 @@ import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.DigestUtils;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @ActiveProfiles("test")
@@ -36,6 +38,16 @@ public abstract class ControllerTestCase {
   @MockBean
   WiremockService mockWiremockService;
 
+  /**
+   * This method returns the ETag that ApiController gives a row.
+   * @param id the primary key of the row
+   * @param version the version of the row
+   * @return the ETag, in quotes
+   */
+  protected static String rowEtag(Object id, long version) {
+    return "\"" + DigestUtils.md5DigestAsHex(("row:" + id + ":" + version).getBytes(StandardCharsets.UTF_8)) + "\"";
+  }
+
   protected Map<String, Object> responseToJson(MvcResult result) throws UnsupportedEncodingException, JsonProcessingException {
     String responseString = result.getResponse().getContentAsString();
     return mapper.readValue(responseString, Map.class);
@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.aop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TimingAspectTests {
+
+  static class FakeController {
+    MockClock clock;
+
+    @GetMapping("/all")
+    public String all() {
+      clock.add(30, TimeUnit.MILLISECONDS);
+      return "all";
+    }
+
+    @PostMapping("/post")
+    public String post() {
+      clock.add(5, TimeUnit.MILLISECONDS);
+      throw new EntityNotFoundException(String.class, 7L);
+    }
+  }
+
+  MockClock clock = new MockClock();
+  SimpleMeterRegistry registry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+  FakeController controller;
+
+  @BeforeEach
+  void setUp() {
+    FakeController target = new FakeController();
+    target.clock = clock;
+    AspectJProxyFactory factory = new AspectJProxyFactory(target);
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new TimingAspect(registry));
+    controller = factory.getProxy();
+  }
+
+  @Test
+  void successful_calls_are_timed_per_method() {
+    assertEquals("all", controller.all());
+    assertEquals("all", controller.all());
+
+    Timer timer = registry.get(TimingAspect.METRIC_NAME)
+        .tag("class", "FakeController").tag("method", "all").tag("exception", "none")
+        .timer();
+    assertEquals(2, timer.count());
+    assertEquals(60.0, timer.totalTime(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void failed_calls_are_counted_by_exception_and_rethrown() {
+    assertThrows(EntityNotFoundException.class, () -> controller.post());
+
+    Timer timer = registry.get(TimingAspect.METRIC_NAME)
+        .tag("method", "post").tag("exception", "EntityNotFoundException")
+        .timer();
+    assertEquals(1, timer.count());
+    assertEquals(5.0, timer.totalTime(TimeUnit.MILLISECONDS));
+    assertNull(registry.find(TimingAspect.METRIC_NAME).tag("method", "post").tag("exception", "none").timer());
+  }
+
+  @Test
+  void percentiles_are_published() {
+    controller.all();
+
+    assertEquals(3, registry.get(TimingAspect.METRIC_NAME + ".percentile")
+        .tag("method", "all").gauges().size());
+  }
+}
@@ -4,20 +4,29 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.HelpRequestEvents;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -29,7 +38,9 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -44,6 +55,9 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    HelpRequestEvents helpRequestEvents;
+
     // Authorization tests for /api/ucsbdates/admin/all
 
     @Test
@@ -55,6 +69,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     @WithMockUser(roles = { "USER" })
     @Test
     public void logged_in_users_can_get_all() throws Exception {
+        when(helpRequestRepository.findTableVersion()).thenReturn(0L);
         mockMvc.perform(get("/api/helprequest/all"))
                 .andExpect(status().is(200)); // logged
     }
@@ -98,7 +113,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 .explanation("Need help with project")
                 .solved(false)
                 .build();
-        when(helpRequestRepository.save(any(HelpRequest.class))).thenReturn(helpRequest1);
+        when(helpRequestRepository.upsert(any(HelpRequest.class))).thenReturn(helpRequest1);
 
         // act
         MvcResult response = mockMvc.perform(
@@ -113,7 +128,8 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 .andExpect(status().isOk()).andReturn();
 
         // assert
-        verify(helpRequestRepository, times(1)).save(any(HelpRequest.class));
+        verify(helpRequestRepository, times(1)).upsert(any(HelpRequest.class));
+        verify(helpRequestEvents, times(1)).created(helpRequest1);
         String expectedJson = mapper.writeValueAsString(helpRequest1);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
@@ -135,15 +151,15 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 .solved(false)
                 .build();
 
-        when(helpRequestRepository.findById(eq(7L))).thenReturn(Optional.of(helpRequest));
+        when(helpRequestRepository.findById(eq("test@example.com"))).thenReturn(Optional.of(helpRequest));
 
         // act
-        MvcResult response = mockMvc.perform(get("/api/helprequest?id=7"))
+        MvcResult response = mockMvc.perform(get("/api/helprequest?id=test@example.com"))
                 .andExpect(status().isOk()).andReturn();
 
         // assert
 
-        verify(helpRequestRepository, times(1)).findById(eq(7L));
+        verify(helpRequestRepository, times(1)).findById(eq("test@example.com"));
         String expectedJson = mapper.writeValueAsString(helpRequest);
         String responseString = response.getResponse().getContentAsString();
         assertEquals(expectedJson, responseString);
@@ -155,18 +171,18 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
         // arrange
 
-        when(helpRequestRepository.findById(eq(7L))).thenReturn(Optional.empty());
+        when(helpRequestRepository.findById(eq("nobody@example.com"))).thenReturn(Optional.empty());
 
         // act
-        MvcResult response = mockMvc.perform(get("/api/helprequest?id=7"))
+        MvcResult response = mockMvc.perform(get("/api/helprequest?id=nobody@example.com"))
                 .andExpect(status().isNotFound()).andReturn();
 
         // assert
 
-        verify(helpRequestRepository, times(1)).findById(eq(7L));
+        verify(helpRequestRepository, times(1)).findById(eq("nobody@example.com"));
         Map<String, Object> json = responseToJson(response);
         assertEquals("EntityNotFoundException", json.get("type"));
-        assertEquals("HelpRequest with id 7 not found", json.get("message"));
+        assertEquals("HelpRequest with id nobody@example.com not found", json.get("message"));
     }
 
     @WithMockUser(roles = { "USER" })
@@ -199,6 +215,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         expectedRequests.addAll(Arrays.asList(helpRequest1, helpRequest2));
 
         when(helpRequestRepository.findAll()).thenReturn(expectedRequests);
+        when(helpRequestRepository.findTableVersion()).thenReturn(0L);
 
         // act
         MvcResult response = mockMvc.perform(get("/api/helprequest/all"))
@@ -217,29 +234,21 @@ public class HelpRequestControllerTests extends ControllerTestCase {
     public void admin_can_delete_a_request() throws Exception {
         // arrange
         LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
-        HelpRequest helpRequest1 = HelpRequest.builder()
-                .requesterEmail("random@email.bro")
-                .teamId("007")
-                .tableOrBreakoutRoom("table")
-                .requestTime(ldt1)
-                .explanation("fufufu")
-                .solved(true)
-                .build();
 
-        when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.of(helpRequest1));
+        when(helpRequestRepository.deleteRowById(eq("test1@example.com"))).thenReturn(1);
 
         // act
         MvcResult response = mockMvc.perform(
-                delete("/api/helprequest?id=15")
+                delete("/api/helprequest?id=test1@example.com")
                         .with(csrf()))
                 .andExpect(status().isOk()).andReturn();
 
         // assert
-        verify(helpRequestRepository, times(1)).findById(15L);
-        verify(helpRequestRepository, times(1)).delete(any());
+        verify(helpRequestRepository, times(1)).deleteRowById("test1@example.com");
+        verify(helpRequestEvents, times(1)).deleted("test1@example.com");
 
         Map<String, Object> json = responseToJson(response);
-        assertEquals("HelpRequest with id 15 deleted", json.get("message"));
+        assertEquals("HelpRequest with id test1@example.com deleted", json.get("message"));
     }
 
     @WithMockUser(roles = { "ADMIN", "USER" })
@@ -248,18 +257,19 @@ public class HelpRequestControllerTests extends ControllerTestCase {
             throws Exception {
         // arrange
 
-        when(helpRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+        when(helpRequestRepository.deleteRowById(eq("nobody@example.com"))).thenReturn(0);
 
         // act
         MvcResult response = mockMvc.perform(
-                delete("/api/helprequest?id=15")
+                delete("/api/helprequest?id=nobody@example.com")
                         .with(csrf()))
                 .andExpect(status().isNotFound()).andReturn();
 
         // assert
-        verify(helpRequestRepository, times(1)).findById(15L);
+        verify(helpRequestRepository, times(1)).deleteRowById("nobody@example.com");
+        verify(helpRequestEvents, never()).deleted(anyString());
         Map<String, Object> json = responseToJson(response);
-        assertEquals("HelpRequest with id 15 not found", json.get("message"));
+        assertEquals("HelpRequest with id nobody@example.com not found", json.get("message"));
     }
 
     @WithMockUser(roles = { "ADMIN", "USER" })
@@ -270,14 +280,6 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
         LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-        HelpRequest helpRequestOrig = HelpRequest.builder()
-                .requesterEmail("test1@example.com")
-                .teamId("team1")
-                .tableOrBreakoutRoom("table1")
-                .requestTime(ldt1)
-                .explanation("My project is on fire")
-                .solved(false)
-                .build();
 
         HelpRequest helpRequestEdited = HelpRequest.builder()
                 .requesterEmail("test2@example.com")
@@ -288,13 +290,24 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 .solved(true)
                 .build();
 
+        HelpRequest helpRequestStored = HelpRequest.builder()
+                .requesterEmail("test1@example.com")
+                .teamId("team2")
+                .tableOrBreakoutRoom("table2")
+                .requestTime(ldt2)
+                .explanation("It stopped")
+                .solved(true)
+                .version(4L)
+                .build();
+
         String requestBody = mapper.writeValueAsString(helpRequestEdited);
 
-        when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(helpRequestOrig));
+        when(helpRequestRepository.updateRowById(eq("test1@example.com"), any())).thenReturn(1);
+        when(helpRequestRepository.findById(eq("test1@example.com"))).thenReturn(Optional.of(helpRequestStored));
 
         // act
         MvcResult response = mockMvc.perform(
-                put("/api/helprequest?id=67")
+                put("/api/helprequest?id=test1@example.com")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding("utf-8")
                         .content(requestBody)
@@ -302,10 +315,67 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 .andExpect(status().isOk()).andReturn();
 
         // assert
-        verify(helpRequestRepository, times(1)).findById(67L);
-        verify(helpRequestRepository, times(1)).save(helpRequestEdited); // should be saved with correct user
+        verify(helpRequestRepository, times(1)).updateRowById("test1@example.com", helpRequestEdited);
+        verify(helpRequestEvents, times(1)).updated(helpRequestStored); // the stored row, keyed by the id, not the body
         String responseString = response.getResponse().getContentAsString();
-        assertEquals(requestBody, responseString);
+        assertEquals(mapper.writeValueAsString(helpRequestStored), responseString);
+        assertEquals(rowEtag("test1@example.com", 4L), response.getResponse().getHeader("ETag"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_edit_of_a_helprequest_deleted_meanwhile_returns_not_found() throws Exception {
+        // arrange
+        HelpRequest helpRequestEdited = HelpRequest.builder()
+                .requesterEmail("test1@example.com")
+                .teamId("team1")
+                .tableOrBreakoutRoom("table1")
+                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .explanation("Need help with project 1")
+                .solved(false)
+                .build();
+
+        when(helpRequestRepository.updateRowById(eq("test1@example.com"), any())).thenReturn(1);
+        when(helpRequestRepository.findById(eq("test1@example.com"))).thenReturn(Optional.empty());
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/helprequest?id=test1@example.com")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(helpRequestEdited))
+                        .with(csrf()))
+                .andExpect(status().isNotFound()).andReturn();
+
+        // assert
+        verify(helpRequestEvents, never()).updated(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("HelpRequest with id test1@example.com not found", json.get("message"));
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_edit_with_a_stale_if_match_of_a_helprequest_returns_precondition_failed() throws Exception {
+        // arrange
+        HelpRequest edited = HelpRequest.builder().requesterEmail("test1@example.com").build();
+        HelpRequest stored = HelpRequest.builder().requesterEmail("test1@example.com").version(6L).build();
+
+        when(helpRequestRepository.findById(eq("test1@example.com"))).thenReturn(Optional.of(stored));
+
+        // act
+        MvcResult response = mockMvc.perform(
+                put("/api/helprequest?id=test1@example.com")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(edited))
+                        .header("If-Match", rowEtag("test1@example.com", 5L))
+                        .with(csrf()))
+                .andExpect(status().isPreconditionFailed()).andReturn();
+
+        // assert
+        verify(helpRequestEvents, never()).updated(any());
+        Map<String, Object> json = responseToJson(response);
+        assertEquals("HelpRequest with id test1@example.com has changed since it was read", json.get("message"));
     }
 
     @WithMockUser(roles = { "ADMIN", "USER" })
@@ -326,11 +396,11 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
         String requestBody = mapper.writeValueAsString(helpRequestEdited);
 
-        when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+        when(helpRequestRepository.updateRowById(eq("test1@example.com"), any())).thenReturn(0);
 
         // act
         MvcResult response = mockMvc.perform(
-                put("/api/helprequest?id=67")
+                put("/api/helprequest?id=test1@example.com")
                         .contentType(MediaType.APPLICATION_JSON)
                         .characterEncoding("utf-8")
                         .content(requestBody)
@@ -338,9 +408,240 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 .andExpect(status().isNotFound()).andReturn();
 
         // assert
-        verify(helpRequestRepository, times(1)).findById(67L);
+        verify(helpRequestRepository, times(1)).updateRowById(eq("test1@example.com"), any());
+        verify(helpRequestEvents, never()).updated(any());
         Map<String, Object> json = responseToJson(response);
-        assertEquals("HelpRequest with id 67 not found", json.get("message"));
+        assertEquals("HelpRequest with id test1@example.com not found", json.get("message"));
 
     }
+
+        // Tests for GET /api/helprequest/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/helprequest/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_helprequests_using_cursor() throws Exception {
+
+                // arrange
+                HelpRequest item = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .explanation("need help")
+                                .solved(false)
+                                .build();
+
+                List<HelpRequest> content = List.of(item);
+                Window<HelpRequest> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("requesterEmail", "cgaucho@ucsb.edu")), true);
+
+                ScrollPosition expectedPosition = ScrollPosition.forward(Map.of("requesterEmail", "agaucho@ucsb.edu"));
+                when(helpRequestRepository.findBy(eq(expectedPosition), eq(Sort.by("requesterEmail")), eq(Limit.of(1))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/page?limit=1&after=" + KeysetPage.encodeCursor("agaucho@ucsb.edu")))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findBy(eq(expectedPosition), eq(Sort.by("requesterEmail")), eq(Limit.of(1)));
+                KeysetPage<HelpRequest> expectedPage = KeysetPage.<HelpRequest>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor("cgaucho@ucsb.edu"))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/helprequest/all as NDJSON
+
+        @Test
+        public void logged_out_users_cannot_export_ndjson() throws Exception {
+                mockMvc.perform(get("/api/helprequest/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_helprequests_as_ndjson() throws Exception {
+
+                // arrange
+                HelpRequest item = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .explanation("need help")
+                                .solved(false)
+                                .build();
+
+                Window<HelpRequest> window = Window.from(List.of(item),
+                                i -> ScrollPosition.forward(Map.of("requesterEmail", "cgaucho@ucsb.edu")), false);
+
+                when(helpRequestRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("requesterEmail")), eq(Limit.of(ApiController.EXPORT_BATCH_SIZE))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findBy(any(), any(), any());
+                String expectedNdjson = mapper.writeValueAsString(item) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedNdjson, responseString);
+        }
+
+        // Tests for POST /api/helprequest/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/helprequest/bulk").contentType(MediaType.APPLICATION_JSON).content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can bulk insert
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_helprequests() throws Exception {
+                // arrange
+
+                HelpRequest helpRequest1 = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .explanation("need help")
+                                .solved(false)
+                                .build();
+
+                String body = "[" + mapper.writeValueAsString(helpRequest1) + "]";
+                when(helpRequestRepository.upsertAll(List.of(helpRequest1))).thenReturn(List.of(helpRequest1));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/helprequest/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).upsertAll(List.of(helpRequest1));
+                verify(helpRequestEvents, times(1)).created(helpRequest1);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(1, json.get("inserted"));
+        }
+
+        // Tests for conditional GET (ETag and If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_304_when_the_table_has_not_changed() throws Exception {
+                // arrange
+                when(helpRequestRepository.findTableVersion()).thenReturn(5L);
+                String etag = mockMvc.perform(get("/api/helprequest/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_304_when_the_row_has_not_changed() throws Exception {
+                // arrange
+                HelpRequest row = HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu").version(3L).build();
+                when(helpRequestRepository.findById(eq("cgaucho@ucsb.edu"))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest?id=cgaucho@ucsb.edu").header("If-None-Match", rowEtag("cgaucho@ucsb.edu", 3)))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                assertEquals(rowEtag("cgaucho@ucsb.edu", 3), response.getResponse().getHeader("ETag"));
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/helprequest/stream
+
+        @Test
+        public void logged_out_users_cannot_stream() throws Exception {
+                mockMvc.perform(get("/api/helprequest/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_subscribe_to_the_stream() throws Exception {
+                // arrange
+                when(helpRequestEvents.subscribe()).thenReturn(new SseEmitter());
+
+                // act
+                mockMvc.perform(get("/api/helprequest/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                                .andExpect(request().asyncStarted());
+
+                // assert
+                verify(helpRequestEvents, times(1)).subscribe();
+                verify(helpRequestRepository, never()).findAll();
+        }
+
+        // Tests for GET and POST /api/helprequest/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch() throws Exception {
+                mockMvc.perform(get("/api/helprequest/batch?ids=cgaucho@ucsb.edu"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+                // arrange
+                HelpRequest row = HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7").explanation("Need help with Swagger")
+                                .requestTime(LocalDateTime.parse("2022-04-20T17:35:00")).solved(false).build();
+                when(helpRequestRepository.findAllById(List.of("cgaucho@ucsb.edu", "ldelplaya@ucsb.edu"))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/helprequest/batch?ids=cgaucho@ucsb.edu,ldelplaya@ucsb.edu,cgaucho@ucsb.edu"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllById(List.of("cgaucho@ucsb.edu", "ldelplaya@ucsb.edu"));
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of("ldelplaya@ucsb.edu")));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+                // arrange
+                HelpRequest row = HelpRequest.builder().requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7").explanation("Need help with Swagger")
+                                .requestTime(LocalDateTime.parse("2022-04-20T17:35:00")).solved(false).build();
+                when(helpRequestRepository.findAllById(List.of("cgaucho@ucsb.edu", "ldelplaya@ucsb.edu"))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/helprequest/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(mapper.writeValueAsString(List.of("cgaucho@ucsb.edu", "ldelplaya@ucsb.edu"))))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of("ldelplaya@ucsb.edu")));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
 }
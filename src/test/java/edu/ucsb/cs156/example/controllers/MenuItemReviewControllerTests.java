@@ -4,15 +4,26 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewStatsRepository;
+import edu.ucsb.cs156.example.repositories.ProjectionRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -27,7 +38,9 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +52,12 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @MockBean
         MenuItemReviewRepository menuItemReviewRepository;
 
+        @MockBean
+        MenuItemReviewStatsRepository menuItemReviewStatsRepository;
+
+        @MockBean
+        ProjectionRepository projectionRepository;
+
         @MockBean
         UserRepository userRepository;
 
@@ -53,6 +72,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(menuItemReviewRepository.findTableVersion()).thenReturn(0L);
                 mockMvc.perform(get("/api/menuitemreview/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -156,6 +176,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 expectedReviews.addAll(Arrays.asList(menuItemReview1, menuItemReview2));
 
                 when(menuItemReviewRepository.findAll()).thenReturn(expectedReviews);
+                when(menuItemReviewRepository.findTableVersion()).thenReturn(0L);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/menuitemreview/all"))
@@ -194,6 +215,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
+                verify(menuItemReviewStatsRepository, times(1)).upsertStats(MenuItemReviewStats.builder()
+                                .itemId(12345L).reviews(1).starsSum(4).fourStars(1).lastReviewed(ldt1).build());
                 String expectedJson = mapper.writeValueAsString(menuItemReview1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -207,14 +230,16 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
                 MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .id(15L)
                                 .itemId(12345)
                                 .reviewerEmail("junhyung@ucsb.edu")
-                                .stars(4)
+                                .stars(2)
                                 .dateReviewed(ldt1)
                                 .comments("comment1")
                                 .build();
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.findWithLockById(eq(15L))).thenReturn(Optional.of(menuItemReview1));
+                when(menuItemReviewRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -223,8 +248,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
-                verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewRepository, times(1)).deleteRowById(15L);
+                verify(menuItemReviewStatsRepository, times(1)).subtractStats(MenuItemReviewStats.builder()
+                                .itemId(12345L).reviews(1).starsSum(2).twoStars(1).lastReviewed(ldt1).build());
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -236,7 +262,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(menuItemReviewRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findWithLockById(eq(15L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -245,7 +271,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(15L);
+                verify(menuItemReviewRepository, never()).deleteRowById(15L);
+                verify(menuItemReviewStatsRepository, never()).subtractStats(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
@@ -258,7 +285,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
+
                 MenuItemReview menuItemReviewOrig = MenuItemReview.builder()
+                                .id(67L)
                                 .itemId(12345)
                                 .reviewerEmail("junhyung@ucsb.edu")
                                 .stars(4)
@@ -267,6 +296,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .build();
 
                 MenuItemReview menuItemReviewEdited = MenuItemReview.builder()
+                                .id(67L)
                                 .itemId(123456)
                                 .reviewerEmail("junhyungyoon@ucsb.edu")
                                 .stars(3)
@@ -276,7 +306,12 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(menuItemReviewEdited);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.findWithLockById(eq(67L))).thenReturn(Optional.of(menuItemReviewOrig));
+                when(menuItemReviewRepository.updateRowById(eq(67L), any())).thenReturn(1);
+                MenuItemReview menuItemReviewStored = mapper.readValue(requestBody, MenuItemReview.class);
+                menuItemReviewStored.setId(67L);
+                menuItemReviewStored.setVersion(5L);
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(menuItemReviewStored));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -288,10 +323,41 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
-                verify(menuItemReviewRepository, times(1)).save(menuItemReviewEdited); // should be saved with correct user
+                verify(menuItemReviewRepository, times(1)).updateRowById(67L, menuItemReviewEdited); // should be saved with correct user
+                verify(menuItemReviewStatsRepository, times(1)).subtractStats(MenuItemReviewStats.builder()
+                                .itemId(12345L).reviews(1).starsSum(4).fourStars(1).lastReviewed(ldt1).build());
+                verify(menuItemReviewStatsRepository, times(1)).upsertStats(MenuItemReviewStats.builder()
+                                .itemId(123456L).reviews(1).starsSum(3).threeStars(1).lastReviewed(ldt2).build());
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(menuItemReviewStored), responseString);
+                assertEquals(rowEtag(67L, 5L), response.getResponse().getHeader("ETag"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_of_a_review_returns_precondition_failed() throws Exception {
+                // arrange
+                MenuItemReview edited = MenuItemReview.builder().id(67L).build();
+                MenuItemReview stored = MenuItemReview.builder().id(67L).version(6L).build();
+
+                when(menuItemReviewRepository.findWithLockById(eq(67L))).thenReturn(Optional.of(stored));
+                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/menuitemreview?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag(67L, 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).updateRowById(anyLong(), any());
+                verify(menuItemReviewStatsRepository, never()).upsertStats(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("MenuItemReview with id 67 has changed since it was read", json.get("message"));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -311,7 +377,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedMenuItem);
 
-                when(menuItemReviewRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(menuItemReviewRepository.findWithLockById(eq(67L))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -323,10 +389,394 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(menuItemReviewRepository, times(1)).findById(67L);
+                verify(menuItemReviewRepository, never()).updateRowById(eq(67L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 67 not found", json.get("message"));
 
         }
 
-}
\ No newline at end of file
+        // Tests for GET /api/menuitemreview/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_menuitemreviews_using_cursor() throws Exception {
+
+                // arrange
+                MenuItemReview item = MenuItemReview.builder()
+                                .id(3L)
+                                .itemId(1L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("great")
+                                .build();
+
+                List<MenuItemReview> content = List.of(item);
+                Window<MenuItemReview> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("id", 3L)), true);
+
+                ScrollPosition expectedPosition = ScrollPosition.forward(Map.of("id", 2L));
+                when(menuItemReviewRepository.findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(1))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?limit=1&after=" + KeysetPage.encodeCursor(2L)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(1)));
+                KeysetPage<MenuItemReview> expectedPage = KeysetPage.<MenuItemReview>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor(3L))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for the fields parameter of GET /api/menuitemreview/all and /page
+
+        static Map<String, Object> starsOnly(long id, Object stars) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", id);
+                row.put("stars", stars);
+                return row;
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all_menuitemreviews() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(starsOnly(1L, 5), starsOnly(2L, 4));
+                when(menuItemReviewRepository.findTableVersion()).thenReturn(0L);
+                when(projectionRepository.findAll(eq(MenuItemReview.class), eq(List.of("stars")))).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all?fields=stars"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_only_some_fields_of_menuitemreviews() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(starsOnly(3L, 5), starsOnly(4L, 4));
+                when(projectionRepository.findAfter(eq(MenuItemReview.class), eq(List.of("stars")), eq(2L), eq(2)))
+                                .thenReturn(rows);
+                when(projectionRepository.idProperty(MenuItemReview.class)).thenReturn("id");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?limit=1&fields=stars&after=" + KeysetPage.encodeCursor(2L)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).findBy(any(), any(), any());
+                KeysetPage<Map<String, Object>> expectedPage = KeysetPage.<Map<String, Object>>builder()
+                                .content(rows.subList(0, 1))
+                                .next(KeysetPage.encodeCursor(3L))
+                                .build();
+                assertEquals(mapper.writeValueAsString(expectedPage), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/menuitemreview/all as NDJSON
+
+        @Test
+        public void logged_out_users_cannot_export_ndjson() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_menuitemreviews_as_ndjson() throws Exception {
+
+                // arrange
+                MenuItemReview item = MenuItemReview.builder()
+                                .id(3L)
+                                .itemId(1L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("great")
+                                .build();
+
+                Window<MenuItemReview> window = Window.from(List.of(item),
+                                i -> ScrollPosition.forward(Map.of("id", 3L)), false);
+
+                when(menuItemReviewRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(ApiController.EXPORT_BATCH_SIZE))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findBy(any(), any(), any());
+                String expectedNdjson = mapper.writeValueAsString(item) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedNdjson, responseString);
+        }
+
+        // Tests for POST /api/menuitemreview/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/menuitemreview/bulk").contentType(MediaType.APPLICATION_JSON).content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can bulk insert
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_menuitemreviews() throws Exception {
+                // arrange
+
+                MenuItemReview menuItemReview1 = MenuItemReview.builder()
+                                .id(3L)
+                                .itemId(1L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("great")
+                                .build();
+
+                MenuItemReview menuItemReview2 = MenuItemReview.builder()
+                                .id(4L)
+                                .itemId(1L)
+                                .reviewerEmail("dgaucho@ucsb.edu")
+                                .stars(3)
+                                .dateReviewed(LocalDateTime.parse("2022-01-02T00:00:00"))
+                                .comments("ok")
+                                .build();
+
+                MenuItemReview menuItemReview3 = MenuItemReview.builder()
+                                .id(5L)
+                                .itemId(2L)
+                                .reviewerEmail("egaucho@ucsb.edu")
+                                .stars(0)
+                                .comments("no date, and stars out of range")
+                                .build();
+
+                MenuItemReview menuItemReview4 = MenuItemReview.builder()
+                                .id(6L)
+                                .itemId(1L)
+                                .reviewerEmail("fgaucho@ucsb.edu")
+                                .stars(1)
+                                .dateReviewed(LocalDateTime.parse("2022-01-04T00:00:00"))
+                                .comments("bad")
+                                .build();
+
+                // the id is assigned by the database, so the id in the input is ignored
+                String body = mapper.writeValueAsString(List.of(menuItemReview1, menuItemReview2, menuItemReview3, menuItemReview4));
+                menuItemReview1.setId(0L);
+                menuItemReview2.setId(0L);
+                menuItemReview3.setId(0L);
+                menuItemReview4.setId(0L);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/menuitemreview/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).saveAll(List.of(menuItemReview1, menuItemReview2, menuItemReview3, menuItemReview4));
+                MenuItemReviewStats stats1 = MenuItemReviewStats.builder().itemId(1L).reviews(3).starsSum(9)
+                                .oneStar(1).threeStars(1).fiveStars(1)
+                                .lastReviewed(LocalDateTime.parse("2022-01-04T00:00:00")).build();
+                MenuItemReviewStats stats2 = MenuItemReviewStats.builder().itemId(2L).reviews(1).starsSum(0).build();
+                verify(menuItemReviewStatsRepository, times(1)).upsertStats(stats1);
+                verify(menuItemReviewStatsRepository, times(1)).upsertStats(stats2);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(4, json.get("inserted"));
+        }
+
+        // Tests for conditional GET (ETag and If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_304_when_the_table_has_not_changed() throws Exception {
+                // arrange
+                when(menuItemReviewRepository.findTableVersion()).thenReturn(5L);
+                String etag = mockMvc.perform(get("/api/menuitemreview/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_304_when_the_row_has_not_changed() throws Exception {
+                // arrange
+                MenuItemReview row = MenuItemReview.builder().id(7L).version(3L).build();
+                when(menuItemReviewRepository.findById(eq(7L))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview?id=7").header("If-None-Match", rowEtag(7L, 3)))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                assertEquals(rowEtag(7L, 3), response.getResponse().getHeader("ETag"));
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/menuitemreview/stats and /api/menuitemreview/top
+
+        @Test
+        public void logged_out_users_cannot_get_stats() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/stats?itemId=1"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_stats_of_an_item() throws Exception {
+                // arrange
+                MenuItemReviewStats stats = MenuItemReviewStats.builder()
+                                .itemId(1L).reviews(4).starsSum(14).twoStars(1).fourStars(2).fiveStars(1)
+                                .lastReviewed(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+                when(menuItemReviewStatsRepository.findById(eq(1L))).thenReturn(Optional.of(stats));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/stats?itemId=1"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).findAllByItemId(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(4, json.get("reviews"));
+                assertEquals(2, json.get("fourStars"));
+                assertEquals(3.5, json.get("averageStars"));
+                assertEquals("2022-01-03T00:00:00", json.get("lastReviewed"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void the_stats_of_an_item_with_no_reviews_are_zero() throws Exception {
+                // arrange
+                when(menuItemReviewStatsRepository.findById(eq(2L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/stats?itemId=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(2, json.get("itemId"));
+                assertEquals(0, json.get("reviews"));
+                assertEquals(null, json.get("averageStars"));
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_top_rated() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/top"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_top_rated_items() throws Exception {
+                // arrange
+                List<MenuItemReviewStats> top = List.of(
+                                MenuItemReviewStats.builder().itemId(2L).reviews(2).starsSum(10).fiveStars(2).build(),
+                                MenuItemReviewStats.builder().itemId(1L).reviews(4).starsSum(14).twoStars(1).fourStars(2).fiveStars(1).build());
+                when(menuItemReviewStatsRepository.findTopRated(2L, Limit.of(5))).thenReturn(top);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/top?limit=5&minReviews=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(top), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void top_rated_clamps_its_parameters() throws Exception {
+                // act
+                mockMvc.perform(get("/api/menuitemreview/top?limit=100000&minReviews=0"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/menuitemreview/top?limit=0"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(menuItemReviewStatsRepository, times(1)).findTopRated(1L, Limit.of(ApiController.MAX_PAGE_SIZE));
+                verify(menuItemReviewStatsRepository, times(1)).findTopRated(1L, Limit.of(1));
+        }
+
+        // Tests for GET and POST /api/menuitemreview/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/batch?ids=3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+                // arrange
+                MenuItemReview row = MenuItemReview.builder()
+                                .id(3L)
+                                .itemId(1L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("great")
+                                .build();
+                when(menuItemReviewRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/batch?ids=3,2,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAllById(List.of(3L, 2L));
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+                // arrange
+                MenuItemReview row = MenuItemReview.builder()
+                                .id(3L)
+                                .itemId(1L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("great")
+                                .build();
+                when(menuItemReviewRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/menuitemreview/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(List.of(3L, 2L))))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+}
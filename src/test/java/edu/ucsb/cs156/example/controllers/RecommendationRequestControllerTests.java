@@ -7,13 +7,18 @@ import io.swagger.v3.oas.annotations.Parameter;
 import jakarta.validation.Valid;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.ProjectionRepository;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.checkerframework.checker.units.qual.s;
@@ -21,6 +26,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -39,8 +48,10 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.refEq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -52,6 +63,9 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
     @MockBean
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @MockBean
+    ProjectionRepository projectionRepository;
+
     @MockBean
     UserRepository userRepository;
 
@@ -65,6 +79,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
     @WithMockUser(roles = { "USER" })
     @Test
     public void logged_in_users_can_get_all() throws Exception {
+        when(recommendationRequestRepository.findTableVersion()).thenReturn(0L);
         mockMvc.perform(get("/api/recommendationrequests/all"))
                         .andExpect(status().is(200));
     }
@@ -196,6 +211,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
             when(recommendationRequestRepository.findAll()).thenReturn(expectedDates);
 
+            when(recommendationRequestRepository.findTableVersion()).thenReturn(0L);
             MvcResult response = mockMvc.perform(get("/api/recommendationrequests/all"))
                             .andExpect(status().isOk()).andReturn();
 
@@ -216,16 +232,9 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
             LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-            RecommendationRequest requestOrig = RecommendationRequest.builder()
-                            .requesterEmail("testRequesterEmail")
-                            .professorEmail("testProfessorEmail")
-                            .explanation("testExplanation")
-                            .dateRequested(ldt1)
-                            .dateNeeded(ldt1)
-                            .done(false)
-                            .build();
 
             RecommendationRequest requestEdited = RecommendationRequest.builder()
+                            .id(67L)
                             .requesterEmail("testRequesterEmail1")
                             .professorEmail("testProfessorEmail1")
                             .explanation("testExplanation1")
@@ -236,7 +245,11 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
             String requestBody = mapper.writeValueAsString(requestEdited);
 
-            when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestOrig));
+            when(recommendationRequestRepository.updateRowById(eq(67L), any())).thenReturn(1);
+                RecommendationRequest requestStored = mapper.readValue(requestBody, RecommendationRequest.class);
+                requestStored.setId(67L);
+                requestStored.setVersion(5L);
+                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(requestStored));
 
             MvcResult response = mockMvc.perform(
                             put("/api/recommendationrequests?id=67")
@@ -246,10 +259,10 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                                             .with(csrf()))
                             .andExpect(status().isOk()).andReturn();
 
-            verify(recommendationRequestRepository, times(1)).findById(67L);
-            verify(recommendationRequestRepository, times(1)).save(requestEdited); // should be saved with correct user
+            verify(recommendationRequestRepository, times(1)).updateRowById(67L, requestEdited); // should be saved with correct user
             String responseString = response.getResponse().getContentAsString();
-            assertEquals(requestBody, responseString);
+            assertEquals(mapper.writeValueAsString(requestStored), responseString);
+            assertEquals(rowEtag(67L, 5L), response.getResponse().getHeader("ETag"));
     }
 
     @WithMockUser(roles = { "ADMIN", "USER" })
@@ -269,7 +282,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
             String requestBody = mapper.writeValueAsString(requestEdited);
 
-            when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+            when(recommendationRequestRepository.updateRowById(eq(67L), any())).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -281,7 +294,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(recommendationRequestRepository, times(1)).findById(67L);
+            verify(recommendationRequestRepository, times(1)).updateRowById(eq(67L), any());
             Map<String, Object> json = responseToJson(response);
             assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
     }
@@ -293,16 +306,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
             LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-            RecommendationRequest request1 = RecommendationRequest.builder()
-                            .requesterEmail("testRequesterEmail1")
-                            .professorEmail("testProfessorEmail1")
-                            .explanation("testExplanation1")
-                            .dateRequested(ldt1)
-                            .dateNeeded(ldt1)
-                            .done(false)
-                            .build();
 
-            when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.of(request1));
+            when(recommendationRequestRepository.deleteRowById(eq(15L))).thenReturn(1);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -311,8 +316,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(recommendationRequestRepository, times(1)).findById(15L);
-            verify(recommendationRequestRepository, times(1)).delete(any());
+            verify(recommendationRequestRepository, times(1)).deleteRowById(15L);
 
             Map<String, Object> json = responseToJson(response);
             assertEquals("RecommendationRequest with id 15 deleted", json.get("message"));
@@ -324,7 +328,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                     throws Exception {
             // arrange
 
-            when(recommendationRequestRepository.findById(eq(15L))).thenReturn(Optional.empty());
+            when(recommendationRequestRepository.deleteRowById(eq(15L))).thenReturn(0);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -333,8 +337,353 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                             .andExpect(status().isNotFound()).andReturn();
 
             // assert
-            verify(recommendationRequestRepository, times(1)).findById(15L);
+            verify(recommendationRequestRepository, times(1)).deleteRowById(15L);
             Map<String, Object> json = responseToJson(response);
             assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
     }
-}
\ No newline at end of file
+
+        // Tests for GET /api/recommendationrequests/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequests/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_of_a_recommendationrequest_returns_precondition_failed() throws Exception {
+                // arrange
+                RecommendationRequest edited = RecommendationRequest.builder().id(67L).build();
+                RecommendationRequest stored = RecommendationRequest.builder().id(67L).version(6L).build();
+
+                when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/recommendationrequests?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag(67L, 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, never()).updateRowById(anyLong(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("RecommendationRequest with id 67 has changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_recommendationrequests_using_cursor() throws Exception {
+
+                // arrange
+                RecommendationRequest item = RecommendationRequest.builder()
+                                .id(3L)
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .professorEmail("phtcon@ucsb.edu")
+                                .explanation("grad school")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                List<RecommendationRequest> content = List.of(item);
+                Window<RecommendationRequest> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("id", 3L)), true);
+
+                ScrollPosition expectedPosition = ScrollPosition.forward(Map.of("id", 2L));
+                when(recommendationRequestRepository.findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(1))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests/page?limit=1&after=" + KeysetPage.encodeCursor(2L)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(1)));
+                KeysetPage<RecommendationRequest> expectedPage = KeysetPage.<RecommendationRequest>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor(3L))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for the fields parameter of GET /api/recommendationrequests/all and /page
+
+        static Map<String, Object> doneOnly(long id, Object done) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", id);
+                row.put("done", done);
+                return row;
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all_recommendationrequests() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(doneOnly(1L, true), doneOnly(2L, false));
+                when(recommendationRequestRepository.findTableVersion()).thenReturn(0L);
+                when(projectionRepository.findAll(eq(RecommendationRequest.class), eq(List.of("done")))).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests/all?fields=done"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(0)).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_only_some_fields_of_recommendationrequests() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(doneOnly(3L, true), doneOnly(4L, false));
+                when(projectionRepository.findAfter(eq(RecommendationRequest.class), eq(List.of("done")), eq(2L), eq(2)))
+                                .thenReturn(rows);
+                when(projectionRepository.idProperty(RecommendationRequest.class)).thenReturn("id");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests/page?limit=1&fields=done&after=" + KeysetPage.encodeCursor(2L)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(0)).findBy(any(), any(), any());
+                KeysetPage<Map<String, Object>> expectedPage = KeysetPage.<Map<String, Object>>builder()
+                                .content(rows.subList(0, 1))
+                                .next(KeysetPage.encodeCursor(3L))
+                                .build();
+                assertEquals(mapper.writeValueAsString(expectedPage), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/recommendationrequests/all as NDJSON
+
+        @Test
+        public void logged_out_users_cannot_export_ndjson() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequests/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_recommendationrequests_as_ndjson() throws Exception {
+
+                // arrange
+                RecommendationRequest item = RecommendationRequest.builder()
+                                .id(3L)
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .professorEmail("phtcon@ucsb.edu")
+                                .explanation("grad school")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                Window<RecommendationRequest> window = Window.from(List.of(item),
+                                i -> ScrollPosition.forward(Map.of("id", 3L)), false);
+
+                when(recommendationRequestRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(ApiController.EXPORT_BATCH_SIZE))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findBy(any(), any(), any());
+                String expectedNdjson = mapper.writeValueAsString(item) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedNdjson, responseString);
+        }
+
+        // Tests for POST /api/recommendationrequests/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/recommendationrequests/bulk").contentType(MediaType.APPLICATION_JSON).content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can bulk insert
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_recommendationrequests() throws Exception {
+                // arrange
+
+                RecommendationRequest recommendationRequest1 = RecommendationRequest.builder()
+                                .id(3L)
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .professorEmail("phtcon@ucsb.edu")
+                                .explanation("grad school")
+                                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                                .done(false)
+                                .build();
+
+                // the id is assigned by the database, so the id in the input is ignored
+                String body = "[" + mapper.writeValueAsString(recommendationRequest1) + "]";
+                recommendationRequest1.setId(0L);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/recommendationrequests/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).saveAll(List.of(recommendationRequest1));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(1, json.get("inserted"));
+        }
+
+        // Tests for conditional GET (ETag and If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_304_when_the_table_has_not_changed() throws Exception {
+                // arrange
+                when(recommendationRequestRepository.findTableVersion()).thenReturn(5L);
+                String etag = mockMvc.perform(get("/api/recommendationrequests/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(recommendationRequestRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_304_when_the_row_has_not_changed() throws Exception {
+                // arrange
+                RecommendationRequest row = RecommendationRequest.builder().id(7L).version(3L).build();
+                when(recommendationRequestRepository.findById(eq(7L))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequests?id=7").header("If-None-Match", rowEtag(7L, 3)))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                assertEquals(rowEtag(7L, 3), response.getResponse().getHeader("ETag"));
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+    // Tests for GET /api/recommendationrequests/due
+
+    @Test
+    public void logged_out_users_cannot_get_due_requests() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/due?professorEmail=phtcon@ucsb.edu"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_the_requests_due_soonest() throws Exception {
+        // arrange
+        RecommendationRequest request = RecommendationRequest.builder()
+                .id(2L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("BS/MS program")
+                .dateRequested(LocalDateTime.parse("2022-04-20T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00"))
+                .done(false)
+                .build();
+        when(recommendationRequestRepository.findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc(
+                "phtcon@ucsb.edu", Limit.of(10)))
+                .thenReturn(List.of(request));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/due?professorEmail=phtcon@ucsb.edu"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recommendationRequestRepository, times(1)).findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc(
+                "phtcon@ucsb.edu", Limit.of(10));
+        assertEquals(mapper.writeValueAsString(List.of(request)), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void due_limit_is_clamped_to_the_allowed_range() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/due?professorEmail=phtcon@ucsb.edu&limit=0"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/recommendationrequests/due?professorEmail=phtcon@ucsb.edu&limit=100000"))
+                .andExpect(status().isOk());
+
+        verify(recommendationRequestRepository, times(1)).findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc(
+                "phtcon@ucsb.edu", Limit.of(1));
+        verify(recommendationRequestRepository, times(1)).findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc(
+                "phtcon@ucsb.edu", Limit.of(ApiController.MAX_PAGE_SIZE));
+    }
+
+    // Tests for GET and POST /api/recommendationrequests/batch
+
+    @Test
+    public void logged_out_users_cannot_get_a_batch() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/batch?ids=3"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+        // arrange
+        RecommendationRequest row = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("grad school")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                .done(false)
+                .build();
+        when(recommendationRequestRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/batch?ids=3,2,3"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recommendationRequestRepository, times(1)).findAllById(List.of(3L, 2L));
+        String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+        // arrange
+        RecommendationRequest row = RecommendationRequest.builder()
+                .id(3L)
+                .requesterEmail("cgaucho@ucsb.edu")
+                .professorEmail("phtcon@ucsb.edu")
+                .explanation("grad school")
+                .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                .done(false)
+                .build();
+        when(recommendationRequestRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+        // act
+        MvcResult response = mockMvc.perform(post("/api/recommendationrequests/batch").with(csrf())
+                .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(List.of(3L, 2L))))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+}
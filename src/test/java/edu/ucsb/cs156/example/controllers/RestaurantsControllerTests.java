@@ -4,15 +4,22 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -22,13 +29,17 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
 
 @WebMvcTest(controllers = RestaurantsController.class)
 @Import(TestConfig.class)
@@ -51,6 +62,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(restaurantRepository.findTableVersion()).thenReturn(0L);
                 mockMvc.perform(get("/api/restaurants/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -144,6 +156,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 expectedRestaurants.addAll(Arrays.asList(restaurant1, restaurant2));
 
                 when(restaurantRepository.findAll()).thenReturn(expectedRestaurants);
+                when(restaurantRepository.findTableVersion()).thenReturn(0L);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/restaurants/all"))
@@ -187,12 +200,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         public void admin_can_delete_a_restaurant() throws Exception {
                 // arrange
 
-                Restaurant restaurant = Restaurant.builder()
-                                .name("Taco Bell")
-                                .description("Mexican")
-                                .build();
-
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.of(restaurant));
+                when(restaurantRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -201,8 +209,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
-                verify(restaurantRepository, times(1)).delete(any());
+                verify(restaurantRepository, times(1)).deleteRowById(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -214,7 +221,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(restaurantRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(restaurantRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -223,7 +230,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(15L);
+                verify(restaurantRepository, times(1)).deleteRowById(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 not found", json.get("message"));
         }
@@ -233,11 +240,6 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_restaurant() throws Exception {
                 // arrange
 
-                Restaurant restaurantOrig = Restaurant.builder().id(67L)
-                                .name("Chipotle")
-                                .description("Mexican")
-                                .build();
-
                 Restaurant restaurantEdited = Restaurant.builder().id(67L)
                                 .name("Taco Bell")
                                 .description("American")
@@ -245,7 +247,11 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(restaurantEdited);
 
-                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantOrig));
+                when(restaurantRepository.updateRowById(eq(67L), any())).thenReturn(1);
+                Restaurant restaurantStored = mapper.readValue(requestBody, Restaurant.class);
+                restaurantStored.setId(67L);
+                restaurantStored.setVersion(5L);
+                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(restaurantStored));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -257,10 +263,35 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(67L);
-                verify(restaurantRepository, times(1)).save(restaurantEdited); // should be saved with correct user
+                verify(restaurantRepository, times(1)).updateRowById(67L, restaurantEdited); // should be saved with correct user
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(restaurantStored), responseString);
+                assertEquals(rowEtag(67L, 5L), response.getResponse().getHeader("ETag"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_of_a_restaurant_returns_precondition_failed() throws Exception {
+                // arrange
+                Restaurant edited = Restaurant.builder().id(67L).build();
+                Restaurant stored = Restaurant.builder().id(67L).version(6L).build();
+
+                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/restaurants?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag(67L, 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(restaurantRepository, never()).updateRowById(anyLong(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Restaurant with id 67 has changed since it was read", json.get("message"));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -277,7 +308,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedRestaurant);
 
-                when(restaurantRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(restaurantRepository.updateRowById(eq(67L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -289,9 +320,262 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(restaurantRepository, times(1)).findById(67L);
+                verify(restaurantRepository, times(1)).updateRowById(eq(67L), any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/restaurants/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/restaurants/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_restaurants_using_cursor() throws Exception {
+
+                // arrange
+                Restaurant item = Restaurant.builder()
+                                .id(3L)
+                                .name("Chipotle")
+                                .description("Mexican")
+                                .build();
+
+                List<Restaurant> content = List.of(item);
+                Window<Restaurant> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("id", 3L)), true);
+
+                ScrollPosition expectedPosition = ScrollPosition.forward(Map.of("id", 2L));
+                when(restaurantRepository.findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(1))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/page?limit=1&after=" + KeysetPage.encodeCursor(2L)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(1)));
+                KeysetPage<Restaurant> expectedPage = KeysetPage.<Restaurant>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor(3L))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/restaurants/all as NDJSON
+
+        @Test
+        public void logged_out_users_cannot_export_ndjson() throws Exception {
+                mockMvc.perform(get("/api/restaurants/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_restaurants_as_ndjson() throws Exception {
+
+                // arrange
+                Restaurant item = Restaurant.builder()
+                                .id(3L)
+                                .name("Chipotle")
+                                .description("Mexican")
+                                .build();
+
+                Window<Restaurant> window = Window.from(List.of(item),
+                                i -> ScrollPosition.forward(Map.of("id", 3L)), false);
+
+                when(restaurantRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(ApiController.EXPORT_BATCH_SIZE))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findBy(any(), any(), any());
+                String expectedNdjson = mapper.writeValueAsString(item) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedNdjson, responseString);
+        }
+
+        // Tests for POST /api/restaurants/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/restaurants/bulk").contentType(MediaType.APPLICATION_JSON).content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can bulk insert
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_restaurants() throws Exception {
+                // arrange
+
+                Restaurant restaurant1 = Restaurant.builder()
+                                .id(3L)
+                                .name("Chipotle")
+                                .description("Mexican")
+                                .build();
+
+                // the id is assigned by the database, so the id in the input is ignored
+                String body = "[" + mapper.writeValueAsString(restaurant1) + "]";
+                restaurant1.setId(0L);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/restaurants/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).saveAll(List.of(restaurant1));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(1, json.get("inserted"));
+        }
+
+        // Tests for conditional GET (ETag and If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_304_when_the_table_has_not_changed() throws Exception {
+                // arrange
+                when(restaurantRepository.findTableVersion()).thenReturn(5L);
+                String etag = mockMvc.perform(get("/api/restaurants/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_304_when_the_row_has_not_changed() throws Exception {
+                // arrange
+                Restaurant row = Restaurant.builder().id(7L).version(3L).build();
+                when(restaurantRepository.findById(eq(7L))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants?id=7").header("If-None-Match", rowEtag(7L, 3)))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                assertEquals(rowEtag(7L, 3), response.getResponse().getHeader("ETag"));
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_sends_no_etag_when_the_table_has_no_version() throws Exception {
+                // arrange
+                when(restaurantRepository.findTableVersion()).thenReturn(null);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/all").header("If-None-Match", "*"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertNull(response.getResponse().getHeader("ETag"));
+                verify(restaurantRepository, times(1)).findAll();
+        }
+
+        // Tests for GET and POST /api/restaurants/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch() throws Exception {
+                mockMvc.perform(get("/api/restaurants/batch?ids=3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+                // arrange
+                Restaurant row = Restaurant.builder()
+                                .id(3L)
+                                .name("Chipotle")
+                                .description("Mexican")
+                                .build();
+                when(restaurantRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/restaurants/batch?ids=3,2,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findAllById(List.of(3L, 2L));
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+                // arrange
+                Restaurant row = Restaurant.builder()
+                                .id(3L)
+                                .name("Chipotle")
+                                .description("Mexican")
+                                .build();
+                when(restaurantRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/restaurants/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(List.of(3L, 2L))))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_looks_up_the_ids_a_chunk_at_a_time() throws Exception {
+                // arrange
+                List<Long> ids = LongStream.rangeClosed(1, ApiController.BATCH_QUERY_SIZE + 1).boxed().toList();
+                when(restaurantRepository.findAllById(any())).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/restaurants/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(ids)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(restaurantRepository, times(1)).findAllById(ids.subList(0, ApiController.BATCH_QUERY_SIZE));
+                verify(restaurantRepository, times(1)).findAllById(List.of(ApiController.BATCH_QUERY_SIZE + 1L));
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(), ids));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void batch_rejects_more_than_the_maximum_number_of_ids() throws Exception {
+                // arrange
+                List<Long> ids = LongStream.rangeClosed(1, ApiController.MAX_BATCH_IDS + 1).boxed().toList();
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/restaurants/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(ids)))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(restaurantRepository, never()).findAllById(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BatchTooLargeException", json.get("type"));
+                assertEquals("At most 10000 ids can be requested at once", json.get("message"));
+        }
 }
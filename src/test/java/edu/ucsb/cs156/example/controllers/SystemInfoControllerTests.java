@@ -49,4 +49,25 @@ public class SystemInfoControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @Test
+  public void actuator__logged_out_is_forbidden() throws Exception {
+    mockMvc.perform(get("/actuator/metrics"))
+        .andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void actuator__user_logged_in_is_forbidden() throws Exception {
+    mockMvc.perform(get("/actuator/metrics"))
+        .andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void actuator__admin_logged_in_is_not_forbidden() throws Exception {
+    // the actuator endpoints are not part of a @WebMvcTest, so an admin gets a 404 rather than a 403
+    mockMvc.perform(get("/actuator/metrics"))
+        .andExpect(status().isNotFound());
+  }
 }
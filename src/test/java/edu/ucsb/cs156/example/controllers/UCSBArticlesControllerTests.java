@@ -4,15 +4,29 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBArticles;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
+import edu.ucsb.cs156.example.errors.InvalidFieldsException;
+import edu.ucsb.cs156.example.repositories.ProjectionRepository;
 import edu.ucsb.cs156.example.repositories.UCSBArticlesRepository;
+import edu.ucsb.cs156.example.services.ArticleSearch;
+import edu.ucsb.cs156.example.services.InvertedIndex;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -26,8 +40,13 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -39,6 +58,12 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
         @MockBean
         UCSBArticlesRepository ucsbArticlesRepository;
 
+        @MockBean
+        ArticleSearch articleSearch;
+
+        @MockBean
+        ProjectionRepository projectionRepository;
+
         @MockBean
         UserRepository userRepository;
 
@@ -53,6 +78,7 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
          @WithMockUser(roles = { "USER" })
          @Test
          public void logged_in_users_can_get_all() throws Exception {
+                 when(ucsbArticlesRepository.findTableVersion()).thenReturn(0L);
                  mockMvc.perform(get("/api/ucsbarticles/all"))
                                  .andExpect(status().is(200)); // logged
          }
@@ -87,6 +113,7 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
                 expectedArticles.addAll(Arrays.asList(ucsbArticles1, ucsbArticles2));
 
                 when(ucsbArticlesRepository.findAll()).thenReturn(expectedArticles);
+                when(ucsbArticlesRepository.findTableVersion()).thenReturn(0L);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbarticles/all"))
@@ -126,6 +153,7 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbArticlesRepository, times(1)).save(ucsbArticles1);
+                verify(articleSearch, times(1)).put(ucsbArticles1);
                 String expectedJson = mapper.writeValueAsString(ucsbArticles1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -211,15 +239,8 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
 
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-                UCSBArticles ucsbArticles1 = UCSBArticles.builder()
-                                .title("Article")
-                                .url("https://article.com")
-                                .explanation("Explanation")
-                                .email("student@ucsb.edu")
-                                .dateAdded(ldt1)
-                                .build();
 
-                when(ucsbArticlesRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbArticles1));
+                when(ucsbArticlesRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -228,8 +249,8 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbArticlesRepository, times(1)).findById(15L);
-                verify(ucsbArticlesRepository, times(1)).delete(any());
+                verify(ucsbArticlesRepository, times(1)).deleteRowById(15L);
+                verify(articleSearch, times(1)).remove(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBArticle with id 15 deleted", json.get("message"));
@@ -241,7 +262,7 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbArticlesRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbArticlesRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -250,7 +271,8 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbArticlesRepository, times(1)).findById(15L);
+                verify(ucsbArticlesRepository, times(1)).deleteRowById(15L);
+                verify(articleSearch, never()).remove(15L);
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBArticles with id 15 not found", json.get("message"));
         }
@@ -263,15 +285,9 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                UCSBArticles ucsbArticlesOrig = UCSBArticles.builder()
-                                .title("Article")
-                                .url("https://article.com")
-                                .explanation("Explanation")
-                                .email("student@ucsb.edu")
-                                .dateAdded(ldt1)
-                                .build();
 
                 UCSBArticles ucsbArticlesEdited = UCSBArticles.builder()
+                                .id(67L)
                                 .title("article")
                                 .url("https://articles.com")
                                 .explanation("explanation")
@@ -281,7 +297,11 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbArticlesEdited);
 
-                when(ucsbArticlesRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbArticlesOrig));
+                when(ucsbArticlesRepository.updateRowById(eq(67L), any())).thenReturn(1);
+                UCSBArticles ucsbArticlesStored = mapper.readValue(requestBody, UCSBArticles.class);
+                ucsbArticlesStored.setId(67L);
+                ucsbArticlesStored.setVersion(5L);
+                when(ucsbArticlesRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbArticlesStored));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -293,10 +313,37 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbArticlesRepository, times(1)).findById(67L);
-                verify(ucsbArticlesRepository, times(1)).save(ucsbArticlesEdited); // should be saved with correct user
+                verify(ucsbArticlesRepository, times(1)).updateRowById(67L, ucsbArticlesEdited); // should be saved with correct user
+                verify(articleSearch, times(1)).put(ucsbArticlesStored); // the stored row, with its new version
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ucsbArticlesStored), responseString);
+                assertEquals(rowEtag(67L, 5L), response.getResponse().getHeader("ETag"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_of_a_ucsbarticle_returns_precondition_failed() throws Exception {
+                // arrange
+                UCSBArticles edited = UCSBArticles.builder().id(67L).build();
+                UCSBArticles stored = UCSBArticles.builder().id(67L).version(6L).build();
+
+                when(ucsbArticlesRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbarticles?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag(67L, 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, never()).updateRowById(anyLong(), any());
+                verify(articleSearch, never()).put(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBArticles with id 67 has changed since it was read", json.get("message"));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -316,7 +363,7 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbEditedArticles);
 
-                when(ucsbArticlesRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(ucsbArticlesRepository.updateRowById(eq(67L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -328,11 +375,785 @@ public class UCSBArticlesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbArticlesRepository, times(1)).findById(67L);
+                verify(ucsbArticlesRepository, times(1)).updateRowById(eq(67L), any());
+                verify(articleSearch, never()).put(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBArticles with id 67 not found", json.get("message"));
 
         }
 
+        // Tests for GET /api/ucsbarticles/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbarticles/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_first_page_of_ucsbarticles() throws Exception {
+
+                // arrange
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                UCSBArticles ucsbArticles1 = UCSBArticles.builder()
+                                .id(1L)
+                                .title("Article")
+                                .url("https://article.com")
+                                .explanation("Explanation")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                UCSBArticles ucsbArticles2 = UCSBArticles.builder()
+                                .id(2L)
+                                .title("Article 2")
+                                .url("https://article2.com")
+                                .explanation("Explanation 2")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                List<UCSBArticles> content = List.of(ucsbArticles1, ucsbArticles2);
+                Window<UCSBArticles> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("id", content.get(i).getId())), true);
+
+                when(ucsbArticlesRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(2))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/page?limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(1)).findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(2)));
+                KeysetPage<UCSBArticles> expectedPage = KeysetPage.<UCSBArticles>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor(2L))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_last_page_of_ucsbarticles_using_cursor() throws Exception {
+
+                // arrange
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                UCSBArticles ucsbArticles3 = UCSBArticles.builder()
+                                .id(3L)
+                                .title("Article 3")
+                                .url("https://article3.com")
+                                .explanation("Explanation 3")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                List<UCSBArticles> content = List.of(ucsbArticles3);
+                Window<UCSBArticles> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("id", content.get(i).getId())), false);
+
+                ScrollPosition expectedPosition = ScrollPosition.forward(Map.of("id", 2L));
+                when(ucsbArticlesRepository.findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(100))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/page?after=" + KeysetPage.encodeCursor(2L)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(1)).findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(100)));
+                KeysetPage<UCSBArticles> expectedPage = KeysetPage.<UCSBArticles>builder()
+                                .content(content)
+                                .next(null)
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void page_size_is_clamped_to_the_allowed_range() throws Exception {
+
+                // arrange
+                Window<UCSBArticles> empty = Window.from(List.of(), i -> ScrollPosition.keyset());
+                when(ucsbArticlesRepository.findBy(any(), any(), any())).thenReturn(empty);
+
+                // act
+                mockMvc.perform(get("/api/ucsbarticles/page?limit=5000"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbarticles/page?limit=0"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(ucsbArticlesRepository, times(1)).findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(ApiController.MAX_PAGE_SIZE)));
+                verify(ucsbArticlesRepository, times(1)).findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(1)));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void invalid_cursor_gives_bad_request() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/page?after=" + KeysetPage.encodeCursor("not-a-number")))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(0)).findBy(any(), any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidCursorException", json.get("type"));
+                assertEquals("Invalid cursor: " + KeysetPage.encodeCursor("not-a-number"), json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void cursor_that_is_not_base64_gives_bad_request() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/page?after=***"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(0)).findBy(any(), any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidCursorException", json.get("type"));
+                assertEquals("Invalid cursor: ***", json.get("message"));
+        }
+
+        // Tests for the fields parameter of GET /api/ucsbarticles/all and /page
+
+        static Map<String, Object> articleFields(long id, String title) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("id", id);
+                row.put("title", title);
+                return row;
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_only_some_fields_of_all_ucsbarticles() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(articleFields(1L, "Article 1"), articleFields(2L, "Article 2"));
+                when(ucsbArticlesRepository.findTableVersion()).thenReturn(0L);
+                when(projectionRepository.findAll(eq(UCSBArticles.class), eq(List.of("title")))).thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/all?fields=title"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(projectionRepository, times(1)).findAll(UCSBArticles.class, List.of("title"));
+                verify(ucsbArticlesRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(rows), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_only_some_fields_of_ucsbarticles() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(articleFields(1L, "Article 1"), articleFields(2L, "Article 2"),
+                                articleFields(3L, "Article 3"));
+                when(projectionRepository.findAfter(eq(UCSBArticles.class), eq(List.of("title", "url")), eq(null), eq(3)))
+                                .thenReturn(rows);
+                when(projectionRepository.idProperty(UCSBArticles.class)).thenReturn("id");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/page?limit=2&fields=title,url"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, never()).findBy(any(), any(), any());
+                KeysetPage<Map<String, Object>> expectedPage = KeysetPage.<Map<String, Object>>builder()
+                                .content(rows.subList(0, 2))
+                                .next(KeysetPage.encodeCursor(2L))
+                                .build();
+                assertEquals(mapper.writeValueAsString(expectedPage), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_last_page_of_only_some_fields_of_ucsbarticles() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> rows = List.of(articleFields(3L, "Article 3"));
+                when(projectionRepository.findAfter(eq(UCSBArticles.class), eq(List.of("title")), eq(2L), eq(101)))
+                                .thenReturn(rows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/page?fields=title&after=" + KeysetPage.encodeCursor(2L)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<Map<String, Object>> expectedPage = KeysetPage.<Map<String, Object>>builder()
+                                .content(rows)
+                                .next(null)
+                                .build();
+                assertEquals(mapper.writeValueAsString(expectedPage), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void page_size_of_some_fields_is_clamped_to_the_allowed_range() throws Exception {
+
+                // arrange
+                when(projectionRepository.findAfter(any(), any(), any(), anyInt())).thenReturn(List.of());
+
+                // act
+                mockMvc.perform(get("/api/ucsbarticles/page?limit=5000&fields=title"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbarticles/page?limit=0&fields=title"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(projectionRepository, times(1)).findAfter(UCSBArticles.class, List.of("title"), null, ApiController.MAX_PAGE_SIZE + 1);
+                verify(projectionRepository, times(1)).findAfter(UCSBArticles.class, List.of("title"), null, 2);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void invalid_cursor_with_fields_gives_bad_request() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/page?fields=title&after=***"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(projectionRepository, never()).findAfter(any(), any(), any(), anyInt());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidCursorException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void unknown_field_gives_bad_request() throws Exception {
+
+                // arrange
+                when(ucsbArticlesRepository.findTableVersion()).thenReturn(0L);
+                when(projectionRepository.findAll(eq(UCSBArticles.class), eq(List.of("body"))))
+                                .thenThrow(new InvalidFieldsException("body", Set.of("id")));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/all?fields=body"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("InvalidFieldsException", json.get("type"));
+                assertEquals("Unknown field: body; the fields are id", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbarticles/all as NDJSON
+
+        @Test
+        public void logged_out_users_cannot_export_ndjson() throws Exception {
+                mockMvc.perform(get("/api/ucsbarticles/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_ucsbarticles_as_ndjson_in_batches() throws Exception {
+
+                // arrange
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                UCSBArticles ucsbArticles1 = UCSBArticles.builder()
+                                .id(1L)
+                                .title("Article")
+                                .url("https://article.com")
+                                .explanation("Explanation")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                UCSBArticles ucsbArticles2 = UCSBArticles.builder()
+                                .id(2L)
+                                .title("Article 2")
+                                .url("https://article2.com")
+                                .explanation("Explanation 2")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                Window<UCSBArticles> firstBatch = Window.from(List.of(ucsbArticles1),
+                                i -> ScrollPosition.forward(Map.of("id", 1L)), true);
+                Window<UCSBArticles> lastBatch = Window.from(List.of(ucsbArticles2),
+                                i -> ScrollPosition.forward(Map.of("id", 2L)), false);
+
+                Limit batch = Limit.of(ApiController.EXPORT_BATCH_SIZE);
+                when(ucsbArticlesRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(batch)))
+                                .thenReturn(firstBatch);
+                when(ucsbArticlesRepository.findBy(eq(ScrollPosition.forward(Map.of("id", 1L))), eq(Sort.by("id")), eq(batch)))
+                                .thenReturn(lastBatch);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(2)).findBy(any(), any(), any());
+                verify(ucsbArticlesRepository, times(0)).findAll();
+                String expectedNdjson = mapper.writeValueAsString(ucsbArticles1) + "\n"
+                                + mapper.writeValueAsString(ucsbArticles2) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedNdjson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void ndjson_export_of_empty_table_is_empty() throws Exception {
+
+                // arrange
+                when(ucsbArticlesRepository.findBy(any(), any(), any()))
+                                .thenReturn(Window.from(List.of(), i -> ScrollPosition.keyset()));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        // Tests for POST /api/ucsbarticles/bulk
+
+        @Test
+        public void logged_out_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/ucsbarticles/bulk").contentType(MediaType.APPLICATION_JSON).content("[]"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/ucsbarticles/bulk").contentType(MediaType.APPLICATION_JSON).content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can bulk insert
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_ucsbarticles_from_a_json_array() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                UCSBArticles ucsbArticles1 = UCSBArticles.builder()
+                                .title("Article")
+                                .url("https://article.com")
+                                .explanation("Explanation")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                UCSBArticles ucsbArticles2 = UCSBArticles.builder()
+                                .title("Article 2")
+                                .url("https://article2.com")
+                                .explanation("Explanation 2")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                // the id is assigned by the database, so any id in the input is ignored
+                String body = "[" + mapper.writeValueAsString(ucsbArticles1).replace("\"id\":0", "\"id\":17") + ","
+                                + mapper.writeValueAsString(ucsbArticles2) + "]";
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(1)).saveAll(List.of(ucsbArticles1, ucsbArticles2));
+                verify(articleSearch, times(1)).put(ucsbArticles1);
+                verify(articleSearch, times(1)).put(ucsbArticles2);
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(2, json.get("inserted"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_ucsbarticles_from_ndjson() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                UCSBArticles ucsbArticles1 = UCSBArticles.builder()
+                                .title("Article")
+                                .url("https://article.com")
+                                .explanation("Explanation")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                UCSBArticles ucsbArticles2 = UCSBArticles.builder()
+                                .title("Article 2")
+                                .url("https://article2.com")
+                                .explanation("Explanation 2")
+                                .email("student@ucsb.edu")
+                                .dateAdded(ldt1)
+                                .build();
+
+                String body = mapper.writeValueAsString(ucsbArticles1) + "\n\n"
+                                + mapper.writeValueAsString(ucsbArticles2) + "\n";
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_NDJSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(1)).saveAll(List.of(ucsbArticles1, ucsbArticles2));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(2, json.get("inserted"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_insert_reports_every_bad_row_and_inserts_nothing() throws Exception {
+                // arrange
+
+                String body = """
+                                [
+                                  {"title": "Article", "url": "https://article.com", "explanation": "Explanation",
+                                   "email": "student@ucsb.edu", "dateAdded": "2022-01-03T00:00:00"},
+                                  "Article 2",
+                                  {"title": "Article 3", "dateAdded": "yesterday"}
+                                ]
+                                """;
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(0)).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BulkInsertException", json.get("type"));
+                assertEquals("2 rows could not be read; nothing was inserted", json.get("message"));
+                List<Map<String, Object>> errors = (List<Map<String, Object>>) json.get("errors");
+                assertEquals(2, errors.size());
+                assertEquals(1, errors.get(0).get("index"));
+                assertEquals("Row is not a JSON object", errors.get(0).get("message"));
+                assertEquals(2, errors.get(1).get("index"));
+                assertTrue(((String) errors.get(1).get("message")).contains("yesterday"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_insert_reports_ndjson_lines_that_are_not_json() throws Exception {
+                // arrange
+
+                String body = """
+                                {"title": "Article", "dateAdded": "2022-01-03T00:00:00"}
+                                {"title": "Article 2",
+                                {"title": "Article 3", "dateAdded": "2022-01-03T00:00:00"}
+                                """;
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_NDJSON).content(body).with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(0)).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                List<Map<String, Object>> errors = (List<Map<String, Object>>) json.get("errors");
+                assertEquals(1, errors.size());
+                assertEquals(1, errors.get(0).get("index"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_insert_body_must_be_a_json_array() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("{\"title\": \"Article\"}").with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(0)).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Request body must be a JSON array", json.get("message"));
+                assertEquals(List.of(), json.get("errors"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_insert_body_must_not_be_empty() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("").with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Request body must be a JSON array", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_insert_body_must_be_valid_json() throws Exception {
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content("[{\"title\": ").with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(0)).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertTrue(((String) json.get("message")).startsWith("Request body is not valid JSON: "));
         }
- 
\ No newline at end of file
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_insert_of_too_many_rows_is_rejected() throws Exception {
+                // arrange
+                String body = "[" + String.join(",", Collections.nCopies(ApiController.MAX_BULK_ROWS + 1, "{}")) + "]";
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(0)).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("At most 10000 rows can be inserted in one request", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_insert_of_the_maximum_number_of_rows_is_accepted() throws Exception {
+                // arrange
+                String body = "{}\n".repeat(ApiController.MAX_BULK_ROWS);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_NDJSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(ApiController.MAX_BULK_ROWS, json.get("inserted"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void bulk_insert_of_too_many_ndjson_rows_is_rejected() throws Exception {
+                // arrange
+                String body = "{}\n".repeat(ApiController.MAX_BULK_ROWS + 1);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbarticles/bulk")
+                                .contentType(MediaType.APPLICATION_NDJSON).content(body).with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(0)).saveAll(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("At most 10000 rows can be inserted in one request", json.get("message"));
+        }
+
+        // Tests for conditional GET (ETag and If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_304_when_the_table_has_not_changed() throws Exception {
+                // arrange
+                when(ucsbArticlesRepository.findTableVersion()).thenReturn(5L);
+                String etag = mockMvc.perform(get("/api/ucsbarticles/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_304_when_the_row_has_not_changed() throws Exception {
+                // arrange
+                UCSBArticles row = UCSBArticles.builder().id(7L).version(3L).build();
+                when(ucsbArticlesRepository.findById(eq(7L))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles?id=7").header("If-None-Match", rowEtag(7L, 3)))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                assertEquals(rowEtag(7L, 3), response.getResponse().getHeader("ETag"));
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_the_rows_when_the_table_has_changed() throws Exception {
+                // arrange
+                when(ucsbArticlesRepository.findTableVersion())
+                                .thenReturn(5L)
+                                .thenReturn(6L);
+                String etag = mockMvc.perform(get("/api/ucsbarticles/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/all").header("If-None-Match", etag))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbArticlesRepository, times(2)).findAll();
+                assertEquals("[]", response.getResponse().getContentAsString());
+                assertNotEquals(etag, response.getResponse().getHeader("ETag"));
+                assertEquals("no-cache", response.getResponse().getHeader("Cache-Control"));
+        }
+
+        // Tests for GET /api/ucsbarticles/search
+
+        @Test
+        public void logged_out_users_cannot_search() throws Exception {
+                mockMvc.perform(get("/api/ucsbarticles/search?q=gaucho"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_search_ucsbarticles_a_page_at_a_time() throws Exception {
+                // arrange
+                UCSBArticles article3 = UCSBArticles.builder().id(3L).title("Gaucho news").build();
+                UCSBArticles article5 = UCSBArticles.builder().id(5L).title("More gaucho news").build();
+                UCSBArticles article7 = UCSBArticles.builder().id(7L).title("Gauchos win").build();
+                InvertedIndex.Match match5 = new InvertedIndex.Match(5L, 2.5);
+                InvertedIndex.Match match3 = new InvertedIndex.Match(3L, 1.25);
+                InvertedIndex.Match match7 = new InvertedIndex.Match(7L, 0.5);
+                when(articleSearch.search("gaucho news", null, 3)).thenReturn(List.of(match5, match3, match7));
+                when(ucsbArticlesRepository.findAllById(List.of(5L, 3L))).thenReturn(List.of(article3, article5));
+                when(articleSearch.search("gaucho news", match3, 3)).thenReturn(List.of(match7));
+                when(ucsbArticlesRepository.findAllById(List.of(7L))).thenReturn(List.of(article7));
+
+                // act
+                MvcResult firstResponse = mockMvc.perform(get("/api/ucsbarticles/search?q=gaucho news&limit=2"))
+                                .andExpect(status().isOk()).andReturn();
+                KeysetPage<UCSBArticles> firstPage = KeysetPage.<UCSBArticles>builder()
+                                .content(List.of(article5, article3))
+                                .next(KeysetPage.encodeCursor("1.25,3"))
+                                .build();
+                MvcResult lastResponse = mockMvc.perform(get("/api/ucsbarticles/search?q=gaucho news&limit=2&after=" + firstPage.getNext()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(firstPage), firstResponse.getResponse().getContentAsString());
+                KeysetPage<UCSBArticles> lastPage = KeysetPage.<UCSBArticles>builder()
+                                .content(List.of(article7))
+                                .build();
+                assertEquals(mapper.writeValueAsString(lastPage), lastResponse.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_skips_articles_deleted_since_they_were_indexed_and_clamps_the_page_size() throws Exception {
+                // arrange
+                InvertedIndex.Match match4 = new InvertedIndex.Match(4L, 0.75);
+                when(articleSearch.search("gaucho", null, 2)).thenReturn(List.of(match4, new InvertedIndex.Match(3L, 0.5)));
+                when(ucsbArticlesRepository.findAllById(List.of(4L))).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbarticles/search?q=gaucho&limit=0"))
+                                .andExpect(status().isOk()).andReturn();
+                mockMvc.perform(get("/api/ucsbarticles/search?q=gaucho&limit=100000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                KeysetPage<UCSBArticles> page = KeysetPage.<UCSBArticles>builder()
+                                .content(List.of())
+                                .next(KeysetPage.encodeCursor("0.75,4"))
+                                .build();
+                assertEquals(mapper.writeValueAsString(page), response.getResponse().getContentAsString());
+                verify(articleSearch, times(1)).search("gaucho", null, ApiController.MAX_PAGE_SIZE + 1);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void search_with_an_invalid_cursor_gives_bad_request() throws Exception {
+                for (String cursor : List.of(KeysetPage.encodeCursor("x"), KeysetPage.encodeCursor("2"),
+                                KeysetPage.encodeCursor("x,3"), KeysetPage.encodeCursor("1.5,x"), "!")) {
+                        // act
+                        MvcResult response = mockMvc.perform(get("/api/ucsbarticles/search?q=gaucho&after=" + cursor))
+                                        .andExpect(status().isBadRequest()).andReturn();
+
+                        // assert
+                        Map<String, Object> json = responseToJson(response);
+                        assertEquals("InvalidCursorException", json.get("type"));
+                }
+                verify(articleSearch, never()).search(any(), any(), anyInt());
+        }
+
+         // Tests for GET and POST /api/ucsbarticles/batch
+
+         @Test
+         public void logged_out_users_cannot_get_a_batch() throws Exception {
+                  mockMvc.perform(get("/api/ucsbarticles/batch?ids=3"))
+                                    .andExpect(status().is(403));
+         }
+
+         @WithMockUser(roles = { "USER" })
+         @Test
+         public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+                  // arrange
+                  UCSBArticles row = UCSBArticles.builder()
+                                    .id(3L)
+                                    .title("Using testing-playground with React Testing Library")
+                                    .url("https://dev.to/katieraby/using-testing-playground-with-react-testing-library-26j7")
+                                    .explanation("Helpful when we get to front end development")
+                                    .email("phtcon@ucsb.edu")
+                                    .dateAdded(LocalDateTime.parse("2022-04-20T00:00:00"))
+                                    .build();
+                  when(ucsbArticlesRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+                  // act
+                  MvcResult response = mockMvc.perform(get("/api/ucsbarticles/batch?ids=3,2,3"))
+                                    .andExpect(status().isOk()).andReturn();
+
+                  // assert
+                  verify(ucsbArticlesRepository, times(1)).findAllById(List.of(3L, 2L));
+                  String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+                  assertEquals(expectedJson, response.getResponse().getContentAsString());
+         }
+
+         @WithMockUser(roles = { "USER" })
+         @Test
+         public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+                  // arrange
+                  UCSBArticles row = UCSBArticles.builder()
+                                    .id(3L)
+                                    .title("Using testing-playground with React Testing Library")
+                                    .url("https://dev.to/katieraby/using-testing-playground-with-react-testing-library-26j7")
+                                    .explanation("Helpful when we get to front end development")
+                                    .email("phtcon@ucsb.edu")
+                                    .dateAdded(LocalDateTime.parse("2022-04-20T00:00:00"))
+                                    .build();
+                  when(ucsbArticlesRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+                  // act
+                  MvcResult response = mockMvc.perform(post("/api/ucsbarticles/batch").with(csrf())
+                                    .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(List.of(3L, 2L))))
+                                    .andExpect(status().isOk()).andReturn();
+
+                  // assert
+                  String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+                  assertEquals(expectedJson, response.getResponse().getContentAsString());
+         }
+}
@@ -4,15 +4,23 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.UpcomingDates;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -27,7 +35,11 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +54,9 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        UpcomingDates upcomingDates;
+
         // Authorization tests for /api/ucsbdates/admin/all
 
         @Test
@@ -53,6 +68,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(ucsbDateRepository.findTableVersion()).thenReturn(0L);
                 mockMvc.perform(get("/api/ucsbdates/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -153,6 +169,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 expectedDates.addAll(Arrays.asList(ucsbDate1, ucsbDate2));
 
                 when(ucsbDateRepository.findAll()).thenReturn(expectedDates);
+                when(ucsbDateRepository.findTableVersion()).thenReturn(0L);
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdates/all"))
@@ -189,6 +206,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).save(ucsbDate1);
+                verify(upcomingDates, times(1)).put(ucsbDate1);
                 String expectedJson = mapper.writeValueAsString(ucsbDate1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -201,13 +219,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
 
-                UCSBDate ucsbDate1 = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.of(ucsbDate1));
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -216,8 +229,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
-                verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
+                verify(upcomingDates, times(1)).remove(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -229,7 +242,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDateRepository.findById(eq(15L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.deleteRowById(eq(15L))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -238,7 +251,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(15L);
+                verify(ucsbDateRepository, times(1)).deleteRowById(15L);
+                verify(upcomingDates, never()).remove(anyLong());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 not found", json.get("message"));
         }
@@ -251,13 +265,9 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
                 LocalDateTime ldt2 = LocalDateTime.parse("2023-01-03T00:00:00");
 
-                UCSBDate ucsbDateOrig = UCSBDate.builder()
-                                .name("firstDayOfClasses")
-                                .quarterYYYYQ("20222")
-                                .localDateTime(ldt1)
-                                .build();
 
                 UCSBDate ucsbDateEdited = UCSBDate.builder()
+                                .id(67L)
                                 .name("firstDayOfFestivus")
                                 .quarterYYYYQ("20232")
                                 .localDateTime(ldt2)
@@ -265,7 +275,11 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbDateEdited);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateOrig));
+                when(ucsbDateRepository.updateRowById(eq(67L), any())).thenReturn(1);
+                UCSBDate ucsbDateStored = mapper.readValue(requestBody, UCSBDate.class);
+                ucsbDateStored.setId(67L);
+                ucsbDateStored.setVersion(5L);
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(ucsbDateStored));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -277,10 +291,134 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
-                verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(ucsbDateRepository, times(1)).updateRowById(67L, ucsbDateEdited); // should be saved with correct user
+                verify(upcomingDates, times(1)).put(ucsbDateStored); // the stored row, with its new version
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(ucsbDateStored), responseString);
+                assertEquals(rowEtag(67L, 5L), response.getResponse().getHeader("ETag"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_of_a_ucsbdate_returns_precondition_failed() throws Exception {
+                // arrange
+                UCSBDate edited = UCSBDate.builder().id(67L).build();
+                UCSBDate stored = UCSBDate.builder().id(67L).version(6L).build();
+
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag(67L, 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, never()).updateRowById(anyLong(), any());
+                verify(upcomingDates, never()).put(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 has changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_current_if_match_updates_only_that_version() throws Exception {
+                // arrange
+                UCSBDate edited = UCSBDate.builder().id(67L).name("edited").build();
+                UCSBDate current = UCSBDate.builder().id(67L).name("current").version(5L).build();
+                UCSBDate stored = UCSBDate.builder().id(67L).name("edited").version(6L).build();
+
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(current), Optional.of(stored));
+                when(ucsbDateRepository.updateRowById(eq(67L), any())).thenReturn(1);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag(67L, 4L) + ", " + rowEtag(67L, 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(67L), argThat(d -> d.getVersion() == 5L));
+                verify(upcomingDates, times(1)).put(stored);
+                assertEquals(mapper.writeValueAsString(stored), response.getResponse().getContentAsString());
+                assertEquals(rowEtag(67L, 6L), response.getResponse().getHeader("ETag"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_if_match_star_updates_the_version_it_reads() throws Exception {
+                // arrange
+                UCSBDate edited = UCSBDate.builder().id(67L).name("edited").build();
+                UCSBDate current = UCSBDate.builder().id(67L).name("current").version(5L).build();
+                UCSBDate stored = UCSBDate.builder().id(67L).name("edited").version(6L).build();
+
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(current), Optional.of(stored));
+                when(ucsbDateRepository.updateRowById(eq(67L), any())).thenReturn(1);
+
+                // act
+                mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", "*")
+                                                .with(csrf()))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(67L), argThat(d -> d.getVersion() == 5L));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_if_match_of_a_ucsbdate_changed_before_the_update_returns_precondition_failed() throws Exception {
+                // arrange
+                UCSBDate edited = UCSBDate.builder().id(67L).name("edited").build();
+                UCSBDate current = UCSBDate.builder().id(67L).name("current").version(5L).build();
+                UCSBDate changed = UCSBDate.builder().id(67L).name("changed").version(6L).build();
+
+                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.of(current), Optional.of(changed));
+                when(ucsbDateRepository.updateRowById(eq(67L), any())).thenReturn(0);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag(67L, 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(upcomingDates, never()).put(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDate with id 67 has changed since it was read", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_if_match_of_a_ucsbdate_that_does_not_exist_returns_not_found() throws Exception {
+                // act
+                mockMvc.perform(
+                                put("/api/ucsbdates?id=67")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(UCSBDate.builder().build()))
+                                                .header("If-Match", rowEtag(67L, 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound());
+
+                // assert
+                verify(ucsbDateRepository, never()).updateRowById(anyLong(), any());
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -298,7 +436,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(ucsbEditedDate);
 
-                when(ucsbDateRepository.findById(eq(67L))).thenReturn(Optional.empty());
+                when(ucsbDateRepository.updateRowById(eq(67L), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -310,9 +448,381 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDateRepository, times(1)).findById(67L);
+                verify(ucsbDateRepository, times(1)).updateRowById(eq(67L), any());
+                verify(upcomingDates, never()).put(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/ucsbdates/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_ucsbdates_using_cursor() throws Exception {
+
+                // arrange
+                UCSBDate item = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                List<UCSBDate> content = List.of(item);
+                Window<UCSBDate> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("id", 3L)), true);
+
+                ScrollPosition expectedPosition = ScrollPosition.forward(Map.of("id", 2L));
+                when(ucsbDateRepository.findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(1))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/page?limit=1&after=" + KeysetPage.encodeCursor(2L)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findBy(eq(expectedPosition), eq(Sort.by("id")), eq(Limit.of(1)));
+                KeysetPage<UCSBDate> expectedPage = KeysetPage.<UCSBDate>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor(3L))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsbdates/all as NDJSON
+
+        @Test
+        public void logged_out_users_cannot_export_ndjson() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_ucsbdates_as_ndjson() throws Exception {
+
+                // arrange
+                UCSBDate item = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                Window<UCSBDate> window = Window.from(List.of(item),
+                                i -> ScrollPosition.forward(Map.of("id", 3L)), false);
+
+                when(ucsbDateRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(ApiController.EXPORT_BATCH_SIZE))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findBy(any(), any(), any());
+                String expectedNdjson = mapper.writeValueAsString(item) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedNdjson, responseString);
+        }
+
+        // Tests for POST /api/ucsbdates/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/ucsbdates/bulk").contentType(MediaType.APPLICATION_JSON).content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can bulk insert
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_ucsbdates() throws Exception {
+                // arrange
+
+                UCSBDate uCSBDate1 = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+
+                // the id is assigned by the database, so the id in the input is ignored
+                String body = "[" + mapper.writeValueAsString(uCSBDate1) + "]";
+                uCSBDate1.setId(0L);
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdates/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).saveAll(List.of(uCSBDate1));
+                verify(upcomingDates, times(1)).putAll(List.of(uCSBDate1));
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(1, json.get("inserted"));
+        }
+
+        // Tests for conditional GET (ETag and If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_304_when_the_table_has_not_changed() throws Exception {
+                // arrange
+                when(ucsbDateRepository.findTableVersion()).thenReturn(5L);
+                String etag = mockMvc.perform(get("/api/ucsbdates/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAll();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_304_when_the_row_has_not_changed() throws Exception {
+                // arrange
+                UCSBDate row = UCSBDate.builder().id(7L).version(3L).build();
+                when(ucsbDateRepository.findById(eq(7L))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates?id=7").header("If-None-Match", rowEtag(7L, 3)))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                assertEquals(rowEtag(7L, 3), response.getResponse().getHeader("ETag"));
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdates/range
+
+        @Test
+        public void logged_out_users_cannot_get_a_range() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/range?from=2022-01-01T00:00:00&to=2022-04-01T00:00:00"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_first_page_of_a_range() throws Exception {
+
+                // arrange
+                LocalDateTime from = LocalDateTime.parse("2022-01-01T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2022-04-01T00:00:00");
+                LocalDateTime ldt = LocalDateTime.parse("2022-03-11T00:00:00");
+                UCSBDate item = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(ldt)
+                                .build();
+
+                List<UCSBDate> content = List.of(item);
+                Window<UCSBDate> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("localDateTime", ldt, "id", 3L)), true);
+
+                when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+                                eq(from), eq(to), eq(ScrollPosition.keyset()), eq(Sort.by("localDateTime", "id")), eq(Limit.of(100))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?from=2022-01-01T00:00:00&to=2022-04-01T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                KeysetPage<UCSBDate> expectedPage = KeysetPage.<UCSBDate>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor("2022-03-11T00:00,3"))
+                                .build();
+                assertEquals(mapper.writeValueAsString(expectedPage), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_later_page_of_a_range_using_cursor() throws Exception {
+
+                // arrange
+                LocalDateTime from = LocalDateTime.parse("2022-01-01T00:00:00");
+                LocalDateTime to = LocalDateTime.parse("2022-04-01T00:00:00");
+                ScrollPosition expectedPosition = ScrollPosition.forward(
+                                Map.of("localDateTime", LocalDateTime.parse("2022-03-11T00:00:00"), "id", 3L));
+                Window<UCSBDate> window = Window.from(List.of(), i -> ScrollPosition.keyset(), false);
+
+                when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+                                any(), any(), any(), any(), any()))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/range?from=2022-01-01T00:00:00&to=2022-04-01T00:00:00&limit=100000&after="
+                                + KeysetPage.encodeCursor("2022-03-11T00:00,3")))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+                                eq(from), eq(to), eq(expectedPosition), eq(Sort.by("localDateTime", "id")), eq(Limit.of(ApiController.MAX_PAGE_SIZE)));
+                KeysetPage<UCSBDate> expectedPage = KeysetPage.<UCSBDate>builder()
+                                .content(List.of())
+                                .build();
+                assertEquals(mapper.writeValueAsString(expectedPage), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void range_with_an_invalid_cursor_returns_bad_request() throws Exception {
+                String range = "/api/ucsbdates/range?from=2022-01-01T00:00:00&to=2022-04-01T00:00:00&after=";
+                for (String after : List.of("not-base64!",
+                                KeysetPage.encodeCursor("no comma"),
+                                KeysetPage.encodeCursor("not a date,3"),
+                                KeysetPage.encodeCursor("2022-03-11T00:00,not an id"))) {
+                        MvcResult response = mockMvc.perform(get(range + after))
+                                        .andExpect(status().isBadRequest()).andReturn();
+                        assertEquals("InvalidCursorException", responseToJson(response).get("type"));
+                }
+                verify(ucsbDateRepository, never()).findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+                                any(), any(), any(), any(), any());
+        }
+
+        // Tests for GET /api/ucsbdates/quarter
+
+        @Test
+        public void logged_out_users_cannot_get_a_quarter() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/quarter?yyyyq=20222"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_dates_of_a_quarter() throws Exception {
+
+                // arrange
+                UCSBDate item = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+                when(ucsbDateRepository.findAllByQuarterYYYYQ("20222", Sort.by("localDateTime", "id")))
+                                .thenReturn(List.of(item));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?yyyyq=20222"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQ("20222", Sort.by("localDateTime", "id"));
+                assertEquals(mapper.writeValueAsString(List.of(item)), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdates/upcoming
+
+        @Test
+        public void logged_out_users_cannot_get_upcoming_dates() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/upcoming"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_upcoming_dates() throws Exception {
+
+                // arrange
+                UCSBDate item = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-28T00:00:00"))
+                                .build();
+                when(upcomingDates.upcoming(any(), anyInt())).thenReturn(List.of(item));
+                LocalDateTime before = LocalDateTime.now();
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/upcoming"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                LocalDateTime after = LocalDateTime.now();
+                verify(upcomingDates, times(1)).upcoming(argThat(now -> !now.isBefore(before) && !now.isAfter(after)), eq(10));
+                verify(ucsbDateRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(item)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void upcoming_limit_is_clamped_to_the_allowed_range() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/upcoming?limit=0"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdates/upcoming?limit=100000"))
+                                .andExpect(status().isOk());
+
+                verify(upcomingDates, times(1)).upcoming(any(), eq(1));
+                verify(upcomingDates, times(1)).upcoming(any(), eq(ApiController.MAX_PAGE_SIZE));
+        }
+
+        // Tests for GET and POST /api/ucsbdates/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/batch?ids=3"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+                // arrange
+                UCSBDate row = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+                when(ucsbDateRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/batch?ids=3,2,3"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllById(List.of(3L, 2L));
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+                // arrange
+                UCSBDate row = UCSBDate.builder()
+                                .id(3L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-03-11T00:00:00"))
+                                .build();
+                when(ucsbDateRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdates/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(List.of(3L, 2L))))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
 }
@@ -4,15 +4,24 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsLocations;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -26,6 +35,7 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,6 +47,12 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+        @MockBean
+        DiningCommonsLocations diningCommonsLocations;
+
+        @MockBean
+        ReferenceDataCache<UCSBDiningCommons, String> diningCommonsCache;
+
         @MockBean
         UserRepository userRepository;
 
@@ -51,6 +67,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @WithMockUser(roles = { "USER" })
         @Test
         public void logged_in_users_can_get_all() throws Exception {
+                when(diningCommonsCache.findAll()).thenReturn(new ReferenceDataCache.Snapshot<>(List.of(), 0L));
                 mockMvc.perform(get("/api/ucsbdiningcommons/all"))
                                 .andExpect(status().is(200)); // logged
         }
@@ -95,7 +112,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.85277)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(commons));
+                when(diningCommonsCache.findById(eq("carrillo"))).thenReturn(Optional.of(commons));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo"))
@@ -103,7 +120,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("carrillo"));
+                verify(diningCommonsCache, times(1)).findById(eq("carrillo"));
                 String expectedJson = mapper.writeValueAsString(commons);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -115,7 +132,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(diningCommonsCache.findById(eq("munger-hall"))).thenReturn(Optional.empty());
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=munger-hall"))
@@ -123,7 +140,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findById(eq("munger-hall"));
+                verify(diningCommonsCache, times(1)).findById(eq("munger-hall"));
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("EntityNotFoundException", json.get("type"));
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
@@ -158,7 +175,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 ArrayList<UCSBDiningCommons> expectedCommons = new ArrayList<>();
                 expectedCommons.addAll(Arrays.asList(carrillo, dlg));
 
-                when(ucsbDiningCommonsRepository.findAll()).thenReturn(expectedCommons);
+                when(diningCommonsCache.findAll()).thenReturn(new ReferenceDataCache.Snapshot<>(expectedCommons, 0L));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
@@ -166,7 +183,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbDiningCommonsRepository, times(1)).findAll();
+                verify(diningCommonsCache, times(1)).findAll();
+                verify(ucsbDiningCommonsRepository, never()).findAll();
                 String expectedJson = mapper.writeValueAsString(expectedCommons);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -187,7 +205,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.84709)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.save(eq(ortega))).thenReturn(ortega);
+                when(ucsbDiningCommonsRepository.upsert(eq(ortega))).thenReturn(ortega);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -196,7 +214,9 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                verify(ucsbDiningCommonsRepository, times(1)).upsert(ortega);
+                verify(diningCommonsLocations, times(1)).put(ortega);
+                verify(diningCommonsCache, times(1)).invalidate("ortega");
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -217,7 +237,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .longitude(-119.867427)
                                 .build();
 
-                when(ucsbDiningCommonsRepository.findById(eq("portola"))).thenReturn(Optional.of(portola));
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("portola"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -226,8 +246,9 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
-                verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowById("portola");
+                verify(diningCommonsLocations, times(1)).remove("portola");
+                verify(diningCommonsCache, times(1)).invalidate("portola");
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -239,7 +260,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.deleteRowById(eq("munger-hall"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -248,7 +269,9 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).deleteRowById("munger-hall");
+                verify(diningCommonsLocations, never()).remove(any());
+                verify(diningCommonsCache, never()).invalidate(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
         }
@@ -258,16 +281,6 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_commons() throws Exception {
                 // arrange
 
-                UCSBDiningCommons carrilloOrig = UCSBDiningCommons.builder()
-                                .name("Carrillo")
-                                .code("carrillo")
-                                .hasSackMeal(false)
-                                .hasTakeOutMeal(false)
-                                .hasDiningCam(true)
-                                .latitude(34.409953)
-                                .longitude(-119.85277)
-                                .build();
-
                 UCSBDiningCommons carrilloEdited = UCSBDiningCommons.builder()
                                 .name("Carrillo Dining Hall")
                                 .code("carrillo")
@@ -280,7 +293,11 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(carrilloEdited);
 
-                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloOrig));
+                when(ucsbDiningCommonsRepository.updateRowById(eq("carrillo"), any())).thenReturn(1);
+                UCSBDiningCommons carrilloStored = mapper.readValue(requestBody, UCSBDiningCommons.class);
+                carrilloStored.setCode("carrillo");
+                carrilloStored.setVersion(5L);
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(carrilloStored));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -292,10 +309,38 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
-                verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                verify(ucsbDiningCommonsRepository, times(1)).updateRowById("carrillo", carrilloEdited); // should be saved with updated info
+                verify(diningCommonsLocations, times(1)).put(carrilloStored); // the stored row, with its new version
+                verify(diningCommonsCache, times(1)).invalidate("carrillo");
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(carrilloStored), responseString);
+                assertEquals(rowEtag("carrillo", 5L), response.getResponse().getHeader("ETag"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_of_a_commons_returns_precondition_failed() throws Exception {
+                // arrange
+                UCSBDiningCommons edited = UCSBDiningCommons.builder().code("carrillo").build();
+                UCSBDiningCommons stored = UCSBDiningCommons.builder().code("carrillo").version(6L).build();
+
+                when(ucsbDiningCommonsRepository.findById(eq("carrillo"))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsbdiningcommons?code=carrillo")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag("carrillo", 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).updateRowById(any(), any());
+                verify(diningCommonsLocations, never()).put(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id carrillo has changed since it was read", json.get("message"));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -315,7 +360,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedCommons);
 
-                when(ucsbDiningCommonsRepository.findById(eq("munger-hall"))).thenReturn(Optional.empty());
+                when(ucsbDiningCommonsRepository.updateRowById(eq("munger-hall"), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -327,9 +372,303 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbDiningCommonsRepository, times(1)).findById("munger-hall");
+                verify(ucsbDiningCommonsRepository, times(1)).updateRowById(eq("munger-hall"), any());
+                verify(diningCommonsLocations, never()).put(any());
+                verify(diningCommonsCache, never()).invalidate(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/ucsbdiningcommons/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_commons_using_cursor() throws Exception {
+
+                // arrange
+                UCSBDiningCommons item = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                List<UCSBDiningCommons> content = List.of(item);
+                Window<UCSBDiningCommons> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("code", "ortega")), true);
+
+                ScrollPosition expectedPosition = ScrollPosition.forward(Map.of("code", "carrillo"));
+                when(ucsbDiningCommonsRepository.findBy(eq(expectedPosition), eq(Sort.by("code")), eq(Limit.of(1))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/page?limit=1&after=" + KeysetPage.encodeCursor("carrillo")))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findBy(eq(expectedPosition), eq(Sort.by("code")), eq(Limit.of(1)));
+                KeysetPage<UCSBDiningCommons> expectedPage = KeysetPage.<UCSBDiningCommons>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor("ortega"))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/all as NDJSON
+
+        @Test
+        public void logged_out_users_cannot_export_ndjson() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_commons_as_ndjson() throws Exception {
+
+                // arrange
+                UCSBDiningCommons item = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                Window<UCSBDiningCommons> window = Window.from(List.of(item),
+                                i -> ScrollPosition.forward(Map.of("code", "ortega")), false);
+
+                when(ucsbDiningCommonsRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("code")), eq(Limit.of(ApiController.EXPORT_BATCH_SIZE))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findBy(any(), any(), any());
+                String expectedNdjson = mapper.writeValueAsString(item) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedNdjson, responseString);
+        }
+
+        // Tests for POST /api/ucsbdiningcommons/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/ucsbdiningcommons/bulk").contentType(MediaType.APPLICATION_JSON).content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can bulk insert
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_commons() throws Exception {
+                // arrange
+
+                UCSBDiningCommons uCSBDiningCommons1 = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                String body = "[" + mapper.writeValueAsString(uCSBDiningCommons1) + "]";
+                when(ucsbDiningCommonsRepository.upsertAll(List.of(uCSBDiningCommons1))).thenReturn(List.of(uCSBDiningCommons1));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommons/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).upsertAll(List.of(uCSBDiningCommons1));
+                verify(diningCommonsLocations, times(1)).putAll(List.of(uCSBDiningCommons1));
+                verify(diningCommonsCache, times(1)).invalidate("ortega");
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(1, json.get("inserted"));
+        }
+
+        // Tests for conditional GET (ETag and If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_304_when_the_table_has_not_changed() throws Exception {
+                // arrange
+                when(diningCommonsCache.findAll()).thenReturn(new ReferenceDataCache.Snapshot<>(List.of(), 5L));
+                String etag = mockMvc.perform(get("/api/ucsbdiningcommons/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(diningCommonsCache, times(2)).findAll();
+                verify(ucsbDiningCommonsRepository, never()).findTableVersion();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_304_when_the_row_has_not_changed() throws Exception {
+                // arrange
+                UCSBDiningCommons row = UCSBDiningCommons.builder().code("carrillo").version(3L).build();
+                when(diningCommonsCache.findById(eq("carrillo"))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons?code=carrillo").header("If-None-Match", rowEtag("carrillo", 3)))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                assertEquals(rowEtag("carrillo", 3), response.getResponse().getHeader("ETag"));
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/nearest and /api/ucsbdiningcommons/within
+
+        @Test
+        public void logged_out_users_cannot_get_nearest() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_nearest_commons() throws Exception {
+                // arrange
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+                when(diningCommonsLocations.nearest(34.41, -119.85, 2)).thenReturn(List.of(ortega));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85&k=2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(ortega)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void nearest_returns_one_commons_by_default_and_at_most_a_page() throws Exception {
+                // act
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsbdiningcommons/nearest?lat=34.41&lon=-119.85&k=100000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(diningCommonsLocations, times(1)).nearest(34.41, -119.85, 1);
+                verify(diningCommonsLocations, times(1)).nearest(34.41, -119.85, ApiController.MAX_PAGE_SIZE);
+        }
+
+        @Test
+        public void logged_out_users_cannot_get_commons_within_a_radius() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/within?lat=34.41&lon=-119.85&radiusKm=1"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_the_commons_within_a_radius() throws Exception {
+                // arrange
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+                when(diningCommonsLocations.within(34.41, -119.85, 1.5)).thenReturn(List.of(ortega));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/within?lat=34.41&lon=-119.85&radiusKm=1.5"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(List.of(ortega)), response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET and POST /api/ucsbdiningcommons/batch
+
+        @Test
+        public void logged_out_users_cannot_get_a_batch() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/batch?ids=ortega"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+                // arrange
+                UCSBDiningCommons row = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+                when(ucsbDiningCommonsRepository.findAllById(List.of("ortega", "carrillo"))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/batch?ids=ortega,carrillo,ortega"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAllById(List.of("ortega", "carrillo"));
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of("carrillo")));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+                // arrange
+                UCSBDiningCommons row = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+                when(ucsbDiningCommonsRepository.findAllById(List.of("ortega", "carrillo"))).thenReturn(List.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsbdiningcommons/batch").with(csrf())
+                                .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(List.of("ortega", "carrillo"))))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of("carrillo")));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
 }
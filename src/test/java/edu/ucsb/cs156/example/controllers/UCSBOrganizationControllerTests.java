@@ -5,16 +5,25 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.models.BatchResult;
+import edu.ucsb.cs156.example.models.KeysetPage;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.OrganizationSuggestions;
+import edu.ucsb.cs156.example.services.ReferenceDataCache;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -30,6 +39,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -38,6 +48,12 @@ import static org.mockito.Mockito.when;
 @Import(TestConfig.class)
 public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
+    @MockBean
+    OrganizationSuggestions organizationSuggestions;
+
+    @MockBean
+    ReferenceDataCache<UCSBOrganization, String> organizationCache;
+
     @MockBean
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
@@ -55,6 +71,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     @WithMockUser(roles = { "USER" })
     @Test
     public void logged_in_users_can_get_all() throws Exception {
+            when(organizationCache.findAll()).thenReturn(new ReferenceDataCache.Snapshot<>(List.of(), 0L));
             mockMvc.perform(get("/api/ucsborganizations/all"))
                             .andExpect(status().is(200)); // logged
     }
@@ -78,7 +95,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .inactive(false)
                             .build();
 
-            when(ucsbOrganizationRepository.findById(eq("SKY"))).thenReturn(Optional.of(organization));
+            when(organizationCache.findById(eq("SKY"))).thenReturn(Optional.of(organization));
 
             // act
             MvcResult response = mockMvc.perform(get("/api/ucsborganizations?orgField=SKY"))
@@ -86,7 +103,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
             // assert
 
-            verify(ucsbOrganizationRepository, times(1)).findById(eq("SKY"));
+            verify(organizationCache, times(1)).findById(eq("SKY"));
             String expectedJson = mapper.writeValueAsString(organization);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
@@ -98,7 +115,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
             // arrange
 
-            when(ucsbOrganizationRepository.findById(eq("WARRIORS"))).thenReturn(Optional.empty());
+            when(organizationCache.findById(eq("WARRIORS"))).thenReturn(Optional.empty());
 
             // act
             MvcResult response = mockMvc.perform(get("/api/ucsborganizations?orgField=WARRIORS"))
@@ -106,7 +123,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
             // assert
 
-            verify(ucsbOrganizationRepository, times(1)).findById(eq("WARRIORS"));
+            verify(organizationCache, times(1)).findById(eq("WARRIORS"));
             Map<String, Object> json = responseToJson(response);
             assertEquals("EntityNotFoundException", json.get("type"));
             assertEquals("UCSBOrganization with id WARRIORS not found", json.get("message"));
@@ -139,7 +156,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .inactive(true)
                             .build();
 
-            when(ucsbOrganizationRepository.save(eq(studentLife))).thenReturn(studentLife);
+            when(ucsbOrganizationRepository.upsert(eq(studentLife))).thenReturn(studentLife);
 
             // act
             MvcResult response = mockMvc.perform(
@@ -148,7 +165,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                             .andExpect(status().isOk()).andReturn();
 
             // assert
-            verify(ucsbOrganizationRepository, times(1)).save(studentLife);
+            verify(ucsbOrganizationRepository, times(1)).upsert(studentLife);
+            verify(organizationSuggestions, times(1)).put(studentLife);
+            verify(organizationCache, times(1)).invalidate("OSLI");
             String expectedJson = mapper.writeValueAsString(studentLife);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
@@ -177,7 +196,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                 ArrayList<UCSBOrganization> expectedOrganizations = new ArrayList<>();
                 expectedOrganizations.addAll(Arrays.asList(skydiving, zpr));
 
-                when(ucsbOrganizationRepository.findAll()).thenReturn(expectedOrganizations);
+                when(organizationCache.findAll()).thenReturn(new ReferenceDataCache.Snapshot<>(expectedOrganizations, 0L));
 
                 // act
                 MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all"))
@@ -185,7 +204,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 // assert
 
-                verify(ucsbOrganizationRepository, times(1)).findAll();
+                verify(organizationCache, times(1)).findAll();
+                verify(ucsbOrganizationRepository, never()).findAll();
                 String expectedJson = mapper.writeValueAsString(expectedOrganizations);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -196,14 +216,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         public void admin_can_delete_an_organization() throws Exception {
                 // arrange
 
-                UCSBOrganization organization = UCSBOrganization.builder()
-                                .orgField("GSA")
-                                .orgTranslationShort("GAUCHO SPORTS")
-                                .orgTranslation("GAUCHO SPORTS ANALYTICS")
-                                .build();
-                                
-
-                when(ucsbOrganizationRepository.findById(eq("GSA"))).thenReturn(Optional.of(organization));
+                when(ucsbOrganizationRepository.deleteRowById(eq("GSA"))).thenReturn(1);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -212,8 +225,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("GSA");
-                verify(ucsbOrganizationRepository, times(1)).delete(any());
+                verify(ucsbOrganizationRepository, times(1)).deleteRowById("GSA");
+                verify(organizationSuggestions, times(1)).remove("GSA");
+                verify(organizationCache, times(1)).invalidate("GSA");
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id GSA deleted", json.get("message"));
@@ -225,7 +239,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                         throws Exception {
                 // arrange
 
-                when(ucsbOrganizationRepository.findById(eq("WARRIORS"))).thenReturn(Optional.empty());
+                when(ucsbOrganizationRepository.deleteRowById(eq("WARRIORS"))).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -234,7 +248,9 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("WARRIORS");
+                verify(ucsbOrganizationRepository, times(1)).deleteRowById("WARRIORS");
+                verify(organizationSuggestions, never()).remove(any());
+                verify(organizationCache, never()).invalidate(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id WARRIORS not found", json.get("message"));
         }
@@ -244,13 +260,6 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
         public void admin_can_edit_an_existing_organization() throws Exception {
                 // arrange
 
-                UCSBOrganization gsa = UCSBOrganization.builder()
-                                .orgField("GSA")
-                                .orgTranslationShort("GAUCHO")
-                                .orgTranslation("GAUCHO SPORTS ANALYTICS")
-                                .inactive(false)
-                                .build();
-
                 UCSBOrganization gsaEdited = UCSBOrganization.builder()
                                 .orgField("GSA@UCSB")
                                 .orgTranslationShort("GAUCHO SPORTS")
@@ -261,7 +270,11 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(gsaEdited);
 
-                when(ucsbOrganizationRepository.findById(eq("GSA@UCSB"))).thenReturn(Optional.of(gsa));
+                when(ucsbOrganizationRepository.updateRowById(eq("GSA@UCSB"), any())).thenReturn(1);
+                UCSBOrganization gsaStored = mapper.readValue(requestBody, UCSBOrganization.class);
+                gsaStored.setOrgField("GSA@UCSB");
+                gsaStored.setVersion(5L);
+                when(ucsbOrganizationRepository.findById(eq("GSA@UCSB"))).thenReturn(Optional.of(gsaStored));
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -273,10 +286,38 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isOk()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("GSA@UCSB");
-                verify(ucsbOrganizationRepository, times(1)).save(gsaEdited); // should be saved with updated info
+                verify(ucsbOrganizationRepository, times(1)).updateRowById("GSA@UCSB", gsaEdited); // should be saved with updated info
+                verify(organizationSuggestions, times(1)).put(gsaStored); // the stored row, with its new version
+                verify(organizationCache, times(1)).invalidate("GSA@UCSB");
                 String responseString = response.getResponse().getContentAsString();
-                assertEquals(requestBody, responseString);
+                assertEquals(mapper.writeValueAsString(gsaStored), responseString);
+                assertEquals(rowEtag("GSA@UCSB", 5L), response.getResponse().getHeader("ETag"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_edit_with_a_stale_if_match_of_a_organization_returns_precondition_failed() throws Exception {
+                // arrange
+                UCSBOrganization edited = UCSBOrganization.builder().orgField("GSA@UCSB").build();
+                UCSBOrganization stored = UCSBOrganization.builder().orgField("GSA@UCSB").version(6L).build();
+
+                when(ucsbOrganizationRepository.findById(eq("GSA@UCSB"))).thenReturn(Optional.of(stored));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                put("/api/ucsborganizations?orgField=GSA@UCSB")
+                                                .contentType(MediaType.APPLICATION_JSON)
+                                                .characterEncoding("utf-8")
+                                                .content(mapper.writeValueAsString(edited))
+                                                .header("If-Match", rowEtag("GSA@UCSB", 5L))
+                                                .with(csrf()))
+                                .andExpect(status().isPreconditionFailed()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, never()).updateRowById(any(), any());
+                verify(organizationSuggestions, never()).put(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBOrganization with id GSA@UCSB has changed since it was read", json.get("message"));
         }
 
         @WithMockUser(roles = { "ADMIN", "USER" })
@@ -293,7 +334,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
                 String requestBody = mapper.writeValueAsString(editedOrganization);
 
-                when(ucsbOrganizationRepository.findById(eq("SKYD"))).thenReturn(Optional.empty());
+                when(ucsbOrganizationRepository.updateRowById(eq("SKYD"), any())).thenReturn(0);
 
                 // act
                 MvcResult response = mockMvc.perform(
@@ -305,8 +346,279 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
                                 .andExpect(status().isNotFound()).andReturn();
 
                 // assert
-                verify(ucsbOrganizationRepository, times(1)).findById("SKYD");
+                verify(ucsbOrganizationRepository, times(1)).updateRowById(eq("SKYD"), any());
+                verify(organizationSuggestions, never()).put(any());
+                verify(organizationCache, never()).invalidate(any());
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBOrganization with id SKYD not found", json.get("message"));
         }
+
+        // Tests for GET /api/ucsborganizations/page
+
+        @Test
+        public void logged_out_users_cannot_get_page() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/page"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_organizations_using_cursor() throws Exception {
+
+                // arrange
+                UCSBOrganization item = UCSBOrganization.builder()
+                                .orgField("ZPR")
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                List<UCSBOrganization> content = List.of(item);
+                Window<UCSBOrganization> window = Window.from(content,
+                                i -> ScrollPosition.forward(Map.of("orgField", "ZPR")), true);
+
+                ScrollPosition expectedPosition = ScrollPosition.forward(Map.of("orgField", "KRC"));
+                when(ucsbOrganizationRepository.findBy(eq(expectedPosition), eq(Sort.by("orgField")), eq(Limit.of(1))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/page?limit=1&after=" + KeysetPage.encodeCursor("KRC")))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findBy(eq(expectedPosition), eq(Sort.by("orgField")), eq(Limit.of(1)));
+                KeysetPage<UCSBOrganization> expectedPage = KeysetPage.<UCSBOrganization>builder()
+                                .content(content)
+                                .next(KeysetPage.encodeCursor("ZPR"))
+                                .build();
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/ucsborganizations/all as NDJSON
+
+        @Test
+        public void logged_out_users_cannot_export_ndjson() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_export_all_organizations_as_ndjson() throws Exception {
+
+                // arrange
+                UCSBOrganization item = UCSBOrganization.builder()
+                                .orgField("ZPR")
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                Window<UCSBOrganization> window = Window.from(List.of(item),
+                                i -> ScrollPosition.forward(Map.of("orgField", "ZPR")), false);
+
+                when(ucsbOrganizationRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("orgField")), eq(Limit.of(ApiController.EXPORT_BATCH_SIZE))))
+                                .thenReturn(window);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all").accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType("application/x-ndjson;charset=UTF-8"))
+                                .andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).findBy(any(), any(), any());
+                String expectedNdjson = mapper.writeValueAsString(item) + "\n";
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedNdjson, responseString);
+        }
+
+        // Tests for POST /api/ucsborganizations/bulk
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_bulk_insert() throws Exception {
+                mockMvc.perform(post("/api/ucsborganizations/bulk").contentType(MediaType.APPLICATION_JSON).content("[]")
+                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can bulk insert
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void an_admin_user_can_bulk_insert_organizations() throws Exception {
+                // arrange
+
+                UCSBOrganization uCSBOrganization1 = UCSBOrganization.builder()
+                                .orgField("ZPR")
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO AT UCSB")
+                                .inactive(false)
+                                .build();
+
+                String body = "[" + mapper.writeValueAsString(uCSBOrganization1) + "]";
+                when(ucsbOrganizationRepository.upsertAll(List.of(uCSBOrganization1))).thenReturn(List.of(uCSBOrganization1));
+
+                // act
+                MvcResult response = mockMvc.perform(post("/api/ucsborganizations/bulk")
+                                .contentType(MediaType.APPLICATION_JSON).content(body).with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, times(1)).upsertAll(List.of(uCSBOrganization1));
+                verify(organizationSuggestions, times(1)).putAll(List.of(uCSBOrganization1));
+                verify(organizationCache, times(1)).invalidate("ZPR");
+                Map<String, Object> json = responseToJson(response);
+                assertEquals(1, json.get("inserted"));
+        }
+
+        // Tests for conditional GET (ETag and If-None-Match)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_all_returns_304_when_the_table_has_not_changed() throws Exception {
+                // arrange
+                when(organizationCache.findAll()).thenReturn(new ReferenceDataCache.Snapshot<>(List.of(), 5L));
+                String etag = mockMvc.perform(get("/api/ucsborganizations/all"))
+                                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/all").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                verify(organizationCache, times(2)).findAll();
+                verify(ucsbOrganizationRepository, never()).findTableVersion();
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_304_when_the_row_has_not_changed() throws Exception {
+                // arrange
+                UCSBOrganization row = UCSBOrganization.builder().orgField("SKY").version(3L).build();
+                when(organizationCache.findById(eq("SKY"))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations?orgField=SKY").header("If-None-Match", rowEtag("SKY", 3)))
+                                .andExpect(status().isNotModified()).andReturn();
+
+                // assert
+                assertEquals(rowEtag("SKY", 3), response.getResponse().getHeader("ETag"));
+                assertEquals("", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_by_id_returns_200_for_another_row_with_the_same_version() throws Exception {
+                // arrange
+                UCSBOrganization row = UCSBOrganization.builder().orgField("OSLI").version(3L).build();
+                when(organizationCache.findById(eq("OSLI"))).thenReturn(Optional.of(row));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations?orgField=OSLI").header("If-None-Match", rowEtag("SKY", 3)))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(rowEtag("OSLI", 3), response.getResponse().getHeader("ETag"));
+        }
+
+        // Tests for GET /api/ucsborganizations/suggest
+
+        @Test
+        public void logged_out_users_cannot_get_suggestions() throws Exception {
+                mockMvc.perform(get("/api/ucsborganizations/suggest?prefix=ze"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_suggestions() throws Exception {
+                // arrange
+                UCSBOrganization zpr = UCSBOrganization.builder()
+                                .orgField("ZPR")
+                                .orgTranslationShort("ZETA PHI RHO")
+                                .orgTranslation("ZETA PHI RHO AT UCSB")
+                                .inactive(false)
+                                .build();
+                when(organizationSuggestions.suggest("ze", 5)).thenReturn(List.of(zpr));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsborganizations/suggest?prefix=ze&limit=5"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbOrganizationRepository, never()).findAll();
+                assertEquals(mapper.writeValueAsString(List.of(zpr)), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void suggestion_limit_is_clamped_to_the_allowed_range() throws Exception {
+                // act
+                mockMvc.perform(get("/api/ucsborganizations/suggest?prefix=ze"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsborganizations/suggest?prefix=ze&limit=0"))
+                                .andExpect(status().isOk());
+                mockMvc.perform(get("/api/ucsborganizations/suggest?prefix=ze&limit=100000"))
+                                .andExpect(status().isOk());
+
+                // assert
+                verify(organizationSuggestions, times(1)).suggest("ze", 10);
+                verify(organizationSuggestions, times(1)).suggest("ze", 1);
+                verify(organizationSuggestions, times(1)).suggest("ze", ApiController.MAX_PAGE_SIZE);
+        }
+
+    // Tests for GET and POST /api/ucsborganizations/batch
+
+    @Test
+    public void logged_out_users_cannot_get_a_batch() throws Exception {
+        mockMvc.perform(get("/api/ucsborganizations/batch?ids=ZPR"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+        // arrange
+        UCSBOrganization row = UCSBOrganization.builder()
+                .orgField("ZPR")
+                .orgTranslationShort("ZETA PHI RHO")
+                .orgTranslation("ZETA PHI RHO AT UCSB")
+                .inactive(false)
+                .build();
+        when(ucsbOrganizationRepository.findAllById(List.of("ZPR", "KRC"))).thenReturn(List.of(row));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/ucsborganizations/batch?ids=ZPR,KRC,ZPR"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(ucsbOrganizationRepository, times(1)).findAllById(List.of("ZPR", "KRC"));
+        String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of("KRC")));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+        // arrange
+        UCSBOrganization row = UCSBOrganization.builder()
+                .orgField("ZPR")
+                .orgTranslationShort("ZETA PHI RHO")
+                .orgTranslation("ZETA PHI RHO AT UCSB")
+                .inactive(false)
+                .build();
+        when(ucsbOrganizationRepository.findAllById(List.of("ZPR", "KRC"))).thenReturn(List.of(row));
+
+        // act
+        MvcResult response = mockMvc.perform(post("/api/ucsborganizations/batch").with(csrf())
+                .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(List.of("ZPR", "KRC"))))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of("KRC")));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
 }
@@ -2,6 +2,7 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.BatchResult;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
@@ -9,18 +10,28 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -55,19 +66,100 @@ public class UsersControllerTests extends ControllerTestCase {
     ArrayList<User> expectedUsers = new ArrayList<>();
     expectedUsers.addAll(Arrays.asList(u1, u2, u));
 
-    when(userRepository.findAll()).thenReturn(expectedUsers);
+    Limit batch = Limit.of(ApiController.EXPORT_BATCH_SIZE);
+    when(userRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(batch)))
+        .thenReturn(Window.from(List.of(u1, u2), i -> ScrollPosition.forward(Map.of("id", i + 1L)), true));
+    when(userRepository.findBy(eq(ScrollPosition.forward(Map.of("id", 2L))), eq(Sort.by("id")), eq(batch)))
+        .thenReturn(Window.from(List.of(u), i -> ScrollPosition.forward(Map.of("id", 3L)), false));
     String expectedJson = mapper.writeValueAsString(expectedUsers);
     
     // act
 
     MvcResult response = mockMvc.perform(get("/api/admin/users"))
-        .andExpect(status().isOk()).andReturn();
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/json;charset=UTF-8"))
+        .andReturn();
 
     // assert
 
-    verify(userRepository, times(1)).findAll();
+    verify(userRepository, times(2)).findBy(any(), any(), any());
+    verify(userRepository, times(0)).findAll();
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
 
   }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void users__no_users_gives_an_empty_list() throws Exception {
+
+    // arrange
+
+    when(userRepository.findBy(any(), any(), any()))
+        .thenReturn(Window.from(List.of(), i -> ScrollPosition.keyset()));
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/users"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals("[]", response.getResponse().getContentAsString());
+  }
+
+  // Tests for GET and POST /api/admin/users/batch
+
+  @Test
+  public void logged_out_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/admin/users/batch?ids=3"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void regular_users_cannot_get_a_batch() throws Exception {
+    mockMvc.perform(get("/api/admin/users/batch?ids=3"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void get_batch_returns_the_rows_found_and_the_ids_missing() throws Exception {
+    // arrange
+    User row = User.builder()
+        .id(3L)
+        .email("cgaucho@ucsb.edu")
+        .build();
+    when(userRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+    // act
+    MvcResult response = mockMvc.perform(get("/api/admin/users/batch?ids=3,2,3"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(userRepository, times(1)).findAllById(List.of(3L, 2L));
+    String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void post_batch_takes_the_ids_from_the_request_body() throws Exception {
+    // arrange
+    User row = User.builder()
+        .id(3L)
+        .email("cgaucho@ucsb.edu")
+        .build();
+    when(userRepository.findAllById(List.of(3L, 2L))).thenReturn(List.of(row));
+
+    // act
+    MvcResult response = mockMvc.perform(post("/api/admin/users/batch").with(csrf())
+        .contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsString(List.of(3L, 2L))))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(new BatchResult<>(List.of(row), List.of(2L)));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
 }
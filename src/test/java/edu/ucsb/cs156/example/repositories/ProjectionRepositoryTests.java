@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBArticles;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.InvalidFieldsException;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * These tests check that the ProjectionRepository returns only the fields asked for,
+ * without loading any entities.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ProjectionRepositoryTests {
+
+  @Autowired
+  EntityManager entityManager;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  UCSBArticlesRepository ucsbArticlesRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  ProjectionRepository projectionRepository = new ProjectionRepository();
+
+  List<UCSBArticles> articles;
+
+  @BeforeEach
+  public void saveArticles() {
+    projectionRepository.entityManager = entityManager;
+    articles = List.of(ucsbArticlesRepository.save(article("Projection 1")),
+        ucsbArticlesRepository.save(article("Projection 2")), ucsbArticlesRepository.save(article("Projection 3")));
+  }
+
+  static UCSBArticles article(String title) {
+    return UCSBArticles.builder().title(title).url("https://projection.example.com").explanation("A long explanation")
+        .email("projection@ucsb.edu").dateAdded(LocalDateTime.parse("2022-01-03T00:00:00")).build();
+  }
+
+  @Test
+  public void find_after_returns_only_the_id_and_the_fields_asked_for_without_loading_entities() {
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+    statistics.clear();
+
+    List<Map<String, Object>> rows = projectionRepository.findAfter(UCSBArticles.class, List.of("title", " url"),
+        articles.get(0).getId(), 1);
+
+    statistics.setStatisticsEnabled(false);
+    assertEquals(List.of(Map.of("id", articles.get(1).getId(), "title", "Projection 2",
+        "url", "https://projection.example.com")), rows);
+    assertEquals(List.of("id", "title", "url"), List.copyOf(rows.get(0).keySet()));
+    assertEquals(0, statistics.getEntityLoadCount());
+  }
+
+  @Test
+  public void find_all_returns_every_row_in_id_order() {
+    List<Long> ids = articles.stream().map(UCSBArticles::getId).toList();
+
+    List<Object> titles = projectionRepository.findAll(UCSBArticles.class, List.of("title")).stream()
+        .filter(row -> ids.contains(row.get("id")))
+        .map(row -> row.get("title"))
+        .toList();
+
+    assertEquals(List.of("Projection 1", "Projection 2", "Projection 3"), titles);
+  }
+
+  @Test
+  public void the_id_is_returned_once_even_if_it_is_asked_for() {
+    List<Map<String, Object>> rows = projectionRepository.findAfter(UCSBArticles.class, List.of("id", "email"),
+        articles.get(1).getId(), 1);
+
+    assertEquals(List.of(Map.of("id", articles.get(2).getId(), "email", "projection@ucsb.edu")), rows);
+  }
+
+  @Test
+  public void id_property_is_the_name_of_the_primary_key() {
+    assertEquals("id", projectionRepository.idProperty(UCSBArticles.class));
+    assertEquals("orgField", projectionRepository.idProperty(UCSBOrganization.class));
+  }
+
+  @Test
+  public void unknown_fields_and_the_version_cannot_be_asked_for() {
+    InvalidFieldsException unknown = assertThrows(InvalidFieldsException.class,
+        () -> projectionRepository.findAll(UCSBArticles.class, List.of("title", "body")));
+    assertEquals("Unknown field: body; the fields are dateAdded, email, explanation, id, title, url",
+        unknown.getMessage());
+
+    assertThrows(InvalidFieldsException.class,
+        () -> projectionRepository.findAll(UCSBArticles.class, List.of("version")));
+  }
+}
@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests run the date range and quarter queries of UCSBDateRepository against the
+ * database, since the controller tests mock the repositories.
+ */
+@DataJpaTest
+public class RepositoryDateRangeTests {
+
+  private static final Sort BY_DATE = Sort.by("localDateTime", "id");
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @MockBean
+  WiremockService wiremockService;
+
+  private UCSBDate save(String quarterYYYYQ, String name, String localDateTime) {
+    return ucsbDateRepository.save(UCSBDate.builder()
+        .quarterYYYYQ(quarterYYYYQ)
+        .name(name)
+        .localDateTime(LocalDateTime.parse(localDateTime))
+        .build());
+  }
+
+  @Test
+  public void range_query_pages_through_the_dates_in_the_range_in_date_order() {
+    save("19991", "before", "1998-12-31T23:59:59");
+    UCSBDate start = save("19991", "start", "1999-01-01T00:00:00");
+    UCSBDate tie1 = save("19991", "tie1", "1999-02-01T00:00:00");
+    UCSBDate tie2 = save("19991", "tie2", "1999-02-01T00:00:00");
+    UCSBDate early = save("19991", "early", "1999-01-15T00:00:00");
+    save("19992", "end", "1999-04-01T00:00:00");
+    LocalDateTime from = LocalDateTime.parse("1999-01-01T00:00:00");
+    LocalDateTime to = LocalDateTime.parse("1999-04-01T00:00:00");
+
+    Window<UCSBDate> first = ucsbDateRepository.findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+        from, to, ScrollPosition.keyset(), BY_DATE, Limit.of(3));
+    assertEquals(List.of(start, early, tie1), first.getContent());
+    assertTrue(first.hasNext());
+
+    Window<UCSBDate> second = ucsbDateRepository.findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+        from, to, first.positionAt(2), BY_DATE, Limit.of(3));
+    assertEquals(List.of(tie2), second.getContent());
+    assertFalse(second.hasNext());
+  }
+
+  @Test
+  public void quarter_query_returns_the_dates_of_the_quarter_in_date_order() {
+    UCSBDate late = save("19994", "late", "1999-12-01T00:00:00");
+    save("19993", "summer", "1999-07-01T00:00:00");
+    UCSBDate early = save("19994", "early", "1999-09-20T00:00:00");
+
+    assertEquals(List.of(early, late), ucsbDateRepository.findAllByQuarterYYYYQ("19994", BY_DATE));
+  }
+}
@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests run the "due soonest" query of RecommendationRequestRepository against the
+ * database, since the controller tests mock the repositories.
+ */
+@DataJpaTest
+public class RepositoryDueTests {
+
+  private static final String PROFESSOR = "due-tests@ucsb.edu";
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @MockBean
+  WiremockService wiremockService;
+
+  private RecommendationRequest save(String professorEmail, String dateNeeded, boolean done) {
+    return recommendationRequestRepository.save(RecommendationRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu")
+        .professorEmail(professorEmail)
+        .explanation("grad school")
+        .dateRequested(LocalDateTime.parse("2024-01-01T00:00:00"))
+        .dateNeeded(dateNeeded == null ? null : LocalDateTime.parse(dateNeeded))
+        .done(done)
+        .build());
+  }
+
+  @Test
+  public void due_query_returns_the_professors_open_requests_due_soonest_first() {
+    RecommendationRequest later = save(PROFESSOR, "2024-03-01T00:00:00", false);
+    RecommendationRequest soonest = save(PROFESSOR, "2024-02-01T00:00:00", false);
+    save(PROFESSOR, "2024-01-15T00:00:00", true);
+    save(PROFESSOR, null, false);
+    save("someone-else@ucsb.edu", "2024-01-10T00:00:00", false);
+    RecommendationRequest tie = save(PROFESSOR, "2024-03-01T00:00:00", false);
+
+    assertEquals(List.of(soonest, later, tie),
+        recommendationRequestRepository.findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc(
+            PROFESSOR, Limit.of(10)));
+    assertEquals(List.of(soonest, later),
+        recommendationRequestRepository.findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc(
+            PROFESSOR, Limit.of(2)));
+  }
+}
@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests check that the schema created by the Liquibase changelogs has an index
+ * for each derived query that the repositories issue.  Each test calls the repository
+ * method, captures the SQL that Hibernate sends for it from the {@code org.hibernate.SQL}
+ * logger, and asks H2 to EXPLAIN that SQL with the same parameters.
+ */
+@DataJpaTest
+public class RepositoryIndexTests {
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  /**
+   * This method runs a repository call, and returns H2's plan for the one query it sent.
+   * @param call the repository call
+   * @param parameters the values of the query's parameters, in order
+   * @return the plan
+   */
+  private String explain(Runnable call, Object... parameters) {
+    Logger logger = (Logger) LoggerFactory.getLogger("org.hibernate.SQL");
+    Level level = logger.getLevel();
+    ListAppender<ILoggingEvent> statements = new ListAppender<>();
+    statements.start();
+    logger.addAppender(statements);
+    logger.setLevel(Level.DEBUG);
+    try {
+      call.run();
+    } finally {
+      logger.setLevel(level);
+      logger.detachAppender(statements);
+    }
+    List<String> sql = statements.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    assertEquals(1, sql.size(), sql.toString());
+    return jdbcTemplate.queryForObject("EXPLAIN " + sql.get(0), String.class, parameters);
+  }
+
+  @Test
+  public void userRepository_findByEmail_uses_an_index() {
+    String plan = explain(() -> userRepository.findByEmail("cgaucho@ucsb.edu"), "cgaucho@ucsb.edu");
+    assertTrue(plan.contains("USERS_EMAIL_IDX"), plan);
+  }
+
+  @Test
+  public void menuItemReviewRepository_findAllByItemId_uses_an_index() {
+    String plan = explain(() -> menuItemReviewRepository.findAllByItemId(7L), 7L);
+    assertTrue(plan.contains("MENUITEMREVIEW_ITEM_ID_IDX"), plan);
+  }
+
+  @Test
+  public void ucsbDateRepository_findAllByQuarterYYYYQ_uses_an_index() {
+    String plan = explain(() -> ucsbDateRepository.findAllByQuarterYYYYQ("20241", Sort.by("id")), "20241");
+    assertTrue(plan.contains("UCSBDATES_QUARTERYYYYQ_IDX"), plan);
+  }
+
+  @Test
+  public void ucsbDateRepository_range_query_uses_an_index() {
+    LocalDateTime from = LocalDateTime.parse("2024-01-01T00:00:00");
+    LocalDateTime to = LocalDateTime.parse("2024-04-01T00:00:00");
+    String plan = explain(() -> ucsbDateRepository.findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+        from, to, ScrollPosition.keyset(), Sort.by("localDateTime", "id"), Limit.of(100)), from, to, 101);
+    assertTrue(plan.contains("UCSBDATES_LOCAL_DATE_TIME_IDX"), plan);
+  }
+
+  @Test
+  public void recommendationRequestRepository_due_query_uses_an_index() {
+    String plan = explain(() -> recommendationRequestRepository
+        .findByProfessorEmailAndDoneFalseAndDateNeededNotNullOrderByDateNeededAscIdAsc("phtcon@ucsb.edu", Limit.of(10)),
+        "phtcon@ucsb.edu", 10);
+    assertTrue(plan.contains("RECOMMENDATIONREQUESTS_DUE_IDX"), plan);
+  }
+}
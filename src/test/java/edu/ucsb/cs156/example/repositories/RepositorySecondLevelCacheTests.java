@@ -0,0 +1,110 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * These tests check, with the Hibernate statistics, that entities and the results of
+ * cacheable queries are read from the second-level cache.  They run outside of a test
+ * transaction so that each repository call has its own session, as it does when called
+ * from a controller, and so is not answered by the session itself.  The cache is off by
+ * default, so they turn it on with the secondlevelcache profile.
+ */
+@DataJpaTest
+@ActiveProfiles("secondlevelcache")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RepositorySecondLevelCacheTests {
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UserRepository userRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  Statistics statistics;
+
+  @BeforeEach
+  public void enableStatistics() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    statistics.setStatisticsEnabled(true);
+  }
+
+  @AfterEach
+  public void disableStatistics() {
+    statistics.setStatisticsEnabled(false);
+  }
+
+  @Test
+  public void an_entity_that_was_read_is_found_in_the_cache_without_a_query() {
+    UCSBOrganization organization = UCSBOrganization.builder().orgField("L2CACHE").orgTranslationShort("CACHE CLUB")
+        .orgTranslation("SECOND LEVEL CACHE CLUB").inactive(false).build();
+    ucsbOrganizationRepository.save(organization);
+    ucsbOrganizationRepository.findById("L2CACHE");
+    statistics.clear();
+
+    assertEquals("CACHE CLUB", ucsbOrganizationRepository.findById("L2CACHE").get().getOrgTranslationShort());
+    assertEquals("CACHE CLUB", ucsbOrganizationRepository.findById("L2CACHE").get().getOrgTranslationShort());
+
+    assertEquals(2, statistics.getDomainDataRegionStatistics("ucsborganizations").getHitCount());
+    assertEquals(0, statistics.getPrepareStatementCount());
+  }
+
+  @Test
+  public void an_update_query_removes_the_entity_from_the_cache() {
+    UCSBOrganization organization = UCSBOrganization.builder().orgField("L2EVICT").orgTranslationShort("OLD")
+        .orgTranslation("OLD NAME").inactive(false).build();
+    ucsbOrganizationRepository.save(organization);
+    ucsbOrganizationRepository.findById("L2EVICT");
+    UCSBOrganization edited = UCSBOrganization.builder().orgField("L2EVICT").orgTranslationShort("NEW")
+        .orgTranslation("NEW NAME").inactive(true).build();
+
+    assertEquals(1, ucsbOrganizationRepository.updateRowById("L2EVICT", edited));
+    statistics.clear();
+
+    assertEquals("NEW", ucsbOrganizationRepository.findById("L2EVICT").get().getOrgTranslationShort());
+    assertEquals(0, statistics.getDomainDataRegionStatistics("ucsborganizations").getHitCount());
+    assertEquals(1, statistics.getDomainDataRegionStatistics("ucsborganizations").getMissCount());
+  }
+
+  @Test
+  public void find_by_email_is_answered_from_the_query_cache_until_users_change() {
+    userRepository.save(User.builder().email("secondlevelcache@ucsb.edu").fullName("Cache Gaucho").build());
+    userRepository.findByEmail("secondlevelcache@ucsb.edu");
+    statistics.clear();
+
+    assertEquals("Cache Gaucho", userRepository.findByEmail("secondlevelcache@ucsb.edu").get().getFullName());
+    assertEquals("Cache Gaucho", userRepository.findByEmail("secondlevelcache@ucsb.edu").get().getFullName());
+
+    assertEquals(2, statistics.getQueryCacheHitCount());
+    assertEquals(0, statistics.getPrepareStatementCount());
+
+    userRepository.save(User.builder().email("secondlevelcache2@ucsb.edu").build());
+    statistics.clear();
+
+    userRepository.findByEmail("secondlevelcache@ucsb.edu");
+    assertEquals(0, statistics.getQueryCacheHitCount());
+    assertEquals(1, statistics.getQueryCacheMissCount());
+  }
+}
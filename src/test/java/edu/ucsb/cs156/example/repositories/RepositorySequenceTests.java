@@ -0,0 +1,59 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests check that ids are handed out by Hibernate from blocks of 50 taken from
+ * the sequences created by the Liquibase changelogs, rather than one database round
+ * trip per inserted row.
+ */
+@DataJpaTest
+public class RepositorySequenceTests {
+
+  @Autowired
+  RestaurantRepository restaurantRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Test
+  public void saveAll_takes_ids_from_the_sequence_in_blocks_of_50() {
+    // other tests share the sequence (and Hibernate's block of ids), so only compare with where it is now
+    long before = nextSequenceValue();
+
+    List<Restaurant> restaurants = new ArrayList<>();
+    for (int i = 0; i < 60; i++) {
+      restaurants.add(Restaurant.builder().name("Restaurant " + i).description("Description " + i).build());
+    }
+
+    restaurantRepository.saveAll(restaurants);
+
+    List<Long> ids = restaurants.stream().map(Restaurant::getId).toList();
+    assertEquals(ids.stream().sorted().distinct().toList(), ids);
+    // 60 ids need at most two blocks of 50, i.e. at most two reads of the sequence
+    long after = nextSequenceValue();
+    assertTrue(after - before <= 100, "sequence advanced from %d to %d".formatted(before, after));
+    assertEquals(0, (after - before) % 50);
+  }
+
+  private long nextSequenceValue() {
+    return jdbcTemplate.queryForObject(
+        "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'RESTAURANTS_SEQ'", Long.class);
+  }
+}
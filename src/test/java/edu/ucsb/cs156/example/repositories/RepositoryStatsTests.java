@@ -0,0 +1,188 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemReviewStats;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests run the incremental {@code upsertStats} and {@code subtractStats}
+ * queries and the top rated query against the database, since the controller tests mock the
+ * repositories.  Some run several transactions at once, as concurrent requests do.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RepositoryStatsTests {
+
+  private static final LocalDateTime DAY1 = LocalDateTime.parse("2024-01-01T00:00:00");
+  private static final LocalDateTime DAY2 = LocalDateTime.parse("2024-01-02T00:00:00");
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  MenuItemReviewStatsRepository menuItemReviewStatsRepository;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @MockBean
+  WiremockService wiremockService;
+
+  private static MenuItemReviewStats statsOf(long itemId, MenuItemReview... reviews) {
+    MenuItemReviewStats stats = MenuItemReviewStats.builder().itemId(itemId).build();
+    for (MenuItemReview review : reviews) {
+      stats.add(review);
+    }
+    return stats;
+  }
+
+  @Test
+  public void upsert_stats_creates_the_row_of_a_new_item_and_adds_to_it_after() {
+    MenuItemReview review1 = MenuItemReview.builder().itemId(9004).stars(3).dateReviewed(DAY1).build();
+    MenuItemReview review2 = MenuItemReview.builder().itemId(9004).stars(5).dateReviewed(DAY2).build();
+    MenuItemReview review3 = MenuItemReview.builder().itemId(9004).stars(1).build();
+
+    menuItemReviewStatsRepository.upsertStats(statsOf(9004, review1));
+    assertEquals(statsOf(9004, review1), menuItemReviewStatsRepository.findById(9004L).get());
+    menuItemReviewStatsRepository.upsertStats(statsOf(9004, review2));
+    menuItemReviewStatsRepository.upsertStats(statsOf(9004, review3));
+
+    assertEquals(statsOf(9004, review1, review2, review3), menuItemReviewStatsRepository.findById(9004L).get());
+  }
+
+  @Test
+  public void upsert_stats_is_on_conflict_on_postgres_and_merge_elsewhere() {
+    assertEquals(MenuItemReviewStatsUpsertRepositoryImpl.ON_CONFLICT,
+        MenuItemReviewStatsUpsertRepositoryImpl.upsertSql(new PostgreSQLDialect()));
+    assertEquals(MenuItemReviewStatsUpsertRepositoryImpl.MERGE,
+        MenuItemReviewStatsUpsertRepositoryImpl.upsertSql(new H2Dialect()));
+  }
+
+  @Test
+  public void upsert_stats_adds_to_the_row_another_transaction_inserts_first() throws Exception {
+    MenuItemReview first = MenuItemReview.builder().itemId(9005).stars(1).dateReviewed(DAY1).build();
+    MenuItemReview second = MenuItemReview.builder().itemId(9005).stars(4).dateReviewed(DAY2).build();
+    ExecutorService other = Executors.newSingleThreadExecutor();
+    TransactionStatus inserting = transactionManager.getTransaction(new DefaultTransactionDefinition());
+    try {
+      // this transaction inserts the row, and commits only once the other one is waiting for it
+      jdbcTemplate.update("insert into menuitemreviewstats (item_id, reviews, stars_sum, one_star, two_stars, "
+          + "three_stars, four_stars, five_stars, last_reviewed) values (9005, 1, 1, 1, 0, 0, 0, 0, ?)", DAY1);
+      Future<?> upserting = other.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+          status -> menuItemReviewStatsRepository.upsertStats(statsOf(9005, second))));
+      while (jdbcTemplate.queryForObject(
+          "select count(*) from information_schema.sessions where blocker_id is not null", Long.class) == 0) {
+        Thread.onSpinWait();
+      }
+      transactionManager.commit(inserting);
+      upserting.get();
+    } finally {
+      other.shutdown();
+    }
+
+    assertEquals(statsOf(9005, first, second), menuItemReviewStatsRepository.findById(9005L).get());
+  }
+
+  @Test
+  public void concurrent_first_reviews_of_an_item_are_all_counted() throws Exception {
+    int threads = 4;
+    CyclicBarrier start = new CyclicBarrier(threads);
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    MenuItemReview review = MenuItemReview.builder().itemId(9006).stars(5).dateReviewed(DAY1).build();
+    try {
+      List<Future<?>> reviews = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        reviews.add(pool.submit(() -> {
+          start.await();
+          new TransactionTemplate(transactionManager).executeWithoutResult(
+              status -> menuItemReviewStatsRepository.upsertStats(statsOf(9006, review)));
+          return null;
+        }));
+      }
+      for (Future<?> f : reviews) {
+        f.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    assertEquals(statsOf(9006, review, review, review, review), menuItemReviewStatsRepository.findById(9006L).get());
+  }
+
+  @Test
+  public void subtract_stats_finds_the_new_last_reviewed_date_when_the_latest_review_is_removed() {
+    MenuItemReview review1 = menuItemReviewRepository.save(
+        MenuItemReview.builder().itemId(9002).stars(5).dateReviewed(DAY1).build());
+    MenuItemReview review2 = menuItemReviewRepository.save(
+        MenuItemReview.builder().itemId(9002).stars(3).dateReviewed(DAY2).build());
+    menuItemReviewStatsRepository.save(statsOf(9002, review1, review2));
+
+    menuItemReviewRepository.deleteRowById(review2.getId());
+    assertEquals(1, menuItemReviewStatsRepository.subtractStats(statsOf(9002, review2)));
+    assertEquals(statsOf(9002, review1), menuItemReviewStatsRepository.findById(9002L).get());
+
+    menuItemReviewRepository.deleteRowById(review1.getId());
+    menuItemReviewStatsRepository.subtractStats(statsOf(9002, review1));
+    assertEquals(statsOf(9002), menuItemReviewStatsRepository.findById(9002L).get());
+  }
+
+  @Test
+  public void subtract_stats_keeps_the_last_reviewed_date_when_an_older_review_is_removed() {
+    MenuItemReview review1 = MenuItemReview.builder().itemId(9003).stars(1).dateReviewed(DAY1).build();
+    MenuItemReview review2 = MenuItemReview.builder().itemId(9003).stars(5).dateReviewed(DAY2).build();
+    menuItemReviewStatsRepository.save(statsOf(9003, review1, review2));
+
+    menuItemReviewStatsRepository.subtractStats(statsOf(9003, review1));
+
+    assertEquals(statsOf(9003, review2), menuItemReviewStatsRepository.findById(9003L).get());
+  }
+
+  @Test
+  public void top_rated_orders_by_average_stars_then_number_of_reviews() {
+    menuItemReviewStatsRepository.saveAll(List.of(
+        MenuItemReviewStats.builder().itemId(9011).reviews(2).starsSum(8).build(),
+        MenuItemReviewStats.builder().itemId(9012).reviews(1).starsSum(5).build(),
+        MenuItemReviewStats.builder().itemId(9013).reviews(4).starsSum(16).build(),
+        MenuItemReviewStats.builder().itemId(9014).reviews(0).starsSum(0).build()));
+
+    List<Long> top = menuItemReviewStatsRepository.findTopRated(1, Limit.of(1000)).stream()
+        .map(MenuItemReviewStats::getItemId)
+        .filter(itemId -> itemId > 9010 && itemId < 9020)
+        .toList();
+    List<Long> topWithTwoReviews = menuItemReviewStatsRepository.findTopRated(2, Limit.of(1000)).stream()
+        .map(MenuItemReviewStats::getItemId)
+        .filter(itemId -> itemId > 9010 && itemId < 9020)
+        .toList();
+
+    assertEquals(List.of(9012L, 9013L, 9011L), top);
+    assertEquals(List.of(9013L, 9011L), topWithTwoReviews);
+  }
+}
@@ -0,0 +1,221 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.config.TableVersionConfig;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests check that the counters kept by the {@link TableVersionTracker} change with
+ * every committed write to a table, and only then, once the write has committed.  They run outside of a test transaction
+ * so that each write commits on its own, as it does when called from a controller.
+ */
+@DataJpaTest
+@Import(TableVersionConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RepositoryTableVersionTests {
+
+  @Autowired
+  RestaurantRepository restaurantRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  TableVersionTracker tracker;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  ApplicationContext applicationContext;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  private static Restaurant restaurant(String name) {
+    return Restaurant.builder().name(name).description("tracked").build();
+  }
+
+  private static UCSBOrganization organization(String orgField) {
+    return UCSBOrganization.builder().orgField(orgField).orgTranslationShort(orgField)
+        .orgTranslation(orgField).inactive(false).build();
+  }
+
+  @Test
+  public void only_the_tables_of_versioned_entities_have_a_counter() {
+    assertNotNull(restaurantRepository.findTableVersion());
+    assertNotNull(ucsbOrganizationRepository.findTableVersion());
+    assertEquals(0, jdbcTemplate.queryForObject(
+        "select count(*) from table_versions where table_name = 'users'", Integer.class));
+  }
+
+  @Test
+  public void inserts_updates_and_deletes_change_the_version_and_reads_do_not() {
+    Long before = restaurantRepository.findTableVersion();
+    Restaurant saved = restaurantRepository.save(restaurant("Freebirds"));
+    Long inserted = restaurantRepository.findTableVersion();
+    restaurantRepository.findAll();
+    assertEquals(inserted, restaurantRepository.findTableVersion());
+
+    restaurantRepository.updateRowById(saved.getId(), restaurant("Freebirds World Burrito"));
+    Long updated = restaurantRepository.findTableVersion();
+    restaurantRepository.deleteRowById(saved.getId());
+    Long deleted = restaurantRepository.findTableVersion();
+
+    assertEquals(before + 1, inserted);
+    assertEquals(inserted + 1, updated);
+    assertEquals(updated + 1, deleted);
+  }
+
+  @Test
+  public void deleting_one_row_and_inserting_another_changes_the_version() {
+    ucsbOrganizationRepository.upsert(organization("TV-B"));
+    Long before = ucsbOrganizationRepository.findTableVersion();
+
+    ucsbOrganizationRepository.deleteRowById("TV-B");
+    ucsbOrganizationRepository.upsert(organization("TV-A"));
+
+    assertEquals(before + 2, ucsbOrganizationRepository.findTableVersion());
+  }
+
+  @Test
+  public void a_transaction_changes_the_version_once_however_many_rows_it_writes() {
+    Long before = restaurantRepository.findTableVersion();
+
+    restaurantRepository.saveAll(List.of(restaurant("Habit"), restaurant("Blaze"), restaurant("Panda")));
+
+    assertEquals(before + 1, restaurantRepository.findTableVersion());
+  }
+
+  @Test
+  public void the_version_changes_after_the_commit_and_not_inside_the_writing_transaction() {
+    Long before = restaurantRepository.findTableVersion();
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      restaurantRepository.save(restaurant("Not yet counted"));
+      assertTrue(restaurantRepository.findAll().iterator().hasNext());
+      assertEquals(before, restaurantRepository.findTableVersion());
+    });
+
+    assertEquals(before + 1, restaurantRepository.findTableVersion());
+  }
+
+  @Test
+  public void the_counters_are_committed_on_a_connection_that_is_not_in_autocommit_mode() throws Exception {
+    Connection connection = mock(Connection.class);
+    PreparedStatement increment = mock(PreparedStatement.class);
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    when(connection.prepareStatement(anyString())).thenReturn(increment);
+    when(connection.getAutoCommit()).thenReturn(false);
+
+    new TableVersionTracker(new JdbcTemplate(dataSource)).incrementCounters(new TreeSet<>(Set.of("a", "b")));
+
+    verify(increment).setString(1, "a");
+    verify(increment).setString(1, "b");
+    verify(increment, times(2)).executeUpdate();
+    verify(connection).commit();
+  }
+
+  @Test
+  public void a_failure_to_increment_the_counters_is_not_thrown() {
+    JdbcTemplate failing = mock(JdbcTemplate.class);
+    when(failing.execute(any(ConnectionCallback.class))).thenThrow(new CannotGetJdbcConnectionException("down"));
+
+    new TableVersionTracker(failing).incrementCounters(Set.of("restaurants"));
+  }
+
+  @Test
+  public void a_rolled_back_write_does_not_change_the_version() {
+    Long before = restaurantRepository.findTableVersion();
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      restaurantRepository.save(restaurant("Rolled back"));
+      status.setRollbackOnly();
+    });
+
+    assertEquals(before, restaurantRepository.findTableVersion());
+  }
+
+  @Test
+  public void a_row_created_again_does_not_repeat_the_version_of_the_deleted_row() {
+    Long first = ucsbOrganizationRepository.upsert(organization("TV-AGAIN")).getVersion();
+    ucsbOrganizationRepository.deleteRowById("TV-AGAIN");
+
+    Long second = ucsbOrganizationRepository.upsert(organization("TV-AGAIN")).getVersion();
+
+    assertNotEquals(first, second);
+  }
+
+  @Test
+  public void statements_outside_a_transaction_and_of_other_trackers_are_not_counted_here() {
+    JdbcTemplate otherJdbcTemplate = mock(JdbcTemplate.class);
+    TableVersionTracker other = new TableVersionTracker(otherJdbcTemplate);
+    assertEquals("update restaurants set name = 'x'", tracker.inspect("update restaurants set name = 'x'"));
+    Long before = restaurantRepository.findTableVersion();
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      });
+      other.inspect("insert into restaurants (name) values ('other')");
+      other.inspect("delete from ucsborganizations where org_field = 'none'");
+      tracker.inspect("select * from restaurants");
+      restaurantRepository.save(restaurant("Counted once"));
+    });
+
+    assertEquals(before + 1, restaurantRepository.findTableVersion());
+    verify(otherJdbcTemplate).execute(any(ConnectionCallback.class));
+  }
+
+  @Test
+  public void adding_the_counters_again_keeps_them_and_tolerates_another_instance() {
+    Long before = restaurantRepository.findTableVersion();
+    tracker.addMissingCounters(new ContextRefreshedEvent(applicationContext));
+    assertEquals(before, restaurantRepository.findTableVersion());
+
+    JdbcTemplate racing = mock(JdbcTemplate.class);
+    when(racing.update(anyString(), any(Object[].class))).thenThrow(new DuplicateKeyException("taken"));
+    new TableVersionTracker(racing).addMissingCounters(new ContextRefreshedEvent(applicationContext));
+  }
+}
@@ -0,0 +1,211 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBArticles;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests run the single statement {@code updateRowById} and {@code deleteRowById}
+ * queries against the database, since the controller tests mock the repositories.
+ * They run outside of a test transaction so that each query commits on its own,
+ * as it does when called from a controller.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RepositoryUpdateDeleteTests {
+
+  private static final LocalDateTime NOW = LocalDateTime.parse("2024-01-03T00:00:00");
+
+  @Autowired
+  RestaurantRepository restaurantRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  UCSBArticlesRepository ucsbArticlesRepository;
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Test
+  public void restaurants_update_and_delete_report_the_rows_they_changed() {
+    Restaurant saved = restaurantRepository.save(Restaurant.builder().name("Chipotle").description("Mexican").build());
+    long id = saved.getId();
+    Restaurant edited = Restaurant.builder().id(id).name("Taco Bell").description("American").build();
+
+    assertEquals(1, restaurantRepository.updateRowById(id, edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, restaurantRepository.findById(id).get());
+    assertEquals(0, restaurantRepository.updateRowById(id + 1, edited));
+
+    assertEquals(1, restaurantRepository.deleteRowById(id));
+    assertFalse(restaurantRepository.existsById(id));
+    assertEquals(0, restaurantRepository.deleteRowById(id));
+  }
+
+  @Test
+  public void helpRequests_update_and_delete_by_requester_email_and_keep_the_key() {
+    HelpRequest saved = helpRequestRepository.save(HelpRequest.builder().requesterEmail("helped@ucsb.edu").teamId("s24-5pm-1")
+        .tableOrBreakoutRoom("1").requestTime(NOW).explanation("stuck").solved(false).build());
+    HelpRequest edited = HelpRequest.builder().requesterEmail("other@ucsb.edu").teamId("s24-5pm-2")
+        .tableOrBreakoutRoom("2").requestTime(NOW.plusDays(1)).explanation("unstuck").solved(true).build();
+
+    assertEquals(1, helpRequestRepository.updateRowById("helped@ucsb.edu", edited));
+    assertFalse(helpRequestRepository.existsById("other@ucsb.edu"));
+    edited.setRequesterEmail("helped@ucsb.edu");
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, helpRequestRepository.findById("helped@ucsb.edu").get());
+    assertEquals(0, helpRequestRepository.updateRowById("nobody@ucsb.edu", edited));
+
+    assertEquals(1, helpRequestRepository.deleteRowById("helped@ucsb.edu"));
+    assertEquals(0, helpRequestRepository.deleteRowById("helped@ucsb.edu"));
+  }
+
+  @Test
+  public void menuItemReviews_can_be_updated() {
+    MenuItemReview saved = menuItemReviewRepository.save(MenuItemReview.builder().itemId(1).reviewerEmail("a@ucsb.edu")
+        .stars(1).dateReviewed(NOW).comments("bad").build());
+    long id = saved.getId();
+    MenuItemReview edited = MenuItemReview.builder().id(id).itemId(2).reviewerEmail("b@ucsb.edu")
+        .stars(5).dateReviewed(NOW.plusDays(1)).comments("good").build();
+
+    assertEquals(1, menuItemReviewRepository.updateRowById(id, edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, menuItemReviewRepository.findById(id).get());
+  }
+
+  @Test
+  public void recommendationRequests_can_be_updated() {
+    RecommendationRequest saved = recommendationRequestRepository.save(RecommendationRequest.builder().requesterEmail("a@ucsb.edu")
+        .professorEmail("p@ucsb.edu").explanation("grad school").dateRequested(NOW).dateNeeded(NOW).done(false)
+        .build());
+    long id = saved.getId();
+    RecommendationRequest edited = RecommendationRequest.builder().id(id).requesterEmail("b@ucsb.edu")
+        .professorEmail("q@ucsb.edu").explanation("internship").dateRequested(NOW.plusDays(1))
+        .dateNeeded(NOW.plusDays(2)).done(true).build();
+
+    assertEquals(1, recommendationRequestRepository.updateRowById(id, edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, recommendationRequestRepository.findById(id).get());
+  }
+
+  @Test
+  public void ucsbArticles_can_be_updated() {
+    UCSBArticles saved = ucsbArticlesRepository.save(UCSBArticles.builder().title("a").url("https://a.example")
+        .explanation("a").email("a@ucsb.edu").dateAdded(NOW).build());
+    long id = saved.getId();
+    UCSBArticles edited = UCSBArticles.builder().id(id).title("b").url("https://b.example")
+        .explanation("b").email("b@ucsb.edu").dateAdded(NOW.plusDays(1)).build();
+
+    assertEquals(1, ucsbArticlesRepository.updateRowById(id, edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, ucsbArticlesRepository.findById(id).get());
+  }
+
+  @Test
+  public void ucsbDates_can_be_updated() {
+    UCSBDate saved = ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ("20241").name("firstDayOfClasses")
+        .localDateTime(NOW).build());
+    long id = saved.getId();
+    UCSBDate edited = UCSBDate.builder().id(id).quarterYYYYQ("20242").name("lastDayOfClasses")
+        .localDateTime(NOW.plusDays(1)).build();
+
+    assertEquals(1, ucsbDateRepository.updateRowById(id, edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, ucsbDateRepository.findById(id).get());
+  }
+
+  @Test
+  public void ucsbDates_are_only_updated_at_the_version_of_the_incoming_values() {
+    UCSBDate saved = ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ("20241").name("firstDayOfClasses")
+        .localDateTime(NOW).build());
+    long id = saved.getId();
+    UCSBDate edited = UCSBDate.builder().id(id).quarterYYYYQ("20242").name("lastDayOfClasses")
+        .localDateTime(NOW.plusDays(1)).version(saved.getVersion()).build();
+
+    assertEquals(1, ucsbDateRepository.updateRowById(id, edited));
+    assertEquals(0, ucsbDateRepository.updateRowById(id, edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, ucsbDateRepository.findById(id).get());
+  }
+
+  @Test
+  public void ucsbDiningCommonsMenuItems_can_be_updated() {
+    UCSBDiningCommonsMenuItem saved = ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("ortega").name("Baked Pesto Pasta").station("Entree Specials").build());
+    long id = saved.getId();
+    UCSBDiningCommonsMenuItem edited = UCSBDiningCommonsMenuItem.builder().id(id)
+        .diningCommonsCode("portola").name("Tofu Banh Mi").station("Entrees").build();
+
+    assertEquals(1, ucsbDiningCommonsMenuItemRepository.updateRowById(id, edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, ucsbDiningCommonsMenuItemRepository.findById(id).get());
+  }
+
+  @Test
+  public void ucsbDiningCommons_update_and_delete_by_code() {
+    UCSBDiningCommons saved = ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("carrillo").name("Carrillo")
+        .hasSackMeal(false).hasTakeOutMeal(false).hasDiningCam(true).latitude(34.409953).longitude(-119.85277)
+        .build());
+    UCSBDiningCommons edited = UCSBDiningCommons.builder().code("carrillo").name("Carrillo Dining Hall")
+        .hasSackMeal(true).hasTakeOutMeal(true).hasDiningCam(false).latitude(34.4).longitude(-119.8).build();
+
+    assertEquals(1, ucsbDiningCommonsRepository.updateRowById("carrillo", edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertEquals(edited, ucsbDiningCommonsRepository.findById("carrillo").get());
+
+    assertEquals(1, ucsbDiningCommonsRepository.deleteRowById("carrillo"));
+    assertEquals(0, ucsbDiningCommonsRepository.deleteRowById("carrillo"));
+  }
+
+  @Test
+  public void ucsbOrganizations_update_can_change_the_key() {
+    UCSBOrganization saved = ucsbOrganizationRepository.save(UCSBOrganization.builder().orgField("GSA").orgTranslationShort("GAUCHO")
+        .orgTranslation("GAUCHO SPORTS").inactive(false).build());
+    UCSBOrganization edited = UCSBOrganization.builder().orgField("GSA@UCSB").orgTranslationShort("GAUCHO SPORTS")
+        .orgTranslation("GAUCHO SPORTS ANALYTICS").inactive(true).build();
+
+    assertEquals(1, ucsbOrganizationRepository.updateRowById("GSA", edited));
+    edited.setVersion(saved.getVersion() + 1);
+    assertFalse(ucsbOrganizationRepository.existsById("GSA"));
+    assertEquals(edited, ucsbOrganizationRepository.findById("GSA@UCSB").get());
+  }
+}
@@ -0,0 +1,69 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests run {@code upsert} and {@code upsertAll} against the database, since the
+ * controller tests mock the repositories.  They run outside of a test transaction so that
+ * each call commits on its own, as it does when called from a controller.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RepositoryUpsertTests {
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  private static UCSBOrganization organization(String orgField, String translation) {
+    return UCSBOrganization.builder().orgField(orgField).orgTranslationShort(translation)
+        .orgTranslation(translation + " AT UCSB").inactive(false).build();
+  }
+
+  @Test
+  public void upsert_inserts_a_new_row_and_replaces_an_existing_one() {
+    ucsbOrganizationRepository.upsert(organization("UPS1", "FIRST"));
+    UCSBOrganization inserted = ucsbOrganizationRepository.findById("UPS1").get();
+    assertEquals("FIRST", inserted.getOrgTranslationShort());
+
+    UCSBOrganization replaced = ucsbOrganizationRepository.upsert(organization("UPS1", "SECOND"));
+
+    UCSBOrganization stored = ucsbOrganizationRepository.findById("UPS1").get();
+    assertEquals("SECOND", stored.getOrgTranslationShort());
+    assertEquals(inserted.getVersion() + 1, stored.getVersion());
+    assertEquals(stored, replaced);
+  }
+
+  @Test
+  public void upsertAll_inserts_and_replaces_in_one_call_and_keeps_the_last_of_a_repeated_key() {
+    ucsbDiningCommonsRepository.upsert(UCSBDiningCommons.builder().code("ups-a").name("Old A").build());
+
+    List<UCSBDiningCommons> saved = ucsbDiningCommonsRepository.upsertAll(List.of(
+        UCSBDiningCommons.builder().code("ups-a").name("New A").build(),
+        UCSBDiningCommons.builder().code("ups-b").name("First B").build(),
+        UCSBDiningCommons.builder().code("ups-b").name("Second B").build()));
+
+    assertEquals(3, saved.size());
+    assertEquals("New A", ucsbDiningCommonsRepository.findById("ups-a").get().getName());
+    assertEquals("Second B", ucsbDiningCommonsRepository.findById("ups-b").get().getName());
+    assertEquals(List.of(), ucsbDiningCommonsRepository.upsertAll(List.of()));
+  }
+}
@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.services.AdminStatusCache;
+import edu.ucsb.cs156.example.services.CurrentUserCache;
+import edu.ucsb.cs156.example.services.wiremock.WiremockService;
+
+/**
+ * These tests check that every write to a row of the users table drops the cached copies
+ * of that user, through the {@link edu.ucsb.cs156.example.entities.UserChangeListener}.
+ * They run outside of a test transaction so that each write commits on its own, as it
+ * does when called from a controller.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RepositoryUserCacheTests {
+
+  @Autowired
+  UserRepository userRepository;
+
+  @MockBean
+  CurrentUserCache currentUserCache;
+
+  @MockBean
+  AdminStatusCache adminStatusCache;
+
+  @MockBean
+  WiremockService mockWiremockService;
+
+  @Test
+  public void inserting_updating_and_deleting_a_user_evicts_them_each_time() {
+    User user = userRepository.save(User.builder().email("evicted@ucsb.edu").fullName("Evicted").build());
+    verify(currentUserCache, times(1)).invalidate("evicted@ucsb.edu");
+    verify(adminStatusCache, times(1)).invalidate("evicted@ucsb.edu");
+
+    user.setAdmin(true);
+    user = userRepository.save(user);
+    verify(currentUserCache, times(2)).invalidate("evicted@ucsb.edu");
+    verify(adminStatusCache, times(2)).invalidate("evicted@ucsb.edu");
+
+    userRepository.delete(user);
+    verify(currentUserCache, times(3)).invalidate("evicted@ucsb.edu");
+    verify(adminStatusCache, times(3)).invalidate("evicted@ucsb.edu");
+  }
+
+  @Test
+  public void reading_a_user_does_not_evict_them() {
+    userRepository.save(User.builder().email("kept@ucsb.edu").fullName("Kept").build());
+    clearInvocations(currentUserCache, adminStatusCache);
+
+    userRepository.findByEmail("kept@ucsb.edu");
+    userRepository.findAll();
+
+    verifyNoInteractions(currentUserCache, adminStatusCache);
+  }
+}
@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdminStatusCacheTests {
+
+  UserRepository userRepository = mock(UserRepository.class);
+
+  @Test
+  void admin_flag_is_loaded_once_and_then_served_from_the_cache() {
+    when(userRepository.findByEmail("admin@ucsb.edu"))
+        .thenReturn(Optional.of(User.builder().email("admin@ucsb.edu").admin(true).build()));
+    AdminStatusCache cache = new AdminStatusCache(userRepository, 100, Duration.ofMinutes(5));
+
+    assertTrue(cache.isAdmin("admin@ucsb.edu"));
+    assertTrue(cache.isAdmin("admin@ucsb.edu"));
+
+    verify(userRepository, times(1)).findByEmail("admin@ucsb.edu");
+  }
+
+  @Test
+  void users_not_in_the_database_are_not_admins() {
+    when(userRepository.findByEmail("nobody@ucsb.edu")).thenReturn(Optional.empty());
+    AdminStatusCache cache = new AdminStatusCache(userRepository, 100, Duration.ofMinutes(5));
+
+    assertFalse(cache.isAdmin("nobody@ucsb.edu"));
+  }
+
+  @Test
+  void invalidate_causes_the_flag_to_be_reloaded() {
+    when(userRepository.findByEmail("user@ucsb.edu"))
+        .thenReturn(Optional.of(User.builder().email("user@ucsb.edu").admin(false).build()))
+        .thenReturn(Optional.of(User.builder().email("user@ucsb.edu").admin(true).build()));
+    AdminStatusCache cache = new AdminStatusCache(userRepository, 100, Duration.ofMinutes(5));
+
+    assertFalse(cache.isAdmin("user@ucsb.edu"));
+    cache.invalidate("user@ucsb.edu");
+    assertTrue(cache.isAdmin("user@ucsb.edu"));
+
+    verify(userRepository, times(2)).findByEmail("user@ucsb.edu");
+  }
+
+  @Test
+  void entries_expire_after_the_time_to_live() {
+    when(userRepository.findByEmail("admin@ucsb.edu"))
+        .thenReturn(Optional.of(User.builder().email("admin@ucsb.edu").admin(true).build()));
+    AdminStatusCache cache = new AdminStatusCache(userRepository, 100, Duration.ZERO);
+
+    assertTrue(cache.isAdmin("admin@ucsb.edu"));
+    assertTrue(cache.isAdmin("admin@ucsb.edu"));
+
+    verify(userRepository, times(2)).findByEmail("admin@ucsb.edu");
+  }
+
+  @Test
+  void cache_statistics_are_published_as_metrics() {
+    when(userRepository.findByEmail("admin@ucsb.edu"))
+        .thenReturn(Optional.of(User.builder().email("admin@ucsb.edu").admin(true).build()));
+    AdminStatusCache cache = new AdminStatusCache(userRepository, 100, Duration.ofMinutes(5));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    cache.bindTo(registry);
+
+    cache.isAdmin("admin@ucsb.edu");
+    cache.isAdmin("admin@ucsb.edu");
+
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "adminStatus").tag("result", "hit").functionCounter().count());
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "adminStatus").tag("result", "miss").functionCounter().count());
+  }
+}
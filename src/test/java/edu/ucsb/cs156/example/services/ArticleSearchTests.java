@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import edu.ucsb.cs156.example.entities.UCSBArticles;
+import edu.ucsb.cs156.example.repositories.UCSBArticlesRepository;
+
+class ArticleSearchTests {
+
+  static final UCSBArticles STORKE = UCSBArticles.builder().id(1L).title("Storke Tower").explanation("Tallest on campus").build();
+  static final UCSBArticles BEACH = UCSBArticles.builder().id(2L).title("Campus Point").explanation("A beach").build();
+  static final UCSBArticles LAGOON = UCSBArticles.builder().id(3L).title("Campus Lagoon").build();
+
+  UCSBArticlesRepository ucsbArticlesRepository = mock(UCSBArticlesRepository.class);
+
+  ArticleSearch articleSearch() {
+    ArticleSearch articleSearch = new ArticleSearch();
+    articleSearch.ucsbArticlesRepository = ucsbArticlesRepository;
+    articleSearch.taskExecutor = Runnable::run;
+    return articleSearch;
+  }
+
+  @Test
+  void nothing_is_found_until_the_index_is_built() {
+    ArticleSearch articleSearch = articleSearch();
+
+    assertEquals(List.of(), ids(articleSearch.search("campus", null, 10)));
+  }
+
+  @Test
+  void the_index_is_built_from_the_database_a_batch_at_a_time() {
+    when(ucsbArticlesRepository.findBy(eq(ScrollPosition.keyset()), eq(Sort.by("id")), eq(Limit.of(ArticleSearch.BUILD_BATCH_SIZE))))
+        .thenReturn(Window.from(List.of(STORKE, BEACH), i -> ScrollPosition.forward(Map.of("id", 2L)), true));
+    when(ucsbArticlesRepository.findBy(eq(ScrollPosition.forward(Map.of("id", 2L))), any(), any()))
+        .thenReturn(Window.from(List.of(LAGOON), i -> ScrollPosition.forward(Map.of("id", 3L)), false));
+    ArticleSearch articleSearch = articleSearch();
+
+    articleSearch.rebuildInBackground();
+
+    assertEquals(List.of(3L, 2L, 1L), ids(articleSearch.search("campus", null, 10)));
+  }
+
+  @Test
+  void changes_made_while_the_index_is_built_are_kept() {
+    ArticleSearch articleSearch = articleSearch();
+    UCSBArticles beachRenamed = UCSBArticles.builder().id(2L).title("Goleta Beach").build();
+    when(ucsbArticlesRepository.findBy(any(), any(), any())).thenAnswer(invocation -> {
+      articleSearch.put(beachRenamed);
+      articleSearch.put(LAGOON);
+      articleSearch.remove(1L);
+      return Window.from(List.of(STORKE, BEACH), i -> ScrollPosition.forward(Map.of("id", 2L)), false);
+    });
+
+    articleSearch.rebuild();
+
+    assertEquals(List.of(3L), ids(articleSearch.search("campus", null, 10)));
+    assertEquals(List.of(2L), ids(articleSearch.search("goleta", null, 10)));
+
+    articleSearch.remove(3L);
+    assertEquals(List.of(), ids(articleSearch.search("campus", null, 10)));
+  }
+
+  @Test
+  void a_failed_build_keeps_the_current_index() {
+    ArticleSearch articleSearch = articleSearch();
+    articleSearch.put(STORKE);
+    when(ucsbArticlesRepository.findBy(any(), any(), any())).thenAnswer(invocation -> {
+      articleSearch.put(BEACH);
+      throw new IllegalStateException("database is down");
+    });
+
+    articleSearch.rebuild();
+    articleSearch.put(LAGOON);
+
+    assertEquals(List.of(1L, 3L, 2L), ids(articleSearch.search("campus tower", null, 10)));
+  }
+
+  private static List<Long> ids(List<InvertedIndex.Match> matches) {
+    return matches.stream().map(InvertedIndex.Match::id).toList();
+  }
+}
@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.event.InteractiveAuthenticationSuccessEvent;
+import org.springframework.security.authentication.event.LogoutSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+import edu.ucsb.cs156.example.entities.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CurrentUserCacheTests {
+
+  User user = User.builder().email("user@ucsb.edu").fullName("Chris Gaucho").build();
+
+  private static Authentication oauth(String email) {
+    DefaultOAuth2User principal = new DefaultOAuth2User(List.of(), Map.of("sub", "1", "email", email), "sub");
+    return new OAuth2AuthenticationToken(principal, List.of(), "google");
+  }
+
+  @Test
+  void a_user_that_is_put_is_served_from_the_cache() {
+    CurrentUserCache cache = new CurrentUserCache(100, Duration.ofMinutes(1));
+
+    assertNull(cache.getIfPresent("user@ucsb.edu"));
+    cache.put(user);
+
+    assertSame(user, cache.getIfPresent("user@ucsb.edu"));
+    assertSame(user, cache.getIfPresent("user@ucsb.edu"));
+  }
+
+  @Test
+  void invalidate_drops_the_user() {
+    CurrentUserCache cache = new CurrentUserCache(100, Duration.ofMinutes(1));
+    cache.put(user);
+
+    cache.invalidate("user@ucsb.edu");
+
+    assertNull(cache.getIfPresent("user@ucsb.edu"));
+  }
+
+  @Test
+  void logging_in_or_out_drops_that_user_only() {
+    CurrentUserCache cache = new CurrentUserCache(100, Duration.ofMinutes(1));
+    User other = User.builder().email("other@ucsb.edu").build();
+    cache.put(user);
+    cache.put(other);
+
+    cache.onLogin(new InteractiveAuthenticationSuccessEvent(oauth("user@ucsb.edu"), getClass()));
+    assertNull(cache.getIfPresent("user@ucsb.edu"));
+    assertSame(other, cache.getIfPresent("other@ucsb.edu"));
+
+    cache.put(user);
+    cache.onLogout(new LogoutSuccessEvent(oauth("user@ucsb.edu")));
+    assertNull(cache.getIfPresent("user@ucsb.edu"));
+    assertSame(other, cache.getIfPresent("other@ucsb.edu"));
+  }
+
+  @Test
+  void logins_other_than_oauth_are_ignored() {
+    CurrentUserCache cache = new CurrentUserCache(100, Duration.ofMinutes(1));
+    cache.put(user);
+
+    cache.onLogout(new LogoutSuccessEvent(new TestingAuthenticationToken("user@ucsb.edu", "password")));
+
+    assertSame(user, cache.getIfPresent("user@ucsb.edu"));
+  }
+
+  @Test
+  void entries_expire_after_the_time_to_live() {
+    CurrentUserCache cache = new CurrentUserCache(100, Duration.ZERO);
+    cache.put(user);
+
+    assertNull(cache.getIfPresent("user@ucsb.edu"));
+  }
+
+  @Test
+  void cache_statistics_are_published_as_metrics() {
+    CurrentUserCache cache = new CurrentUserCache(100, Duration.ofMinutes(1));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    cache.bindTo(registry);
+
+    cache.getIfPresent("user@ucsb.edu");
+    cache.put(user);
+    cache.getIfPresent("user@ucsb.edu");
+
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "currentUser").tag("result", "hit").functionCounter().count());
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "currentUser").tag("result", "miss").functionCounter().count());
+  }
+}
@@ -0,0 +1,129 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+class DiningCommonsLocationsTests {
+
+  static final UCSBDiningCommons ORTEGA = UCSBDiningCommons.builder()
+      .code("ortega").latitude(34.410987).longitude(-119.84709).build();
+  static final UCSBDiningCommons CARRILLO = UCSBDiningCommons.builder()
+      .code("carrillo").latitude(34.409953).longitude(-119.85277).build();
+  static final UCSBDiningCommons PORTOLA = UCSBDiningCommons.builder()
+      .code("portola").latitude(34.417723).longitude(-119.867427).build();
+  static final UCSBDiningCommons NOWHERE = UCSBDiningCommons.builder()
+      .code("nowhere").build();
+  static final UCSBDiningCommons NO_LONGITUDE = UCSBDiningCommons.builder()
+      .code("no-longitude").latitude(34.4).build();
+
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository = mock(UCSBDiningCommonsRepository.class);
+
+  DiningCommonsLocations locations() {
+    DiningCommonsLocations locations = new DiningCommonsLocations();
+    locations.ucsbDiningCommonsRepository = ucsbDiningCommonsRepository;
+    return locations;
+  }
+
+  @Test
+  void commons_are_loaded_once_and_commons_without_a_location_are_skipped() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ORTEGA, NOWHERE, NO_LONGITUDE, CARRILLO));
+    DiningCommonsLocations locations = locations();
+
+    assertEquals(List.of(CARRILLO, ORTEGA), locations.nearest(34.4099, -119.8527, 5));
+    assertEquals(List.of(ORTEGA), locations.within(34.411, -119.847, 0.1));
+
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void changes_before_the_first_query_are_read_from_the_database() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ORTEGA));
+    DiningCommonsLocations locations = locations();
+
+    locations.put(CARRILLO);
+    locations.remove("ortega");
+
+    assertEquals(List.of(ORTEGA), locations.nearest(34.4099, -119.8527, 5));
+  }
+
+  @Test
+  void put_and_remove_update_a_loaded_index() {
+    when(ucsbDiningCommonsRepository.findAll()).thenReturn(List.of(ORTEGA));
+    DiningCommonsLocations locations = locations();
+    locations.nearest(0, 0, 1);
+
+    locations.putAll(List.of(CARRILLO, PORTOLA));
+    assertEquals(List.of(CARRILLO, ORTEGA, PORTOLA), locations.nearest(34.4099, -119.8527, 5));
+
+    locations.remove("portola");
+    locations.remove("portola");
+    assertEquals(List.of(CARRILLO, ORTEGA), locations.nearest(34.4099, -119.8527, 5));
+
+    UCSBDiningCommons carrilloMoved = UCSBDiningCommons.builder()
+        .code("carrillo").latitude(34.4177).longitude(-119.8674).build();
+    locations.put(carrilloMoved);
+    assertEquals(List.of(carrilloMoved, ORTEGA), locations.nearest(34.4177, -119.8674, 5));
+
+    UCSBDiningCommons carrilloUnmapped = UCSBDiningCommons.builder()
+        .code("carrillo").longitude(-119.8674).build();
+    locations.put(carrilloUnmapped);
+    assertEquals(List.of(ORTEGA), locations.nearest(34.4177, -119.8674, 5));
+
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+
+  @Test
+  void reload_reads_the_commons_from_the_database_again() {
+    when(ucsbDiningCommonsRepository.findAll())
+        .thenReturn(List.of(ORTEGA))
+        .thenReturn(List.of(CARRILLO));
+    DiningCommonsLocations locations = locations();
+
+    assertEquals(List.of(ORTEGA), locations.nearest(34.4099, -119.8527, 5));
+    locations.reload();
+    assertEquals(List.of(CARRILLO), locations.nearest(34.4099, -119.8527, 5));
+  }
+
+  @Test
+  void a_query_that_waits_for_another_to_load_the_commons_does_not_load_them_again() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(ucsbDiningCommonsRepository.findAll()).thenAnswer(invocation -> {
+      loading.countDown();
+      release.await();
+      return List.of(ORTEGA);
+    });
+    DiningCommonsLocations locations = locations();
+
+    AtomicReference<List<UCSBDiningCommons>> first = new AtomicReference<>();
+    Thread loader = new Thread(() -> first.set(locations.nearest(0, 0, 1)));
+    loader.start();
+    loading.await();
+
+    AtomicReference<List<UCSBDiningCommons>> second = new AtomicReference<>();
+    Thread waiter = new Thread(() -> second.set(locations.nearest(0, 0, 1)));
+    waiter.start();
+    while (waiter.getState() != Thread.State.WAITING) {
+      Thread.onSpinWait();
+    }
+    release.countDown();
+    loader.join();
+    waiter.join();
+
+    assertEquals(List.of(ORTEGA), first.get());
+    assertEquals(List.of(ORTEGA), second.get());
+    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+  }
+}
@@ -0,0 +1,89 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class GeoIndexTests {
+
+  record Place(String name, double latitude, double longitude) {
+  }
+
+  static final Place ORTEGA = new Place("ortega", 34.410987, -119.84709);
+  static final Place DLG = new Place("de-la-guerra", 34.409811, -119.845026);
+  static final Place CARRILLO = new Place("carrillo", 34.409953, -119.85277);
+  static final Place PORTOLA = new Place("portola", 34.417723, -119.867427);
+
+  static GeoIndex<Place> index(List<Place> places) {
+    return GeoIndex.of(places, Place::latitude, Place::longitude);
+  }
+
+  static double distanceKm(Place a, double latitude, double longitude) {
+    double dLat = Math.toRadians(latitude - a.latitude());
+    double dLon = Math.toRadians(longitude - a.longitude());
+    double h = Math.pow(Math.sin(dLat / 2), 2)
+        + Math.cos(Math.toRadians(a.latitude())) * Math.cos(Math.toRadians(latitude)) * Math.pow(Math.sin(dLon / 2), 2);
+    return 2 * GeoIndex.EARTH_RADIUS_KM * Math.asin(Math.sqrt(h));
+  }
+
+  static List<Place> byDistance(List<Place> places, double latitude, double longitude) {
+    return places.stream()
+        .sorted(Comparator.comparingDouble(p -> distanceKm(p, latitude, longitude)))
+        .toList();
+  }
+
+  @Test
+  void nearest_returns_the_k_nearest_places_nearest_first() {
+    GeoIndex<Place> index = index(List.of(ORTEGA, DLG, CARRILLO, PORTOLA));
+
+    assertEquals(4, index.size());
+    assertEquals(List.of(CARRILLO), index.nearest(34.4099, -119.8527, 1));
+    assertEquals(List.of(DLG, ORTEGA, CARRILLO), index.nearest(34.4098, -119.8450, 3));
+    assertEquals(List.of(PORTOLA, CARRILLO, ORTEGA, DLG), index.nearest(34.42, -119.87, 10));
+    assertEquals(List.of(), index.nearest(34.42, -119.87, 0));
+  }
+
+  @Test
+  void an_empty_index_finds_nothing() {
+    GeoIndex<Place> index = index(List.of());
+
+    assertEquals(List.of(), index.nearest(34.41, -119.85, 5));
+    assertEquals(List.of(), index.within(34.41, -119.85, 100));
+  }
+
+  @Test
+  void within_returns_the_places_within_the_radius_nearest_first() {
+    GeoIndex<Place> index = index(List.of(ORTEGA, DLG, CARRILLO, PORTOLA));
+
+    assertEquals(List.of(DLG, ORTEGA), index.within(34.4098, -119.8450, 0.5));
+    assertEquals(List.of(DLG, ORTEGA, CARRILLO, PORTOLA), index.within(34.4098, -119.8450, 5));
+    assertEquals(List.of(), index.within(34.4098, -119.8450, -1));
+    assertEquals(4, index.within(-34.4, 60.15, 100000).size());
+  }
+
+  @Test
+  void queries_match_a_scan_of_every_place() {
+    Random random = new Random(156);
+    List<Place> places = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      places.add(new Place("p" + i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+    }
+    GeoIndex<Place> index = index(places);
+
+    for (int i = 0; i < 200; i++) {
+      double latitude = random.nextDouble() * 180 - 90;
+      double longitude = random.nextDouble() * 360 - 180;
+      List<Place> expected = byDistance(places, latitude, longitude);
+
+      assertEquals(expected.subList(0, 7), index.nearest(latitude, longitude, 7));
+      assertEquals(
+          expected.stream().filter(p -> distanceKm(p, latitude, longitude) <= 1000).toList(),
+          index.within(latitude, longitude, 1000));
+    }
+  }
+}
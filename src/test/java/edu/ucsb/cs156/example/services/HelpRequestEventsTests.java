@@ -0,0 +1,162 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+
+class HelpRequestEventsTests {
+
+  static final HelpRequest OPEN = HelpRequest.builder()
+      .requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3").tableOrBreakoutRoom("7")
+      .requestTime(LocalDateTime.parse("2022-04-20T17:35:00")).explanation("Need help with Swagger-ui")
+      .solved(false).build();
+  static final HelpRequest SOLVED = HelpRequest.builder()
+      .requesterEmail("cgaucho@ucsb.edu").teamId("s22-5pm-3").tableOrBreakoutRoom("7")
+      .requestTime(LocalDateTime.parse("2022-04-20T17:35:00")).explanation("Need help with Swagger-ui")
+      .solved(true).build();
+
+  /**
+   * An emitter that records the events sent to it, and can be made to fail.
+   */
+  static class RecordingEmitter extends SseEmitter {
+    final List<String> names = new ArrayList<>();
+    final List<Object> data = new ArrayList<>();
+    final List<Runnable> completionCallbacks = new ArrayList<>();
+    Throwable failure;
+    boolean fail;
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+      if (fail) {
+        throw new IOException("Broken pipe");
+      }
+      List<Object> parts = builder.build().stream().map(DataWithMediaType::getData).toList();
+      names.add(((String) parts.get(0)).replaceAll("^event:(\\w+)\\ndata:$", "$1"));
+      data.add(parts.get(1));
+    }
+
+    @Override
+    public synchronized void onCompletion(Runnable callback) {
+      completionCallbacks.add(callback);
+    }
+
+    @Override
+    public synchronized void completeWithError(Throwable failure) {
+      this.failure = failure;
+    }
+  }
+
+  List<Runnable> tasks = new ArrayList<>();
+
+  HelpRequestEvents events(boolean runTasksAtOnce) {
+    HelpRequestEvents events = new HelpRequestEvents();
+    events.taskExecutor = runTasksAtOnce ? Runnable::run : tasks::add;
+    return events;
+  }
+
+  @Test
+  void subscribe_returns_an_emitter_that_times_out_after_the_stream_timeout() {
+    HelpRequestEvents events = events(true);
+
+    SseEmitter emitter = events.subscribe();
+
+    assertEquals(HelpRequestEvents.STREAM_TIMEOUT.toMillis(), emitter.getTimeout());
+    assertEquals(1, events.subscriberCount());
+  }
+
+  @Test
+  void every_subscriber_is_sent_each_event_in_order() {
+    HelpRequestEvents events = events(true);
+    RecordingEmitter first = new RecordingEmitter();
+    RecordingEmitter second = new RecordingEmitter();
+    assertSame(first, events.subscribe(first));
+    events.subscribe(second);
+
+    events.created(OPEN);
+    events.updated(OPEN);
+    events.updated(SOLVED);
+    events.deleted("cgaucho@ucsb.edu");
+
+    for (RecordingEmitter emitter : List.of(first, second)) {
+      assertEquals(List.of("created", "updated", "solved", "deleted"), emitter.names);
+      assertEquals(List.of(OPEN, OPEN, SOLVED, Map.of("id", "cgaucho@ucsb.edu")), emitter.data);
+    }
+  }
+
+  @Test
+  void a_subscriber_is_removed_when_its_stream_completes() {
+    HelpRequestEvents events = events(true);
+    RecordingEmitter emitter = new RecordingEmitter();
+    events.subscribe(emitter);
+
+    emitter.completionCallbacks.forEach(Runnable::run);
+    events.created(OPEN);
+
+    assertEquals(0, events.subscriberCount());
+    assertEquals(List.of(), emitter.names);
+  }
+
+  @Test
+  void a_subscriber_whose_connection_fails_is_removed() {
+    HelpRequestEvents events = events(true);
+    RecordingEmitter broken = new RecordingEmitter();
+    broken.fail = true;
+    RecordingEmitter working = new RecordingEmitter();
+    events.subscribe(broken);
+    events.subscribe(working);
+
+    events.created(OPEN);
+    events.created(OPEN);
+
+    assertEquals(1, events.subscriberCount());
+    assertEquals("Broken pipe", broken.failure.getMessage());
+    assertEquals(List.of("created", "created"), working.names);
+  }
+
+  @Test
+  void events_are_sent_by_one_task_at_a_time() {
+    HelpRequestEvents events = events(false);
+    RecordingEmitter emitter = new RecordingEmitter();
+    events.subscribe(emitter);
+
+    events.created(OPEN);
+    events.updated(OPEN);
+    assertEquals(1, tasks.size());
+    assertEquals(List.of(), emitter.names);
+
+    tasks.remove(0).run();
+    assertEquals(List.of("created", "updated"), emitter.names);
+
+    events.deleted("cgaucho@ucsb.edu");
+    assertEquals(1, tasks.size());
+    tasks.remove(0).run();
+    assertEquals(List.of("created", "updated", "deleted"), emitter.names);
+  }
+
+  @Test
+  void a_subscriber_that_falls_behind_is_sent_resync_in_place_of_the_dropped_events() {
+    HelpRequestEvents events = events(false);
+    RecordingEmitter emitter = new RecordingEmitter();
+    events.subscribe(emitter);
+
+    for (int i = 0; i < HelpRequestEvents.SUBSCRIBER_BUFFER_SIZE; i++) {
+      events.created(OPEN);
+    }
+    events.updated(SOLVED);
+    tasks.forEach(Runnable::run);
+
+    assertEquals(List.of("resync", "solved"), emitter.names);
+    assertEquals(List.of(Map.of(), SOLVED), emitter.data);
+  }
+}
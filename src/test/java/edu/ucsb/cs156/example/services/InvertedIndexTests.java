@@ -0,0 +1,126 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class InvertedIndexTests {
+
+  @Test
+  void words_are_letters_and_digits_in_lower_case() {
+    assertEquals(List.of("gauchos", "win", "2024", "café", "ncaa"),
+        InvertedIndex.words("Gauchos win 2024 (Café) -- NCAA!"));
+    assertEquals(List.of(), InvertedIndex.words(null));
+  }
+
+  @Test
+  void an_empty_index_finds_nothing() {
+    InvertedIndex index = new InvertedIndex();
+
+    assertEquals(0, index.size());
+    assertEquals(List.of(), ids(index.search("gaucho", null, 10)));
+  }
+
+  @Test
+  void documents_with_more_of_the_query_words_rank_higher() {
+    InvertedIndex index = new InvertedIndex();
+    index.put(1, "Storke Tower", "The tallest building on campus");
+    index.put(2, "Campus Point", "A beach next to campus");
+    index.put(3, "Campus dining", null);
+    index.put(4, "Storke Plaza", "Next to Storke Tower on campus");
+
+    assertEquals(4, index.size());
+    assertEquals(List.of(4L, 1L), ids(index.search("storke tower", null, 10)));
+    assertEquals(List.of(2L, 4L), ids(index.search("next to campus point", null, 2)));
+    assertEquals(List.of(), ids(index.search("isla vista", null, 10)));
+    assertEquals(List.of(), ids(index.search("", null, 10)));
+  }
+
+  @Test
+  void rarer_words_count_for_more_and_ties_are_newest_first() {
+    InvertedIndex index = new InvertedIndex();
+    index.put(1, "gaucho news");
+    index.put(2, "gaucho sports");
+    index.put(3, "gaucho news");
+
+    assertEquals(List.of(2L, 3L, 1L), ids(index.search("gaucho sports news", null, 10)));
+    assertEquals(List.of(3L, 1L), ids(index.search("news", null, 10)));
+  }
+
+  @Test
+  void search_pages_through_the_ranked_results_after_the_last_match() {
+    InvertedIndex index = new InvertedIndex();
+    for (long id = 1; id <= 10; id++) {
+      index.put(id, "gaucho");
+    }
+
+    List<InvertedIndex.Match> first = index.search("gaucho", null, 3);
+    List<InvertedIndex.Match> second = index.search("gaucho", first.get(2), 3);
+
+    assertEquals(List.of(10L, 9L, 8L), ids(first));
+    assertEquals(List.of(7L, 6L, 5L), ids(second));
+    assertEquals(List.of(1L), ids(index.search("gaucho", new InvertedIndex.Match(2, first.get(0).score()), 3)));
+    assertEquals(List.of(), ids(index.search("gaucho", null, -1)));
+  }
+
+  @Test
+  void a_better_match_added_between_pages_does_not_repeat_a_match() {
+    InvertedIndex index = new InvertedIndex();
+    index.put(1, "gaucho news");
+    index.put(2, "gaucho news");
+    index.put(3, "gaucho union");
+    List<InvertedIndex.Match> first = index.search("news", null, 1);
+
+    index.put(4, "news news");
+
+    assertEquals(List.of(2L), ids(first));
+    assertEquals(List.of(4L, 2L, 1L), ids(index.search("news", null, 10)));
+    assertEquals(List.of(1L), ids(index.search("news", first.get(0), 10)));
+
+    index.remove(2);
+    assertEquals(List.of(1L), ids(index.search("news", first.get(0), 10)));
+  }
+
+  @Test
+  void matches_with_a_higher_score_come_before_those_after_the_cursor() {
+    InvertedIndex index = new InvertedIndex();
+    index.put(1, "gaucho");
+    index.put(2, "gaucho gaucho gaucho");
+
+    List<InvertedIndex.Match> all = index.search("gaucho", null, 10);
+
+    assertEquals(List.of(2L, 1L), ids(all));
+    assertEquals(List.of(1L), ids(index.search("gaucho", all.get(0), 10)));
+    assertEquals(List.of(), ids(index.search("gaucho", all.get(1), 10)));
+  }
+
+  @Test
+  void documents_can_be_replaced_and_removed_in_any_order() {
+    InvertedIndex index = new InvertedIndex();
+    for (long id : new long[] { 5, 1, 9, 3, 7, 2, 8 }) {
+      index.put(id, "gaucho", "word" + id);
+    }
+
+    index.put(3, "olé");
+    index.remove(9);
+    index.remove(9);
+    index.remove(5);
+
+    assertEquals(5, index.size());
+    assertEquals(List.of(8L, 7L, 2L, 1L), ids(index.search("gaucho", null, 10)));
+    assertEquals(List.of(3L), ids(index.search("OLÉ", null, 10)));
+    assertEquals(List.of(), ids(index.search("word9 word5 word3", null, 10)));
+
+    for (long id : new long[] { 1, 2, 3, 7, 8 }) {
+      index.remove(id);
+    }
+    assertEquals(0, index.size());
+    assertEquals(List.of(), ids(index.search("gaucho olé", null, 10)));
+  }
+
+  private static List<Long> ids(List<InvertedIndex.Match> matches) {
+    return matches.stream().map(InvertedIndex.Match::id).toList();
+  }
+}
@@ -0,0 +1,150 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+class OrganizationSuggestionsTests {
+
+  static final UCSBOrganization ZPR = UCSBOrganization.builder()
+      .orgField("ZPR").orgTranslationShort("ZETA PHI RHO").orgTranslation("ZETA PHI RHO AT UCSB").build();
+  static final UCSBOrganization SKY = UCSBOrganization.builder()
+      .orgField("SKY").orgTranslationShort("SKYDIVING CLUB").orgTranslation("SKYDIVING CLUB AT UCSB").build();
+  static final UCSBOrganization PHI = UCSBOrganization.builder()
+      .orgField("PHI").orgTranslationShort("PHILOSOPHY CLUB").orgTranslation("PHILOSOPHY CLUB AT UCSB").build();
+  static final UCSBOrganization OLD = UCSBOrganization.builder()
+      .orgField("OLD").orgTranslationShort("ZETA OLD").orgTranslation(null).inactive(true).build();
+
+  UCSBOrganizationRepository ucsbOrganizationRepository = mock(UCSBOrganizationRepository.class);
+
+  OrganizationSuggestions suggestions() {
+    OrganizationSuggestions suggestions = new OrganizationSuggestions();
+    suggestions.ucsbOrganizationRepository = ucsbOrganizationRepository;
+    return suggestions;
+  }
+
+  @Test
+  void organizations_are_loaded_once_and_inactive_organizations_are_skipped() {
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(ZPR, SKY, OLD));
+    OrganizationSuggestions suggestions = suggestions();
+
+    assertEquals(List.of(ZPR), suggestions.suggest("zeta", 10));
+    assertEquals(List.of(SKY), suggestions.suggest("Sky", 10));
+
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+  }
+
+  @Test
+  void a_blank_prefix_suggests_nothing_without_loading() {
+    OrganizationSuggestions suggestions = suggestions();
+
+    assertEquals(List.of(), suggestions.suggest("  ", 10));
+    assertEquals(List.of(), suggestions.suggest(null, 10));
+
+    verify(ucsbOrganizationRepository, never()).findAll();
+  }
+
+  @Test
+  void matches_at_the_start_of_a_field_come_before_matches_at_a_later_word() {
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(ZPR, SKY, PHI));
+    OrganizationSuggestions suggestions = suggestions();
+
+    assertEquals(List.of(PHI, ZPR), suggestions.suggest("phi", 10));
+    assertEquals(List.of(ZPR), suggestions.suggest("rho at", 10));
+    assertEquals(List.of(SKY, PHI), suggestions.suggest("club", 10));
+    assertEquals(List.of(PHI), suggestions.suggest("phi", 1));
+    assertEquals(List.of(ZPR, SKY, PHI), suggestions.suggest("ucsb", 10));
+    assertEquals(List.of(), suggestions.suggest("hi", 10));
+  }
+
+  @Test
+  void changes_before_the_first_query_are_read_from_the_database() {
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(ZPR));
+    OrganizationSuggestions suggestions = suggestions();
+
+    suggestions.put(SKY);
+    suggestions.remove("ZPR");
+
+    assertEquals(List.of(ZPR), suggestions.suggest("z", 10));
+    assertEquals(List.of(), suggestions.suggest("s", 10));
+  }
+
+  @Test
+  void put_and_remove_update_a_loaded_index() {
+    when(ucsbOrganizationRepository.findAll()).thenReturn(List.of(ZPR));
+    OrganizationSuggestions suggestions = suggestions();
+    suggestions.suggest("z", 1);
+
+    suggestions.putAll(List.of(SKY, PHI));
+    assertEquals(List.of(SKY), suggestions.suggest("sky", 10));
+
+    suggestions.remove("SKY");
+    suggestions.remove("SKY");
+    assertEquals(List.of(), suggestions.suggest("sky", 10));
+
+    UCSBOrganization zprRenamed = UCSBOrganization.builder()
+        .orgField("ZPR").orgTranslationShort("ZETA PSI").orgTranslation("ZETA PSI AT UCSB").build();
+    suggestions.put(zprRenamed);
+    assertEquals(List.of(zprRenamed), suggestions.suggest("zeta", 10));
+
+    UCSBOrganization zprInactive = UCSBOrganization.builder()
+        .orgField("ZPR").orgTranslationShort("ZETA PSI").orgTranslation("ZETA PSI AT UCSB").inactive(true).build();
+    suggestions.put(zprInactive);
+    assertEquals(List.of(), suggestions.suggest("zeta", 10));
+  }
+
+  @Test
+  void reload_reads_the_organizations_from_the_database_again() {
+    when(ucsbOrganizationRepository.findAll())
+        .thenReturn(List.of(ZPR))
+        .thenReturn(List.of(SKY));
+    OrganizationSuggestions suggestions = suggestions();
+
+    assertEquals(List.of(ZPR), suggestions.suggest("ucsb", 10));
+    suggestions.reload();
+    assertEquals(List.of(SKY), suggestions.suggest("ucsb", 10));
+  }
+
+  @Test
+  void a_query_that_waits_for_another_to_load_the_organizations_does_not_load_them_again() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(ucsbOrganizationRepository.findAll()).thenAnswer(invocation -> {
+      loading.countDown();
+      release.await();
+      return List.of(ZPR);
+    });
+    OrganizationSuggestions suggestions = suggestions();
+
+    AtomicReference<List<UCSBOrganization>> first = new AtomicReference<>();
+    Thread loader = new Thread(() -> first.set(suggestions.suggest("z", 1)));
+    loader.start();
+    loading.await();
+
+    AtomicReference<List<UCSBOrganization>> second = new AtomicReference<>();
+    Thread waiter = new Thread(() -> second.set(suggestions.suggest("z", 1)));
+    waiter.start();
+    while (waiter.getState() != Thread.State.WAITING) {
+      Thread.onSpinWait();
+    }
+    release.countDown();
+    loader.join();
+    waiter.join();
+
+    assertEquals(List.of(ZPR), first.get());
+    assertEquals(List.of(ZPR), second.get());
+    verify(ucsbOrganizationRepository, times(1)).findAll();
+  }
+}
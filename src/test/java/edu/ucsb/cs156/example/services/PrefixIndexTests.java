@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PrefixIndexTests {
+
+  static PrefixIndex<String> index(String... items) {
+    return PrefixIndex.of(List.of(items), item -> Arrays.asList(item.split("\\|", -1)));
+  }
+
+  @Test
+  void normalize_strips_collapses_white_space_and_lower_cases() {
+    assertEquals("zeta phi rho", PrefixIndex.normalize("  Zeta \t PHI\n rho "));
+    assertEquals("", PrefixIndex.normalize(null));
+  }
+
+  @Test
+  void find_returns_the_items_with_a_key_starting_with_the_prefix_in_key_order() {
+    PrefixIndex<String> index = index("OSLI|Office of Student Life", "GSA|Graduate Student Association", "SKY|Skydiving Club");
+
+    assertEquals(List.of("OSLI|Office of Student Life"), index.find("osl", 10));
+    assertEquals(List.of("OSLI|Office of Student Life"), index.find(" O", 10));
+    assertEquals(List.of("SKY|Skydiving Club"), index.find("SKY", 10));
+    assertEquals(List.of("GSA|Graduate Student Association"), index.find("graduate  student", 10));
+    assertEquals(List.of(), index.find("zzz", 10));
+  }
+
+  @Test
+  void an_item_is_returned_once_even_if_several_of_its_keys_match() {
+    PrefixIndex<String> index = index("sky|skydiving", "skate|");
+
+    assertEquals(List.of("skate|", "sky|skydiving"), index.find("sk", 10));
+  }
+
+  @Test
+  void find_returns_at_most_limit_items() {
+    PrefixIndex<String> index = index("aa", "ab", "ac");
+
+    assertEquals(List.of("aa", "ab"), index.find("a", 2));
+  }
+
+  @Test
+  void an_empty_index_finds_nothing() {
+    assertEquals(List.of(), index().find("a", 10));
+  }
+
+  @Test
+  void items_with_the_same_key_are_all_found_in_the_order_given() {
+    PrefixIndex<String> index = index("a|club", "b|club", "c|club", "d|club", "e|club");
+
+    assertEquals(List.of("a|club", "b|club", "c|club", "d|club", "e|club"), index.find("club", 10));
+  }
+}
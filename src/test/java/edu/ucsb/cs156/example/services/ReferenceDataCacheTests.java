@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReferenceDataCacheTests {
+
+  static final UCSBDiningCommons CARRILLO = UCSBDiningCommons.builder().code("carrillo").name("Carrillo").version(2L).build();
+  static final UCSBDiningCommons ORTEGA = UCSBDiningCommons.builder().code("ortega").name("Ortega").version(0L).build();
+
+  UCSBDiningCommonsRepository repository = mock(UCSBDiningCommonsRepository.class);
+
+  ReferenceDataCache<UCSBDiningCommons, String> cache = new ReferenceDataCache<>("ucsbDiningCommons", repository,
+      100, Duration.ofMinutes(10));
+
+  @Test
+  void a_row_is_read_from_the_repository_once() {
+    when(repository.findById("carrillo")).thenReturn(Optional.of(CARRILLO));
+
+    assertEquals(Optional.of(CARRILLO), cache.findById("carrillo"));
+    assertEquals(Optional.of(CARRILLO), cache.findById("carrillo"));
+
+    verify(repository, times(1)).findById("carrillo");
+  }
+
+  @Test
+  void a_row_that_is_not_found_is_not_cached() {
+    when(repository.findById("munger")).thenReturn(Optional.empty());
+
+    assertEquals(Optional.empty(), cache.findById("munger"));
+    assertEquals(Optional.empty(), cache.findById("munger"));
+
+    verify(repository, times(2)).findById("munger");
+  }
+
+  @Test
+  void the_snapshot_is_read_once_with_the_version_of_the_table_read_first() {
+    when(repository.findTableVersion()).thenReturn(42L);
+    when(repository.findAll()).thenReturn(new ArrayList<>(List.of(ORTEGA, CARRILLO)));
+
+    ReferenceDataCache.Snapshot<UCSBDiningCommons> snapshot = cache.findAll();
+
+    assertEquals(List.of(ORTEGA, CARRILLO), snapshot.rows());
+    assertEquals(42L, snapshot.version());
+    assertSame(snapshot, cache.findAll());
+    InOrder order = inOrder(repository);
+    order.verify(repository).findTableVersion();
+    order.verify(repository).findAll();
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  void invalidate_drops_the_row_and_the_snapshot() {
+    when(repository.findById("carrillo")).thenReturn(Optional.of(CARRILLO));
+    when(repository.findAll()).thenReturn(List.of(CARRILLO));
+    cache.findById("carrillo");
+    cache.findById("ortega");
+    cache.findAll();
+
+    cache.invalidate("carrillo");
+    cache.findById("carrillo");
+    cache.findAll();
+
+    verify(repository, times(2)).findById("carrillo");
+    verify(repository, times(2)).findAll();
+  }
+
+  @Test
+  void statistics_are_published_as_cache_metrics() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    cache.bindTo(registry);
+    when(repository.findById("carrillo")).thenReturn(Optional.of(CARRILLO));
+    when(repository.findAll()).thenReturn(List.of(CARRILLO));
+
+    cache.findById("carrillo");
+    cache.findById("carrillo");
+    cache.findAll();
+
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "ucsbDiningCommons").tag("result", "hit").functionCounter().count());
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "ucsbDiningCommons").tag("result", "miss").functionCounter().count());
+    assertEquals(1.0, registry.get("cache.gets").tag("cache", "ucsbDiningCommonsAll").tag("result", "miss").functionCounter().count());
+  }
+}
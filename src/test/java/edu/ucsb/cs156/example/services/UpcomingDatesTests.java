@@ -0,0 +1,136 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+class UpcomingDatesTests {
+
+  static final LocalDateTime NOW = LocalDateTime.parse("2024-03-01T12:00:00");
+
+  static UCSBDate date(long id, String localDateTime) {
+    return UCSBDate.builder()
+        .id(id)
+        .name("date" + id)
+        .quarterYYYYQ("20242")
+        .localDateTime(localDateTime == null ? null : LocalDateTime.parse(localDateTime))
+        .build();
+  }
+
+  static final UCSBDate PAST = date(1, "2024-02-01T00:00:00");
+  static final UCSBDate AT_NOW = date(2, "2024-03-01T12:00:00");
+  static final UCSBDate SOON = date(3, "2024-03-05T00:00:00");
+  static final UCSBDate SOON_TOO = date(4, "2024-03-05T00:00:00");
+  static final UCSBDate LATER = date(5, "2024-06-01T00:00:00");
+  static final UCSBDate UNDATED = date(6, null);
+
+  UCSBDateRepository ucsbDateRepository = mock(UCSBDateRepository.class);
+
+  UpcomingDates upcomingDates() {
+    UpcomingDates upcomingDates = new UpcomingDates();
+    upcomingDates.ucsbDateRepository = ucsbDateRepository;
+    return upcomingDates;
+  }
+
+  @Test
+  void dates_are_loaded_once_and_returned_in_order_from_the_given_time() {
+    when(ucsbDateRepository.findAll()).thenReturn(List.of(LATER, SOON_TOO, UNDATED, PAST, SOON, AT_NOW));
+    UpcomingDates upcomingDates = upcomingDates();
+
+    assertEquals(List.of(AT_NOW, SOON, SOON_TOO, LATER), upcomingDates.upcoming(NOW, 10));
+    assertEquals(List.of(AT_NOW, SOON), upcomingDates.upcoming(NOW, 2));
+    assertEquals(List.of(), upcomingDates.upcoming(NOW, -1));
+    assertEquals(List.of(), upcomingDates.upcoming(NOW.plusYears(1), 10));
+
+    verify(ucsbDateRepository, times(1)).findAll();
+  }
+
+  @Test
+  void changes_before_the_first_query_are_read_from_the_database() {
+    when(ucsbDateRepository.findAll()).thenReturn(List.of(SOON));
+    UpcomingDates upcomingDates = upcomingDates();
+
+    upcomingDates.put(LATER);
+    upcomingDates.remove(3);
+
+    assertEquals(List.of(SOON), upcomingDates.upcoming(NOW, 10));
+  }
+
+  @Test
+  void put_and_remove_update_a_loaded_index() {
+    when(ucsbDateRepository.findAll()).thenReturn(List.of(SOON));
+    UpcomingDates upcomingDates = upcomingDates();
+    upcomingDates.upcoming(NOW, 1);
+
+    upcomingDates.putAll(List.of(LATER, PAST));
+    assertEquals(List.of(SOON, LATER), upcomingDates.upcoming(NOW, 10));
+
+    upcomingDates.remove(5);
+    upcomingDates.remove(5);
+    assertEquals(List.of(SOON), upcomingDates.upcoming(NOW, 10));
+
+    UCSBDate soonMoved = date(3, "2024-02-15T00:00:00");
+    upcomingDates.put(soonMoved);
+    assertEquals(List.of(), upcomingDates.upcoming(NOW, 10));
+    assertEquals(List.of(soonMoved), upcomingDates.upcoming(NOW.minusMonths(1), 1));
+
+    UCSBDate soonUndated = date(3, null);
+    upcomingDates.put(soonUndated);
+    assertEquals(List.of(PAST), upcomingDates.upcoming(PAST.getLocalDateTime(), 10));
+  }
+
+  @Test
+  void reload_reads_the_dates_from_the_database_again() {
+    when(ucsbDateRepository.findAll())
+        .thenReturn(List.of(SOON))
+        .thenReturn(List.of(LATER));
+    UpcomingDates upcomingDates = upcomingDates();
+
+    assertEquals(List.of(SOON), upcomingDates.upcoming(NOW, 10));
+    upcomingDates.reload();
+    assertEquals(List.of(LATER), upcomingDates.upcoming(NOW, 10));
+  }
+
+  @Test
+  void a_query_that_waits_for_another_to_load_the_dates_does_not_load_them_again() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(ucsbDateRepository.findAll()).thenAnswer(invocation -> {
+      loading.countDown();
+      release.await();
+      return List.of(SOON);
+    });
+    UpcomingDates upcomingDates = upcomingDates();
+
+    AtomicReference<List<UCSBDate>> first = new AtomicReference<>();
+    Thread loader = new Thread(() -> first.set(upcomingDates.upcoming(NOW, 1)));
+    loader.start();
+    loading.await();
+
+    AtomicReference<List<UCSBDate>> second = new AtomicReference<>();
+    Thread waiter = new Thread(() -> second.set(upcomingDates.upcoming(NOW, 1)));
+    waiter.start();
+    while (waiter.getState() != Thread.State.WAITING) {
+      Thread.onSpinWait();
+    }
+    release.countDown();
+    loader.join();
+    waiter.join();
+
+    assertEquals(List.of(SOON), first.get());
+    assertEquals(List.of(SOON), second.get());
+    verify(ucsbDateRepository, times(1)).findAll();
+  }
+}